@@ -0,0 +1,140 @@
+package org.jlab.icalibrate.bench;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Random;
+import org.jlab.icalibrate.ICalibrateApp;
+import org.jlab.icalibrate.exception.MissingDataException;
+import org.jlab.icalibrate.model.DoseRateMeasurement;
+import org.jlab.icalibrate.model.Hall;
+import org.jlab.icalibrate.model.HallCalibrationDataset;
+import org.jlab.icalibrate.model.IonChamber;
+import org.jlab.icalibrate.model.IonChamberDataset;
+
+/**
+ * Synthetic calibration data for the benchmarks. Data is generated from a fixed seed so every run
+ * measures the same work.
+ *
+ * @author ryans
+ */
+final class BenchmarkData {
+
+  /** The number of data rows of the example HCD files (33 lines including the header). */
+  static final int EXAMPLE_ROWS = 24;
+
+  private static final String[] ION_CHAMBERS = {
+    "SLD1H02G", "SLD1H03G", "SLD1H04G", "SLD1H06G", "SLD1H07G", "SLD1H08G"
+  };
+
+  private BenchmarkData() {
+    // Can't instantiate publicly
+  }
+
+  /**
+   * Load the test configuration, which ion chamber PV names are derived from.
+   *
+   * @throws IOException If unable to load
+   */
+  static void loadConfiguration() throws IOException {
+    try (InputStream in =
+        ICalibrateApp.class.getClassLoader().getResourceAsStream("icalibrate.properties")) {
+      if (in == null) {
+        throw new IOException("icalibrate.properties not found on classpath");
+      }
+
+      ICalibrateApp.APP_PROPERTIES.load(in);
+    }
+  }
+
+  /**
+   * Create the measurements of one ion chamber: dose rate proportional to current plus noise.
+   *
+   * @param rows The number of measurements
+   * @param random The random source
+   * @return The measurements
+   */
+  static List<DoseRateMeasurement> measurements(int rows, Random random) {
+    List<DoseRateMeasurement> measurementList = new ArrayList<>(rows);
+    double scale = 10 + random.nextDouble() * 20;
+
+    for (int i = 0; i < rows; i++) {
+      double current = 1.5 + 4.5 * i / rows + random.nextDouble() * 0.01;
+      double doseRate = scale * current * (1 + random.nextGaussian() * 0.02);
+
+      measurementList.add(new DoseRateMeasurement(current, doseRate, 10, doseRate * 0.02));
+    }
+
+    return measurementList;
+  }
+
+  /**
+   * Create a Hall A dataset of the example ion chambers.
+   *
+   * @param rows The number of measurements per ion chamber
+   * @return The dataset
+   * @throws MissingDataException If the configuration is missing an ion chamber property
+   */
+  static HallCalibrationDataset dataset(int rows) throws MissingDataException {
+    Random random = new Random(1);
+    List<IonChamberDataset> datasetList = new ArrayList<>();
+
+    for (String epicsName : ION_CHAMBERS) {
+      IonChamber ic = IonChamber.newInstance(Hall.A, epicsName, null, null);
+      datasetList.add(new IonChamberDataset(ic, measurements(rows, random)));
+    }
+
+    return new HallCalibrationDataset(
+        Hall.A, "Carbon", "4", "benchmark", new Date(0), "bench", datasetList);
+  }
+
+  /**
+   * Write a dataset in the legacy matrix format (all ion chambers share the current column), as
+   * found in the example HCD files.
+   *
+   * @param file The file
+   * @param dataset The dataset
+   * @throws IOException If unable to write
+   */
+  static void writeMatrix(File file, HallCalibrationDataset dataset) throws IOException {
+    List<IonChamberDataset> datasetList = dataset.getMeasuredDoseRateDataset();
+
+    try (PrintWriter writer = new PrintWriter(file, StandardCharsets.UTF_8.name())) {
+      writer.println("--- Start HCD header");
+      writer.println("Hall: " + dataset.getHall().name());
+      writer.println("Target: " + dataset.getTarget());
+      writer.println("Pass: " + dataset.getPass());
+      writer.println("Note: " + dataset.getNote());
+      writer.println("Calibrated Date: 1970-01-01T00:00");
+      writer.println("Calibrated By: " + dataset.getCalibratedBy());
+      writer.println("--- End HCD header");
+
+      StringBuilder builder = new StringBuilder("#HALL CURR");
+
+      for (IonChamberDataset icDataset : datasetList) {
+        builder.append(',').append(icDataset.getIonChamber().getEpicsName());
+      }
+
+      writer.println(builder);
+
+      int rows = datasetList.get(0).getMeasurementList().size();
+
+      for (int i = 0; i < rows; i++) {
+        builder.setLength(0);
+        builder.append(datasetList.get(0).getMeasurementList().get(i).getCurrent());
+
+        for (IonChamberDataset icDataset : datasetList) {
+          DoseRateMeasurement measurement = icDataset.getMeasurementList().get(i);
+          builder.append(',').append(Math.round(measurement.getDoseRateRadsPerHour()));
+        }
+
+        writer.println(builder);
+      }
+    }
+  }
+}
@@ -0,0 +1,64 @@
+package org.jlab.icalibrate.bench;
+
+import gov.aps.jca.dbr.DBR;
+import java.util.concurrent.TimeUnit;
+import org.jlab.icalibrate.epics.ChannelManager;
+import org.jlab.icalibrate.epics.EmbeddedCaServer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures a synchronous CA get and put round trip against the embedded loopback CA server. The
+ * channel is connected during setup so only the round trip is measured.
+ *
+ * @author ryans
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class ChannelManagerBenchmark {
+
+  private static final String PV = "psub_aa_ipos";
+
+  private EmbeddedCaServer server;
+  private ChannelManager manager;
+  private int value = 0;
+
+  @Setup
+  public void setUp() throws Exception {
+    server = new EmbeddedCaServer();
+    server.start();
+    manager = new ChannelManager();
+    manager.get(PV); // Connect outside of the measurement
+  }
+
+  @TearDown
+  public void tearDown() throws Exception {
+    manager.close();
+    server.close();
+  }
+
+  @Benchmark
+  public DBR get() throws Exception {
+    return manager.get(PV);
+  }
+
+  @Benchmark
+  public int put() throws Exception {
+    value = (value + 1) % 1000;
+    manager.put(PV, value);
+    return value;
+  }
+}
@@ -0,0 +1,62 @@
+package org.jlab.icalibrate.bench;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.jlab.icalibrate.model.ChartDataset;
+import org.jlab.icalibrate.model.Hall;
+import org.jlab.icalibrate.model.IonChamber;
+import org.jlab.icalibrate.model.IonChamberDataset;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures fitting a chart dataset (linear and logarithmic regression) and recomputing the setpoint
+ * as the operator moves the current and margin sliders.
+ *
+ * @author ryans
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class ChartDatasetBenchmark {
+
+  @Param({"24", "1000", "100000"})
+  public int rows;
+
+  private IonChamberDataset icDataset;
+  private ChartDataset chartDataset;
+  private int current = 0;
+
+  @Setup
+  public void setUp() throws Exception {
+    BenchmarkData.loadConfiguration();
+
+    IonChamber ic = IonChamber.newInstance(Hall.A, "SLD1H08G", null, null);
+    icDataset = new IonChamberDataset(ic, BenchmarkData.measurements(rows, new Random(1)));
+    chartDataset = new ChartDataset(icDataset, 5, 10);
+  }
+
+  @Benchmark
+  public ChartDataset construct() {
+    return new ChartDataset(icDataset, 5, 10);
+  }
+
+  @Benchmark
+  public double updateSetpointParameters() {
+    current = (current + 1) % 200;
+    chartDataset.updateSetpointParameters(current, 10);
+    return chartDataset.getSetpoint();
+  }
+}
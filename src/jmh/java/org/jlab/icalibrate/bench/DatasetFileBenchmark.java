@@ -0,0 +1,83 @@
+package org.jlab.icalibrate.bench;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.concurrent.TimeUnit;
+import org.jlab.icalibrate.file.io.DatasetFileReader;
+import org.jlab.icalibrate.file.io.DatasetFileWriter;
+import org.jlab.icalibrate.model.HallCalibrationDataset;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures reading HCD files in both the legacy matrix and the "Independent ICs" formats, and
+ * writing them, from the size of the example files up to 100k rows per ion chamber.
+ *
+ * @author ryans
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class DatasetFileBenchmark {
+
+  @Param({"24", "1000", "100000"})
+  public int rows;
+
+  private File dir;
+  private File matrixFile;
+  private File independentFile;
+  private File outputFile;
+  private HallCalibrationDataset dataset;
+
+  @Setup
+  public void setUp() throws Exception {
+    BenchmarkData.loadConfiguration();
+
+    dir = Files.createTempDirectory("hcd-bench").toFile();
+    matrixFile = new File(dir, "matrix.hcd");
+    independentFile = new File(dir, "independent.hcd");
+    outputFile = new File(dir, "output.hcd");
+
+    dataset = BenchmarkData.dataset(rows);
+
+    BenchmarkData.writeMatrix(matrixFile, dataset);
+    new DatasetFileWriter().write(independentFile, dataset);
+  }
+
+  @TearDown
+  public void tearDown() {
+    matrixFile.delete();
+    independentFile.delete();
+    outputFile.delete();
+    dir.delete();
+  }
+
+  @Benchmark
+  public HallCalibrationDataset readMatrix() throws Exception {
+    return new DatasetFileReader().read(matrixFile);
+  }
+
+  @Benchmark
+  public HallCalibrationDataset readIndependentIcs() throws Exception {
+    return new DatasetFileReader().read(independentFile);
+  }
+
+  @Benchmark
+  public long write() throws Exception {
+    new DatasetFileWriter().write(outputFile, dataset);
+    return outputFile.length();
+  }
+}
@@ -0,0 +1,108 @@
+package org.jlab.icalibrate.bench;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.jlab.icalibrate.ICalibrateApp;
+import org.jlab.icalibrate.calibration.CalibrationEngine;
+import org.jlab.icalibrate.model.CreateNewDatasetParameters;
+import org.jlab.icalibrate.model.HallCalibrationDataset;
+import org.jlab.icalibrate.model.IonChamber;
+import org.jlab.icalibrate.model.IonChamberDataset;
+import org.jlab.icalibrate.model.Laser;
+import org.jlab.icalibrate.sim.SimulatedChannelAccess;
+import org.jlab.icalibrate.sim.VirtualClock;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures a complete calibration run against the simulator in virtual time, which covers the
+ * acquisition loop, monitor buffering, settle detection, statistics and journaling. Sample tracing
+ * is disabled, and each run journals to its own directory which is deleted afterwards, since
+ * journal names only have second resolution.
+ *
+ * @author ryans
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class SimulatedCalibrationBenchmark {
+
+  private static final int MAX_ATTENUATOR = 1000;
+
+  @Param({"10", "50"})
+  public int numberOfSteps;
+
+  private HallCalibrationDataset seed;
+  private File journalDir;
+
+  @Setup
+  public void setUp() throws Exception {
+    BenchmarkData.loadConfiguration();
+
+    ICalibrateApp.APP_PROPERTIES.setProperty("WRITE_ALLOWED", "true");
+    ICalibrateApp.APP_PROPERTIES.setProperty("TRACE_RECORDS", "0");
+
+    seed = BenchmarkData.dataset(BenchmarkData.EXAMPLE_ROWS);
+  }
+
+  @Setup(Level.Invocation)
+  public void createJournalDir() throws Exception {
+    journalDir = Files.createTempDirectory("journal-bench").toFile();
+    ICalibrateApp.APP_PROPERTIES.setProperty("JOURNAL_DIR", journalDir.getAbsolutePath());
+  }
+
+  @TearDown(Level.Invocation)
+  public void deleteJournalDir() {
+    File[] files = journalDir.listFiles();
+
+    if (files != null) {
+      for (File file : files) {
+        file.delete();
+      }
+    }
+
+    journalDir.delete();
+  }
+
+  @Benchmark
+  public HallCalibrationDataset run() throws Exception {
+    VirtualClock clock = new VirtualClock(0);
+    SimulatedChannelAccess sim =
+        SimulatedChannelAccess.fromDataset(clock, 1, seed, Laser.A, MAX_ATTENUATOR);
+
+    List<IonChamber> icList = new ArrayList<>();
+
+    for (IonChamberDataset icDataset : seed.getMeasuredDoseRateDataset()) {
+      icList.add(icDataset.getIonChamber());
+    }
+
+    CreateNewDatasetParameters params = new CreateNewDatasetParameters(sim);
+    params.setHall(seed.getHall());
+    params.setLaser(Laser.A);
+    params.setMinAttenuator(0);
+    params.setMaxAttenuator(MAX_ATTENUATOR);
+    params.setNumberOfSteps(numberOfSteps);
+    params.setSettleSeconds(5);
+    params.setSamplesPerStep(5);
+    params.setIonChamberList(icList);
+
+    return new CalibrationEngine(sim, params, null, clock).run();
+  }
+}
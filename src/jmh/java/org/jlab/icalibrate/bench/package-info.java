@@ -0,0 +1,2 @@
+/** Provides the iCalibrate JMH benchmarks. */
+package org.jlab.icalibrate.bench;
@@ -6,11 +6,16 @@ import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 import java.text.ParseException;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
 import java.util.Properties;
+import java.util.Set;
 import java.util.logging.Level;
 import java.util.logging.LogManager;
 import java.util.logging.Logger;
+import org.jlab.icalibrate.batch.BatchCalibration;
 import org.jlab.icalibrate.epics.ChannelManager;
+import org.jlab.icalibrate.epics.ContextRole;
 import org.jlab.icalibrate.exception.InitializationException;
 import org.jlab.icalibrate.exception.MissingDataException;
 import org.jlab.icalibrate.file.io.DatasetFileReader;
@@ -24,7 +29,8 @@ import org.jlab.icalibrate.swing.generated.MaydayFrame;
  * set dose limits to protect the machine during production runs.
  *
  * <p>The ICalibrateApp class loads the configuration properties, initializes a network connection
- * to EPICS, and initializes the Swing GUI.
+ * to EPICS, and initializes the Swing GUI. Alternatively, given the --batch option, a calibration
+ * is run without a GUI; see BatchCalibration.
  *
  * @author ryans
  */
@@ -49,8 +55,14 @@ public class ICalibrateApp {
   public ICalibrateApp(File file, Integer current) throws InitializationException, IOException {
     ICalibrateFrame frame;
 
-    try (ChannelManager channelManager = new ChannelManager()) {
-      frame = new ICalibrateFrame(channelManager);
+    // Each subsystem gets its own context so a slow export or a burst of display monitors doesn't
+    // share a context with a calibration run
+    try (ChannelManager channelManager = new ChannelManager(ContextRole.ACQUISITION);
+        ChannelManager monitorChannelManager = new ChannelManager(ContextRole.MONITORING);
+        ChannelManager exportChannelManager = new ChannelManager(ContextRole.EXPORT)) {
+      keepLookupPvsWarm(channelManager);
+
+      frame = new ICalibrateFrame(channelManager, monitorChannelManager, exportChannelManager);
 
       if (current != null) {
         frame.setCurrentParameter(current);
@@ -89,6 +101,41 @@ public class ICalibrateApp {
     }
   }
 
+  /**
+   * If configured, keep monitors open on the PVs read by the new dataset wizard lookups (hall
+   * current, pass, and target of each hall) and on the master FSD voltage so that these reads are
+   * served from memory instead of a channel connect and CA-GET each time.
+   *
+   * @param channelManager The channel manager
+   */
+  private static void keepLookupPvsWarm(ChannelManager channelManager) {
+    if (!"true".equals(APP_PROPERTIES.getProperty("KEEP_WARM_LOOKUP_PVS"))) {
+      return;
+    }
+
+    Set<String> pvSet = new LinkedHashSet<>();
+
+    for (String hallPrefix : new String[] {"HALLA_", "HALLC_", "HALLD_"}) {
+      for (String key : new String[] {"CURRENT_READ_PV", "PASS_READ_PV", "TARGET_PV"}) {
+        String pv = APP_PROPERTIES.getProperty(hallPrefix + key);
+
+        if (pv != null && !pv.trim().isEmpty()) {
+          pvSet.add(pv.trim()); // Config file might have spaces!
+        }
+      }
+    }
+
+    String fsdPv = APP_PROPERTIES.getProperty("MASTER_FSD_VOLTAGE_PV");
+
+    if (fsdPv != null && !fsdPv.trim().isEmpty()) {
+      pvSet.add(fsdPv.trim());
+    }
+
+    LOGGER.log(Level.FINEST, "Keeping PVs warm: {0}", pvSet);
+
+    channelManager.keepWarm(pvSet);
+  }
+
   private static void show(final Frame frame) {
     EventQueue.invokeLater(
         new Runnable() {
@@ -108,6 +155,11 @@ public class ICalibrateApp {
    * @param args The program arguments
    */
   public static void main(String[] args) {
+    if (args.length > 0 && BatchCalibration.OPTION.equals(args[0])) {
+      BatchCalibration.main(Arrays.copyOfRange(args, 1, args.length));
+      return;
+    }
+
     File file = null;
     Integer current = null;
 
@@ -119,6 +171,36 @@ public class ICalibrateApp {
       current = Integer.parseInt(args[1]);
     }
 
+    try {
+      loadConfiguration();
+
+      // EPICS CA initializes in the background while the frame is constructed
+      ChannelManager.warmUp();
+
+      new ICalibrateApp(file, current);
+
+      LOGGER.log(Level.FINEST, "Shutdown completed successfully");
+    } catch (IOException e) {
+      LOGGER.log(Level.SEVERE, "Unable to load configuration file", e);
+      MaydayFrame mayday = new MaydayFrame("Unable to load configuration file: " + e.getMessage());
+      show(mayday);
+    } catch (InitializationException e) {
+      LOGGER.log(Level.SEVERE, "Unable to initialize", e);
+      MaydayFrame mayday = new MaydayFrame("Unable to initialize: " + e.getMessage());
+      show(mayday);
+    } catch (RuntimeException e) {
+      LOGGER.log(Level.SEVERE, "Something unexpected happened", e);
+      System.exit(1); // Swing GUI may be locked up so let's kill it
+    }
+  }
+
+  /**
+   * Load the application, release, and logging configuration from the classpath.
+   *
+   * @throws InitializationException If a configuration file is missing
+   * @throws IOException If unable to read a configuration file
+   */
+  public static void loadConfiguration() throws InitializationException, IOException {
     try (InputStream propStream =
             ICalibrateApp.class.getClassLoader().getResourceAsStream("icalibrate.properties");
         InputStream releaseStream =
@@ -149,21 +231,6 @@ public class ICalibrateApp {
       // So we leverage
       // the classpath search ourselves and manually configure here
       LogManager.getLogManager().readConfiguration(loggingStream);
-
-      new ICalibrateApp(file, current);
-
-      LOGGER.log(Level.FINEST, "Shutdown completed successfully");
-    } catch (IOException e) {
-      LOGGER.log(Level.SEVERE, "Unable to load configuration file", e);
-      MaydayFrame mayday = new MaydayFrame("Unable to load configuration file: " + e.getMessage());
-      show(mayday);
-    } catch (InitializationException e) {
-      LOGGER.log(Level.SEVERE, "Unable to initialize", e);
-      MaydayFrame mayday = new MaydayFrame("Unable to initialize: " + e.getMessage());
-      show(mayday);
-    } catch (RuntimeException e) {
-      LOGGER.log(Level.SEVERE, "Something unexpected happened", e);
-      System.exit(1); // Swing GUI may be locked up so let's kill it
     }
   }
 }
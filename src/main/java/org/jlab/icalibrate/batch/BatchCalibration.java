@@ -0,0 +1,291 @@
+package org.jlab.icalibrate.batch;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import org.jlab.icalibrate.ICalibrateApp;
+import org.jlab.icalibrate.calibration.CalibrationEngine;
+import org.jlab.icalibrate.calibration.CalibrationProgressEvent;
+import org.jlab.icalibrate.calibration.CalibrationState;
+import org.jlab.icalibrate.epics.ChannelManager;
+import org.jlab.icalibrate.exception.AppException;
+import org.jlab.icalibrate.exception.InitializationException;
+import org.jlab.icalibrate.exception.MissingDataException;
+import org.jlab.icalibrate.exception.ValidationException;
+import org.jlab.icalibrate.file.io.DatasetFileWriter;
+import org.jlab.icalibrate.file.io.SnapFileWriter;
+import org.jlab.icalibrate.model.ChartDataset;
+import org.jlab.icalibrate.model.CreateNewDatasetParameters;
+import org.jlab.icalibrate.model.DoseRateTripSetpoint;
+import org.jlab.icalibrate.model.HallCalibrationDataset;
+import org.jlab.icalibrate.model.IonChamberDataset;
+
+/**
+ * Runs a calibration from a parameter file without a GUI, writes the HCD file and optionally a
+ * SNAP file, and exits with a status that scripts can act on. No AWT or Swing classes are
+ * initialized. See BatchParameters for the parameter file format.
+ *
+ * <p>Usage: icalibrate --batch &lt;parameter file&gt;
+ *
+ * <p>Interrupting the JVM (Ctrl-C) cancels the run: the attenuator is restored, the partial dataset
+ * is written, and the run can later be resumed from its journal. Since there is no operator to
+ * acknowledge an FSD trip, a trip cancels the run the same way.
+ *
+ * @author ryans
+ */
+public final class BatchCalibration {
+
+  private static final Logger LOGGER = Logger.getLogger(BatchCalibration.class.getName());
+
+  /** The command line option which selects batch mode. */
+  public static final String OPTION = "--batch";
+
+  /** Exit status: calibration completed and files written. */
+  public static final int EXIT_SUCCESS = 0;
+
+  /** Exit status: unexpected error. */
+  public static final int EXIT_UNEXPECTED = 1;
+
+  /** Exit status: bad usage or parameter file. */
+  public static final int EXIT_USAGE = 2;
+
+  /** Exit status: unable to load configuration. */
+  public static final int EXIT_CONFIGURATION = 3;
+
+  /** Exit status: calibration failed, for example an EPICS error. */
+  public static final int EXIT_CALIBRATION_FAILED = 4;
+
+  /** Exit status: calibration interrupted; partial dataset written. */
+  public static final int EXIT_INTERRUPTED = 5;
+
+  /** Exit status: unable to write an output file. */
+  public static final int EXIT_WRITE_FAILED = 6;
+
+  /** Exit status: calibration aborted by an FSD trip; partial dataset written. */
+  public static final int EXIT_FSD_TRIP = 7;
+
+  /** Max time the shutdown hook waits for an interrupted run to restore the attenuator. */
+  private static final long SHUTDOWN_WAIT_SECONDS = 30;
+
+  private BatchCalibration() {
+    // Can't instantiate publicly
+  }
+
+  /**
+   * Run a batch calibration and exit the JVM with the resulting status.
+   *
+   * @param args The program arguments following the batch option
+   */
+  public static void main(String[] args) {
+    System.setProperty("java.awt.headless", "true");
+
+    CountDownLatch finished = new CountDownLatch(1);
+    Thread runThread = Thread.currentThread();
+    Thread hook =
+        new Thread(
+            () -> {
+              runThread.interrupt();
+
+              try {
+                finished.await(SHUTDOWN_WAIT_SECONDS, TimeUnit.SECONDS);
+              } catch (InterruptedException e) {
+                LOGGER.log(Level.WARNING, "Shutdown wait interrupted");
+              }
+            },
+            "BatchCalibrationShutdown");
+
+    Runtime.getRuntime().addShutdownHook(hook);
+
+    int status;
+
+    try {
+      status = run(args);
+    } finally {
+      finished.countDown();
+    }
+
+    try {
+      Runtime.getRuntime().removeShutdownHook(hook);
+    } catch (IllegalStateException e) {
+      return; // Already shutting down; calling exit now would block forever
+    }
+
+    System.exit(status);
+  }
+
+  /**
+   * Run a batch calibration.
+   *
+   * @param args The program arguments following the batch option
+   * @return The exit status
+   */
+  public static int run(String[] args) {
+    if (args.length != 1) {
+      System.err.println("Usage: icalibrate " + OPTION + " <parameter file>");
+      return EXIT_USAGE;
+    }
+
+    BatchParameters batch;
+
+    try {
+      batch = BatchParameters.read(new File(args[0]));
+    } catch (IOException e) {
+      System.err.println("Unable to read parameter file: " + e.getMessage());
+      return EXIT_USAGE;
+    } catch (ValidationException e) {
+      System.err.println("Invalid parameter file: " + e.getMessage());
+      return EXIT_USAGE;
+    }
+
+    try {
+      ICalibrateApp.loadConfiguration();
+    } catch (InitializationException | IOException e) {
+      System.err.println("Unable to load configuration: " + e.getMessage());
+      return EXIT_CONFIGURATION;
+    }
+
+    AtomicBoolean fsdTrip = new AtomicBoolean(false);
+
+    try (ChannelManager channelManager = new ChannelManager()) {
+      CreateNewDatasetParameters params;
+      int snapCurrent;
+      int snapMargin;
+
+      try {
+        params = batch.toProcessParameters(channelManager);
+        snapCurrent = batch.getSnapCurrent();
+        snapMargin = batch.getSnapMargin();
+      } catch (ValidationException | MissingDataException e) {
+        System.err.println("Invalid parameter file: " + e.getMessage());
+        return EXIT_USAGE;
+      }
+
+      CalibrationEngine engine = new CalibrationEngine(channelManager, params);
+      engine.addListener(BatchCalibration::report);
+      engine.addListener(
+          event -> {
+            if (event.getState() == CalibrationState.WAITING_ON_FSD) {
+              // No operator to acknowledge the trip so abort; the run thread is the caller
+              System.err.println("FSD trip during step " + event.getStep() + "; aborting");
+              fsdTrip.set(true);
+              Thread.currentThread().interrupt();
+            }
+          });
+
+      HallCalibrationDataset dataset = engine.run();
+
+      int status;
+
+      if (isEmpty(dataset)) {
+        System.err.println("No steps completed; nothing written");
+        status = EXIT_INTERRUPTED;
+      } else {
+        status = write(batch, dataset, snapCurrent, snapMargin);
+      }
+
+      if (status == EXIT_SUCCESS && fsdTrip.get()) {
+        status = EXIT_FSD_TRIP;
+      } else if (status == EXIT_SUCCESS && engine.isInterrupted()) {
+        status = EXIT_INTERRUPTED;
+      }
+
+      return status;
+    } catch (InterruptedException e) {
+      System.err.println("Calibration interrupted before any step completed");
+      return EXIT_INTERRUPTED;
+    } catch (AppException e) {
+      System.err.println("Calibration failed: " + e.getMessage());
+      LOGGER.log(Level.FINE, "Calibration failed", e);
+      return EXIT_CALIBRATION_FAILED;
+    } catch (IOException | RuntimeException e) {
+      System.err.println("Unexpected error: " + e);
+      LOGGER.log(Level.SEVERE, "Unexpected error", e);
+      return EXIT_UNEXPECTED;
+    }
+  }
+
+  private static boolean isEmpty(HallCalibrationDataset dataset) {
+    List<IonChamberDataset> datasetList = dataset.getMeasuredDoseRateDataset();
+
+    return datasetList.isEmpty() || datasetList.get(0).getMeasurementList().isEmpty();
+  }
+
+  private static int write(
+      BatchParameters batch, HallCalibrationDataset dataset, int snapCurrent, int snapMargin) {
+    File hcdFile = batch.getHcdFile();
+
+    if (hcdFile == null) {
+      String dir = ICalibrateApp.APP_PROPERTIES.getProperty("DEFAULT_HCD_FILE_DIR");
+      hcdFile = new File(dir == null ? "." : dir.trim(), DatasetFileWriter.createFilename(dataset));
+    }
+
+    try {
+      new DatasetFileWriter().write(hcdFile, dataset);
+      System.out.println("Wrote " + hcdFile.getPath());
+    } catch (IOException e) {
+      System.err.println("Unable to write HCD file " + hcdFile.getPath() + ": " + e.getMessage());
+      return EXIT_WRITE_FAILED;
+    }
+
+    File snapFile = batch.getSnapFile();
+
+    if (snapFile != null) {
+      List<DoseRateTripSetpoint> setpointList = computeSetpoints(dataset, snapCurrent, snapMargin);
+
+      try {
+        new SnapFileWriter().write(snapFile, setpointList);
+        System.out.println("Wrote " + snapFile.getPath());
+      } catch (IOException e) {
+        System.err.println(
+            "Unable to write SNAP file " + snapFile.getPath() + ": " + e.getMessage());
+        return EXIT_WRITE_FAILED;
+      }
+    }
+
+    return EXIT_SUCCESS;
+  }
+
+  /**
+   * Compute the trip setpoint of each ion chamber the same way the GUI does by default: a
+   * logarithmic fit evaluated at the given current plus margin.
+   */
+  private static List<DoseRateTripSetpoint> computeSetpoints(
+      HallCalibrationDataset dataset, int current, int margin) {
+    List<DoseRateTripSetpoint> setpointList = new ArrayList<>();
+
+    for (IonChamberDataset icDataset : dataset.getMeasuredDoseRateDataset()) {
+      if (icDataset.getMeasurementList().isEmpty()) {
+        continue;
+      }
+
+      ChartDataset data = new ChartDataset(icDataset, current, margin);
+      data.setLogarithmicSelected(true);
+      data.updateSetpointParameters(current, margin);
+
+      double setpoint = data.getSetpoint();
+
+      if (Double.isNaN(setpoint) || setpoint < 0) {
+        setpoint = 0.0;
+      }
+
+      setpointList.add(new DoseRateTripSetpoint(icDataset.getIonChamber(), setpoint));
+    }
+
+    return setpointList;
+  }
+
+  private static void report(CalibrationProgressEvent event) {
+    if (event.getState() == CalibrationState.STEP_COMPLETE) {
+      System.out.println(
+          "Step " + event.getStep() + " complete (" + event.getProgressPercent() + "%)");
+    } else if (event.getSample() == null) {
+      System.out.println(event.getState().label + "... step " + event.getStep());
+    }
+  }
+}
@@ -0,0 +1,242 @@
+package org.jlab.icalibrate.batch;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import org.jlab.icalibrate.epics.ChannelAccess;
+import org.jlab.icalibrate.exception.MissingDataException;
+import org.jlab.icalibrate.exception.ValidationException;
+import org.jlab.icalibrate.model.CreateNewDatasetParameters;
+import org.jlab.icalibrate.model.Hall;
+import org.jlab.icalibrate.model.IonChamber;
+import org.jlab.icalibrate.model.Laser;
+
+/**
+ * Models the contents of a batch calibration parameter file. The file uses Java properties format
+ * with the following keys:
+ *
+ * <ul>
+ *   <li>hall (required) - A, C, or D
+ *   <li>laser (required) - A, B, C, or D
+ *   <li>target, pass, note - dataset metadata
+ *   <li>minAttenuator, maxAttenuator, numberOfSteps, settleSeconds, samplesPerStep (required)
+ *   <li>ionChambers - CSV of ion chamber EPICS names; defaults to every ion chamber of the hall
+ *   <li>hcdFile - the HCD file to write; defaults to a generated name in DEFAULT_HCD_FILE_DIR
+ *   <li>snapFile - the SNAP file to write; omit to skip
+ *   <li>snapCurrent, snapMargin - setpoint current and margin (percent) for the SNAP file
+ * </ul>
+ *
+ * @author ryans
+ */
+public final class BatchParameters {
+
+  /** The default setpoint current. */
+  public static final int DEFAULT_SNAP_CURRENT = 5;
+
+  /** The default setpoint margin (percent). */
+  public static final int DEFAULT_SNAP_MARGIN = 10;
+
+  private final Properties props;
+  private final Hall hall;
+
+  private BatchParameters(Properties props) throws ValidationException {
+    this.props = props;
+    this.hall = parseEnum(Hall.class, "hall");
+  }
+
+  /**
+   * Read a batch parameter file.
+   *
+   * @param file The parameter file
+   * @return The parameters
+   * @throws IOException If unable to read the file
+   * @throws ValidationException If a required parameter is missing or malformed
+   */
+  public static BatchParameters read(File file) throws IOException, ValidationException {
+    Properties props = new Properties();
+
+    try (InputStream in = Files.newInputStream(file.toPath());
+        Reader reader = new InputStreamReader(in, StandardCharsets.UTF_8)) {
+      props.load(reader);
+    }
+
+    return new BatchParameters(props);
+  }
+
+  /**
+   * Create the process parameters. Ion chambers are loaded from configuration (or CED) and
+   * filtered by the ionChambers parameter if present.
+   *
+   * @param channelManager The EPICS channel access
+   * @return The process parameters
+   * @throws ValidationException If a parameter is missing, malformed, or out of range
+   * @throws MissingDataException If an ion chamber is unknown
+   * @throws IOException If unable to load the ion chamber list
+   */
+  public CreateNewDatasetParameters toProcessParameters(ChannelAccess channelManager)
+      throws ValidationException, MissingDataException, IOException {
+    CreateNewDatasetParameters params = new CreateNewDatasetParameters(channelManager);
+
+    params.setHall(hall);
+    params.setLaser(parseEnum(Laser.class, "laser"));
+    params.setTarget(getString("target"));
+    params.setPass(getString("pass"));
+    params.setNote(getString("note"));
+    params.setMinAttenuator(getInt("minAttenuator", null));
+    params.setMaxAttenuator(getInt("maxAttenuator", null));
+    params.setNumberOfSteps(getInt("numberOfSteps", null));
+    params.setSettleSeconds(getInt("settleSeconds", null));
+    params.setSamplesPerStep(getInt("samplesPerStep", null));
+    params.setIonChamberList(loadIonChambers());
+
+    params.checkOptionValidity();
+
+    return params;
+  }
+
+  private List<IonChamber> loadIonChambers()
+      throws ValidationException, MissingDataException, IOException {
+    List<IonChamber> all = IonChamber.createIcs(hall);
+    String csv = getString("ionChambers");
+
+    if (csv == null) {
+      return all;
+    }
+
+    Map<String, IonChamber> icMap = new LinkedHashMap<>();
+
+    for (IonChamber ic : all) {
+      icMap.put(ic.getEpicsName(), ic);
+    }
+
+    List<IonChamber> icList = new ArrayList<>();
+
+    for (String name : csv.split(",")) {
+      name = name.trim();
+
+      if (name.isEmpty()) {
+        continue;
+      }
+
+      IonChamber ic = icMap.get(name);
+
+      if (ic == null) {
+        throw new MissingDataException("Unknown Hall " + hall.name() + " ion chamber: " + name);
+      }
+
+      icList.add(ic);
+    }
+
+    if (icList.isEmpty()) {
+      throw new ValidationException("ionChambers must list at least one ion chamber");
+    }
+
+    return icList;
+  }
+
+  /**
+   * Return the hall.
+   *
+   * @return The hall
+   */
+  public Hall getHall() {
+    return hall;
+  }
+
+  /**
+   * Return the HCD file to write.
+   *
+   * @return The file, or null to generate a name
+   */
+  public File getHcdFile() {
+    String path = getString("hcdFile");
+
+    return path == null ? null : new File(path);
+  }
+
+  /**
+   * Return the SNAP file to write.
+   *
+   * @return The file, or null if no SNAP file is requested
+   */
+  public File getSnapFile() {
+    String path = getString("snapFile");
+
+    return path == null ? null : new File(path);
+  }
+
+  /**
+   * Return the setpoint current for the SNAP file.
+   *
+   * @return The current
+   * @throws ValidationException If the value is malformed
+   */
+  public int getSnapCurrent() throws ValidationException {
+    return getInt("snapCurrent", DEFAULT_SNAP_CURRENT);
+  }
+
+  /**
+   * Return the setpoint margin (percent) for the SNAP file.
+   *
+   * @return The margin
+   * @throws ValidationException If the value is malformed
+   */
+  public int getSnapMargin() throws ValidationException {
+    return getInt("snapMargin", DEFAULT_SNAP_MARGIN);
+  }
+
+  private String getString(String name) {
+    String value = props.getProperty(name);
+
+    if (value != null) {
+      value = value.trim(); // File might have spaces!
+
+      if (value.isEmpty()) {
+        value = null;
+      }
+    }
+
+    return value;
+  }
+
+  private int getInt(String name, Integer defaultValue) throws ValidationException {
+    String value = getString(name);
+
+    if (value == null) {
+      if (defaultValue == null) {
+        throw new ValidationException("Missing parameter: " + name);
+      }
+
+      return defaultValue;
+    }
+
+    try {
+      return Integer.parseInt(value);
+    } catch (NumberFormatException e) {
+      throw new ValidationException("Parameter " + name + " must be an integer: " + value, e);
+    }
+  }
+
+  private <T extends Enum<T>> T parseEnum(Class<T> type, String name) throws ValidationException {
+    String value = getString(name);
+
+    if (value == null) {
+      throw new ValidationException("Missing parameter: " + name);
+    }
+
+    try {
+      return Enum.valueOf(type, value.toUpperCase());
+    } catch (IllegalArgumentException e) {
+      throw new ValidationException("Parameter " + name + " is invalid: " + value, e);
+    }
+  }
+}
@@ -0,0 +1,2 @@
+/** Provides the iCalibrate headless batch mode classes. */
+package org.jlab.icalibrate.batch;
@@ -0,0 +1,39 @@
+package org.jlab.icalibrate.calibration;
+
+/**
+ * The source of time for a calibration run. Sample timestamps, settle deadlines and dwell windows
+ * are all measured with the clock so a simulated run can substitute virtual time for wall time.
+ *
+ * @author ryans
+ */
+public interface CalibrationClock {
+
+  /** The wall clock. */
+  CalibrationClock SYSTEM =
+      new CalibrationClock() {
+        @Override
+        public long currentTimeMillis() {
+          return System.currentTimeMillis();
+        }
+
+        @Override
+        public void sleep(long millis) throws InterruptedException {
+          Thread.sleep(millis);
+        }
+      };
+
+  /**
+   * Return the current time in milliseconds since the epoch.
+   *
+   * @return The current time
+   */
+  long currentTimeMillis();
+
+  /**
+   * Block the calling thread for the given number of milliseconds.
+   *
+   * @param millis The number of milliseconds to sleep
+   * @throws InterruptedException If interrupted while sleeping
+   */
+  void sleep(long millis) throws InterruptedException;
+}
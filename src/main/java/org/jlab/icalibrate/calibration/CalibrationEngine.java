@@ -0,0 +1,873 @@
+package org.jlab.icalibrate.calibration;
+
+import gov.aps.jca.CAException;
+import gov.aps.jca.TimeoutException;
+import gov.aps.jca.dbr.DBR;
+import gov.aps.jca.dbr.DBRType;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import org.jlab.icalibrate.ICalibrateApp;
+import org.jlab.icalibrate.epics.ChannelAccess;
+import org.jlab.icalibrate.epics.ChannelManager;
+import org.jlab.icalibrate.epics.PvListener;
+import org.jlab.icalibrate.exception.AppException;
+import org.jlab.icalibrate.exception.FSDException;
+import org.jlab.icalibrate.exception.StaleDataException;
+import org.jlab.icalibrate.file.io.CalibrationJournalWriter;
+import org.jlab.icalibrate.file.io.SampleTraceWriter;
+import org.jlab.icalibrate.jfr.CalibrationPhaseEvent;
+import org.jlab.icalibrate.jfr.CalibrationStepContext;
+import org.jlab.icalibrate.model.CalibrationCheckpoint;
+import org.jlab.icalibrate.model.CreateNewDatasetParameters;
+import org.jlab.icalibrate.model.DoseRateMeasurement;
+import org.jlab.icalibrate.model.Hall;
+import org.jlab.icalibrate.model.HallCalibrationDataset;
+import org.jlab.icalibrate.model.IonChamber;
+import org.jlab.icalibrate.model.IonChamberDataset;
+
+/**
+ * Performs the data gathering work for ion chamber calibration. The process includes ramping the
+ * attenuator in order to incrementally step current and measure dose rate changes. At a given
+ * current the dose rate and current PV monitor updates received during a dwell window are averaged
+ * to obtain a more accurate measure. Each dose rate update is paired with the current at its IOC
+ * timestamp, so each ion chamber's point is the average of time-aligned (current, dose rate) pairs.
+ *
+ * <p>Every raw monitor update of the current, dose rate, attenuator, and FSD voltage PVs is also
+ * recorded to a sample trace file beside the journal (see SampleTraceWriter) so that a run can be
+ * analyzed after the fact.
+ *
+ * <p>The engine is independent of any user interface. The run executes on the calling thread and
+ * progress is reported to registered CalibrationListeners. Interrupting the calling thread cancels
+ * the run; the attenuator is restored and the steps completed so far are returned.
+ *
+ * <p>If an FSD trip occurs the run pauses until resume is called, at which point the interrupted
+ * step is repeated.
+ *
+ * <p>If a sampled PV disconnects (an IOC reboot, for example) its last value would be held and
+ * averaged as if current, so instead the run pauses until every sampled PV has reconnected and
+ * updated, at which point the interrupted step is repeated.
+ *
+ * @author ryans
+ */
+public class CalibrationEngine {
+
+  private static final Logger LOGGER = Logger.getLogger(CalibrationEngine.class.getName());
+
+  /** The Sample Frequency */
+  public static final long SAMPLE_FREQUENCY_MILLIS = 1000;
+
+  /** How often the current is checked while settling */
+  public static final long SETTLE_POLL_MILLIS = 250;
+
+  /** Max time to wait for the sampled PV monitors to connect */
+  public static final long MONITOR_CONNECT_TIMEOUT_MILLIS = 5000;
+
+  private final ChannelAccess manager;
+  private final CreateNewDatasetParameters params;
+  private final CalibrationCheckpoint checkpoint;
+  private final CalibrationClock clock;
+  private final List<CalibrationListener> listeners = new CopyOnWriteArrayList<>();
+
+  private final FsdListener fsdListener = new FsdListener();
+  private final TraceListener traceListener = new TraceListener();
+  private final Object fsdLock = new Object();
+  private final Object fsdConnectLock = new Object();
+
+  private boolean fsdConnectReported = false; // Guarded by fsdConnectLock
+  private boolean resumeRequested = false; // Guarded by fsdLock
+
+  private volatile boolean fsdTripThisInstant = false;
+  private volatile boolean fsdTripDuringStep = false;
+  private volatile boolean interrupted = false;
+  private volatile int progressPercent = 0;
+
+  /** Buffers monitor updates of the dose rate and current PVs; only used by the run thread. */
+  private MonitorSampler sampler;
+
+  private final SettleDetector settleDetector =
+      SettleDetector.fromProperties(ICalibrateApp.APP_PROPERTIES);
+  private final List<Long> settleMillisList = new ArrayList<>();
+
+  // Reused every step to avoid allocating per sample
+  private final RunningStatistics currentStats = new RunningStatistics();
+  private final RunningStatistics doseRateStats = new RunningStatistics();
+
+  /** Records each completed step so an interrupted run can be resumed; may be null. */
+  private CalibrationJournalWriter journal;
+
+  /** Records every raw monitor update; may be null. */
+  private volatile SampleTraceWriter trace;
+
+  private CalibrationPhaseEvent phaseEvent;
+
+  /**
+   * Create a new CalibrationEngine.
+   *
+   * @param manager The channel manager
+   * @param params The process parameters
+   */
+  public CalibrationEngine(ChannelAccess manager, CreateNewDatasetParameters params) {
+    this(manager, params, null);
+  }
+
+  /**
+   * Create a new CalibrationEngine which resumes an interrupted run from the step following the
+   * last one recorded in its journal.
+   *
+   * @param manager The channel manager
+   * @param params The process parameters
+   * @param checkpoint The checkpoint to resume from, or null to start a new run
+   */
+  public CalibrationEngine(
+      ChannelAccess manager,
+      CreateNewDatasetParameters params,
+      CalibrationCheckpoint checkpoint) {
+    this(manager, params, checkpoint, CalibrationClock.SYSTEM);
+  }
+
+  /**
+   * Create a new CalibrationEngine which measures time with the given clock.
+   *
+   * @param manager The channel manager
+   * @param params The process parameters
+   * @param checkpoint The checkpoint to resume from, or null to start a new run
+   * @param clock The clock
+   */
+  public CalibrationEngine(
+      ChannelAccess manager,
+      CreateNewDatasetParameters params,
+      CalibrationCheckpoint checkpoint,
+      CalibrationClock clock) {
+    this.manager = manager;
+    this.params = params;
+    this.checkpoint = checkpoint;
+    this.clock = clock;
+
+    LOGGER.log(Level.FINEST, "Number of Steps: {0}", params.getNumberOfSteps());
+    LOGGER.log(Level.FINEST, "Number of Samples: {0}", params.getSamplesPerStep());
+    LOGGER.log(Level.FINEST, "Attenuator Range: {0}", params.computeAttenuatorRange());
+    LOGGER.log(Level.FINEST, "Attenuator Step Magnitude: {0}", params.computeStepSize());
+  }
+
+  /**
+   * Register a listener for progress notifications.
+   *
+   * @param listener The listener
+   */
+  public void addListener(CalibrationListener listener) {
+    listeners.add(listener);
+  }
+
+  /**
+   * Unregister a listener.
+   *
+   * @param listener The listener
+   */
+  public void removeListener(CalibrationListener listener) {
+    listeners.remove(listener);
+  }
+
+  /**
+   * Return the process parameters.
+   *
+   * @return The parameters
+   */
+  public CreateNewDatasetParameters getParameters() {
+    return params;
+  }
+
+  /**
+   * Return whether the run was cancelled by interrupt before all steps completed.
+   *
+   * @return true if interrupted, false otherwise
+   */
+  public boolean isInterrupted() {
+    return interrupted;
+  }
+
+  /**
+   * Return the number of milliseconds waited for the current to settle, in step order. The list is
+   * only safe to read once the run is done.
+   *
+   * @return The settle milliseconds of each completed settle
+   */
+  public List<Long> getSettleMillisList() {
+    return Collections.unmodifiableList(settleMillisList);
+  }
+
+  /**
+   * After an FSD trip the resume command wakes the waiting run thread so that it can continue. A
+   * resume which arrives before the run thread starts waiting is not lost.
+   */
+  public void resume() {
+    synchronized (fsdLock) {
+      resumeRequested = true;
+      fsdLock.notifyAll();
+    }
+  }
+
+  /**
+   * Execute the calibration run on the calling thread.
+   *
+   * @return The dataset, which contains only the completed steps if the run was interrupted
+   * @throws AppException If unable to complete the run
+   * @throws InterruptedException If interrupted before any step was attempted
+   */
+  public HallCalibrationDataset run() throws AppException, InterruptedException {
+    try {
+      synchronized (fsdConnectLock) {
+        manager.addPv(fsdListener, loadMasterFsdPv());
+
+        while (!fsdConnectReported) {
+          fsdConnectLock.wait();
+        }
+      }
+
+      List<IonChamber> icList = params.getIonChamberList();
+      HallPvSet pvs = loadPvs();
+
+      List<List<DoseRateMeasurement>> measurementMatrix;
+
+      if (checkpoint == null) {
+        measurementMatrix = new ArrayList<>();
+
+        // Populate matrix with empty rows
+        for (int i = 0; i < icList.size(); i++) {
+          measurementMatrix.add(new ArrayList<>());
+        }
+      } else {
+        measurementMatrix = checkpoint.copyMeasurementMatrix();
+      }
+
+      File journalFile =
+          checkpoint == null
+              ? CalibrationJournalWriter.newJournalFile(params.getHall())
+              : checkpoint.getJournalFile();
+
+      startTrace(SampleTraceWriter.traceFileFor(journalFile), icList, pvs);
+
+      // Monitor every dose rate PV and the hall current for the duration of the run //
+      sampler = startSampler(icList, pvs);
+
+      // Determine attenuator setting so we can restore it back where we found it later //
+      double originalAttenuator;
+      int startStep;
+
+      if (checkpoint == null) {
+        originalAttenuator = readAttenuator(pvs);
+        startStep = 0;
+        journal = openJournal(journalFile);
+
+        if (journal != null) {
+          journal.writeStart(params, originalAttenuator, new Date(clock.currentTimeMillis()));
+        }
+      } else {
+        // The attenuator was left wherever the interrupted run stopped; restore the original
+        originalAttenuator = checkpoint.getOriginalAttenuator();
+        startStep = checkpoint.getNextStep();
+        journal = openJournal(journalFile);
+      }
+
+      LOGGER.log(Level.FINEST, "Initial step: {0}", startStep);
+
+      try {
+        doStepLoop(startStep, icList, measurementMatrix, pvs);
+      } catch (InterruptedException e) {
+        LOGGER.log(Level.FINEST, "Calibration run canceled / interrupted");
+        interrupted = true;
+        // Instead of allowing exception to bubble all the way up we catch it
+        // here so we can continue here and attempt to keep whatever data
+        // we do have and to clean up gracefully.
+      }
+
+      if (journal != null && !interrupted) {
+        journal.writeEnd();
+      }
+
+      doCleanUp(pvs, originalAttenuator);
+
+      //// PUT DATA INTO DATASET ////
+      List<IonChamberDataset> datasetList = new ArrayList<>();
+
+      for (int i = 0; i < icList.size(); i++) {
+        IonChamber ic = icList.get(i);
+        List<DoseRateMeasurement> measurementList = measurementMatrix.get(i);
+        IonChamberDataset dataset = new IonChamberDataset(ic, measurementList);
+        datasetList.add(dataset);
+      }
+
+      return new HallCalibrationDataset(
+          params.getHall(),
+          params.getTarget(),
+          params.getPass(),
+          params.getNote(),
+          new Date(clock.currentTimeMillis()),
+          System.getProperty("user.name"),
+          datasetList);
+    } finally {
+      endPhase();
+      CalibrationStepContext.clear();
+
+      if (journal != null) {
+        journal.close();
+      }
+
+      if (sampler != null) {
+        sampler.close();
+      }
+
+      manager.removeListener(fsdListener);
+      manager.removeListener(traceListener);
+
+      if (trace != null) {
+        trace.close();
+      }
+    }
+  }
+
+  private double readAttenuator(HallPvSet pvs) throws AppException, InterruptedException {
+    DBR dbr;
+
+    try {
+      dbr = ChannelManager.await(manager.getAsync(pvs.hallAttenuatorPv));
+    } catch (CAException e) {
+      throw new AppException(
+          "Unable to perform EPICS CA Get of PV: " + pvs.hallAttenuatorPv + " - " + e.getMessage(),
+          e);
+    } catch (TimeoutException e) {
+      throw new AppException("Timeout waiting for EPICS CA Get of PV: " + pvs.hallAttenuatorPv, e);
+    }
+
+    if (dbr != null && dbr.isDOUBLE()) {
+      return ((gov.aps.jca.dbr.DOUBLE) dbr).getDoubleValue()[0];
+    } else {
+      throw new AppException("Hall attenuator record is null or not a double");
+    }
+  }
+
+  /**
+   * Open the journal. A journal is a safety net rather than a requirement so if it can't be opened
+   * the run continues without one.
+   *
+   * @param file The journal file
+   * @return The journal, or null if unable to open
+   */
+  private CalibrationJournalWriter openJournal(File file) {
+    try {
+      return new CalibrationJournalWriter(file);
+    } catch (IOException e) {
+      LOGGER.log(Level.WARNING, "Unable to open calibration journal " + file.getPath(), e);
+      return null;
+    }
+  }
+
+  /**
+   * Open the sample trace and monitor the traced PVs. Like the journal, a trace is a diagnostic
+   * rather than a requirement so if it can't be opened the run continues without one.
+   *
+   * @param file The trace file
+   * @param icList The ion chambers
+   * @param pvs The PVs
+   */
+  private void startTrace(File file, List<IonChamber> icList, HallPvSet pvs) {
+    int capacity = SampleTraceWriter.getCapacity();
+
+    if (capacity == 0) {
+      return;
+    }
+
+    SampleTraceWriter.deleteOldTraces(file, SampleTraceWriter.getRetainCount());
+
+    List<String> tracePvs = new ArrayList<>();
+    tracePvs.add(pvs.hallBeamCurrentReadbackPv);
+
+    for (IonChamber ic : icList) {
+      tracePvs.add(ic.getDoseRateReadPvName());
+    }
+
+    tracePvs.add(pvs.hallAttenuatorPv);
+
+    String fsdPv = loadMasterFsdPv();
+
+    if (fsdPv != null) {
+      tracePvs.add(fsdPv);
+    }
+
+    try {
+      trace = new SampleTraceWriter(file, tracePvs, capacity);
+    } catch (IOException | RuntimeException e) {
+      LOGGER.log(Level.WARNING, "Unable to open sample trace " + file.getPath(), e);
+      return;
+    }
+
+    manager.addPvs(traceListener, new LinkedHashSet<>(tracePvs));
+  }
+
+  private MonitorSampler startSampler(List<IonChamber> icList, HallPvSet pvs)
+      throws AppException, InterruptedException {
+    List<String> samplePvs = new ArrayList<>();
+    samplePvs.add(pvs.hallBeamCurrentReadbackPv);
+
+    for (IonChamber ic : icList) {
+      samplePvs.add(ic.getDoseRateReadPvName());
+    }
+
+    MonitorSampler monitorSampler =
+        new MonitorSampler(manager, samplePvs, MonitorSampler.DEFAULT_CAPACITY, clock);
+    monitorSampler.start();
+
+    Set<String> unreachable = monitorSampler.awaitConnected(MONITOR_CONNECT_TIMEOUT_MILLIS);
+
+    if (!unreachable.isEmpty()) {
+      monitorSampler.close();
+      throw new AppException("Unable to monitor EPICS PVs: " + String.join(", ", unreachable));
+    }
+
+    return monitorSampler;
+  }
+
+  private void doCleanUp(HallPvSet pvs, double originalAttenuator) throws AppException {
+    // Put attenuator back where we found it
+    boolean writeAllowed = "true".equals(ICalibrateApp.APP_PROPERTIES.getProperty("WRITE_ALLOWED"));
+
+    if (writeAllowed) {
+      try {
+        manager.put(pvs.hallAttenuatorPv, originalAttenuator);
+      } catch (CAException e) {
+        throw new AppException(
+            "Unable to perform EPICS CA Put of PV: "
+                + pvs.hallAttenuatorPv
+                + " - "
+                + e.getMessage(),
+            e);
+      } catch (TimeoutException e) {
+        throw new AppException(
+            "Timeout waiting for EPICS CA Put of PV: " + pvs.hallAttenuatorPv, e);
+      }
+
+      try {
+        manager.put(pvs.hallModePv, 0); // 0 = BEAM_SYNC
+      } catch (CAException e) {
+        throw new AppException(
+            "Unable to perform EPICS CA Put of PV: " + pvs.hallModePv + " - " + e.getMessage(), e);
+      } catch (TimeoutException e) {
+        throw new AppException("Timeout waiting for EPICS CA Put of PV: " + pvs.hallModePv, e);
+      }
+    } else {
+      LOGGER.log(Level.WARNING, "Not writing due to configuration");
+    }
+  }
+
+  private void doStepLoop(
+      int startStep,
+      List<IonChamber> icList,
+      List<List<DoseRateMeasurement>> measurementMatrix,
+      HallPvSet pvs)
+      throws InterruptedException, AppException {
+    for (int i = startStep; i <= params.getNumberOfSteps(); i++) {
+      int attenuator = params.computeAttenuatorForStep(i);
+
+      LOGGER.log(Level.FINEST, "Attenuator value now: {0}", attenuator);
+
+      boolean repeat;
+
+      do {
+        repeat = false;
+        fsdTripDuringStep = false;
+        try {
+          doStep(i, attenuator, icList, measurementMatrix, pvs);
+        } catch (FSDException e) {
+          LOGGER.log(Level.FINEST, "FSD Encountered");
+          repeat = true;
+          awaitResume(i);
+          LOGGER.log(Level.FINEST, "User must have chose resume, because here we are");
+        } catch (StaleDataException e) {
+          LOGGER.log(Level.WARNING, "Step {0} interrupted: {1}", new Object[] {i, e.getMessage()});
+          repeat = true;
+          awaitReconnect(i);
+        }
+      } while (repeat);
+
+      progressPercent = i * (100 / params.getNumberOfSteps());
+
+      fire(CalibrationState.STEP_COMPLETE, i, null);
+    }
+  }
+
+  /**
+   * Wait for the user to decide to resume or not after an FSD trip.
+   *
+   * @param step The step
+   * @throws InterruptedException If cancelled while waiting
+   */
+  private void awaitResume(int step) throws InterruptedException {
+    synchronized (fsdLock) {
+      resumeRequested = false;
+    }
+
+    fire(CalibrationState.WAITING_ON_FSD, step, null);
+
+    synchronized (fsdLock) {
+      while (!resumeRequested) {
+        fsdLock.wait();
+      }
+    }
+  }
+
+  /**
+   * Wait for every sampled PV to reconnect and update. There is no timeout; the operator may
+   * cancel.
+   *
+   * @param step The step
+   * @throws InterruptedException If cancelled while waiting
+   */
+  private void awaitReconnect(int step) throws InterruptedException {
+    fire(CalibrationState.WAITING_ON_EPICS, step, null);
+
+    while (sampler.isStale()) {
+      clock.sleep(SETTLE_POLL_MILLIS);
+    }
+
+    LOGGER.log(Level.INFO, "Sampled PVs reconnected; repeating step {0}", step);
+  }
+
+  private void doStep(
+      int step,
+      int attenuator,
+      List<IonChamber> icList,
+      List<List<DoseRateMeasurement>> measurementMatrix,
+      HallPvSet pvs)
+      throws InterruptedException, AppException {
+
+    if (fsdTripThisInstant) {
+      throw new FSDException("No sense in starting this step without first clearing the FSD");
+    }
+
+    if (sampler.isStale()) {
+      throw new StaleDataException("Stale PVs: " + String.join(", ", sampler.getStalePvs()));
+    }
+
+    LOGGER.log(Level.FINEST, "Step: {0}", step);
+    fire(CalibrationState.ADJUSTING, step, null);
+
+    boolean writeAllowed = "true".equals(ICalibrateApp.APP_PROPERTIES.getProperty("WRITE_ALLOWED"));
+
+    if (writeAllowed) {
+      try {
+        manager.put(pvs.hallAttenuatorPv, attenuator);
+      } catch (CAException e) {
+        throw new AppException(
+            "Unable to perform EPICS CA Put of PV: "
+                + pvs.hallAttenuatorPv
+                + " - "
+                + e.getMessage(),
+            e);
+      } catch (TimeoutException e) {
+        throw new AppException(
+            "Timeout waiting for EPICS CA Put of PV: " + pvs.hallAttenuatorPv, e);
+      }
+    } else {
+      LOGGER.log(Level.WARNING, "Not writing due to configuration");
+    }
+
+    fire(CalibrationState.SETTLING, step, null);
+
+    long settleMillis = settle(pvs, step);
+
+    measure(icList, measurementMatrix, pvs, step, attenuator, settleMillis);
+  }
+
+  /**
+   * Wait for the hall current to settle after an attenuator change. The settle seconds parameter is
+   * the maximum wait. The actual time waited is recorded per step.
+   *
+   * @param pvs The PVs
+   * @param step The step
+   * @return The number of milliseconds waited
+   * @throws InterruptedException If interrupted
+   */
+  private long settle(HallPvSet pvs, int step) throws InterruptedException {
+    long start = clock.currentTimeMillis();
+    long deadline = start + params.getSettleSeconds() * 1000L;
+    SampleRingBuffer currentBuffer = sampler.getBuffer(pvs.hallBeamCurrentReadbackPv);
+
+    long now = start;
+
+    while (now < deadline && !settleDetector.isSettled(currentBuffer, start, now)) {
+      clock.sleep(Math.min(SETTLE_POLL_MILLIS, deadline - now));
+      now = clock.currentTimeMillis();
+    }
+
+    long settleMillis = now - start;
+
+    LOGGER.log(Level.FINE, "Step {0} settled in {1} ms", new Object[] {step, settleMillis});
+
+    settleMillisList.add(settleMillis);
+
+    return settleMillis;
+  }
+
+  private void measure(
+      List<IonChamber> icList,
+      List<List<DoseRateMeasurement>> measurementMatrix,
+      HallPvSet pvs,
+      int step,
+      int attenuator,
+      long settleMillis)
+      throws AppException, InterruptedException {
+    long windowStart = clock.currentTimeMillis();
+
+    dwell(step);
+
+    long windowEnd = clock.currentTimeMillis();
+
+    // A PV which disconnected and reconnected between checks held a frozen value meanwhile
+    if (sampler.getLastDisconnectMillis() >= windowStart) {
+      throw new StaleDataException("PV disconnected while sampling");
+    }
+
+    // Note: once we've made it past the dwell window we can calculate averages and add results to
+    // measurementLists
+    // If FSD Trip happened, during sampling we don't get here as exception bubbles up
+    List<DoseRateMeasurement> stepList = new ArrayList<>();
+
+    for (int j = 0; j < icList.size(); j++) {
+      IonChamber ic = icList.get(j);
+
+      accumulatePaired(
+          ic.getDoseRateReadPvName(), pvs.hallBeamCurrentReadbackPv, windowStart, windowEnd);
+
+      DoseRateMeasurement measurement =
+          new DoseRateMeasurement(
+              currentStats.getMean(),
+              doseRateStats.getMean(),
+              (int) doseRateStats.getCount(),
+              doseRateStats.getStandardDeviation());
+      List<DoseRateMeasurement> measurementList = measurementMatrix.get(j);
+      measurementList.add(measurement);
+      stepList.add(measurement);
+    }
+
+    if (journal != null) {
+      journal.writeStep(step, attenuator, settleMillis, windowStart, windowEnd, icList, stepList);
+    }
+  }
+
+  /**
+   * Wait out the sampling window while monitor updates accumulate in the sampler, reporting
+   * progress once per SAMPLE_FREQUENCY_MILLIS.
+   *
+   * @param step The step
+   * @throws InterruptedException If interrupted
+   * @throws FSDException If an FSD trip occurs during the window
+   * @throws StaleDataException If a sampled PV disconnects during the window
+   */
+  private void dwell(int step) throws InterruptedException, FSDException, StaleDataException {
+    for (int i = 0; i < params.getSamplesPerStep(); i++) {
+
+      LOGGER.log(Level.FINEST, "Sample: {0}", i + 1);
+
+      fire(CalibrationState.SAMPLING, step, i + 1);
+
+      clock.sleep(SAMPLE_FREQUENCY_MILLIS);
+
+      if (fsdTripDuringStep) {
+        throw new FSDException("FSD Trip while sampling");
+      }
+
+      if (sampler.isStale()) {
+        throw new StaleDataException(
+            "Stale PVs while sampling: " + String.join(", ", sampler.getStalePvs()));
+      }
+    }
+  }
+
+  /**
+   * Reset the dose rate and current accumulators and fill them with the window of the given dose
+   * rate PV, each dose rate paired with the current at its IOC timestamp.
+   *
+   * @param pv The dose rate PV
+   * @param currentPv The current PV
+   * @param windowStart The window start
+   * @param windowEnd The window end
+   * @throws AppException If no value of either PV has ever been received
+   */
+  private void accumulatePaired(String pv, String currentPv, long windowStart, long windowEnd)
+      throws AppException {
+    doseRateStats.reset();
+    currentStats.reset();
+
+    int count =
+        sampler.accumulatePaired(
+            pv, currentPv, windowStart, windowEnd, doseRateStats, currentStats);
+
+    if (count == 0) {
+      String missing = Double.isNaN(sampler.getBuffer(pv).getLatestValue()) ? pv : currentPv;
+
+      throw new AppException("No value received from EPICS PV: " + missing);
+    }
+
+    LOGGER.log(Level.FINEST, "{0} pairs in window: {1}", new Object[] {pv, count});
+  }
+
+  private void fire(CalibrationState state, int step, Integer sample) {
+    recordPhase(state, step, sample);
+
+    CalibrationProgressEvent event =
+        new CalibrationProgressEvent(state, step, sample, progressPercent);
+
+    for (CalibrationListener listener : listeners) {
+      listener.calibrationProgress(event);
+    }
+  }
+
+  /**
+   * End the flight recorder event of the previous phase and, unless the step is complete, begin one
+   * for the new phase.
+   */
+  private void recordPhase(CalibrationState state, int step, Integer sample) {
+    endPhase();
+
+    if (state != CalibrationState.STEP_COMPLETE) {
+      phaseEvent =
+          CalibrationPhaseEvent.begin(
+              state.name(), step, sample == null ? CalibrationStepContext.NONE : sample);
+    }
+  }
+
+  private void endPhase() {
+    if (phaseEvent != null) {
+      phaseEvent.commit();
+      phaseEvent = null;
+    }
+  }
+
+  private HallPvSet loadPvs() {
+    HallPvSet pvs = new HallPvSet();
+
+    String hallCurrentProperty = "HALLA_CURRENT_READ_PV";
+    String hallAttenuatorProperty;
+    String hallModeProperty;
+
+    if (params.getHall() == Hall.C) {
+      hallCurrentProperty = "HALLC_CURRENT_READ_PV";
+    } else if (params.getHall() == Hall.D) {
+      hallCurrentProperty = "HALLD_CURRENT_READ_PV";
+    }
+
+    switch (params.getLaser()) {
+      case A:
+        hallAttenuatorProperty = "LASERA_ATTENUATOR_PV";
+        hallModeProperty = "LASERA_MODE_PV";
+        break;
+      case B:
+        hallAttenuatorProperty = "LASERB_ATTENUATOR_PV";
+        hallModeProperty = "LASERB_MODE_PV";
+        break;
+      case C:
+        hallAttenuatorProperty = "LASERC_ATTENUATOR_PV";
+        hallModeProperty = "LASERC_MODE_PV";
+        break;
+      case D:
+        hallAttenuatorProperty = "LASERD_ATTENUATOR_PV";
+        hallModeProperty = "LASERD_MODE_PV";
+        break;
+      default:
+        throw new RuntimeException("Unknown laser");
+    }
+
+    pvs.hallBeamCurrentReadbackPv = ICalibrateApp.APP_PROPERTIES.getProperty(hallCurrentProperty);
+    pvs.hallAttenuatorPv = ICalibrateApp.APP_PROPERTIES.getProperty(hallAttenuatorProperty);
+    pvs.hallModePv = ICalibrateApp.APP_PROPERTIES.getProperty(hallModeProperty);
+
+    if (pvs.hallBeamCurrentReadbackPv != null) {
+      pvs.hallBeamCurrentReadbackPv =
+          pvs.hallBeamCurrentReadbackPv.trim(); // Config file might have spaces!
+    }
+
+    if (pvs.hallAttenuatorPv != null) {
+      pvs.hallAttenuatorPv = pvs.hallAttenuatorPv.trim(); // Config file might have spaces!
+    }
+
+    if (pvs.hallModePv != null) {
+      pvs.hallModePv = pvs.hallModePv.trim(); // Config file might have spaces!
+    }
+
+    return pvs;
+  }
+
+  private String loadMasterFsdPv() {
+    String fsdPv = ICalibrateApp.APP_PROPERTIES.getProperty("MASTER_FSD_VOLTAGE_PV");
+
+    if (fsdPv != null) {
+      fsdPv = fsdPv.trim(); // Config file might have spaces!
+    }
+
+    return fsdPv;
+  }
+
+  /** Tracks the master FSD voltage. */
+  private class FsdListener implements PvListener {
+
+    @Override
+    public void notifyPvInfo(
+        String pv, boolean couldConnect, DBRType type, Integer count, String[] enumLabels) {
+      synchronized (fsdConnectLock) {
+        fsdConnectReported = true;
+        fsdConnectLock.notifyAll();
+      }
+    }
+
+    @Override
+    public void notifyPvUpdate(String pv, DBR dbr) {
+      double voltage = ((gov.aps.jca.dbr.DOUBLE) dbr).getDoubleValue()[0];
+
+      LOGGER.log(Level.FINEST, "FSD Master Voltage: {0}", voltage);
+
+      fsdTripThisInstant = voltage != 0;
+
+      if (voltage != 0) {
+        fsdTripDuringStep = true; // Notice we never clear, only set: user must accept notice first
+      }
+    }
+  }
+
+  /** Records every monitor update to the sample trace, as received. */
+  private class TraceListener implements PvListener {
+
+    @Override
+    public void notifyPvInfo(
+        String pv, boolean couldConnect, DBRType type, Integer count, String[] enumLabels) {
+      // Nothing to record
+    }
+
+    @Override
+    public void notifyPvUpdate(String pv, DBR dbr) {
+      SampleTraceWriter writer = trace;
+      double value = MonitorSampler.toDouble(dbr);
+
+      if (writer != null && !Double.isNaN(value)) {
+        long now = clock.currentTimeMillis();
+
+        writer.record(pv, now, MonitorSampler.toSourceMillis(dbr, now), value);
+      }
+    }
+  }
+
+  /** The set of PVs for modifying an attenuator and reading back the current. */
+  private static class HallPvSet {
+
+    private String hallAttenuatorPv;
+    private String hallBeamCurrentReadbackPv;
+    private String hallModePv;
+  }
+}
@@ -0,0 +1,19 @@
+package org.jlab.icalibrate.calibration;
+
+/**
+ * A contract for classes interested in the progress of a CalibrationEngine run.
+ *
+ * <p>Notifications are made on the thread executing the run so implementations should return
+ * quickly and hand off any UI work.
+ *
+ * @author ryans
+ */
+public interface CalibrationListener {
+
+  /**
+   * Notification of calibration progress.
+   *
+   * @param event The progress event
+   */
+  void calibrationProgress(CalibrationProgressEvent event);
+}
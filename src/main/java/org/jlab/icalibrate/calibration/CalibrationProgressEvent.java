@@ -0,0 +1,71 @@
+package org.jlab.icalibrate.calibration;
+
+/**
+ * An immutable notification of calibration run progress.
+ *
+ * @author ryans
+ */
+public final class CalibrationProgressEvent {
+
+  private final CalibrationState state;
+  private final int step;
+  private final Integer sample;
+  private final int progressPercent;
+
+  /**
+   * Create a new CalibrationProgressEvent.
+   *
+   * @param state The state
+   * @param step The step
+   * @param sample The sample, or null if not sampling
+   * @param progressPercent The percent of the run complete
+   */
+  public CalibrationProgressEvent(
+      CalibrationState state, int step, Integer sample, int progressPercent) {
+    this.state = state;
+    this.step = step;
+    this.sample = sample;
+    this.progressPercent = progressPercent;
+  }
+
+  /**
+   * Return the state.
+   *
+   * @return The state
+   */
+  public CalibrationState getState() {
+    return state;
+  }
+
+  /**
+   * Return the step.
+   *
+   * @return The step
+   */
+  public int getStep() {
+    return step;
+  }
+
+  /**
+   * Return the sample.
+   *
+   * @return The sample, or null if not sampling
+   */
+  public Integer getSample() {
+    return sample;
+  }
+
+  /**
+   * Return the percent of the run complete.
+   *
+   * @return The progress percent
+   */
+  public int getProgressPercent() {
+    return progressPercent;
+  }
+
+  @Override
+  public String toString() {
+    return state.label + " step " + step + (sample == null ? "" : " sample " + sample);
+  }
+}
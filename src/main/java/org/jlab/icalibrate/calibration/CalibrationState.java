@@ -0,0 +1,28 @@
+package org.jlab.icalibrate.calibration;
+
+/**
+ * The state of a calibration run.
+ *
+ * @author ryans
+ */
+public enum CalibrationState {
+  /** Adjusting */
+  ADJUSTING("Adjusting Attenuator"),
+  /** Settling */
+  SETTLING("Settling"),
+  /** Sampling */
+  SAMPLING("Sampling"),
+  /** Step complete */
+  STEP_COMPLETE("Step Complete"),
+  /** Waiting on FSD */
+  WAITING_ON_FSD("Waiting on FSD"),
+  /** Waiting on disconnected EPICS PVs to reconnect */
+  WAITING_ON_EPICS("Waiting on EPICS Reconnect");
+
+  /** The operator friendly text for each state. */
+  public final String label;
+
+  CalibrationState(String label) {
+    this.label = label;
+  }
+}
@@ -0,0 +1,426 @@
+package org.jlab.icalibrate.calibration;
+
+import gov.aps.jca.dbr.DBR;
+import gov.aps.jca.dbr.DBRType;
+import gov.aps.jca.dbr.TIME;
+import gov.aps.jca.dbr.TimeStamp;
+import java.io.Closeable;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import org.jlab.icalibrate.epics.ChannelAccess;
+import org.jlab.icalibrate.epics.PvConnectionState;
+import org.jlab.icalibrate.epics.PvListener;
+import org.jlab.icalibrate.file.io.SampleTraceReader;
+
+/**
+ * Subscribes to a set of PVs via EPICS monitors and buffers every value update in a per-PV ring
+ * buffer. Windows of buffered samples are then used to compute statistics instead of repeatedly
+ * polling the IOC.
+ *
+ * <p>An IOC only posts a monitor update when a value changes (beyond any deadband) so a quiet PV
+ * may have no updates during a window. In that case the value in effect at the end of the window is
+ * held and used as the single sample (sample-and-hold).
+ *
+ * <p>Each sample keeps the IOC timestamp of its DBR_TIME update alongside the time it was received.
+ * Windows are selected by time received, but samples of different PVs are paired by IOC timestamp
+ * (see accumulatePaired) so that a dose rate is matched with the current at the moment it was
+ * measured rather than with the current averaged over the whole window.
+ *
+ * <p>A sampler can also be filled from the sample trace of a past run (see fromTrace) so that its
+ * windows can be analyzed after the fact with the same code as a live run.
+ *
+ * <p>Holding is only valid while the channel is connected. A PV whose channel disconnects (an IOC
+ * reboot, for example) is stale until its first update after reconnecting; see isStale.
+ *
+ * @author ryans
+ */
+public class MonitorSampler implements PvListener, Closeable {
+
+  private static final Logger LOGGER = Logger.getLogger(MonitorSampler.class.getName());
+
+  /** The default number of samples retained per PV. */
+  public static final int DEFAULT_CAPACITY = 8192;
+
+  /** Seconds from the Java epoch (1970) to the EPICS epoch (1990). */
+  private static final long EPICS_EPOCH_SECONDS = 631152000L;
+
+  private final ChannelAccess manager;
+  private final CalibrationClock clock;
+  private final Set<String> pvSet;
+  private final Map<String, SampleRingBuffer> bufferMap;
+  private final Set<String> infoSet = new HashSet<>();
+  private final Set<String> unreachableSet = new HashSet<>();
+  private final Set<String> staleSet = ConcurrentHashMap.newKeySet();
+  private volatile long lastDisconnectMillis = Long.MIN_VALUE;
+
+  /**
+   * Create a new MonitorSampler with the default per-PV capacity.
+   *
+   * @param manager The channel manager
+   * @param pvs The PVs to sample
+   */
+  public MonitorSampler(ChannelAccess manager, Collection<String> pvs) {
+    this(manager, pvs, DEFAULT_CAPACITY);
+  }
+
+  /**
+   * Create a new MonitorSampler.
+   *
+   * @param manager The channel manager
+   * @param pvs The PVs to sample
+   * @param capacity The number of samples retained per PV
+   */
+  public MonitorSampler(ChannelAccess manager, Collection<String> pvs, int capacity) {
+    this(manager, pvs, capacity, CalibrationClock.SYSTEM);
+  }
+
+  /**
+   * Create a new MonitorSampler which timestamps updates with the given clock.
+   *
+   * @param manager The channel manager
+   * @param pvs The PVs to sample
+   * @param capacity The number of samples retained per PV
+   * @param clock The clock
+   */
+  public MonitorSampler(
+      ChannelAccess manager, Collection<String> pvs, int capacity, CalibrationClock clock) {
+    this.manager = manager;
+    this.clock = clock;
+    this.pvSet = Collections.unmodifiableSet(new LinkedHashSet<>(pvs));
+
+    Map<String, SampleRingBuffer> map = new HashMap<>();
+
+    for (String pv : pvSet) {
+      map.put(pv, new SampleRingBuffer(capacity));
+    }
+
+    bufferMap = Collections.unmodifiableMap(map);
+  }
+
+  /**
+   * Create a sampler of the PVs of the given sample trace, filled with its records. The sampler
+   * has no channel manager so it must not be started; it is only for analyzing a past run.
+   *
+   * @param reader The sample trace
+   * @return The sampler
+   */
+  public static MonitorSampler fromTrace(SampleTraceReader reader) {
+    List<String> pvs = reader.getPvs();
+    int[] counts = new int[pvs.size()];
+
+    reader.replay((pv, receivedMillis, sourceMillis, value) -> counts[pvs.indexOf(pv)]++);
+
+    int capacity = 1;
+
+    for (int count : counts) {
+      capacity = Math.max(capacity, count);
+    }
+
+    MonitorSampler sampler = new MonitorSampler(null, pvs, capacity, CalibrationClock.SYSTEM);
+
+    reader.replay(
+        (pv, receivedMillis, sourceMillis, value) ->
+            sampler.bufferMap.get(pv).add(receivedMillis, sourceMillis, value));
+
+    return sampler;
+  }
+
+  /** Register the monitors. Updates are buffered from this point until close. */
+  public void start() {
+    manager.addPvs(this, pvSet);
+  }
+
+  /**
+   * Wait until every PV has either connected or been reported as unable to connect.
+   *
+   * @param timeoutMillis The maximum number of milliseconds to wait
+   * @return The set of PVs which could not connect or have not reported yet
+   * @throws InterruptedException If interrupted while waiting
+   */
+  public synchronized Set<String> awaitConnected(long timeoutMillis) throws InterruptedException {
+    long deadline = System.currentTimeMillis() + timeoutMillis;
+
+    while (infoSet.size() < pvSet.size()) {
+      long remaining = deadline - System.currentTimeMillis();
+
+      if (remaining <= 0) {
+        break;
+      }
+
+      wait(remaining);
+    }
+
+    Set<String> missing = new LinkedHashSet<>(pvSet);
+    missing.removeAll(infoSet);
+    missing.addAll(unreachableSet);
+
+    return missing;
+  }
+
+  /**
+   * Return whether any sampled PV is stale: disconnected, or reconnected without an update since.
+   *
+   * @return true if any PV is stale
+   */
+  public boolean isStale() {
+    return !staleSet.isEmpty();
+  }
+
+  /**
+   * Return the stale PVs; see isStale.
+   *
+   * @return The stale PVs
+   */
+  public Set<String> getStalePvs() {
+    return new LinkedHashSet<>(staleSet);
+  }
+
+  /**
+   * Return the time of the most recent disconnect of any sampled PV according to the sampler's
+   * clock, so that a window which a brief disconnect fell within can be discarded even if the PV
+   * has already reconnected.
+   *
+   * @return The time in milliseconds, or Long.MIN_VALUE if no PV has disconnected
+   */
+  public long getLastDisconnectMillis() {
+    return lastDisconnectMillis;
+  }
+
+  /**
+   * Return the buffer of the given PV.
+   *
+   * @param pv The PV
+   * @return The buffer, or null if the PV is not being sampled
+   */
+  public SampleRingBuffer getBuffer(String pv) {
+    return bufferMap.get(pv);
+  }
+
+  /**
+   * Return the values of the given PV which arrived in the window [fromMillis, toMillis]. If none
+   * arrived the value in effect at the end of the window is held and returned as a single sample.
+   * An empty array is returned if no value has ever been received.
+   *
+   * @param pv The PV
+   * @param fromMillis The inclusive window start
+   * @param toMillis The inclusive window end
+   * @return The window values
+   */
+  public double[] window(String pv, long fromMillis, long toMillis) {
+    SampleRingBuffer buffer = bufferMap.get(pv);
+
+    if (buffer == null) {
+      throw new IllegalArgumentException("PV not sampled: " + pv);
+    }
+
+    double[] values = buffer.values(fromMillis, toMillis);
+
+    if (values.length == 0) {
+      double held = buffer.valueAt(toMillis);
+
+      if (!Double.isNaN(held)) {
+        values = new double[] {held};
+      }
+    }
+
+    return values;
+  }
+
+  /**
+   * Add the values of the given PV which arrived in the window [fromMillis, toMillis] to the given
+   * statistics accumulator, holding the value in effect at the end of the window if none arrived
+   * (see window).
+   *
+   * @param pv The PV
+   * @param fromMillis The inclusive window start
+   * @param toMillis The inclusive window end
+   * @param stats The accumulator
+   * @return The number of samples added
+   */
+  public int accumulate(String pv, long fromMillis, long toMillis, RunningStatistics stats) {
+    SampleRingBuffer buffer = bufferMap.get(pv);
+
+    if (buffer == null) {
+      throw new IllegalArgumentException("PV not sampled: " + pv);
+    }
+
+    synchronized (buffer) {
+      int count = buffer.addTo(stats, fromMillis, toMillis);
+
+      if (count == 0) {
+        double held = buffer.valueAt(toMillis);
+
+        if (!Double.isNaN(held)) {
+          stats.add(held);
+          count = 1;
+        }
+      }
+
+      return count;
+    }
+  }
+
+  /**
+   * Pair each value of the given PV which arrived in the window [fromMillis, toMillis] with the
+   * value of the given current PV at the same source (IOC) time, interpolating between current
+   * samples, and add each pair to the given accumulators. If no value of the PV arrived the value
+   * in effect at the end of the window is held and paired with the current in effect at the end of
+   * the window (see window). A pair is skipped if no current has been received by then.
+   *
+   * @param pv The PV
+   * @param currentPv The current PV
+   * @param fromMillis The inclusive window start
+   * @param toMillis The inclusive window end
+   * @param stats The accumulator of the PV values
+   * @param currentStats The accumulator of the paired currents
+   * @return The number of pairs added
+   */
+  public int accumulatePaired(
+      String pv,
+      String currentPv,
+      long fromMillis,
+      long toMillis,
+      RunningStatistics stats,
+      RunningStatistics currentStats) {
+    SampleRingBuffer buffer = bufferMap.get(pv);
+    SampleRingBuffer currentBuffer = bufferMap.get(currentPv);
+
+    if (buffer == null) {
+      throw new IllegalArgumentException("PV not sampled: " + pv);
+    }
+
+    if (currentBuffer == null) {
+      throw new IllegalArgumentException("PV not sampled: " + currentPv);
+    }
+
+    double[] values;
+    long[] sourceTimestamps;
+
+    synchronized (buffer) {
+      values = buffer.values(fromMillis, toMillis);
+      sourceTimestamps = buffer.sourceTimestamps(fromMillis, toMillis);
+    }
+
+    int count = 0;
+
+    for (int i = 0; i < values.length; i++) {
+      double current = currentBuffer.valueAtSource(sourceTimestamps[i]);
+
+      if (!Double.isNaN(current)) {
+        stats.add(values[i]);
+        currentStats.add(current);
+        count++;
+      }
+    }
+
+    if (values.length == 0) {
+      double held = buffer.valueAt(toMillis);
+      double current = currentBuffer.valueAt(toMillis);
+
+      if (!Double.isNaN(held) && !Double.isNaN(current)) {
+        stats.add(held);
+        currentStats.add(current);
+        count = 1;
+      }
+    }
+
+    return count;
+  }
+
+  @Override
+  public synchronized void notifyPvInfo(
+      String pv, boolean couldConnect, DBRType type, Integer count, String[] enumLabels) {
+    infoSet.add(pv);
+
+    if (couldConnect) {
+      unreachableSet.remove(pv);
+    } else {
+      unreachableSet.add(pv);
+    }
+
+    notifyAll();
+  }
+
+  @Override
+  public void notifyPvConnection(String pv, PvConnectionState state, long sinceMillis) {
+    if (state == PvConnectionState.DISCONNECTED && bufferMap.containsKey(pv)) {
+      LOGGER.log(Level.WARNING, "{0} disconnected; values are stale until it reconnects", pv);
+      staleSet.add(pv);
+      lastDisconnectMillis = clock.currentTimeMillis();
+    }
+  }
+
+  @Override
+  public void notifyPvUpdate(String pv, DBR dbr) {
+    SampleRingBuffer buffer = bufferMap.get(pv);
+
+    if (buffer == null) {
+      return;
+    }
+
+    staleSet.remove(pv); // An update means connected and current
+
+    double value = toDouble(dbr);
+
+    if (Double.isNaN(value)) {
+      LOGGER.log(Level.WARNING, "{0} is null or not a number", pv);
+    } else {
+      long now = clock.currentTimeMillis();
+
+      buffer.add(now, toSourceMillis(dbr, now), value);
+    }
+  }
+
+  /**
+   * Convert a numeric DBR to a double.
+   *
+   * @param dbr The EPICS DataBaseRecord
+   * @return The value, or NaN if null or not numeric
+   */
+  static double toDouble(DBR dbr) {
+    if (dbr != null && dbr.isDOUBLE()) {
+      return ((gov.aps.jca.dbr.DOUBLE) dbr).getDoubleValue()[0];
+    } else if (dbr != null && dbr.isINT()) {
+      return ((gov.aps.jca.dbr.INT) dbr).getIntValue()[0];
+    }
+
+    return Double.NaN;
+  }
+
+  /**
+   * Return the IOC timestamp of a DBR_TIME record in milliseconds since the Java epoch.
+   *
+   * @param dbr The EPICS DataBaseRecord
+   * @param receivedMillis The time the record was received
+   * @return The IOC timestamp, or the time received if the record has no timestamp
+   */
+  static long toSourceMillis(DBR dbr, long receivedMillis) {
+    if (dbr != null && dbr.isTIME()) {
+      TimeStamp stamp = ((TIME) dbr).getTimeStamp();
+
+      // An IOC which never processed the record reports the EPICS epoch itself
+      if (stamp != null && stamp.secPastEpoch() > 0) {
+        return (stamp.secPastEpoch() + EPICS_EPOCH_SECONDS) * 1000 + stamp.nsec() / 1000000;
+      }
+    }
+
+    return receivedMillis;
+  }
+
+  /** Unregister the monitors. */
+  @Override
+  public void close() {
+    if (manager != null) {
+      manager.removeListener(this);
+    }
+  }
+}
@@ -0,0 +1,308 @@
+package org.jlab.icalibrate.calibration;
+
+import gov.aps.jca.dbr.DBR;
+import gov.aps.jca.dbr.DBRType;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import org.jlab.icalibrate.ICalibrateApp;
+import org.jlab.icalibrate.epics.ChannelAccess;
+import org.jlab.icalibrate.epics.DeliveryMode;
+import org.jlab.icalibrate.epics.PvConnectionState;
+import org.jlab.icalibrate.epics.PvListener;
+import org.jlab.icalibrate.model.Hall;
+import org.jlab.icalibrate.model.IonChamber;
+
+/**
+ * Connects the PVs of a calibration run in the background ahead of the run so that the first step
+ * doesn't pay the CA search and connect cost and so that unreachable PVs are known before the run
+ * starts.
+ *
+ * <p>PVs the run monitors (hall current, master FSD voltage, and ion chamber dose rates) are
+ * monitored here too; the channel manager shares a single monitor per PV so the run joins an
+ * already connected monitor. PVs the run reads and writes (laser attenuators and modes) are read
+ * once, which leaves a connected channel in the channel manager's cache. A monitored PV which
+ * disconnects is shown as unreachable until it reconnects.
+ *
+ * <p>Choosing a different hall, or different ion chambers, releases the PVs of the previous choice
+ * which are no longer needed. The ion chambers belong to a hall so a new hall releases them too.
+ *
+ * <p>The preconnector stays subscribed until cleared, which should happen once the run no longer
+ * needs the head start (after the run, or when the wizard starts over).
+ *
+ * @author ryans
+ */
+public class PvPreconnector implements PvListener {
+
+  private static final Logger LOGGER = Logger.getLogger(PvPreconnector.class.getName());
+
+  /** The connectivity status of a PV. */
+  public enum Status {
+    CONNECTING,
+    CONNECTED,
+    UNREACHABLE
+  }
+
+  private final ChannelAccess manager;
+  private final Map<String, Status> statusMap = new LinkedHashMap<>(); // Guarded by this
+  private final Set<String> hallPvSet = new LinkedHashSet<>(); // Guarded by this
+  private final Set<String> chamberPvSet = new LinkedHashSet<>(); // Guarded by this
+  private Hall hall = null; // Guarded by this
+  private final List<Runnable> changeListeners = new CopyOnWriteArrayList<>();
+  private long generation = 0; // Guarded by this; late replies of a cleared generation are ignored
+
+  /**
+   * Create a new PvPreconnector.
+   *
+   * @param manager The channel manager
+   */
+  public PvPreconnector(ChannelAccess manager) {
+    this.manager = manager;
+  }
+
+  /**
+   * Preconnect the PVs of the given hall which don't depend on the ion chambers: the hall current,
+   * the master FSD voltage, and the attenuator and mode of every laser since the laser isn't known
+   * yet. The PVs of a previously chosen hall and its ion chambers are released.
+   *
+   * @param hall The hall
+   */
+  public void preconnectHall(Hall hall) {
+    Set<String> monitorPvs = new LinkedHashSet<>();
+    addProperty(monitorPvs, "HALL" + hall.name() + "_CURRENT_READ_PV");
+    addProperty(monitorPvs, "MASTER_FSD_VOLTAGE_PV");
+
+    Set<String> requestPvs = new LinkedHashSet<>();
+
+    for (String laser : new String[] {"A", "B", "C", "D"}) {
+      addProperty(requestPvs, "LASER" + laser + "_ATTENUATOR_PV");
+      addProperty(requestPvs, "LASER" + laser + "_MODE_PV");
+    }
+
+    Set<String> hallPvs = new LinkedHashSet<>(monitorPvs);
+    hallPvs.addAll(requestPvs);
+
+    boolean hallChanged;
+
+    synchronized (this) {
+      hallChanged = this.hall != null && this.hall != hall;
+      this.hall = hall;
+    }
+
+    if (hallChanged) {
+      replace(chamberPvSet, new LinkedHashSet<>());
+    }
+
+    replace(hallPvSet, hallPvs);
+
+    monitor(monitorPvs);
+    request(requestPvs);
+  }
+
+  /**
+   * Preconnect the dose rate PVs of the given ion chambers. The PVs of previously chosen ion
+   * chambers which aren't among them are released.
+   *
+   * @param icList The ion chambers
+   */
+  public void preconnectIonChambers(List<IonChamber> icList) {
+    Set<String> monitorPvs = new LinkedHashSet<>();
+
+    for (IonChamber ic : icList) {
+      if (ic.getDoseRateReadPvName() != null) {
+        monitorPvs.add(ic.getDoseRateReadPvName().trim());
+      }
+    }
+
+    replace(chamberPvSet, monitorPvs);
+
+    monitor(monitorPvs);
+  }
+
+  /**
+   * Return a snapshot of the status of each preconnected PV in the order requested.
+   *
+   * @return The PV to status map
+   */
+  public synchronized Map<String, Status> getStatusMap() {
+    return new LinkedHashMap<>(statusMap);
+  }
+
+  /**
+   * Add a listener which is called whenever a status changes. It is called on whichever thread
+   * observed the change so Swing listeners must hand off to the Event Dispatch Thread.
+   *
+   * @param listener The listener
+   */
+  public void addChangeListener(Runnable listener) {
+    changeListeners.add(listener);
+  }
+
+  /** Release all preconnected PVs and forget their status. */
+  public void clear() {
+    manager.removeListener(this);
+
+    synchronized (this) {
+      statusMap.clear();
+      hallPvSet.clear();
+      chamberPvSet.clear();
+      hall = null;
+      generation++;
+    }
+
+    fireChange();
+  }
+
+  @Override
+  public void notifyPvInfo(
+      String pv, boolean couldConnect, DBRType type, Integer count, String[] enumLabels) {
+    setStatus(pv, couldConnect ? Status.CONNECTED : Status.UNREACHABLE, null);
+  }
+
+  @Override
+  public void notifyPvUpdate(String pv, DBR dbr) {
+    // Nothing to do; the run has its own subscription
+  }
+
+  @Override
+  public void notifyPvConnection(String pv, PvConnectionState state, long sinceMillis) {
+    if (state == PvConnectionState.CONNECTED) {
+      setStatus(pv, Status.CONNECTED, null);
+    } else if (state == PvConnectionState.DISCONNECTED) {
+      setStatus(pv, Status.UNREACHABLE, null);
+    }
+  }
+
+  @Override
+  public DeliveryMode getDeliveryMode() {
+    return DeliveryMode.LATEST;
+  }
+
+  private void monitor(Set<String> pvSet) {
+    Set<String> newPvSet = begin(pvSet);
+
+    if (!newPvSet.isEmpty()) {
+      manager.addPvs(this, newPvSet);
+    }
+  }
+
+  private void request(Set<String> pvSet) {
+    Set<String> newPvSet = begin(pvSet);
+    long requestGeneration;
+
+    synchronized (this) {
+      requestGeneration = generation;
+    }
+
+    for (String pv : newPvSet) {
+      manager
+          .getAsync(pv)
+          .whenComplete(
+              (dbr, failure) -> {
+                if (failure != null) {
+                  LOGGER.log(Level.FINEST, "Unable to preconnect PV: " + pv, failure);
+                }
+
+                setStatus(
+                    pv,
+                    failure == null ? Status.CONNECTED : Status.UNREACHABLE,
+                    requestGeneration);
+              });
+    }
+  }
+
+  /**
+   * Replace the given group of PVs with a new group, releasing the PVs which are no longer in it.
+   *
+   * @param groupPvSet The group, which is updated
+   * @param newPvSet The new PVs of the group
+   */
+  private void replace(Set<String> groupPvSet, Set<String> newPvSet) {
+    Set<String> releasePvSet = new LinkedHashSet<>();
+
+    synchronized (this) {
+      for (String pv : groupPvSet) {
+        if (!newPvSet.contains(pv)) {
+          statusMap.remove(pv);
+          releasePvSet.add(pv);
+        }
+      }
+
+      groupPvSet.clear();
+      groupPvSet.addAll(newPvSet);
+    }
+
+    if (!releasePvSet.isEmpty()) {
+      manager.clearPvs(this, releasePvSet);
+      fireChange();
+    }
+  }
+
+  /**
+   * Mark the PVs not already preconnected as connecting.
+   *
+   * @param pvSet The PVs
+   * @return The PVs not already preconnected
+   */
+  private Set<String> begin(Set<String> pvSet) {
+    Set<String> newPvSet = new LinkedHashSet<>();
+
+    synchronized (this) {
+      for (String pv : pvSet) {
+        if (!statusMap.containsKey(pv)) {
+          statusMap.put(pv, Status.CONNECTING);
+          newPvSet.add(pv);
+        }
+      }
+    }
+
+    if (!newPvSet.isEmpty()) {
+      fireChange();
+    }
+
+    return newPvSet;
+  }
+
+  /**
+   * Set the status of a PV still being tracked.
+   *
+   * @param pv The PV
+   * @param status The status
+   * @param requestGeneration The generation the reply belongs to, or null if current
+   */
+  private void setStatus(String pv, Status status, Long requestGeneration) {
+    synchronized (this) {
+      if (requestGeneration != null && requestGeneration != generation) {
+        return;
+      }
+
+      if (!statusMap.containsKey(pv) || statusMap.get(pv) == status) {
+        return;
+      }
+
+      statusMap.put(pv, status);
+    }
+
+    fireChange();
+  }
+
+  private void fireChange() {
+    for (Runnable listener : changeListeners) {
+      listener.run();
+    }
+  }
+
+  private static void addProperty(Collection<String> pvs, String key) {
+    String pv = ICalibrateApp.APP_PROPERTIES.getProperty(key);
+
+    if (pv != null && !pv.trim().isEmpty()) {
+      pvs.add(pv.trim()); // Config file might have spaces!
+    }
+  }
+}
@@ -0,0 +1,203 @@
+package org.jlab.icalibrate.calibration;
+
+import java.util.Arrays;
+
+/**
+ * Streaming statistics accumulator using Welford's online algorithm. Count, mean, variance, min,
+ * and max are kept in primitive fields so samples can be accumulated without boxing or storing
+ * them.
+ *
+ * <p>Optionally the most recent samples are also retained in a bounded primitive buffer so that
+ * robust statistics (median and median absolute deviation) can be computed. An instance is not
+ * thread-safe and is meant to be reset and reused.
+ *
+ * @author ryans
+ */
+public final class RunningStatistics {
+
+  private final double[] robustBuffer;
+  private int robustHead = 0;
+  private int robustSize = 0;
+
+  private long count = 0;
+  private double mean = 0;
+  private double m2 = 0;
+  private double min = Double.POSITIVE_INFINITY;
+  private double max = Double.NEGATIVE_INFINITY;
+
+  /** Create a new RunningStatistics without robust statistics. */
+  public RunningStatistics() {
+    this(0);
+  }
+
+  /**
+   * Create a new RunningStatistics.
+   *
+   * @param robustCapacity The number of most recent samples retained for median and MAD; zero to
+   *     disable robust statistics
+   */
+  public RunningStatistics(int robustCapacity) {
+    if (robustCapacity < 0) {
+      throw new IllegalArgumentException("robustCapacity must not be negative");
+    }
+
+    robustBuffer = new double[robustCapacity];
+  }
+
+  /**
+   * Add a sample.
+   *
+   * @param value The sample value
+   */
+  public void add(double value) {
+    count++;
+
+    double delta = value - mean;
+    mean = mean + delta / count;
+    m2 = m2 + delta * (value - mean);
+
+    if (value < min) {
+      min = value;
+    }
+
+    if (value > max) {
+      max = value;
+    }
+
+    if (robustBuffer.length > 0) {
+      robustBuffer[robustHead] = value;
+      robustHead = (robustHead + 1) % robustBuffer.length;
+
+      if (robustSize < robustBuffer.length) {
+        robustSize++;
+      }
+    }
+  }
+
+  /**
+   * Add all of the given samples.
+   *
+   * @param values The sample values
+   */
+  public void addAll(double[] values) {
+    for (double value : values) {
+      add(value);
+    }
+  }
+
+  /** Discard all samples. */
+  public void reset() {
+    count = 0;
+    mean = 0;
+    m2 = 0;
+    min = Double.POSITIVE_INFINITY;
+    max = Double.NEGATIVE_INFINITY;
+    robustHead = 0;
+    robustSize = 0;
+  }
+
+  /**
+   * Return the number of samples.
+   *
+   * @return The count
+   */
+  public long getCount() {
+    return count;
+  }
+
+  /**
+   * Return the mean, or NaN if there are no samples.
+   *
+   * @return The mean
+   */
+  public double getMean() {
+    return count == 0 ? Double.NaN : mean;
+  }
+
+  /**
+   * Return the sample variance (n - 1 denominator), or NaN if there are fewer than two samples.
+   *
+   * @return The variance
+   */
+  public double getVariance() {
+    return count < 2 ? Double.NaN : m2 / (count - 1);
+  }
+
+  /**
+   * Return the sample standard deviation, or NaN if there are fewer than two samples.
+   *
+   * @return The standard deviation
+   */
+  public double getStandardDeviation() {
+    return Math.sqrt(getVariance());
+  }
+
+  /**
+   * Return the minimum, or NaN if there are no samples.
+   *
+   * @return The minimum
+   */
+  public double getMin() {
+    return count == 0 ? Double.NaN : min;
+  }
+
+  /**
+   * Return the maximum, or NaN if there are no samples.
+   *
+   * @return The maximum
+   */
+  public double getMax() {
+    return count == 0 ? Double.NaN : max;
+  }
+
+  /**
+   * Return the median of the retained samples, or NaN if robust statistics are disabled or there
+   * are no samples.
+   *
+   * @return The median
+   */
+  public double getMedian() {
+    if (robustSize == 0) {
+      return Double.NaN;
+    }
+
+    double[] sorted = Arrays.copyOf(robustBuffer, robustSize);
+    Arrays.sort(sorted);
+
+    return median(sorted);
+  }
+
+  /**
+   * Return the median absolute deviation (unscaled) of the retained samples, or NaN if robust
+   * statistics are disabled or there are no samples.
+   *
+   * @return The median absolute deviation
+   */
+  public double getMedianAbsoluteDeviation() {
+    double median = getMedian();
+
+    if (Double.isNaN(median)) {
+      return Double.NaN;
+    }
+
+    double[] deviations = new double[robustSize];
+
+    for (int i = 0; i < robustSize; i++) {
+      deviations[i] = Math.abs(robustBuffer[i] - median);
+    }
+
+    Arrays.sort(deviations);
+
+    return median(deviations);
+  }
+
+  private static double median(double[] sorted) {
+    int middle = sorted.length / 2;
+
+    if (sorted.length % 2 == 1) {
+      return sorted[middle];
+    }
+
+    return (sorted[middle - 1] + sorted[middle]) / 2;
+  }
+}
@@ -0,0 +1,285 @@
+package org.jlab.icalibrate.calibration;
+
+/**
+ * A fixed capacity buffer of timestamped samples backed by primitive arrays. Once full the oldest
+ * sample is overwritten. All methods are thread-safe: a monitor callback thread adds samples while
+ * the acquisition thread reads windows. Callers needing several consistent reads can synchronize on
+ * the buffer itself.
+ *
+ * <p>Each sample carries two timestamps: the time it was received, which windows are selected by,
+ * and the time its source recorded it (the IOC timestamp of a DBR_TIME update), which samples of
+ * different PVs are aligned by. The two are the same for a source without timestamps.
+ *
+ * @author ryans
+ */
+public final class SampleRingBuffer {
+
+  private final double[] values;
+  private final long[] timestamps;
+  private final long[] sourceTimestamps;
+  private int head = 0; // Index of next write
+  private int size = 0;
+
+  /**
+   * Create a new SampleRingBuffer.
+   *
+   * @param capacity The maximum number of samples retained
+   */
+  public SampleRingBuffer(int capacity) {
+    if (capacity < 1) {
+      throw new IllegalArgumentException("capacity must be positive");
+    }
+
+    values = new double[capacity];
+    timestamps = new long[capacity];
+    sourceTimestamps = new long[capacity];
+  }
+
+  /**
+   * Add a sample whose source timestamp is its received timestamp.
+   *
+   * @param timestampMillis The sample timestamp
+   * @param value The sample value
+   */
+  public void add(long timestampMillis, double value) {
+    add(timestampMillis, timestampMillis, value);
+  }
+
+  /**
+   * Add a sample.
+   *
+   * @param timestampMillis The sample timestamp
+   * @param sourceMillis The source timestamp
+   * @param value The sample value
+   */
+  public synchronized void add(long timestampMillis, long sourceMillis, double value) {
+    values[head] = value;
+    timestamps[head] = timestampMillis;
+    sourceTimestamps[head] = sourceMillis;
+    head = (head + 1) % values.length;
+
+    if (size < values.length) {
+      size++;
+    }
+  }
+
+  /**
+   * Return the number of samples with a timestamp in the range [fromMillis, toMillis].
+   *
+   * @param fromMillis The inclusive window start
+   * @param toMillis The inclusive window end
+   * @return The count
+   */
+  public synchronized int count(long fromMillis, long toMillis) {
+    int count = 0;
+
+    for (int i = 0; i < size; i++) {
+      int index = index(i);
+
+      if (timestamps[index] >= fromMillis && timestamps[index] <= toMillis) {
+        count++;
+      }
+    }
+
+    return count;
+  }
+
+  /**
+   * Return the values of samples with a timestamp in the range [fromMillis, toMillis], oldest
+   * first.
+   *
+   * @param fromMillis The inclusive window start
+   * @param toMillis The inclusive window end
+   * @return The values, possibly empty
+   */
+  public synchronized double[] values(long fromMillis, long toMillis) {
+    double[] window = new double[count(fromMillis, toMillis)];
+    int j = 0;
+
+    for (int i = 0; i < size; i++) {
+      int index = index(i);
+
+      if (timestamps[index] >= fromMillis && timestamps[index] <= toMillis) {
+        window[j++] = values[index];
+      }
+    }
+
+    return window;
+  }
+
+  /**
+   * Return the timestamps of samples with a timestamp in the range [fromMillis, toMillis], oldest
+   * first. The result lines up with the result of values given the same range and no intervening
+   * add.
+   *
+   * @param fromMillis The inclusive window start
+   * @param toMillis The inclusive window end
+   * @return The timestamps, possibly empty
+   */
+  public synchronized long[] timestamps(long fromMillis, long toMillis) {
+    long[] window = new long[count(fromMillis, toMillis)];
+    int j = 0;
+
+    for (int i = 0; i < size; i++) {
+      int index = index(i);
+
+      if (timestamps[index] >= fromMillis && timestamps[index] <= toMillis) {
+        window[j++] = timestamps[index];
+      }
+    }
+
+    return window;
+  }
+
+  /**
+   * Return the source timestamps of samples with a timestamp in the range [fromMillis, toMillis],
+   * oldest first. The result lines up with the result of values given the same range and no
+   * intervening add.
+   *
+   * @param fromMillis The inclusive window start
+   * @param toMillis The inclusive window end
+   * @return The source timestamps, possibly empty
+   */
+  public synchronized long[] sourceTimestamps(long fromMillis, long toMillis) {
+    long[] window = new long[count(fromMillis, toMillis)];
+    int j = 0;
+
+    for (int i = 0; i < size; i++) {
+      int index = index(i);
+
+      if (timestamps[index] >= fromMillis && timestamps[index] <= toMillis) {
+        window[j++] = sourceTimestamps[index];
+      }
+    }
+
+    return window;
+  }
+
+  /**
+   * Add the values of samples with a timestamp in the range [fromMillis, toMillis] to the given
+   * statistics accumulator without copying them out of the buffer.
+   *
+   * @param stats The accumulator
+   * @param fromMillis The inclusive window start
+   * @param toMillis The inclusive window end
+   * @return The number of samples added
+   */
+  public synchronized int addTo(RunningStatistics stats, long fromMillis, long toMillis) {
+    int count = 0;
+
+    for (int i = 0; i < size; i++) {
+      int index = index(i);
+
+      if (timestamps[index] >= fromMillis && timestamps[index] <= toMillis) {
+        stats.add(values[index]);
+        count++;
+      }
+    }
+
+    return count;
+  }
+
+  /**
+   * Return the value of the most recent sample at or before the given time, or NaN if none.
+   *
+   * @param atMillis The time
+   * @return The value in effect at the given time
+   */
+  public synchronized double valueAt(long atMillis) {
+    for (int i = size - 1; i >= 0; i--) {
+      int index = index(i);
+
+      if (timestamps[index] <= atMillis) {
+        return values[index];
+      }
+    }
+
+    return Double.NaN;
+  }
+
+  /**
+   * Return the value at the given source time, linearly interpolated between the samples either
+   * side of it. Before the oldest sample the oldest value is returned, and after the newest sample
+   * the newest value is held. The buffer is searched newest first, so times near the latest sample
+   * are cheapest.
+   *
+   * @param atSourceMillis The source time
+   * @return The value at the given source time, or NaN if empty
+   */
+  public synchronized double valueAtSource(long atSourceMillis) {
+    int after = -1; // Index of the oldest sample newer than the time seen so far
+
+    for (int i = size - 1; i >= 0; i--) {
+      int index = index(i);
+
+      if (sourceTimestamps[index] <= atSourceMillis) {
+        if (after == -1 || sourceTimestamps[after] == sourceTimestamps[index]) {
+          return values[index];
+        }
+
+        double fraction =
+            (double) (atSourceMillis - sourceTimestamps[index])
+                / (sourceTimestamps[after] - sourceTimestamps[index]);
+
+        return values[index] + (values[after] - values[index]) * fraction;
+      }
+
+      after = index;
+    }
+
+    return after == -1 ? Double.NaN : values[after];
+  }
+
+  /**
+   * Return the most recent value, or NaN if empty.
+   *
+   * @return The latest value
+   */
+  public synchronized double getLatestValue() {
+    return size == 0 ? Double.NaN : values[index(size - 1)];
+  }
+
+  /**
+   * Return the timestamp of the most recent value, or zero if empty.
+   *
+   * @return The latest timestamp
+   */
+  public synchronized long getLatestTimestampMillis() {
+    return size == 0 ? 0 : timestamps[index(size - 1)];
+  }
+
+  /**
+   * Return the number of samples currently retained.
+   *
+   * @return The size
+   */
+  public synchronized int size() {
+    return size;
+  }
+
+  /**
+   * Return the maximum number of samples retained.
+   *
+   * @return The capacity
+   */
+  public int capacity() {
+    return values.length;
+  }
+
+  /** Remove all samples. */
+  public synchronized void clear() {
+    head = 0;
+    size = 0;
+  }
+
+  /**
+   * Map a logical position (0 = oldest) to an array index.
+   *
+   * @param position The logical position
+   * @return The array index
+   */
+  private int index(int position) {
+    int oldest = (head - size + values.length) % values.length;
+    return (oldest + position) % values.length;
+  }
+}
@@ -0,0 +1,355 @@
+package org.jlab.icalibrate.calibration;
+
+import gov.aps.jca.CAException;
+import gov.aps.jca.TimeoutException;
+import gov.aps.jca.dbr.DBR;
+import gov.aps.jca.dbr.DBRType;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import org.jlab.icalibrate.epics.BatchGetResult;
+import org.jlab.icalibrate.epics.ChannelAccess;
+import org.jlab.icalibrate.epics.ChannelManager;
+import org.jlab.icalibrate.epics.PvListener;
+import org.jlab.icalibrate.exception.AppException;
+import org.jlab.icalibrate.model.DoseRateTripSetpoint;
+
+/**
+ * Writes a set of dose rate trip setpoints to EPICS as a unit: either every ion chamber ends up
+ * with its new setpoint or every ion chamber is restored to the setpoint it had before.
+ *
+ * <p>The write proceeds in four stages:
+ *
+ * <ol>
+ *   <li>Snapshot the existing setpoints with one batched read of the setpoint read PVs
+ *   <li>Issue every put at once, each confirmed by a CA put callback
+ *   <li>Verify via monitors that each setpoint read PV reflects the new value, within the
+ *       resolution of the record
+ *   <li>If any ion chamber fails to put or verify, put the snapshot back to every ion chamber
+ * </ol>
+ *
+ * The reads, puts, and verification each cost about one network round trip rather than one per ion
+ * chamber.
+ *
+ * <p>The readback is typically an integer hardware register (the MAx record reads back the 16-bit
+ * register the MAX record writes), so a readback matches if it is within an absolute tolerance of
+ * the value put; the default of half a count accepts the register rounding a fractional setpoint.
+ * Verification can be disabled for setpoint records whose readback doesn't follow the setpoint,
+ * such as the soft IOC.
+ *
+ * @author ryans
+ */
+public class SetpointWriter {
+
+  private static final Logger LOGGER = Logger.getLogger(SetpointWriter.class.getName());
+
+  /** The default number of milliseconds to wait for the readbacks to reflect the new values. */
+  public static final long DEFAULT_VERIFY_TIMEOUT_MILLIS = 5000;
+
+  /**
+   * The default absolute difference at which a readback is considered to match: half a count of an
+   * integer register.
+   */
+  public static final double DEFAULT_TOLERANCE = 0.5;
+
+  private final ChannelAccess manager;
+  private final long verifyTimeoutMillis;
+  private final double tolerance;
+
+  /**
+   * Create a new SetpointWriter with the default verify timeout.
+   *
+   * @param manager The channel manager
+   */
+  public SetpointWriter(ChannelAccess manager) {
+    this(manager, DEFAULT_VERIFY_TIMEOUT_MILLIS);
+  }
+
+  /**
+   * Create a new SetpointWriter with the default tolerance.
+   *
+   * @param manager The channel manager
+   * @param verifyTimeoutMillis The number of milliseconds to wait for the readbacks; zero disables
+   *     verification
+   */
+  public SetpointWriter(ChannelAccess manager, long verifyTimeoutMillis) {
+    this(manager, verifyTimeoutMillis, DEFAULT_TOLERANCE);
+  }
+
+  /**
+   * Create a new SetpointWriter.
+   *
+   * @param manager The channel manager
+   * @param verifyTimeoutMillis The number of milliseconds to wait for the readbacks; zero disables
+   *     verification
+   * @param tolerance The absolute difference at which a readback is considered to match
+   */
+  public SetpointWriter(ChannelAccess manager, long verifyTimeoutMillis, double tolerance) {
+    this.manager = manager;
+    this.verifyTimeoutMillis = verifyTimeoutMillis;
+    this.tolerance = tolerance;
+  }
+
+  /**
+   * Create a new SetpointWriter configured from the SETPOINT_VERIFY_SECONDS and
+   * SETPOINT_READBACK_TOLERANCE properties. Missing or malformed properties use the defaults.
+   *
+   * @param manager The channel manager
+   * @param props The application properties
+   * @return The writer
+   */
+  public static SetpointWriter fromProperties(ChannelAccess manager, Properties props) {
+    double verifySeconds =
+        getDouble(props, "SETPOINT_VERIFY_SECONDS", DEFAULT_VERIFY_TIMEOUT_MILLIS / 1000.0);
+
+    return new SetpointWriter(
+        manager,
+        (long) (Math.max(0, verifySeconds) * 1000),
+        getDouble(props, "SETPOINT_READBACK_TOLERANCE", DEFAULT_TOLERANCE));
+  }
+
+  private static double getDouble(Properties props, String name, double defaultValue) {
+    String value = props.getProperty(name);
+
+    if (value == null || value.trim().isEmpty()) {
+      return defaultValue;
+    }
+
+    try {
+      return Double.parseDouble(value.trim());
+    } catch (NumberFormatException e) {
+      LOGGER.log(Level.WARNING, "Invalid value for {0}; using default", name);
+      return defaultValue;
+    }
+  }
+
+  /**
+   * Write the given setpoints. Nothing is written if the existing setpoints can't be read. If any
+   * setpoint fails to be written or verified then all of them are restored. The readbacks are not
+   * verified if the verify timeout is zero.
+   *
+   * @param setpointList The setpoints
+   * @throws AppException If unable to write the setpoints; the message notes whether the previous
+   *     setpoints were restored
+   * @throws InterruptedException If interrupted; the previous setpoints are restored first
+   */
+  public void write(List<DoseRateTripSetpoint> setpointList)
+      throws AppException, InterruptedException {
+    Map<String, Double> newMap = new LinkedHashMap<>(); // Write PV to value
+    Map<String, String> readbackMap = new LinkedHashMap<>(); // Write PV to read PV
+
+    for (DoseRateTripSetpoint setpoint : setpointList) {
+      String writePv = setpoint.getIonChamber().getDoseRateSetpointWritePvName();
+      String readPv = setpoint.getIonChamber().getDoseRateSetpointReadPvName();
+
+      if (writePv == null || readPv == null) {
+        throw new AppException(
+            "Ion chamber "
+                + setpoint.getIonChamber().getFriendlyNameOrEpicsName()
+                + " is missing a setpoint PV");
+      }
+
+      newMap.put(writePv.trim(), setpoint.getDoseRateRadsPerHour());
+      readbackMap.put(writePv.trim(), readPv.trim());
+    }
+
+    if (newMap.isEmpty()) {
+      return;
+    }
+
+    Map<String, Double> snapshotMap = snapshot(readbackMap);
+
+    ReadbackListener readbacks = null;
+
+    if (verifyTimeoutMillis > 0) {
+      readbacks = new ReadbackListener(tolerance);
+      manager.addPvs(readbacks, new LinkedHashSet<>(readbackMap.values()));
+    }
+
+    try {
+      String failure = put(newMap);
+
+      if (failure == null && readbacks != null) {
+        failure = readbacks.await(newMap, readbackMap, verifyTimeoutMillis);
+      }
+
+      if (failure != null) {
+        String rollbackFailure = put(snapshotMap);
+
+        if (rollbackFailure == null) {
+          throw new AppException(failure + "; previous setpoints restored");
+        } else {
+          throw new AppException(
+              failure + "; unable to restore previous setpoints: " + rollbackFailure);
+        }
+      }
+    } catch (InterruptedException e) {
+      LOGGER.log(Level.WARNING, "Setpoint write interrupted; restoring previous setpoints");
+
+      String rollbackFailure = put(snapshotMap);
+
+      if (rollbackFailure != null) {
+        LOGGER.log(Level.SEVERE, "Unable to restore previous setpoints: {0}", rollbackFailure);
+      }
+
+      throw e;
+    } finally {
+      if (readbacks != null) {
+        manager.removeListener(readbacks);
+      }
+    }
+  }
+
+  /**
+   * Read the existing setpoint of each write PV from its read PV in one batch.
+   *
+   * @param readbackMap The write PV to read PV map
+   * @return The write PV to existing value map
+   * @throws AppException If any read PV can't be read
+   */
+  private Map<String, Double> snapshot(Map<String, String> readbackMap) throws AppException {
+    BatchGetResult result = manager.getAll(readbackMap.values());
+    Map<String, Double> snapshotMap = new LinkedHashMap<>();
+
+    for (Map.Entry<String, String> entry : readbackMap.entrySet()) {
+      String readPv = entry.getValue();
+      DBR dbr;
+
+      try {
+        dbr = result.get(readPv);
+      } catch (CAException e) {
+        throw new AppException(
+            "Unable to perform EPICS CA Get of PV: " + readPv + " - " + e.getMessage(), e);
+      } catch (TimeoutException e) {
+        throw new AppException("Timeout waiting for EPICS CA Get of PV: " + readPv, e);
+      }
+
+      Double value = toDouble(dbr);
+
+      if (value == null) {
+        throw new AppException("Setpoint record is null or not a double: " + readPv);
+      }
+
+      snapshotMap.put(entry.getKey(), value);
+    }
+
+    return snapshotMap;
+  }
+
+  /**
+   * Put every value at once and wait for each put callback, even after a failure, so that the
+   * outcome of every put is known before deciding whether to roll back.
+   *
+   * @param valueMap The PV to value map
+   * @return A description of the failed puts, or null if all succeeded
+   * @throws InterruptedException If interrupted while waiting
+   */
+  private String put(Map<String, Double> valueMap) throws InterruptedException {
+    Map<String, CompletableFuture<Void>> futureMap = manager.putAllAsync(valueMap);
+    List<String> failureList = new ArrayList<>();
+
+    for (Map.Entry<String, CompletableFuture<Void>> entry : futureMap.entrySet()) {
+      String pv = entry.getKey();
+
+      try {
+        ChannelManager.await(entry.getValue());
+      } catch (CAException e) {
+        LOGGER.log(Level.WARNING, "Unable to perform EPICS CA Put of PV: " + pv, e);
+        failureList.add("Unable to perform EPICS CA Put of PV: " + pv + " - " + e.getMessage());
+      } catch (TimeoutException e) {
+        LOGGER.log(Level.WARNING, "Timeout waiting for EPICS CA Put of PV: " + pv, e);
+        failureList.add("Timeout waiting for EPICS CA Put of PV: " + pv);
+      }
+    }
+
+    return failureList.isEmpty() ? null : String.join("; ", failureList);
+  }
+
+  private static Double toDouble(DBR dbr) {
+    if (dbr != null && dbr.isDOUBLE()) {
+      return ((gov.aps.jca.dbr.DOUBLE) dbr).getDoubleValue()[0];
+    }
+
+    return null;
+  }
+
+  /** Tracks the latest value of each setpoint read PV. */
+  private static final class ReadbackListener implements PvListener {
+
+    private final Map<String, Double> latestMap = new HashMap<>(); // Guarded by this
+    private final double tolerance;
+
+    private ReadbackListener(double tolerance) {
+      this.tolerance = tolerance;
+    }
+
+    @Override
+    public void notifyPvInfo(
+        String pv, boolean couldConnect, DBRType type, Integer count, String[] enumLabels) {
+      // Nothing to do; an unreachable read PV simply never verifies
+    }
+
+    @Override
+    public synchronized void notifyPvUpdate(String pv, DBR dbr) {
+      latestMap.put(pv, toDouble(dbr));
+      notifyAll();
+    }
+
+    /**
+     * Wait until every read PV reflects the value put to its write PV.
+     *
+     * @param newMap The write PV to new value map
+     * @param readbackMap The write PV to read PV map
+     * @param timeoutMillis The number of milliseconds to wait
+     * @return A description of the unverified read PVs, or null if all verified
+     * @throws InterruptedException If interrupted while waiting
+     */
+    private synchronized String await(
+        Map<String, Double> newMap, Map<String, String> readbackMap, long timeoutMillis)
+        throws InterruptedException {
+      long deadline = System.nanoTime() + timeoutMillis * 1_000_000L;
+      Set<String> pendingSet = new LinkedHashSet<>(newMap.keySet());
+
+      while (true) {
+        pendingSet.removeIf(pv -> matches(latestMap.get(readbackMap.get(pv)), newMap.get(pv)));
+
+        long remainingMillis = (deadline - System.nanoTime()) / 1_000_000L;
+
+        if (pendingSet.isEmpty() || remainingMillis <= 0) {
+          break;
+        }
+
+        wait(remainingMillis);
+      }
+
+      if (pendingSet.isEmpty()) {
+        return null;
+      }
+
+      List<String> failureList = new ArrayList<>();
+
+      for (String pv : pendingSet) {
+        String readPv = readbackMap.get(pv);
+
+        failureList.add(
+            String.format(
+                "Setpoint readback %s is %s instead of %s",
+                readPv, latestMap.get(readPv), newMap.get(pv)));
+      }
+
+      return String.join("; ", failureList);
+    }
+
+    private boolean matches(Double actual, double expected) {
+      return actual != null && Math.abs(actual - expected) <= tolerance;
+    }
+  }
+}
@@ -0,0 +1,172 @@
+package org.jlab.icalibrate.calibration;
+
+import java.util.Properties;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Determines when the beam current has settled after an attenuator change. The current is
+ * considered settled once the samples in a trailing window have both a small spread (relative
+ * standard deviation) and a small trend (relative least squares slope).
+ *
+ * <p>At least one sample must have arrived since the change. Otherwise the window would hold only
+ * the value from before the change, which is flat simply because the monitor hasn't posted yet
+ * (the current hasn't reacted, or hasn't moved past the deadband).
+ *
+ * <p>The thresholds are relative to the window mean so the same configuration works for halls
+ * which report current in different units.
+ *
+ * @author ryans
+ */
+public final class SettleDetector {
+
+  private static final Logger LOGGER = Logger.getLogger(SettleDetector.class.getName());
+
+  /** The default trailing window length in seconds. */
+  public static final double DEFAULT_WINDOW_SECONDS = 2.0;
+
+  /** The default maximum standard deviation divided by mean. */
+  public static final double DEFAULT_MAX_RELATIVE_STDDEV = 0.01;
+
+  /** The default maximum slope (per second) divided by mean. */
+  public static final double DEFAULT_MAX_RELATIVE_SLOPE = 0.005;
+
+  /** The default minimum number of seconds to wait before declaring settled. */
+  public static final double DEFAULT_MIN_SECONDS = 1.0;
+
+  private final long windowMillis;
+  private final double maxRelativeStddev;
+  private final double maxRelativeSlope;
+  private final long minMillis;
+
+  /**
+   * Create a new SettleDetector.
+   *
+   * @param windowSeconds The trailing window length in seconds
+   * @param maxRelativeStddev The maximum standard deviation divided by mean
+   * @param maxRelativeSlope The maximum slope (per second) divided by mean
+   * @param minSeconds The minimum number of seconds to wait before declaring settled
+   */
+  public SettleDetector(
+      double windowSeconds, double maxRelativeStddev, double maxRelativeSlope, double minSeconds) {
+    this.windowMillis = (long) (windowSeconds * 1000);
+    this.maxRelativeStddev = maxRelativeStddev;
+    this.maxRelativeSlope = maxRelativeSlope;
+    this.minMillis = (long) (minSeconds * 1000);
+  }
+
+  /**
+   * Create a new SettleDetector configured from the SETTLE_WINDOW_SECONDS,
+   * SETTLE_MAX_RELATIVE_STDDEV, SETTLE_MAX_RELATIVE_SLOPE, and SETTLE_MIN_SECONDS properties.
+   * Missing or malformed properties use the defaults.
+   *
+   * @param props The application properties
+   * @return The detector
+   */
+  public static SettleDetector fromProperties(Properties props) {
+    return new SettleDetector(
+        getDouble(props, "SETTLE_WINDOW_SECONDS", DEFAULT_WINDOW_SECONDS),
+        getDouble(props, "SETTLE_MAX_RELATIVE_STDDEV", DEFAULT_MAX_RELATIVE_STDDEV),
+        getDouble(props, "SETTLE_MAX_RELATIVE_SLOPE", DEFAULT_MAX_RELATIVE_SLOPE),
+        getDouble(props, "SETTLE_MIN_SECONDS", DEFAULT_MIN_SECONDS));
+  }
+
+  private static double getDouble(Properties props, String name, double defaultValue) {
+    String value = props.getProperty(name);
+
+    if (value == null || value.trim().isEmpty()) {
+      return defaultValue;
+    }
+
+    try {
+      return Double.parseDouble(value.trim());
+    } catch (NumberFormatException e) {
+      LOGGER.log(Level.WARNING, "Invalid value for {0}; using default", name);
+      return defaultValue;
+    }
+  }
+
+  /**
+   * Return whether the samples in the given buffer indicate the signal has settled.
+   *
+   * @param buffer The sample buffer
+   * @param stepStartMillis The time the change was made
+   * @param nowMillis The current time
+   * @return true if settled, false otherwise
+   */
+  public boolean isSettled(SampleRingBuffer buffer, long stepStartMillis, long nowMillis) {
+    if (nowMillis - stepStartMillis < Math.max(minMillis, windowMillis)) {
+      return false;
+    }
+
+    long from = nowMillis - windowMillis;
+
+    double[] values;
+    long[] timestamps;
+    double held;
+
+    synchronized (buffer) { // All reads must see the same samples
+      if (buffer.count(stepStartMillis, nowMillis) == 0) {
+        return false; // No update since the change; the held value predates it
+      }
+
+      values = buffer.values(from, nowMillis);
+      timestamps = buffer.timestamps(from, nowMillis);
+      held = buffer.valueAt(from - 1);
+    }
+
+    if (!Double.isNaN(held)) {
+      // Monitors only post changes so the value in effect at the window start counts as a sample
+      values = prepend(held, values);
+      timestamps = prepend(from, timestamps);
+    }
+
+    double meanValue = 0;
+    double meanTime = 0;
+
+    for (int i = 0; i < values.length; i++) {
+      meanValue = meanValue + values[i];
+      meanTime = meanTime + (timestamps[i] - from) / 1000.0;
+    }
+
+    meanValue = meanValue / values.length;
+    meanTime = meanTime / values.length;
+
+    double sumSquares = 0;
+    double sumTimeSquares = 0;
+    double sumCross = 0;
+
+    for (int i = 0; i < values.length; i++) {
+      double dv = values[i] - meanValue;
+      double dt = (timestamps[i] - from) / 1000.0 - meanTime;
+
+      sumSquares = sumSquares + dv * dv;
+      sumTimeSquares = sumTimeSquares + dt * dt;
+      sumCross = sumCross + dt * dv;
+    }
+
+    double stddev = Math.sqrt(sumSquares / values.length);
+    double slope = sumTimeSquares == 0 ? 0 : sumCross / sumTimeSquares;
+    double scale = Math.abs(meanValue);
+
+    if (scale == 0) {
+      return stddev == 0; // No sensible relative measure; only a flat zero counts as settled
+    }
+
+    return (stddev / scale) <= maxRelativeStddev && (Math.abs(slope) / scale) <= maxRelativeSlope;
+  }
+
+  private static double[] prepend(double first, double[] rest) {
+    double[] result = new double[rest.length + 1];
+    result[0] = first;
+    System.arraycopy(rest, 0, result, 1, rest.length);
+    return result;
+  }
+
+  private static long[] prepend(long first, long[] rest) {
+    long[] result = new long[rest.length + 1];
+    result[0] = first;
+    System.arraycopy(rest, 0, result, 1, rest.length);
+    return result;
+  }
+}
@@ -0,0 +1,7 @@
+/**
+ * Provides the iCalibrate calibration data acquisition classes.
+ *
+ * <p>These classes are independent of Swing such that acquisition logic can be reused and tested
+ * without a GUI.
+ */
+package org.jlab.icalibrate.calibration;
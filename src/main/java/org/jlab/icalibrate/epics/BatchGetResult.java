@@ -0,0 +1,85 @@
+package org.jlab.icalibrate.epics;
+
+import gov.aps.jca.CAException;
+import gov.aps.jca.TimeoutException;
+import gov.aps.jca.dbr.DBR;
+import java.util.Collections;
+import java.util.Map;
+
+/**
+ * The result of a batched CA-GET request of multiple PVs. Each PV either has a value or a recorded
+ * failure; one PV failing does not prevent the others from being read.
+ *
+ * @author ryans
+ */
+public final class BatchGetResult {
+
+  private final Map<String, DBR> dbrMap;
+  private final Map<String, Exception> failureMap;
+
+  /**
+   * Create a new BatchGetResult.
+   *
+   * @param dbrMap The map of PV to EPICS DataBaseRecord for successful requests
+   * @param failureMap The map of PV to failure (CAException or TimeoutException)
+   */
+  BatchGetResult(Map<String, DBR> dbrMap, Map<String, Exception> failureMap) {
+    this.dbrMap = dbrMap;
+    this.failureMap = failureMap;
+  }
+
+  /**
+   * Return the EPICS DataBaseRecord of the given PV, or throw the failure recorded for the PV. This
+   * mirrors the behavior of ChannelManager.get so callers can handle errors the same way.
+   *
+   * @param pv The EPICS CA PV name
+   * @return The EPICS DataBaseRecord
+   * @throws CAException If unable to perform the CA-GET of the PV due to IO
+   * @throws TimeoutException If unable to perform the CA-GET of the PV in a timely fashion
+   */
+  public DBR get(String pv) throws CAException, TimeoutException {
+    Exception failure = failureMap.get(pv);
+
+    if (failure instanceof TimeoutException) {
+      throw (TimeoutException) failure;
+    } else if (failure instanceof CAException) {
+      throw (CAException) failure;
+    } else if (failure != null) {
+      throw new CAException(failure.getMessage(), failure);
+    }
+
+    if (!dbrMap.containsKey(pv)) {
+      throw new CAException("PV not requested in batch: " + pv);
+    }
+
+    return dbrMap.get(pv);
+  }
+
+  /**
+   * Return true if the CA-GET of the given PV succeeded.
+   *
+   * @param pv The EPICS CA PV name
+   * @return true if successful, false otherwise
+   */
+  public boolean isSuccess(String pv) {
+    return dbrMap.containsKey(pv);
+  }
+
+  /**
+   * Return an unmodifiable map of PV to EPICS DataBaseRecord for the successful requests.
+   *
+   * @return The PV to DBR map
+   */
+  public Map<String, DBR> getDbrMap() {
+    return Collections.unmodifiableMap(dbrMap);
+  }
+
+  /**
+   * Return an unmodifiable map of PV to failure for the unsuccessful requests.
+   *
+   * @return The PV to failure map
+   */
+  public Map<String, Exception> getFailureMap() {
+    return Collections.unmodifiableMap(failureMap);
+  }
+}
@@ -0,0 +1,200 @@
+package org.jlab.icalibrate.epics;
+
+import gov.aps.jca.CAException;
+import gov.aps.jca.TimeoutException;
+import gov.aps.jca.dbr.DBR;
+import java.io.Closeable;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * The EPICS Channel Access operations used by the application. ChannelManager implements this
+ * contract against a real CA context; other implementations, such as the simulator in the sim
+ * package, allow the calibration process to run without an IOC.
+ *
+ * <p>See ChannelManager for the semantics of each operation.
+ *
+ * @author ryans
+ */
+public interface ChannelAccess extends Closeable {
+
+  /**
+   * Perform a synchronous (blocking) CA-GET request of the given PV.
+   *
+   * @param pv The EPICS CA PV name
+   * @return The EPICS DataBaseRecord
+   * @throws CAException If unable to perform the CA-GET due to IO
+   * @throws TimeoutException If unable to perform the CA-GET in a timely fashion
+   */
+  DBR get(String pv) throws CAException, TimeoutException;
+
+  /**
+   * Perform a synchronous (blocking) CA-GET request of many PVs. A failure of any given PV is
+   * recorded in the result rather than aborting the batch. The default implementation simply gets
+   * each PV in turn.
+   *
+   * @param pvs The EPICS CA PV names
+   * @return The batch result
+   */
+  default BatchGetResult getAll(Collection<String> pvs) {
+    Map<String, DBR> dbrMap = new LinkedHashMap<>();
+    Map<String, Exception> failureMap = new LinkedHashMap<>();
+
+    for (String pv : new LinkedHashSet<>(pvs)) {
+      try {
+        dbrMap.put(pv, get(pv));
+      } catch (CAException | TimeoutException e) {
+        failureMap.put(pv, e);
+      }
+    }
+
+    return new BatchGetResult(dbrMap, failureMap);
+  }
+
+  /**
+   * Perform an asynchronous (non-blocking) CA-GET request of the given PV using the default
+   * timeout.
+   *
+   * @param pv The EPICS CA PV name
+   * @return The future EPICS DataBaseRecord
+   */
+  CompletableFuture<DBR> getAsync(String pv);
+
+  /**
+   * Perform an asynchronous (non-blocking) CA-GET request of the given PV.
+   *
+   * @param pv The EPICS CA PV name
+   * @param timeoutMillis The number of milliseconds to wait for connect and response
+   * @return The future EPICS DataBaseRecord
+   */
+  CompletableFuture<DBR> getAsync(String pv, long timeoutMillis);
+
+  /**
+   * Read the given PV from memory if a monitor of it holds a value no older than the given max age,
+   * otherwise perform an asynchronous CA-GET using the default timeout. The default implementation
+   * always performs the CA-GET.
+   *
+   * @param pv The EPICS CA PV name
+   * @param maxAgeMillis The max age in milliseconds of a monitored value
+   * @return The future EPICS DataBaseRecord
+   */
+  default CompletableFuture<DBR> getCached(String pv, long maxAgeMillis) {
+    return getAsync(pv);
+  }
+
+  /**
+   * Perform an asynchronous (non-blocking) CA-PUT request of the given PV and value using the
+   * default timeout.
+   *
+   * @param pv The EPICS CA PV name
+   * @param value The Number value
+   * @return The future which completes once the IOC acknowledges the put
+   */
+  CompletableFuture<Void> putAsync(String pv, Number value);
+
+  /**
+   * Perform an asynchronous (non-blocking) CA-PUT request of the given PV and value.
+   *
+   * @param pv The EPICS CA PV name
+   * @param value The Number value
+   * @param timeoutMillis The number of milliseconds to wait for connect and acknowledgement
+   * @return The future which completes once the IOC acknowledges the put
+   */
+  CompletableFuture<Void> putAsync(String pv, Number value, long timeoutMillis);
+
+  /**
+   * Perform asynchronous (non-blocking) CA-PUT requests of many PVs at once using the default
+   * timeout. Each put completes or fails independently. The default implementation simply calls
+   * putAsync for each PV in turn.
+   *
+   * @param valueMap The map of EPICS CA PV name to Number value
+   * @return The map of PV to future which completes once the IOC acknowledges the put
+   */
+  default Map<String, CompletableFuture<Void>> putAllAsync(Map<String, ? extends Number> valueMap) {
+    Map<String, CompletableFuture<Void>> futureMap = new LinkedHashMap<>();
+
+    for (Map.Entry<String, ? extends Number> entry : valueMap.entrySet()) {
+      futureMap.put(entry.getKey(), putAsync(entry.getKey(), entry.getValue()));
+    }
+
+    return futureMap;
+  }
+
+  /**
+   * Perform a synchronous (blocking) CA-PUT request of the given PV and value.
+   *
+   * @param pv The EPICS CA PV name
+   * @param value The String value
+   * @throws CAException If unable to perform the CA-PUT due to IO
+   * @throws TimeoutException If unable to perform the CA-PUT in a timely fashion
+   */
+  void put(String pv, String value) throws CAException, TimeoutException;
+
+  /**
+   * Perform a synchronous (blocking) CA-PUT request of the given PV and value.
+   *
+   * @param pv The EPICS CA PV name
+   * @param value The Number value
+   * @throws CAException If unable to perform the CA-PUT due to IO
+   * @throws TimeoutException If unable to perform the CA-PUT in a timely fashion
+   */
+  void put(String pv, Number value) throws CAException, TimeoutException;
+
+  /**
+   * Registers a PV monitor on the supplied PV for the given listener.
+   *
+   * @param listener The PvListener
+   * @param pv The EPICS PV name
+   */
+  void addPv(PvListener listener, String pv);
+
+  /**
+   * Registers PV monitors on the supplied PVs for the given listener.
+   *
+   * @param listener The PvListener to receive notifications
+   * @param addPvSet The set of PVs to monitor
+   */
+  void addPvs(PvListener listener, Set<String> addPvSet);
+
+  /**
+   * Removes the supplied PVs from the given listener.
+   *
+   * @param listener The PvListener
+   * @param clearPvSet The PV set to clear
+   */
+  void clearPvs(PvListener listener, Set<String> clearPvSet);
+
+  /**
+   * Keep monitors of the given PVs open, whether or not any listener is interested in them, so
+   * that getCached and newly added listeners are served from memory. The default implementation
+   * does nothing.
+   *
+   * @param pvSet The PVs to keep warm
+   */
+  default void keepWarm(Set<String> pvSet) {}
+
+  /**
+   * Stop keeping the given PVs warm. The default implementation does nothing.
+   *
+   * @param pvSet The PVs
+   */
+  default void coolDown(Set<String> pvSet) {}
+
+  /**
+   * Add a listener without registering any PVs to monitor.
+   *
+   * @param listener The PvListener
+   */
+  void addListener(PvListener listener);
+
+  /**
+   * Removes the specified listener and unregisters any PVs the listener was interested in.
+   *
+   * @param listener The PvListener
+   */
+  void removeListener(PvListener listener);
+}
@@ -0,0 +1,320 @@
+package org.jlab.icalibrate.epics;
+
+import java.lang.management.ManagementFactory;
+import java.util.Collections;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ * Collects Channel Access latency and error metrics so that a slow or timed out calibration can be
+ * attributed to CA search, the IOC, or the application. ChannelManager, ChannelCache,
+ * ChannelMonitor, and ContextPool record into the one JVM wide instance, which is published via
+ * JMX and optionally summarized in the log periodically (see the CA_METRICS_LOG_SECONDS property).
+ *
+ * @author ryans
+ */
+public final class ChannelAccessMetrics implements ChannelAccessMetricsMXBean {
+
+  private static final Logger LOGGER = Logger.getLogger(ChannelAccessMetrics.class.getName());
+
+  /** The JMX object name the metrics are registered under. */
+  public static final String OBJECT_NAME = "org.jlab.icalibrate:type=ChannelAccessMetrics";
+
+  private static final ChannelAccessMetrics INSTANCE = new ChannelAccessMetrics();
+
+  private final LatencyHistogram connect = new LatencyHistogram();
+  private final LatencyHistogram get = new LatencyHistogram();
+  private final LatencyHistogram put = new LatencyHistogram();
+  private final LatencyHistogram pendIo = new LatencyHistogram();
+  private final LatencyHistogram poolWait = new LatencyHistogram();
+  private final LatencyHistogram dispatchLag = new LatencyHistogram();
+
+  private final Map<String, LongAdder> timeoutMap = new ConcurrentHashMap<>();
+  private final Map<String, LongAdder> exceptionMap = new ConcurrentHashMap<>();
+  private final Map<String, LongAdder> monitorUpdateMap = new ConcurrentHashMap<>();
+  private final Map<String, LongAdder> dispatchDropMap = new ConcurrentHashMap<>();
+  private final LongAdder dispatchCoalesced = new LongAdder();
+  private final LongAdder cachedReadHits = new LongAdder();
+  private final LongAdder cachedReadMisses = new LongAdder();
+  private final LongAdder monitorUpdateTotal = new LongAdder();
+  private final LongAdder poolTimeouts = new LongAdder();
+  private final LongAdder contextReplacements = new LongAdder();
+  private final AtomicInteger liveChannels = new AtomicInteger();
+  private final AtomicInteger contextsInUse = new AtomicInteger();
+
+  private volatile long resetNanos = System.nanoTime();
+
+  private ChannelAccessMetrics() {
+    // Private constructor
+  }
+
+  /**
+   * Return the one and only ChannelAccessMetrics.
+   *
+   * @return The metrics
+   */
+  public static ChannelAccessMetrics getInstance() {
+    return INSTANCE;
+  }
+
+  /** Register the metrics with the platform MBean server if not already registered. */
+  static synchronized void registerMBean() {
+    try {
+      MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+      ObjectName name = new ObjectName(OBJECT_NAME);
+
+      if (!server.isRegistered(name)) {
+        server.registerMBean(INSTANCE, name);
+      }
+    } catch (JMException | RuntimeException e) {
+      LOGGER.log(Level.WARNING, "Unable to register Channel Access metrics MBean", e);
+    }
+  }
+
+  void recordConnect(long nanos) {
+    connect.record(nanos);
+  }
+
+  void recordGet(long nanos) {
+    get.record(nanos);
+  }
+
+  void recordPut(long nanos) {
+    put.record(nanos);
+  }
+
+  void recordPendIo(long nanos) {
+    pendIo.record(nanos);
+  }
+
+  void recordPoolWait(long nanos) {
+    poolWait.record(nanos);
+  }
+
+  void recordPoolTimeout() {
+    poolTimeouts.increment();
+  }
+
+  void recordContextReplaced() {
+    contextReplacements.increment();
+  }
+
+  void contextCheckedOut() {
+    contextsInUse.incrementAndGet();
+  }
+
+  void contextReturned() {
+    contextsInUse.decrementAndGet();
+  }
+
+  void recordTimeout(String pv) {
+    increment(timeoutMap, pv);
+  }
+
+  void recordException(String pv) {
+    increment(exceptionMap, pv);
+  }
+
+  void recordMonitorUpdate(String pv) {
+    increment(monitorUpdateMap, pv);
+    monitorUpdateTotal.increment();
+  }
+
+  void recordDispatchLag(long nanos) {
+    dispatchLag.record(nanos);
+  }
+
+  void recordDispatchDrop(String pv) {
+    increment(dispatchDropMap, pv);
+  }
+
+  void recordDispatchCoalesced() {
+    dispatchCoalesced.increment();
+  }
+
+  void recordCachedRead(boolean hit) {
+    if (hit) {
+      cachedReadHits.increment();
+    } else {
+      cachedReadMisses.increment();
+    }
+  }
+
+  void channelCreated() {
+    liveChannels.incrementAndGet();
+  }
+
+  void channelDestroyed() {
+    liveChannels.decrementAndGet();
+  }
+
+  private static void increment(Map<String, LongAdder> map, String pv) {
+    map.computeIfAbsent(pv, k -> new LongAdder()).increment();
+  }
+
+  private static Map<String, Long> sums(Map<String, LongAdder> map) {
+    Map<String, Long> sumMap = new TreeMap<>();
+
+    for (Map.Entry<String, LongAdder> entry : map.entrySet()) {
+      sumMap.put(entry.getKey(), entry.getValue().sum());
+    }
+
+    return Collections.unmodifiableMap(sumMap);
+  }
+
+  private static long total(Map<String, LongAdder> map) {
+    long total = 0;
+
+    for (LongAdder adder : map.values()) {
+      total = total + adder.sum();
+    }
+
+    return total;
+  }
+
+  @Override
+  public LatencySnapshot getConnectLatency() {
+    return connect.snapshot();
+  }
+
+  @Override
+  public LatencySnapshot getGetLatency() {
+    return get.snapshot();
+  }
+
+  @Override
+  public LatencySnapshot getPutLatency() {
+    return put.snapshot();
+  }
+
+  @Override
+  public LatencySnapshot getPendIoLatency() {
+    return pendIo.snapshot();
+  }
+
+  @Override
+  public LatencySnapshot getContextPoolWait() {
+    return poolWait.snapshot();
+  }
+
+  @Override
+  public long getContextPoolTimeoutCount() {
+    return poolTimeouts.sum();
+  }
+
+  @Override
+  public long getContextReplacementCount() {
+    return contextReplacements.sum();
+  }
+
+  @Override
+  public int getContextsInUseCount() {
+    return contextsInUse.get();
+  }
+
+  @Override
+  public LatencySnapshot getDispatchLag() {
+    return dispatchLag.snapshot();
+  }
+
+  @Override
+  public Map<String, Long> getDispatchDropCounts() {
+    return sums(dispatchDropMap);
+  }
+
+  @Override
+  public long getDispatchCoalescedCount() {
+    return dispatchCoalesced.sum();
+  }
+
+  @Override
+  public long getCachedReadHitCount() {
+    return cachedReadHits.sum();
+  }
+
+  @Override
+  public long getCachedReadMissCount() {
+    return cachedReadMisses.sum();
+  }
+
+  @Override
+  public Map<String, Long> getTimeoutCounts() {
+    return sums(timeoutMap);
+  }
+
+  @Override
+  public Map<String, Long> getExceptionCounts() {
+    return sums(exceptionMap);
+  }
+
+  @Override
+  public Map<String, Long> getMonitorUpdateCounts() {
+    return sums(monitorUpdateMap);
+  }
+
+  @Override
+  public double getMonitorUpdatesPerSecond() {
+    double seconds = (System.nanoTime() - resetNanos) / 1e9;
+
+    return seconds <= 0 ? 0 : monitorUpdateTotal.sum() / seconds;
+  }
+
+  @Override
+  public int getLiveChannelCount() {
+    return liveChannels.get();
+  }
+
+  @Override
+  public String getSummary() {
+    return String.format(
+        "CA metrics: channels=%d; connect %s; get %s; put %s; pendIO %s; pool wait %s;"
+            + " contexts in use=%d; pool timeouts=%d; context replacements=%d; timeouts=%d;"
+            + " exceptions=%d; monitor updates=%.1f/s; dispatch lag %s;"
+            + " dispatch drops=%d; cached reads=%d/%d",
+        getLiveChannelCount(),
+        getConnectLatency(),
+        getGetLatency(),
+        getPutLatency(),
+        getPendIoLatency(),
+        getContextPoolWait(),
+        getContextsInUseCount(),
+        getContextPoolTimeoutCount(),
+        getContextReplacementCount(),
+        total(timeoutMap),
+        total(exceptionMap),
+        getMonitorUpdatesPerSecond(),
+        getDispatchLag(),
+        total(dispatchDropMap),
+        getCachedReadHitCount(),
+        getCachedReadHitCount() + getCachedReadMissCount());
+  }
+
+  @Override
+  public void reset() {
+    connect.reset();
+    get.reset();
+    put.reset();
+    pendIo.reset();
+    poolWait.reset();
+    poolTimeouts.reset();
+    contextReplacements.reset();
+    dispatchLag.reset();
+    timeoutMap.clear();
+    exceptionMap.clear();
+    monitorUpdateMap.clear();
+    monitorUpdateTotal.reset();
+    dispatchDropMap.clear();
+    dispatchCoalesced.reset();
+    cachedReadHits.reset();
+    cachedReadMisses.reset();
+    resetNanos = System.nanoTime();
+  }
+}
@@ -0,0 +1,153 @@
+package org.jlab.icalibrate.epics;
+
+import java.util.Map;
+
+/**
+ * The JMX management interface of the Channel Access metrics, registered as {@value
+ * ChannelAccessMetrics#OBJECT_NAME}. Latencies distinguish time spent in CA search and connect
+ * (connect), waiting on the IOC (get, put, and pendIO), and waiting on our own context pool.
+ *
+ * @author ryans
+ */
+public interface ChannelAccessMetricsMXBean {
+
+  /**
+   * Return the latency of channel connects, from channel creation to connection.
+   *
+   * @return The connect latency
+   */
+  LatencySnapshot getConnectLatency();
+
+  /**
+   * Return the latency of CA-GET requests, synchronous and asynchronous, including any connect.
+   *
+   * @return The get latency
+   */
+  LatencySnapshot getGetLatency();
+
+  /**
+   * Return the latency of CA-PUT requests, synchronous and asynchronous, including any connect.
+   *
+   * @return The put latency
+   */
+  LatencySnapshot getPutLatency();
+
+  /**
+   * Return the latency of blocking pendIO calls.
+   *
+   * @return The pendIO latency
+   */
+  LatencySnapshot getPendIoLatency();
+
+  /**
+   * Return the time spent waiting to obtain a context from the context pool.
+   *
+   * @return The context pool wait latency
+   */
+  LatencySnapshot getContextPoolWait();
+
+  /**
+   * Return the number of context checkouts which gave up because no context became available
+   * within the pool timeout.
+   *
+   * @return The context pool timeout count
+   */
+  long getContextPoolTimeoutCount();
+
+  /**
+   * Return the number of non-viable contexts the pool has replaced.
+   *
+   * @return The context replacement count
+   */
+  long getContextReplacementCount();
+
+  /**
+   * Return the number of contexts currently checked out of the context pool.
+   *
+   * @return The contexts in use count
+   */
+  int getContextsInUseCount();
+
+  /**
+   * Return the dispatch lag: the time from a monitor notification arriving on the CA callback
+   * thread to its delivery to a listener.
+   *
+   * @return The dispatch lag
+   */
+  LatencySnapshot getDispatchLag();
+
+  /**
+   * Return the number of monitor updates dropped per PV because a lossless listener queue was full.
+   *
+   * @return The PV to dropped update count map
+   */
+  Map<String, Long> getDispatchDropCounts();
+
+  /**
+   * Return the number of monitor updates superseded by a newer value before delivery to a latest
+   * value wins listener.
+   *
+   * @return The coalesced update count
+   */
+  long getDispatchCoalescedCount();
+
+  /**
+   * Return the number of cached reads served from the latest value of a monitor.
+   *
+   * @return The cached read hit count
+   */
+  long getCachedReadHitCount();
+
+  /**
+   * Return the number of cached reads which fell back to a network CA-GET because no monitor had a
+   * fresh enough value.
+   *
+   * @return The cached read miss count
+   */
+  long getCachedReadMissCount();
+
+  /**
+   * Return the number of timed out requests per PV.
+   *
+   * @return The PV to timeout count map
+   */
+  Map<String, Long> getTimeoutCounts();
+
+  /**
+   * Return the number of failed requests (other than timeouts) per PV.
+   *
+   * @return The PV to exception count map
+   */
+  Map<String, Long> getExceptionCounts();
+
+  /**
+   * Return the number of monitor updates received per PV.
+   *
+   * @return The PV to monitor update count map
+   */
+  Map<String, Long> getMonitorUpdateCounts();
+
+  /**
+   * Return the rate of monitor updates of all PVs since the metrics were last reset.
+   *
+   * @return The monitor updates per second
+   */
+  double getMonitorUpdatesPerSecond();
+
+  /**
+   * Return the number of open channels, including cached and monitored channels.
+   *
+   * @return The live channel count
+   */
+  int getLiveChannelCount();
+
+  /**
+   * Return a one line summary of the metrics, as periodically logged.
+   *
+   * @return The summary
+   */
+  String getSummary();
+
+  /** Discard all recorded metrics (except the live channel count). */
+  void reset();
+}
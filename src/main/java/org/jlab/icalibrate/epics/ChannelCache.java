@@ -0,0 +1,321 @@
+package org.jlab.icalibrate.epics;
+
+import com.cosylab.epics.caj.CAJChannel;
+import com.cosylab.epics.caj.CAJContext;
+import gov.aps.jca.CAException;
+import gov.aps.jca.Channel;
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Caches connected EPICS channels so that repeated CA-GET and CA-PUT requests of the same PV don't
+ * each pay for a CA search and connect.
+ *
+ * <p>Channels are reference counted: a channel obtained via acquire must be handed back via
+ * release. A channel which has no outstanding references and has been idle longer than the max
+ * idle time is destroyed by a periodic sweep. A cached channel which has lost its connection is
+ * retired and replaced with a fresh channel on the next acquire; the retired channel is destroyed
+ * once the last reference is released.
+ *
+ * @author ryans
+ */
+final class ChannelCache implements Closeable {
+
+  private static final Logger LOGGER = Logger.getLogger(ChannelCache.class.getName());
+
+  private final CAJContext context;
+  private final long maxIdleMillis;
+  private final Map<String, CacheEntry> pvMap = new HashMap<>();
+  private final Map<CAJChannel, CacheEntry> channelMap = new IdentityHashMap<>();
+  private final ScheduledFuture<?> sweepFuture;
+
+  private final AtomicLong hitCount = new AtomicLong();
+  private final AtomicLong missCount = new AtomicLong();
+  private final AtomicLong evictionCount = new AtomicLong();
+  private final ChannelAccessMetrics metrics = ChannelAccessMetrics.getInstance();
+
+  private boolean closed = false;
+
+  /**
+   * Create a new ChannelCache.
+   *
+   * @param context The EPICS CA Context
+   * @param executor The executor used to periodically sweep idle channels
+   * @param maxIdleMillis The number of milliseconds an unreferenced channel may remain idle before
+   *     being evicted
+   */
+  public ChannelCache(CAJContext context, ScheduledExecutorService executor, long maxIdleMillis) {
+    this.context = context;
+    this.maxIdleMillis = maxIdleMillis;
+
+    long sweepMillis = Math.max(1000, maxIdleMillis / 2);
+
+    sweepFuture =
+        executor.scheduleWithFixedDelay(
+            new Runnable() {
+              @Override
+              public void run() {
+                evictIdle();
+              }
+            },
+            sweepMillis,
+            sweepMillis,
+            TimeUnit.MILLISECONDS);
+  }
+
+  /**
+   * Obtain a channel for the given PV, creating one if necessary. The returned channel may not be
+   * connected yet if it was just created; callers performing synchronous IO should pend on the
+   * context before using it. Make sure to release the channel when done.
+   *
+   * @param pv The EPICS CA PV name
+   * @return The channel
+   * @throws CAException If unable to create the channel
+   */
+  public CAJChannel acquire(String pv) throws CAException {
+    CAJChannel doomed = null;
+
+    synchronized (this) {
+      if (closed) {
+        throw new CAException("Channel cache is closed");
+      }
+
+      CacheEntry entry = pvMap.get(pv);
+
+      if (entry != null) {
+        Channel.ConnectionState state = entry.channel.getConnectionState();
+
+        if (state == Channel.ConnectionState.CONNECTED
+            || state == Channel.ConnectionState.NEVER_CONNECTED) {
+          hitCount.incrementAndGet();
+          entry.refCount++;
+          return entry.channel;
+        }
+
+        // Disconnected or closed; retire it so a fresh search occurs
+        doomed = retire(entry);
+      }
+    }
+
+    // Destroy outside of lock as it is a blocking CA call
+    if (doomed != null) {
+      destroy(doomed);
+    }
+
+    missCount.incrementAndGet();
+
+    // Create outside of lock as channel creation can involve IO
+    CAJChannel channel = (CAJChannel) context.createChannel(pv);
+    metrics.channelCreated();
+
+    CAJChannel winner = null;
+
+    synchronized (this) {
+      CacheEntry existing = pvMap.get(pv);
+
+      if (existing == null && !closed) {
+        CacheEntry entry = new CacheEntry(channel);
+        entry.refCount++;
+        pvMap.put(pv, entry);
+        channelMap.put(channel, entry);
+
+        return channel;
+      }
+
+      // Lost a race with another thread (or closed meanwhile)
+      if (!closed) {
+        existing.refCount++;
+        winner = existing.channel;
+      }
+    }
+
+    destroy(channel);
+
+    if (winner == null) {
+      throw new CAException("Channel cache is closed");
+    }
+
+    return winner;
+  }
+
+  /**
+   * Return a channel obtained via acquire.
+   *
+   * @param channel The channel
+   */
+  public void release(CAJChannel channel) {
+    CAJChannel doomed = null;
+
+    synchronized (this) {
+      CacheEntry entry = channelMap.get(channel);
+
+      if (entry == null) {
+        LOGGER.log(Level.WARNING, "Released channel not found in cache: {0}", channel.getName());
+        return;
+      }
+
+      entry.refCount--;
+      entry.lastUsedMillis = System.currentTimeMillis();
+
+      if (entry.refCount <= 0 && (entry.retired || closed)) {
+        channelMap.remove(channel);
+        doomed = channel;
+      }
+    }
+
+    if (doomed != null) {
+      destroy(doomed);
+    }
+  }
+
+  /**
+   * Retire a cache entry: it is no longer handed out and is destroyed once unreferenced. Caller
+   * must hold the lock, and must destroy the returned channel, if any, once the lock is released.
+   *
+   * @param entry The entry
+   * @return The channel to destroy now as it is unreferenced, or null if still referenced
+   */
+  private CAJChannel retire(CacheEntry entry) {
+    entry.retired = true;
+    pvMap.remove(entry.channel.getName());
+
+    if (entry.refCount <= 0) {
+      channelMap.remove(entry.channel);
+      return entry.channel;
+    }
+
+    return null;
+  }
+
+  /** Destroy unreferenced channels which have been idle longer than the max idle time. */
+  private void evictIdle() {
+    List<CAJChannel> doomed = new ArrayList<>();
+    long now = System.currentTimeMillis();
+
+    synchronized (this) {
+      Iterator<CacheEntry> iterator = pvMap.values().iterator();
+
+      while (iterator.hasNext()) {
+        CacheEntry entry = iterator.next();
+
+        if (entry.refCount <= 0 && (now - entry.lastUsedMillis) > maxIdleMillis) {
+          iterator.remove();
+          channelMap.remove(entry.channel);
+          doomed.add(entry.channel);
+        }
+      }
+    }
+
+    for (CAJChannel channel : doomed) {
+      evictionCount.incrementAndGet();
+      destroy(channel);
+    }
+
+    if (!doomed.isEmpty()) {
+      try {
+        context.flushIO();
+      } catch (CAException | IllegalStateException e) {
+        LOGGER.log(Level.FINEST, "Unable to flush after eviction", e);
+      }
+    }
+  }
+
+  private void destroy(CAJChannel channel) {
+    try {
+      channel.destroy();
+      metrics.channelDestroyed();
+    } catch (CAException | IllegalStateException e) {
+      LOGGER.log(Level.WARNING, "Unable to destroy channel: " + channel.getName(), e);
+    }
+  }
+
+  /**
+   * Return the number of acquire requests satisfied by an existing channel.
+   *
+   * @return The hit count
+   */
+  public long getHitCount() {
+    return hitCount.get();
+  }
+
+  /**
+   * Return the number of acquire requests which required creating a new channel.
+   *
+   * @return The miss count
+   */
+  public long getMissCount() {
+    return missCount.get();
+  }
+
+  /**
+   * Return the number of channels destroyed due to being idle.
+   *
+   * @return The eviction count
+   */
+  public long getEvictionCount() {
+    return evictionCount.get();
+  }
+
+  /**
+   * Return the number of channels currently cached.
+   *
+   * @return The number of channels
+   */
+  public synchronized int size() {
+    return pvMap.size();
+  }
+
+  /**
+   * Destroy all cached channels. Channels still referenced are destroyed as they are released.
+   */
+  @Override
+  public void close() {
+    List<CAJChannel> doomed = new ArrayList<>();
+
+    synchronized (this) {
+      closed = true;
+      sweepFuture.cancel(false);
+
+      Iterator<CacheEntry> iterator = channelMap.values().iterator();
+
+      while (iterator.hasNext()) {
+        CacheEntry entry = iterator.next();
+
+        if (entry.refCount <= 0) {
+          iterator.remove();
+          doomed.add(entry.channel);
+        }
+      }
+
+      pvMap.clear();
+    }
+
+    for (CAJChannel channel : doomed) {
+      destroy(channel);
+    }
+  }
+
+  /** A cached channel along with bookkeeping. */
+  private static final class CacheEntry {
+
+    private final CAJChannel channel;
+    private int refCount = 0;
+    private long lastUsedMillis = System.currentTimeMillis();
+    private boolean retired = false;
+
+    private CacheEntry(CAJChannel channel) {
+      this.channel = channel;
+    }
+  }
+}
@@ -3,67 +3,242 @@ package org.jlab.icalibrate.epics;
 import com.cosylab.epics.caj.CAJChannel;
 import com.cosylab.epics.caj.CAJContext;
 import gov.aps.jca.CAException;
+import gov.aps.jca.CAStatus;
+import gov.aps.jca.Channel;
 import gov.aps.jca.TimeoutException;
 import gov.aps.jca.dbr.DBR;
-import java.io.Closeable;
+import gov.aps.jca.dbr.DBRType;
+import gov.aps.jca.event.ConnectionEvent;
+import gov.aps.jca.event.ConnectionListener;
+import gov.aps.jca.event.GetEvent;
+import gov.aps.jca.event.GetListener;
+import gov.aps.jca.event.PutEvent;
+import gov.aps.jca.event.PutListener;
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.logging.Level;
 import java.util.logging.Logger;
+import org.jlab.icalibrate.ICalibrateApp;
+import org.jlab.icalibrate.jfr.EpicsOperationEvent;
 
 /**
  * Responsible for managing EPICS Channel Access.
  *
  * @author ryans
  */
-public class ChannelManager implements Closeable {
+public class ChannelManager implements ChannelAccess {
 
   private static final Logger LOGGER = Logger.getLogger(ChannelManager.class.getName());
 
   /** Number of seconds to wait for IO operations before a timeout exception occurs. */
   public static final double PEND_TIMEOUT_SECONDS = 2.0d;
 
-  private CAJContext context;
+  private static final long DEFAULT_TIMEOUT_MILLIS = (long) (PEND_TIMEOUT_SECONDS * 1000);
+
+  /** Number of milliseconds an unused cached channel is kept open before it is destroyed. */
+  public static final long CHANNEL_MAX_IDLE_MILLIS = 60000L;
+
+  /**
+   * Max age in milliseconds of a monitored value used in place of a CA-GET by one-off reads such as
+   * the wizard lookups; see getCached.
+   */
+  public static final long CACHED_READ_MAX_AGE_MILLIS = 1000L;
+
+  /** Number of threads delivering monitor notifications to listeners. */
+  public static final int DISPATCH_THREADS = 4;
+
+  /** Max number of updates queued for a lossless listener before updates are dropped. */
+  public static final int DISPATCH_QUEUE_CAPACITY = 10000;
+
+  private final ContextRole role;
+  private volatile CAJContext context; // Set once ready
   private ScheduledExecutorService executor;
-  private final Map<String, ChannelMonitor> monitorMap = new HashMap<>();
-  private final Map<PvListener, Set<String>> listenerMap = new HashMap<>();
+  private ExecutorService dispatchExecutor;
+  private volatile ChannelCache cache; // Set once ready
+  private CompletableFuture<Void> ready;
+  private final Object registrationLock = new Object();
+  private CompletableFuture<Void> registrations; // Guarded by registrationLock
+  private final Map<String, ChannelMonitor> monitorMap = new ConcurrentHashMap<>();
+  private final Map<PvListener, Set<String>> listenerMap = new ConcurrentHashMap<>();
+  private final Map<PvListener, ListenerDispatcher> dispatcherMap = new ConcurrentHashMap<>();
+  private final PvListener warmListener = new WarmListener();
 
-  private final ContextFactory factory = ContextFactory.getInstance();
+  private final ContextFactory factory = ContextFactory.acquire();
+  private final ChannelAccessMetrics metrics = ChannelAccessMetrics.getInstance();
 
-  /** Create a new ChannelManager. */
+  /**
+   * Create a new ChannelManager for calibration runs and wizard lookups. The context is obtained in
+   * the background; see whenReady.
+   */
   public ChannelManager() {
+    this(ContextRole.ACQUISITION);
+  }
+
+  /**
+   * Create a new ChannelManager with its own channel access context for the given subsystem. The
+   * context is obtained in the background; see whenReady.
+   *
+   * @param role The subsystem served
+   */
+  public ChannelManager(ContextRole role) {
+    this.role = role;
     construct();
   }
 
   /** Initializes EPICS CA */
   private void construct() {
-    LOGGER.log(Level.FINEST, "Creating ChannelMonitorManager");
-    try {
-      context = factory.getContext();
-    } catch (CAException e) {
-      LOGGER.log(Level.SEVERE, "Unable to obtain channel access context", e);
+    LOGGER.log(Level.FINEST, "Creating ChannelMonitorManager for {0}", role);
+
+    ScheduledThreadPoolExecutor scheduler = new ScheduledThreadPoolExecutor(1);
+    scheduler.setRemoveOnCancelPolicy(true); // Most async request timeouts are cancelled
+    executor = scheduler;
+
+    AtomicInteger dispatchThreadCount = new AtomicInteger();
+    dispatchExecutor =
+        Executors.newFixedThreadPool(
+            DISPATCH_THREADS,
+            runnable -> {
+              Thread thread =
+                  new Thread(
+                      runnable, "PvDispatch-" + role + "-" + dispatchThreadCount.incrementAndGet());
+              thread.setDaemon(true);
+              return thread;
+            });
+
+    ready =
+        factory
+            .getContextAsync()
+            .thenAccept(
+                c -> {
+                  context = c;
+                  cache = new ChannelCache(c, executor, CHANNEL_MAX_IDLE_MILLIS);
+                });
+
+    ready.whenComplete(
+        (v, failure) -> {
+          if (failure != null) {
+            LOGGER.log(Level.SEVERE, "Unable to obtain channel access context", failure);
+          }
+        });
+
+    registrations = ready.handle((v, failure) -> null);
+
+    ChannelAccessMetrics.registerMBean();
+    scheduleMetricsLog();
+  }
+
+  /** Periodically log the CA metrics summary if the CA_METRICS_LOG_SECONDS property is set. */
+  private void scheduleMetricsLog() {
+    String value = ICalibrateApp.APP_PROPERTIES.getProperty("CA_METRICS_LOG_SECONDS");
+    long seconds = 0;
+
+    if (value != null && !value.trim().isEmpty()) {
+      try {
+        seconds = Long.parseLong(value.trim());
+      } catch (NumberFormatException e) {
+        LOGGER.log(Level.WARNING, "Invalid CA_METRICS_LOG_SECONDS: {0}", value);
+      }
     }
 
-    executor = Executors.newSingleThreadScheduledExecutor();
+    if (seconds > 0) {
+      executor.scheduleAtFixedRate(
+          new Runnable() {
+            @Override
+            public void run() {
+              LOGGER.log(Level.INFO, metrics.getSummary());
+            }
+          },
+          seconds,
+          seconds,
+          TimeUnit.SECONDS);
+    }
   }
 
   /** Cleans up EPICS CA */
   private void destruct() {
     LOGGER.log(Level.FINEST, "Destroying ChannelMonitorManager");
-    try {
-      factory.returnContext(context);
-      factory.destruct();
-    } catch (CAException e) {
-      LOGGER.log(Level.WARNING, "Unable to return channel access context", e);
+
+    CompletableFuture<Void> pending;
+
+    synchronized (registrationLock) {
+      pending = registrations;
     }
 
-    executor.shutdown();
+    // If still warming up the context is returned once obtained and deferred registrations have run
+    pending.whenComplete(
+        (v, f) -> {
+          if (!ready.isCompletedExceptionally()) {
+            // Every channel must be destroyed before its context is returned for reuse
+            removeAllListenersNow();
+            cache.close();
+
+            try {
+              factory.returnContext(context);
+            } catch (CAException e) {
+              LOGGER.log(Level.WARNING, "Unable to return channel access context", e);
+            }
+          }
+
+          factory.release();
+          executor.shutdown();
+        });
+
+    dispatchExecutor.shutdown();
+
+    LOGGER.log(Level.FINE, metrics.getSummary());
+  }
+
+  /**
+   * Start initializing EPICS CA in the background so that the first ChannelManager doesn't wait
+   * for it. Typically called first thing on application startup.
+   *
+   * @return The future which completes once EPICS CA is initialized
+   */
+  public static CompletableFuture<Void> warmUp() {
+    return ContextFactory.warmUp();
+  }
+
+  /**
+   * Return a future which completes once this ChannelManager has obtained its context. Requests
+   * and registrations made before then are deferred until then rather than blocking, except for
+   * the synchronous get and put, which wait. Actions which want to report an unavailable EPICS up
+   * front can await this future.
+   *
+   * @return The future which completes once ready, or completes exceptionally if no context could
+   *     be obtained
+   */
+  public CompletableFuture<Void> whenReady() {
+    return ready.copy();
+  }
+
+  /**
+   * Return the subsystem this ChannelManager serves.
+   *
+   * @return The role
+   */
+  public ContextRole getRole() {
+    return role;
   }
 
   /**
@@ -74,26 +249,379 @@ public class ChannelManager implements Closeable {
    * @throws CAException If unable to perform the CA-GET due to IO
    * @throws TimeoutException If unable to perform the CA-GET in a timely fashion
    */
+  @Override
   public DBR get(String pv) throws CAException, TimeoutException {
+    long start = System.nanoTime();
+    EpicsOperationEvent event = EpicsOperationEvent.begin("Get", pv);
+
+    try {
+      CAJChannel channel = acquireConnected(pv);
+      DBR dbr = null;
+
+      try {
+        dbr = channel.get();
+
+        pendIO();
+      } finally {
+        cache.release(channel);
+      }
+
+      metrics.recordGet(System.nanoTime() - start);
+      event.finish(true);
+
+      return dbr;
+    } catch (TimeoutException e) {
+      metrics.recordTimeout(pv);
+      event.finish(false);
+      throw e;
+    } catch (CAException | RuntimeException e) {
+      metrics.recordException(pv);
+      event.finish(false);
+      throw e;
+    }
+  }
+
+  /**
+   * Perform a synchronous (blocking) CA-GET request of many PVs at once. All requests are issued
+   * together (see getAsync) and flushed once such that the batch costs about one network round trip
+   * instead of one per PV. A failure of any given PV is recorded in the result rather than aborting
+   * the batch.
+   *
+   * @param pvs The EPICS CA PV names
+   * @return The batch result
+   */
+  @Override
+  public BatchGetResult getAll(Collection<String> pvs) {
+    Map<String, CompletableFuture<DBR>> futureMap = new LinkedHashMap<>();
+
+    for (String pv : new LinkedHashSet<>(pvs)) {
+      futureMap.put(pv, submit(pv, DEFAULT_TIMEOUT_MILLIS, "Get", new GetRequest(), false));
+    }
+
+    flush();
+
+    Map<String, DBR> dbrMap = new LinkedHashMap<>();
+    Map<String, Exception> failureMap = new LinkedHashMap<>();
+
+    for (Map.Entry<String, CompletableFuture<DBR>> entry : futureMap.entrySet()) {
+      String pv = entry.getKey();
+
+      try {
+        dbrMap.put(pv, await(entry.getValue()));
+      } catch (CAException | TimeoutException e) {
+        failureMap.put(pv, e);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt(); // Let caller notice interrupt
+        failureMap.put(pv, new CAException("Interrupted during EPICS CA Get of PV: " + pv, e));
+      }
+    }
+
+    return new BatchGetResult(dbrMap, failureMap);
+  }
+
+  /**
+   * Perform an asynchronous (non-blocking) CA-GET request of the given PV using the default timeout
+   * of PEND_TIMEOUT_SECONDS.
+   *
+   * @param pv The EPICS CA PV name
+   * @return The future EPICS DataBaseRecord
+   */
+  @Override
+  public CompletableFuture<DBR> getAsync(String pv) {
+    return getAsync(pv, DEFAULT_TIMEOUT_MILLIS);
+  }
+
+  /**
+   * Perform an asynchronous (non-blocking) CA-GET request of the given PV. The request is driven by
+   * a CA callback instead of pendIO so no thread is parked while waiting. If the channel is not yet
+   * connected the request is issued once the connection is made.
+   *
+   * <p>The future completes exceptionally with a CAException if the request fails and with a
+   * TimeoutException if no response arrives within the timeout. Completion happens on a Channel
+   * Access callback thread so slow dependent actions should use the async variants of the
+   * CompletableFuture methods.
+   *
+   * @param pv The EPICS CA PV name
+   * @param timeoutMillis The number of milliseconds to wait for connect and response
+   * @return The future EPICS DataBaseRecord
+   */
+  @Override
+  public CompletableFuture<DBR> getAsync(String pv, long timeoutMillis) {
+    return submit(pv, timeoutMillis, "Get", new GetRequest(), true);
+  }
+
+  /**
+   * Read the given PV from memory if a monitor of it holds a value no older than the given max age,
+   * otherwise perform an asynchronous CA-GET (see getAsync). A monitored value is current while its
+   * channel is connected since CA pushes every change; after a disconnect the value ages from the
+   * moment of disconnect. A read served from memory involves no channel search, connect, or round
+   * trip. PVs only read this way can be kept monitored with keepWarm.
+   *
+   * <p>The value is in the native type of the channel, the same as a CA-GET.
+   *
+   * @param pv The EPICS CA PV name
+   * @param maxAgeMillis The max age in milliseconds of a monitored value
+   * @return The future EPICS DataBaseRecord
+   */
+  @Override
+  public CompletableFuture<DBR> getCached(String pv, long maxAgeMillis) {
+    ChannelMonitor monitor = monitorMap.get(pv);
+    long maxAgeNanos = TimeUnit.MILLISECONDS.toNanos(maxAgeMillis);
+    DBR dbr = monitor == null ? null : monitor.getLatest(maxAgeNanos);
+
+    metrics.recordCachedRead(dbr != null);
+
+    if (dbr != null) {
+      return CompletableFuture.completedFuture(dbr);
+    }
+
+    return getAsync(pv);
+  }
+
+  /**
+   * Perform an asynchronous (non-blocking) CA-PUT request of the given PV and value using the
+   * default timeout of PEND_TIMEOUT_SECONDS.
+   *
+   * @param pv The EPICS CA PV name
+   * @param value The Number value
+   * @return The future which completes once the IOC acknowledges the put
+   */
+  @Override
+  public CompletableFuture<Void> putAsync(String pv, Number value) {
+    return putAsync(pv, value, DEFAULT_TIMEOUT_MILLIS);
+  }
+
+  /**
+   * Perform an asynchronous (non-blocking) CA-PUT request of the given PV and value. The future
+   * completes once the IOC acknowledges the put; see getAsync for completion and failure semantics.
+   *
+   * @param pv The EPICS CA PV name
+   * @param value The Number value
+   * @param timeoutMillis The number of milliseconds to wait for connect and acknowledgement
+   * @return The future which completes once the IOC acknowledges the put
+   */
+  @Override
+  public CompletableFuture<Void> putAsync(String pv, Number value, long timeoutMillis) {
+    return submit(pv, timeoutMillis, "Put", new PutRequest(value.doubleValue()), true);
+  }
+
+  /**
+   * Perform asynchronous (non-blocking) CA-PUT requests of many PVs at once using the default
+   * timeout. All requests are issued together and flushed once such that the batch costs about one
+   * network round trip instead of one per PV (see getAll). Each put completes or fails
+   * independently; see getAsync for completion and failure semantics.
+   *
+   * @param valueMap The map of EPICS CA PV name to Number value
+   * @return The map of PV to future which completes once the IOC acknowledges the put
+   */
+  @Override
+  public Map<String, CompletableFuture<Void>> putAllAsync(Map<String, ? extends Number> valueMap) {
+    Map<String, CompletableFuture<Void>> futureMap = new LinkedHashMap<>();
+
+    for (Map.Entry<String, ? extends Number> entry : valueMap.entrySet()) {
+      String pv = entry.getKey();
+      PutRequest request = new PutRequest(entry.getValue().doubleValue());
+
+      futureMap.put(pv, submit(pv, DEFAULT_TIMEOUT_MILLIS, "Put", request, false));
+    }
+
+    flush();
+
+    return futureMap;
+  }
 
-    CAJChannel channel = null;
-    DBR dbr = null;
+  /**
+   * Wait for the given future obtained from getAsync or putAsync and return the result, unwrapping
+   * the CA failure if there was one. No timeout is needed here as each future has its own timeout.
+   *
+   * @param <T> The result type
+   * @param future The future
+   * @return The result
+   * @throws CAException If the request failed due to IO
+   * @throws TimeoutException If the request did not complete in a timely fashion
+   * @throws InterruptedException If interrupted while waiting
+   */
+  public static <T> T await(CompletableFuture<T> future)
+      throws CAException, TimeoutException, InterruptedException {
+    try {
+      return future.get();
+    } catch (ExecutionException e) {
+      Throwable cause = e.getCause();
+
+      if (cause instanceof CAException) {
+        throw (CAException) cause;
+      } else if (cause instanceof TimeoutException) {
+        throw (TimeoutException) cause;
+      }
+
+      throw new CAException(cause == null ? e.getMessage() : cause.getMessage(), cause);
+    } catch (CancellationException e) {
+      throw new CAException("EPICS CA request cancelled", e);
+    }
+  }
+
+  /**
+   * Issue a callback request on the cached channel of the given PV, deferring the request until the
+   * channel is connected if need be. The channel is released back to the cache and the timeout is
+   * cancelled once the future completes (however it completes).
+   *
+   * @param <T> The result type
+   * @param pv The EPICS CA PV name
+   * @param timeoutMillis The number of milliseconds to wait for connect and response
+   * @param operation The operation name used in failure messages
+   * @param request The request
+   * @param flush true to flush the request immediately, false if the caller will flush
+   * @return The future
+   */
+  private <T> CompletableFuture<T> submit(
+      String pv, long timeoutMillis, String operation, ChannelRequest<T> request, boolean flush) {
+    if (!ready.isDone() || ready.isCompletedExceptionally()) {
+      // Deferred requests are flushed individually as they aren't part of the caller's batch
+      return ready.thenCompose(v -> submit(pv, timeoutMillis, operation, request, true));
+    }
+
+    CompletableFuture<T> future = new CompletableFuture<>();
+    long start = System.nanoTime();
+    EpicsOperationEvent event = EpicsOperationEvent.begin(operation, pv);
+
+    future.whenComplete(
+        (result, failure) -> {
+          event.finish(failure == null);
+
+          if (failure == null) {
+            if ("Put".equals(operation)) {
+              metrics.recordPut(System.nanoTime() - start);
+            } else {
+              metrics.recordGet(System.nanoTime() - start);
+            }
+          } else if (failure instanceof TimeoutException) {
+            metrics.recordTimeout(pv);
+          } else {
+            metrics.recordException(pv);
+          }
+        });
+
+    CAJChannel channel;
+    ScheduledFuture<?> timer;
+
+    try {
+      channel = cache.acquire(pv);
+    } catch (CAException | RuntimeException e) {
+      future.completeExceptionally(asCAException(e));
+      return future;
+    }
 
     try {
-      channel = (CAJChannel) context.createChannel(pv);
+      timer =
+          executor.schedule(
+              new Runnable() {
+                @Override
+                public void run() {
+                  future.completeExceptionally(
+                      new TimeoutException(
+                          "Timeout waiting for EPICS CA " + operation + " of PV: " + pv));
+                }
+              },
+              timeoutMillis,
+              TimeUnit.MILLISECONDS);
+    } catch (RuntimeException e) {
+      cache.release(channel);
+      future.completeExceptionally(asCAException(e));
+      return future;
+    }
 
-      context.pendIO(PEND_TIMEOUT_SECONDS);
+    future.whenComplete(
+        (result, failure) -> {
+          timer.cancel(false);
+          cache.release(channel);
+        });
 
-      dbr = channel.get();
+    if (channel.getConnectionState() == Channel.ConnectionState.CONNECTED) {
+      issue(channel, pv, operation, request, future, flush);
+    } else {
+      AtomicBoolean issued = new AtomicBoolean(false);
 
-      context.pendIO(PEND_TIMEOUT_SECONDS);
-    } finally {
-      if (channel != null) {
-        channel.destroy();
+      ConnectionListener listener =
+          new ConnectionListener() {
+            @Override
+            public void connectionChanged(ConnectionEvent ce) {
+              if (ce.isConnected() && issued.compareAndSet(false, true)) {
+                metrics.recordConnect(System.nanoTime() - start);
+                // Called on CA thread; request must be flushed explicitly
+                issue(channel, pv, operation, request, future, true);
+              }
+            }
+          };
+
+      try {
+        channel.addConnectionListener(listener);
+
+        future.whenComplete(
+            (result, failure) -> {
+              try {
+                channel.removeConnectionListener(listener);
+              } catch (CAException | RuntimeException e) {
+                LOGGER.log(Level.FINEST, "Unable to remove connection listener", e);
+              }
+            });
+      } catch (CAException | RuntimeException e) {
+        future.completeExceptionally(asCAException(e));
+        return future;
+      }
+
+      // Connection may have completed before the listener was registered
+      if (channel.getConnectionState() == Channel.ConnectionState.CONNECTED
+          && issued.compareAndSet(false, true)) {
+        issue(channel, pv, operation, request, future, flush);
       }
     }
 
-    return dbr;
+    return future;
+  }
+
+  private <T> void issue(
+      CAJChannel channel,
+      String pv,
+      String operation,
+      ChannelRequest<T> request,
+      CompletableFuture<T> future,
+      boolean flush) {
+    if (future.isDone()) { // Timed out or cancelled while connecting
+      return;
+    }
+
+    try {
+      request.issue(channel, pv, future);
+
+      if (flush) {
+        context.flushIO();
+      }
+    } catch (CAException | RuntimeException e) {
+      future.completeExceptionally(
+          new CAException(
+              "Unable to perform EPICS CA " + operation + " of PV: " + pv + " - " + e.getMessage(),
+              e));
+    }
+  }
+
+  private void flush() {
+    if (context == null) { // Not ready; deferred requests flush themselves
+      return;
+    }
+
+    try {
+      context.flushIO();
+    } catch (CAException | RuntimeException e) {
+      LOGGER.log(Level.WARNING, "Unable to flush EPICS CA requests", e);
+    }
+  }
+
+  private static CAException asCAException(Exception e) {
+    if (e instanceof CAException) {
+      return (CAException) e;
+    }
+
+    return new CAException(e.getMessage(), e);
   }
 
   /**
@@ -104,22 +632,32 @@ public class ChannelManager implements Closeable {
    * @throws CAException If unable to perform the CA-GET due to IO
    * @throws TimeoutException If unable to perform the CA-GET in a timely fashion
    */
+  @Override
   public void put(String pv, String value) throws CAException, TimeoutException {
-
-    CAJChannel channel = null;
+    long start = System.nanoTime();
+    EpicsOperationEvent event = EpicsOperationEvent.begin("Put", pv);
 
     try {
-      channel = (CAJChannel) context.createChannel(pv);
-
-      context.pendIO(PEND_TIMEOUT_SECONDS);
+      CAJChannel channel = acquireConnected(pv);
 
-      channel.put(value);
+      try {
+        channel.put(value);
 
-      context.pendIO(PEND_TIMEOUT_SECONDS);
-    } finally {
-      if (channel != null) {
-        channel.destroy();
+        pendIO();
+      } finally {
+        cache.release(channel);
       }
+
+      metrics.recordPut(System.nanoTime() - start);
+      event.finish(true);
+    } catch (TimeoutException e) {
+      metrics.recordTimeout(pv);
+      event.finish(false);
+      throw e;
+    } catch (CAException | RuntimeException e) {
+      metrics.recordException(pv);
+      event.finish(false);
+      throw e;
     }
   }
 
@@ -131,23 +669,128 @@ public class ChannelManager implements Closeable {
    * @throws CAException If unable to perform the CA-GET due to IO
    * @throws TimeoutException If unable to perform the CA-GET in a timely fashion
    */
+  @Override
   public void put(String pv, Number value) throws CAException, TimeoutException {
-
-    CAJChannel channel = null;
+    long start = System.nanoTime();
+    EpicsOperationEvent event = EpicsOperationEvent.begin("Put", pv);
 
     try {
-      channel = (CAJChannel) context.createChannel(pv);
+      CAJChannel channel = acquireConnected(pv);
 
-      context.pendIO(PEND_TIMEOUT_SECONDS);
+      try {
+        channel.put((value).doubleValue());
+
+        pendIO();
+      } finally {
+        cache.release(channel);
+      }
+
+      metrics.recordPut(System.nanoTime() - start);
+      event.finish(true);
+    } catch (TimeoutException e) {
+      metrics.recordTimeout(pv);
+      event.finish(false);
+      throw e;
+    } catch (CAException | RuntimeException e) {
+      metrics.recordException(pv);
+      event.finish(false);
+      throw e;
+    }
+  }
 
-      channel.put((value).doubleValue());
+  /**
+   * Block until outstanding requests complete or PEND_TIMEOUT_SECONDS elapses, recording the
+   * latency.
+   *
+   * @throws TimeoutException If the requests did not complete in a timely fashion
+   * @throws CAException If unable to pend due to IO
+   */
+  private void pendIO() throws TimeoutException, CAException {
+    long start = System.nanoTime();
 
+    try {
       context.pendIO(PEND_TIMEOUT_SECONDS);
     } finally {
-      if (channel != null) {
-        channel.destroy();
+      metrics.recordPendIo(System.nanoTime() - start);
+    }
+  }
+
+  /**
+   * Obtain a connected channel from the channel cache, waiting for the connection if the channel
+   * is new. The caller must release the channel back to the cache when done.
+   *
+   * @param pv The EPICS CA PV name
+   * @return The connected channel
+   * @throws CAException If unable to create the channel
+   * @throws TimeoutException If unable to connect in a timely fashion
+   */
+  private CAJChannel acquireConnected(String pv) throws CAException, TimeoutException {
+    awaitReady();
+
+    CAJChannel channel = cache.acquire(pv);
+
+    try {
+      if (channel.getConnectionState() != Channel.ConnectionState.CONNECTED) {
+        long start = System.nanoTime();
+
+        pendIO();
+
+        metrics.recordConnect(System.nanoTime() - start);
+      }
+    } catch (CAException | TimeoutException | RuntimeException e) {
+      cache.release(channel);
+      throw e;
+    }
+
+    return channel;
+  }
+
+  /**
+   * Wait until this ChannelManager has obtained its context.
+   *
+   * @throws CAException If no context could be obtained or if interrupted while waiting
+   */
+  private void awaitReady() throws CAException {
+    try {
+      ready.get();
+    } catch (ExecutionException e) {
+      Throwable cause = e.getCause();
+
+      throw new CAException(
+          "Unable to obtain channel access context: "
+              + (cause == null ? e.getMessage() : cause.getMessage()),
+          cause);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt(); // Let caller notice interrupt
+      throw new CAException("Interrupted waiting for channel access context", e);
+    }
+  }
+
+  /**
+   * Run the given registration now if ready, otherwise once ready. Registrations deferred while
+   * warming up run in the order made so a later clear can't overtake an earlier add.
+   *
+   * @param registration The registration
+   */
+  private void register(Runnable registration) {
+    synchronized (registrationLock) {
+      if (!registrations.isDone()) {
+        registrations =
+            registrations
+                .thenRun(registration)
+                .handle(
+                    (v, failure) -> {
+                      if (failure != null) {
+                        LOGGER.log(Level.WARNING, "Unable to register PV monitors", failure);
+                      }
+
+                      return null;
+                    });
+        return;
       }
     }
+
+    registration.run();
   }
 
   /**
@@ -157,6 +800,7 @@ public class ChannelManager implements Closeable {
    * @param listener The PvListener
    * @param pv The EPICS PV name
    */
+  @Override
   public void addPv(PvListener listener, String pv) {
     HashSet<String> pvSet = new HashSet<>();
     pvSet.add(pv);
@@ -169,39 +813,52 @@ public class ChannelManager implements Closeable {
    * to are skipped (duplicate PVs are ignored). There is no need to call addListener before calling
    * this method.
    *
+   * <p>This method and the other registration methods may be called from any thread. Changes of a
+   * given listener are atomic with respect to each other, and the creation and closing of the
+   * monitor of a given PV is atomic with respect to listeners joining and leaving it, so there is
+   * no global lock. If the monitor has already received a value the listener is notified of it.
+   * Registrations made before this ChannelManager is ready are applied in order once it is.
+   *
+   * <p>Notifications are delivered on a dispatch thread through a queue per listener, according to
+   * the listener's delivery mode; see DeliveryMode.
+   *
    * @param listener The PvListener to receive notifications
    * @param addPvSet The set of PVs to monitor
    */
+  @Override
   public void addPvs(PvListener listener, Set<String> addPvSet) {
+    Set<String> pvSet = addPvSet == null ? null : new LinkedHashSet<>(addPvSet);
 
-    Set<String> newPvList = new HashSet<>();
+    register(() -> addPvsNow(listener, pvSet));
+  }
 
-    if (addPvSet != null) {
-      newPvList.addAll(addPvSet);
+  private void addPvsNow(PvListener listener, Set<String> addPvSet) {
+    List<ChannelMonitor> joinedList = new ArrayList<>();
 
-      for (String pv : addPvSet) {
-        // LOGGER.log(Level.FINEST, "addListener pv: {0}; pv: {1}", new Object[]{listener, pv});
-        ChannelMonitor monitor = monitorMap.get(pv);
+    listenerMap.compute(
+        listener,
+        (l, pvSet) -> {
+          Set<String> newPvSet = pvSet == null ? ConcurrentHashMap.newKeySet() : pvSet;
+          ListenerDispatcher dispatcher = dispatcherFor(listener);
 
-        if (monitor == null) {
-          // LOGGER.log(Level.FINEST, "Opening ChannelMonitor: {0}", pv);
-          monitor = new ChannelMonitor(pv, context, executor);
-          monitorMap.put(pv, monitor);
-        } else {
-          // LOGGER.log(Level.FINEST, "Joining ChannelMonitor: {0}", pv);
-        }
+          if (addPvSet != null) {
+            for (String pv : addPvSet) {
+              if (newPvSet.add(pv)) {
+                joinedList.add(join(dispatcher, pv));
+              }
+            }
+          }
 
-        monitor.addListener(listener);
-      }
-    }
+          return newPvSet;
+        });
 
-    Set<String> oldPvList = listenerMap.get(listener);
+    ListenerDispatcher dispatcher = dispatcherMap.get(listener);
 
-    if (oldPvList != null) {
-      newPvList.addAll(oldPvList);
+    if (dispatcher != null) { // Unless removed meanwhile
+      for (ChannelMonitor monitor : joinedList) {
+        monitor.notifyCurrent(dispatcher);
+      }
     }
-
-    listenerMap.put(listener, newPvList);
   }
 
   /**
@@ -210,47 +867,103 @@ public class ChannelManager implements Closeable {
    * @param listener The PvListener
    * @param clearPvSet The PV set to clear
    */
+  @Override
   public void clearPvs(PvListener listener, Set<String> clearPvSet) {
+    Set<String> pvSet = new LinkedHashSet<>(clearPvSet);
 
-    Set<String> newPvList;
-    Set<String> oldPvList = listenerMap.get(listener);
+    register(() -> clearPvsNow(listener, pvSet));
+  }
 
-    if (oldPvList != null) {
-      newPvList = new HashSet<>(oldPvList);
-      newPvList.removeAll(clearPvSet);
-    } else {
-      newPvList = new HashSet<>();
-    }
+  private void clearPvsNow(PvListener listener, Set<String> clearPvSet) {
+    List<ChannelMonitor> doomedList = new ArrayList<>();
+
+    // An unknown listener has nothing to clear
+    listenerMap.computeIfPresent(
+        listener,
+        (l, pvSet) -> {
+          ListenerDispatcher dispatcher = dispatcherMap.get(listener);
+
+          for (String pv : clearPvSet) {
+            if (pvSet.remove(pv)) {
+              leave(dispatcher, pv, doomedList);
+            }
+          }
+
+          return pvSet;
+        });
 
-    removeFromChannels(listener, clearPvSet);
-    listenerMap.put(listener, newPvList);
+    close(doomedList);
   }
 
   /**
-   * Removes a listener from channels and if no listeners remain on a given channel then closes the
-   * channel.
+   * Return the dispatcher of the given listener, creating it if need be. Called while holding the
+   * registry lock of the listener.
    *
    * @param listener The PvListener
-   * @param pvList The PV list (and indirectly the channel list)
+   * @return The dispatcher
    */
-  private void removeFromChannels(PvListener listener, Set<String> pvList) {
-    if (pvList != null) { // Some clients don't immediately connect to a pv so have an empty pv list
-      for (String pv : pvList) {
-        ChannelMonitor monitor = monitorMap.get(pv);
+  private ListenerDispatcher dispatcherFor(PvListener listener) {
+    return dispatcherMap.computeIfAbsent(
+        listener, l -> new ListenerDispatcher(l, dispatchExecutor, DISPATCH_QUEUE_CAPACITY));
+  }
+
+  /**
+   * Add the listener to the monitor of the given PV, opening the monitor if this is the first
+   * listener. Called while holding the registry lock of the listener.
+   *
+   * @param listener The dispatcher of the PvListener
+   * @param pv The PV
+   * @return The monitor
+   */
+  private ChannelMonitor join(ListenerDispatcher listener, String pv) {
+    return monitorMap.compute(
+        pv,
+        (p, monitor) -> {
+          if (monitor == null) {
+            monitor = new ChannelMonitor(p, context, executor);
+          }
 
-        if (monitor != null) {
+          monitor.addListener(listener);
+
+          return monitor;
+        });
+  }
+
+  /**
+   * Remove the listener from the monitor of the given PV. If no listeners remain on the monitor
+   * then it is removed from the registry and added to the doomed list to be closed once the
+   * registry locks are released. Called while holding the registry lock of the listener.
+   *
+   * @param listener The dispatcher of the PvListener
+   * @param pv The PV
+   * @param doomedList The list of monitors to close
+   */
+  private void leave(ListenerDispatcher listener, String pv, List<ChannelMonitor> doomedList) {
+    monitorMap.computeIfPresent(
+        pv,
+        (p, monitor) -> {
           monitor.removeListener(listener);
 
           if (monitor.getListenerCount() == 0) {
-            // LOGGER.log(Level.FINEST, "Closing ChannelMonitor: {0}", pv);
-            try {
-              monitor.close();
-            } catch (IOException e) {
-              LOGGER.log(Level.WARNING, "Unable to close monitor", e);
-            }
-            monitorMap.remove(pv);
+            doomedList.add(monitor);
+            return null;
           }
-        }
+
+          return monitor;
+        });
+  }
+
+  /**
+   * Close the given monitors, which have already been removed from the registry.
+   *
+   * @param doomedList The monitors
+   */
+  private void close(List<ChannelMonitor> doomedList) {
+    for (ChannelMonitor monitor : doomedList) {
+      try {
+        monitor.close();
+      } catch (IOException e) {
+        LOGGER.log(Level.WARNING, "Unable to close monitor", e);
       }
     }
   }
@@ -263,10 +976,18 @@ public class ChannelManager implements Closeable {
    *
    * @param listener The PvListener
    */
+  @Override
   public void addListener(PvListener listener) {
-    Set<String> pvList = listenerMap.get(listener);
+    register(() -> addListenerNow(listener));
+  }
 
-    listenerMap.put(listener, pvList);
+  private void addListenerNow(PvListener listener) {
+    listenerMap.computeIfAbsent(
+        listener,
+        l -> {
+          dispatcherFor(l);
+          return ConcurrentHashMap.newKeySet();
+        });
   }
 
   /**
@@ -274,13 +995,69 @@ public class ChannelManager implements Closeable {
    *
    * @param listener The PvListener
    */
+  @Override
   public void removeListener(PvListener listener) {
-    // LOGGER.log(Level.FINEST, "removeListener: {0}", listener);
-    Set<String> pvSet = listenerMap.get(listener);
+    register(() -> removeListenerNow(listener));
+  }
+
+  private void removeListenerNow(PvListener listener) {
+    List<ChannelMonitor> doomedList = new ArrayList<>();
+
+    listenerMap.computeIfPresent(
+        listener,
+        (l, pvSet) -> {
+          ListenerDispatcher dispatcher = dispatcherMap.remove(listener);
+
+          if (dispatcher != null) {
+            for (String pv : pvSet) {
+              leave(dispatcher, pv, doomedList);
+            }
+
+            dispatcher.close();
+          }
+
+          return null;
+        });
+
+    close(doomedList);
+  }
 
-    removeFromChannels(listener, pvSet);
+  /**
+   * Remove every listener, closing its dispatcher and any monitor it leaves without listeners.
+   * Called once no more registrations will run.
+   */
+  private void removeAllListenersNow() {
+    for (PvListener listener : listenerMap.keySet()) {
+      removeListenerNow(listener);
+    }
+
+    List<ChannelMonitor> doomedList = new ArrayList<>(monitorMap.values());
+    monitorMap.clear();
+
+    close(doomedList);
+  }
+
+  /**
+   * Keep monitors of the given PVs open, whether or not any other listener is interested in them,
+   * so that getCached and newly added listeners are served from memory. This is opt-in since each
+   * warm PV costs a channel and a stream of monitor updates for the life of the manager. The
+   * monitors are shared with other listeners as usual.
+   *
+   * @param pvSet The PVs to keep warm
+   */
+  @Override
+  public void keepWarm(Set<String> pvSet) {
+    addPvs(warmListener, pvSet);
+  }
 
-    listenerMap.remove(listener);
+  /**
+   * Stop keeping the given PVs warm. A monitor is closed once no listener remains interested.
+   *
+   * @param pvSet The PVs
+   */
+  @Override
+  public void coolDown(Set<String> pvSet) {
+    clearPvs(warmListener, pvSet);
   }
 
   /**
@@ -291,10 +1068,8 @@ public class ChannelManager implements Closeable {
   public Map<String, Integer> getPvToCountMap() {
     Map<String, Integer> countMap = new HashMap<>();
 
-    for (String key : monitorMap.keySet()) {
-      ChannelMonitor monitor = monitorMap.get(key);
-      Integer count = monitor.getListenerCount();
-      countMap.put(key, count);
+    for (Map.Entry<String, ChannelMonitor> entry : monitorMap.entrySet()) {
+      countMap.put(entry.getKey(), entry.getValue().getListenerCount());
     }
     return countMap;
   }
@@ -308,6 +1083,39 @@ public class ChannelManager implements Closeable {
     return Collections.unmodifiableMap(listenerMap);
   }
 
+  /**
+   * Return the number of CA-GET/CA-PUT requests which reused a cached channel.
+   *
+   * @return The channel cache hit count
+   */
+  public long getChannelCacheHitCount() {
+    ChannelCache c = cache;
+
+    return c == null ? 0 : c.getHitCount();
+  }
+
+  /**
+   * Return the number of CA-GET/CA-PUT requests which required a new channel (search and connect).
+   *
+   * @return The channel cache miss count
+   */
+  public long getChannelCacheMissCount() {
+    ChannelCache c = cache;
+
+    return c == null ? 0 : c.getMissCount();
+  }
+
+  /**
+   * Return the number of cached channels destroyed after being idle too long.
+   *
+   * @return The channel cache eviction count
+   */
+  public long getChannelCacheEvictionCount() {
+    ChannelCache c = cache;
+
+    return c == null ? 0 : c.getEvictionCount();
+  }
+
   /**
    * Cleans up the EPICS CA plumbing.
    *
@@ -317,4 +1125,100 @@ public class ChannelManager implements Closeable {
   public void close() throws IOException {
     destruct();
   }
+
+  /**
+   * The listener which holds the monitors of warm PVs open. Updates are only needed by the monitor
+   * itself so the listener ignores them, and latest value delivery keeps the cost of doing so low.
+   */
+  private static final class WarmListener implements PvListener {
+
+    @Override
+    public void notifyPvInfo(
+        String pv, boolean couldConnect, DBRType type, Integer count, String[] enumLabels) {
+      // Nothing to do
+    }
+
+    @Override
+    public void notifyPvUpdate(String pv, DBR dbr) {
+      // Nothing to do
+    }
+
+    @Override
+    public DeliveryMode getDeliveryMode() {
+      return DeliveryMode.LATEST;
+    }
+  }
+
+  /**
+   * A callback request issued on a connected channel which completes the given future.
+   *
+   * @param <T> The result type
+   */
+  private interface ChannelRequest<T> {
+
+    void issue(CAJChannel channel, String pv, CompletableFuture<T> future) throws CAException;
+  }
+
+  /** A callback CA-GET of the native type and count of the channel. */
+  private static final class GetRequest implements ChannelRequest<DBR> {
+
+    @Override
+    public void issue(CAJChannel channel, String pv, CompletableFuture<DBR> future)
+        throws CAException {
+      channel.get(
+          channel.getFieldType(),
+          channel.getElementCount(),
+          new GetListener() {
+            @Override
+            public void getCompleted(GetEvent ge) {
+              CAStatus status = ge.getStatus();
+
+              if (status != null && status.isSuccessful() && ge.getDBR() != null) {
+                future.complete(ge.getDBR());
+              } else {
+                future.completeExceptionally(
+                    new CAException(
+                        "Unable to perform EPICS CA Get of PV: "
+                            + pv
+                            + " - "
+                            + (status == null ? "unknown status" : status.getMessage())));
+              }
+            }
+          });
+    }
+  }
+
+  /** A callback CA-PUT of a double value. */
+  private static final class PutRequest implements ChannelRequest<Void> {
+
+    private final double value;
+
+    private PutRequest(double value) {
+      this.value = value;
+    }
+
+    @Override
+    public void issue(CAJChannel channel, String pv, CompletableFuture<Void> future)
+        throws CAException {
+      channel.put(
+          value,
+          new PutListener() {
+            @Override
+            public void putCompleted(PutEvent pe) {
+              CAStatus status = pe.getStatus();
+
+              if (status != null && status.isSuccessful()) {
+                future.complete(null);
+              } else {
+                future.completeExceptionally(
+                    new CAException(
+                        "Unable to perform EPICS CA Put of PV: "
+                            + pv
+                            + " - "
+                            + (status == null ? "unknown status" : status.getMessage())));
+              }
+            }
+          });
+    }
+  }
 }
@@ -15,9 +15,9 @@ import gov.aps.jca.event.MonitorEvent;
 import gov.aps.jca.event.MonitorListener;
 import java.io.Closeable;
 import java.io.IOException;
-import java.util.HashSet;
 import java.util.Set;
 import java.util.concurrent.Callable;
+import java.util.concurrent.CopyOnWriteArraySet;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.TimeUnit;
@@ -27,21 +27,46 @@ import java.util.logging.Logger;
 /**
  * Responsible for monitoring an EPICS channel and notifying registered listeners.
  *
+ * <p>Notifications are handed to each listener's ListenerDispatcher, which queues them for delivery
+ * on a dispatch thread, so the CA callback thread never waits on a listener. The listener set is
+ * copy-on-write so callbacks iterate it without locking.
+ *
+ * <p>The connection state of the channel is tracked and pushed to listeners as it changes. Channel
+ * Access searches for a disconnected channel again on its own (with backoff, and immediately on the
+ * beacon of a rebooted IOC), so no reconnect logic is needed here beyond replacing the monitor
+ * subscription once reconnected: the old subscription is cleared and a new one is added, since the
+ * field type may have changed if the record was redefined. Until the first update after reconnect
+ * the latest value is stale.
+ *
+ * <p>Monitors request the DBR_TIME variant of the field type so that every update carries the IOC
+ * timestamp of the value, letting consumers align updates of different PVs by when they were
+ * measured rather than when they arrived. The TIME records extend the plain records of the same
+ * type, so listeners which only read the value are unaffected.
+ *
  * @author ryans
  */
 final class ChannelMonitor implements Closeable {
 
   private static final Logger LOGGER = Logger.getLogger(ChannelMonitor.class.getName());
 
-  private final Set<PvListener> listeners = new HashSet<>();
+  private final Set<ListenerDispatcher> listeners = new CopyOnWriteArraySet<>();
   private CAJChannel c;
   private final CAJContext context;
   private final ScheduledExecutorService executor;
   private final String pv;
-  private DBR lastDbr;
-  private String[] enumLabels;
-  private boolean initialized = false;
-  private boolean couldConnect = false;
+  private volatile DBR lastDbr;
+  private volatile boolean current = false;
+  private volatile long staleSinceNanos;
+  private volatile String[] enumLabels;
+  private volatile boolean initialized = false;
+  private volatile boolean couldConnect = false;
+  private volatile PvConnectionState connectionState = PvConnectionState.NEVER_CONNECTED;
+  private volatile long connectionStateSinceMillis = System.currentTimeMillis();
+  private volatile boolean connectTimedOut = false;
+  private final Object monitorLock = new Object();
+  private Monitor monitor; // Guarded by monitorLock
+  private final long createNanos = System.nanoTime();
+  private final ChannelAccessMetrics metrics = ChannelAccessMetrics.getInstance();
 
   /**
    * Create a new ChannelMonitor for the given EPICS PV using the supplied CA Context.
@@ -56,6 +81,7 @@ final class ChannelMonitor implements Closeable {
 
     try {
       c = (CAJChannel) context.createChannel(pv, new ChannelConnectionListener());
+      metrics.channelCreated();
 
       context.flushIO();
 
@@ -65,34 +91,100 @@ final class ChannelMonitor implements Closeable {
   }
 
   /**
-   * Add a new PvListener.
+   * Add a new listener. The listener is not notified of the current value, if any; see
+   * notifyCurrent.
    *
-   * @param listener The PvListener
+   * @param listener The dispatcher of the PvListener
    */
-  public synchronized void addListener(PvListener listener) {
+  public void addListener(ListenerDispatcher listener) {
     listeners.add(listener);
+  }
 
-    if (initialized) {
+  /**
+   * Queue notification of the channel info and latest value to the given listener if a value has
+   * been received and the listener is still registered. A monitor update may race with this
+   * notification so the listener may be notified of the same value twice.
+   *
+   * @param listener The dispatcher of the PvListener
+   */
+  public void notifyCurrent(ListenerDispatcher listener) {
+    if (initialized && listeners.contains(listener)) {
       notifyPvInfo(listener);
       notifyPvUpdate(listener);
     }
+
+    if ((connectionState != PvConnectionState.NEVER_CONNECTED || connectTimedOut)
+        && listeners.contains(listener)) {
+      listener.connection(pv, connectionState, connectionStateSinceMillis);
+    }
   }
 
   /**
-   * Remove the supplied PvListener.
+   * Remove the supplied listener.
    *
-   * @param listener The PvListener
+   * @param listener The dispatcher of the PvListener
    */
-  public synchronized void removeListener(PvListener listener) {
+  public void removeListener(ListenerDispatcher listener) {
     listeners.remove(listener);
   }
 
+  /**
+   * Return the latest value if it is no older than the given max age, otherwise null. CA pushes
+   * every change of a monitored value, so while the channel is connected the latest value is the
+   * current value regardless of when it was received. Once the channel disconnects the value ages
+   * from the moment of disconnect until an update arrives after reconnect.
+   *
+   * @param maxAgeNanos The max age in nanoseconds
+   * @return The latest value, or null if none or too old
+   */
+  public DBR getLatest(long maxAgeNanos) {
+    DBR dbr = lastDbr;
+
+    if (dbr == null) {
+      return null;
+    }
+
+    if (current || System.nanoTime() - staleSinceNanos <= maxAgeNanos) {
+      return dbr;
+    }
+
+    return null;
+  }
+
+  /**
+   * Return the connection state of the channel.
+   *
+   * @return The connection state
+   */
+  public PvConnectionState getConnectionState() {
+    return connectionState;
+  }
+
+  /**
+   * Return the time the channel entered its current connection state.
+   *
+   * @return The milliseconds since the epoch
+   */
+  public long getConnectionStateSinceMillis() {
+    return connectionStateSinceMillis;
+  }
+
+  /**
+   * Return whether the latest value is stale: the channel isn't connected, or has reconnected but
+   * no update has arrived since.
+   *
+   * @return true if stale
+   */
+  public boolean isStale() {
+    return !current;
+  }
+
   /**
    * Return the number of PvListeners.
    *
    * @return The number of PvListeners
    */
-  public synchronized int getListenerCount() {
+  public int getListenerCount() {
     return listeners.size();
   }
 
@@ -106,6 +198,7 @@ final class ChannelMonitor implements Closeable {
     if (c != null) {
       try {
         c.destroy();
+        metrics.channelDestroyed();
       } catch (CAException e) {
         throw new IOException("Unable to close channel", e);
       }
@@ -113,8 +206,8 @@ final class ChannelMonitor implements Closeable {
   }
 
   /** Notify all listeners of the channel info metadata. */
-  private synchronized void notifyPvInfoAll() {
-    for (PvListener s : listeners) {
+  private void notifyPvInfoAll() {
+    for (ListenerDispatcher s : listeners) {
       notifyPvInfo(s);
     }
   }
@@ -122,9 +215,9 @@ final class ChannelMonitor implements Closeable {
   /**
    * Notify a given listener of the channel info metadata.
    *
-   * @param listener The PvListener
+   * @param listener The dispatcher of the PvListener
    */
-  private synchronized void notifyPvInfo(PvListener listener) {
+  private void notifyPvInfo(ListenerDispatcher listener) {
 
     DBRType type = null;
     Integer count = null;
@@ -133,12 +226,35 @@ final class ChannelMonitor implements Closeable {
       count = c.getElementCount();
     }
 
-    listener.notifyPvInfo(pv, couldConnect, type, count, enumLabels);
+    listener.info(pv, couldConnect, type, count, enumLabels);
+  }
+
+  /**
+   * Change the connection state and notify all listeners if it changed.
+   *
+   * @param state The new state
+   */
+  private void setConnectionState(PvConnectionState state) {
+    if (connectionState == state) {
+      return;
+    }
+
+    connectionStateSinceMillis = System.currentTimeMillis();
+    connectionState = state;
+
+    notifyConnectionAll();
+  }
+
+  /** Notify all listeners of the connection state. */
+  private void notifyConnectionAll() {
+    for (ListenerDispatcher s : listeners) {
+      s.connection(pv, connectionState, connectionStateSinceMillis);
+    }
   }
 
   /** Notify all listeners of a channel value update. */
-  private synchronized void notifyPvUpdateAll() {
-    for (PvListener s : listeners) {
+  private void notifyPvUpdateAll() {
+    for (ListenerDispatcher s : listeners) {
       notifyPvUpdate(s);
     }
   }
@@ -146,11 +262,37 @@ final class ChannelMonitor implements Closeable {
   /**
    * Notify a given listener of a channel value update.
    *
-   * @param listener The PvListener
+   * @param listener The dispatcher of the PvListener
    */
-  private void notifyPvUpdate(PvListener listener) {
+  private void notifyPvUpdate(ListenerDispatcher listener) {
 
-    listener.notifyPvUpdate(pv, lastDbr);
+    listener.update(pv, lastDbr);
+  }
+
+  /**
+   * Return the DBR_TIME variant of the given field type.
+   *
+   * @param type The field type
+   * @return The TIME type, or the field type itself if it has no TIME variant
+   */
+  static DBRType timeType(DBRType type) {
+    if (type == DBRType.DOUBLE) {
+      return DBRType.TIME_DOUBLE;
+    } else if (type == DBRType.FLOAT) {
+      return DBRType.TIME_FLOAT;
+    } else if (type == DBRType.INT) {
+      return DBRType.TIME_INT;
+    } else if (type == DBRType.SHORT) {
+      return DBRType.TIME_SHORT;
+    } else if (type == DBRType.BYTE) {
+      return DBRType.TIME_BYTE;
+    } else if (type == DBRType.ENUM) {
+      return DBRType.TIME_ENUM;
+    } else if (type == DBRType.STRING) {
+      return DBRType.TIME_STRING;
+    }
+
+    return type;
   }
 
   /** Private inner helper class to respond to connection status changes. */
@@ -168,7 +310,9 @@ final class ChannelMonitor implements Closeable {
                 public Void call() throws Exception {
                   if (!couldConnect) {
                     // LOGGER.log(Level.WARNING, "Unable to connect to channel (timeout)");
+                    connectTimedOut = true;
                     notifyPvInfoAll();
+                    notifyConnectionAll();
                   }
 
                   return null;
@@ -190,8 +334,13 @@ final class ChannelMonitor implements Closeable {
         // CAJChannel c2 = (CAJChannel) ce.getSource();
 
         if (ce.isConnected()) {
+          if (!couldConnect) {
+            metrics.recordConnect(System.nanoTime() - createNanos);
+          }
+
           couldConnect = true;
           future.cancel(false);
+          setConnectionState(PvConnectionState.CONNECTED);
 
           DBRType type = c.getFieldType();
 
@@ -202,6 +351,15 @@ final class ChannelMonitor implements Closeable {
           }
         } else {
           // LOGGER.log(Level.WARNING, "Unable to connect to channel (connection changed)");
+          if (current) {
+            staleSinceNanos = System.nanoTime();
+            current = false;
+          }
+
+          if (couldConnect) {
+            LOGGER.log(Level.WARNING, "Channel disconnected: {0}", pv);
+            setConnectionState(PvConnectionState.DISCONNECTED);
+          }
         }
       } catch (CAException e) {
         LOGGER.log(Level.SEVERE, "Unable to monitor channel", e);
@@ -234,13 +392,26 @@ final class ChannelMonitor implements Closeable {
     }
 
     /**
-     * Register the monitor in the low-level EPICS lib plumbing.
+     * Register the monitor in the low-level EPICS lib plumbing, replacing the subscription of a
+     * previous connection, if any, so that a reconnect never leaves two subscriptions.
      *
      * @throws IllegalStateException If unable to register
      * @throws CAException If unable to register
      */
     private void registerMonitor() throws IllegalStateException, CAException {
-      c.addMonitor(c.getFieldType(), 1, Monitor.VALUE, new ChannelMonitorListener());
+      synchronized (monitorLock) {
+        if (monitor != null) {
+          try {
+            monitor.clear();
+          } catch (CAException | RuntimeException e) {
+            LOGGER.log(Level.FINEST, "Unable to clear previous monitor", e);
+          }
+        }
+
+        monitor =
+            c.addMonitor(
+                timeType(c.getFieldType()), 1, Monitor.VALUE, new ChannelMonitorListener());
+      }
     }
 
     /** A private inner inner class to respond to an enum label caget. */
@@ -273,17 +444,18 @@ final class ChannelMonitor implements Closeable {
     @Override
     public void monitorChanged(MonitorEvent me) {
       // LOGGER.log(Level.FINEST, "Monitor Update");
-      synchronized (ChannelMonitor.this) {
-        lastDbr = me.getDBR();
+      metrics.recordMonitorUpdate(pv);
 
-        if (!initialized) {
-          initialized = true;
+      lastDbr = me.getDBR();
+      current = true;
 
-          notifyPvInfoAll();
-        }
+      if (!initialized) {
+        initialized = true;
 
-        notifyPvUpdateAll();
+        notifyPvInfoAll();
       }
+
+      notifyPvUpdateAll();
     }
   }
 }
@@ -4,6 +4,10 @@ import com.cosylab.epics.caj.CAJContext;
 import gov.aps.jca.CAException;
 import gov.aps.jca.configuration.DefaultConfiguration;
 import java.util.ResourceBundle;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -12,23 +16,37 @@ import java.util.logging.Logger;
  *
  * <p>This class wraps around a ContextPool and provides life cycle management.
  *
- * <p>A resource bundle named epics.properties is consulted to determine the EPICS addr_list value.
+ * <p>A resource bundle named epics.properties is consulted to determine the EPICS addr_list value
+ * and, optionally, the pool_max, pool_timeout, and pool_health_check_seconds of the ContextPool.
  *
- * <p>This class is a singleton which is created on application startup and destroyed on application
- * shutdown.
+ * <p>This class is a singleton which is created on first use (see warmUp) and destroyed once the
+ * last reference obtained via acquire is released, after which a new one is created on demand. The
+ * ContextPool is constructed on a background thread so that the application need not wait for
+ * EPICS CA initialization; contexts are handed out via futures which complete once the pool is
+ * ready. All methods may be called from any thread.
  *
  * @author ryans
  */
 final class ContextFactory {
 
   private static final Logger LOGGER = Logger.getLogger(ContextFactory.class.getName());
-  private static ContextFactory INSTANCE = null;
+  private static ContextFactory INSTANCE = null; // Guarded by ContextFactory.class
 
-  private ContextPool pool = null;
+  private final ExecutorService executor;
+  private final CompletableFuture<ContextPool> pool;
+  private int references = 0; // Guarded by ContextFactory.class
 
   private ContextFactory() {
     // Private constructor
-    construct();
+    executor =
+        Executors.newSingleThreadExecutor(
+            runnable -> {
+              Thread thread = new Thread(runnable, "ContextFactory");
+              thread.setDaemon(true);
+              return thread;
+            });
+
+    pool = CompletableFuture.supplyAsync(this::construct, executor);
   }
 
   /**
@@ -36,7 +54,7 @@ final class ContextFactory {
    *
    * @return The one and only ContextFactory
    */
-  public static ContextFactory getInstance() {
+  public static synchronized ContextFactory getInstance() {
     if (INSTANCE == null) {
       INSTANCE = new ContextFactory();
     }
@@ -45,13 +63,45 @@ final class ContextFactory {
   }
 
   /**
-   * Get an EPICS channel access context. Make sure to return it when you're done.
+   * Start constructing the context pool in the background if not already started, typically on
+   * application startup so that EPICS CA initialization overlaps with the rest of startup.
    *
-   * @return the context.
-   * @throws CAException if unable to get the context.
+   * @return The future which completes once the pool is ready
    */
-  public CAJContext getContext() throws CAException {
-    return pool.getContext();
+  public static CompletableFuture<Void> warmUp() {
+    return getInstance().pool.thenApply(p -> null);
+  }
+
+  /**
+   * Get the ContextFactory instance and hold a reference to it such that it isn't destroyed until
+   * released. Each acquire must be matched by exactly one call to release.
+   *
+   * @return The one and only ContextFactory
+   */
+  public static synchronized ContextFactory acquire() {
+    ContextFactory factory = getInstance();
+
+    factory.references++;
+
+    return factory;
+  }
+
+  /**
+   * Get an EPICS channel access context. The future completes once the context pool is ready and a
+   * context is available. Make sure to return it when you're done.
+   *
+   * @return The future context
+   */
+  public CompletableFuture<CAJContext> getContextAsync() {
+    return pool.thenApplyAsync(
+        p -> {
+          try {
+            return p.getContext();
+          } catch (CAException e) {
+            throw new CompletionException(e);
+          }
+        },
+        executor);
   }
 
   /**
@@ -61,11 +111,35 @@ final class ContextFactory {
    * @throws CAException if unable to return the context.
    */
   public void returnContext(CAJContext context) throws CAException {
-    pool.returnContext(context);
+    pool.join().returnContext(context);
+  }
+
+  /**
+   * Release a reference obtained from acquire. Once no references remain the factory is destroyed
+   * and the next getInstance creates a new one.
+   */
+  public void release() {
+    synchronized (ContextFactory.class) {
+      references--;
+
+      if (references > 0) {
+        return;
+      }
+
+      if (INSTANCE == this) {
+        INSTANCE = null;
+      }
+    }
+
+    destruct();
   }
 
-  /** Construct the context factory. */
-  private void construct() {
+  /**
+   * Construct the context pool.
+   *
+   * @return The pool
+   */
+  private ContextPool construct() {
     LOGGER.log(Level.FINEST, "Constructing ContextPoolFactory");
     DefaultConfiguration config = new DefaultConfiguration("myconfig");
 
@@ -84,20 +158,35 @@ final class ContextFactory {
     config.setAttribute("addr_list", addrList);
     config.setAttribute("auto_addr_list", "false");
 
+    for (String key : new String[] {"pool_max", "pool_timeout", "pool_health_check_seconds"}) {
+      if (bundle.containsKey(key)) {
+        config.setAttribute(key, bundle.getString(key).trim());
+      }
+    }
+
     try {
-      pool = new ContextPool(config);
+      return new ContextPool(config);
     } catch (CAException e) {
       LOGGER.log(Level.SEVERE, "Unable to create channel access context", e);
+      throw new CompletionException(e);
     }
   }
 
   /** Destroy the context factory. */
-  public void destruct() {
+  private void destruct() {
     LOGGER.log(Level.FINEST, "Destroying ContextPoolFactory");
-    try {
-      pool.destroy();
-    } catch (CAException e) {
-      LOGGER.log(Level.SEVERE, "Unable to destroy channel access context", e);
-    }
+
+    pool.whenComplete(
+        (p, failure) -> {
+          if (p != null) {
+            try {
+              p.destroy();
+            } catch (CAException e) {
+              LOGGER.log(Level.SEVERE, "Unable to destroy channel access context", e);
+            }
+          }
+
+          executor.shutdown();
+        });
   }
 }
@@ -4,14 +4,33 @@ import com.cosylab.epics.caj.CAJContext;
 import gov.aps.jca.CAException;
 import gov.aps.jca.JCALibrary;
 import gov.aps.jca.configuration.DefaultConfiguration;
-import java.util.LinkedList;
-import java.util.List;
+import java.util.Deque;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
 /**
  * Provides a pool of EPICS channel access contexts.
  *
+ * <p>Checkout is fair: a fair semaphore holds one permit per available context so threads obtain
+ * contexts in the order they asked and a waiting thread either gets a context or times out after
+ * the full pool timeout. A background health check periodically replaces available contexts which
+ * are no longer viable; a checked out context which is no longer viable is replaced when returned.
+ *
+ * <p>The pool is configured via the following attributes:
+ *
+ * <ul>
+ *   <li>pool_max - the number of contexts; defaults to one per ContextRole
+ *   <li>pool_timeout - milliseconds to wait for a context; defaults to 1000
+ *   <li>pool_health_check_seconds - seconds between health checks; defaults to 30, 0 disables
+ * </ul>
+ *
  * @author ryans
  */
 final class ContextPool {
@@ -19,9 +38,13 @@ final class ContextPool {
   private static final Logger logger = Logger.getLogger(ContextPool.class.getName());
   private final int WAIT_TIMEOUT;
   private final int MAX_SIZE;
-  private List<CAJContext> available;
-  private List<CAJContext> used;
+  private final Semaphore permits; // One permit per context in available
+  private final Deque<CAJContext> available = new ConcurrentLinkedDeque<>();
+  private final Set<CAJContext> used = ConcurrentHashMap.newKeySet();
+  private final ScheduledExecutorService healthChecker;
   private final DefaultConfiguration config;
+  private final ChannelAccessMetrics metrics = ChannelAccessMetrics.getInstance();
+  private volatile boolean destroyed = false;
 
   /**
    * Construct a ContextPool with the specified configuration.
@@ -34,16 +57,31 @@ final class ContextPool {
 
     this.config = config;
 
-    available = new LinkedList<>();
-    used = new LinkedList<>();
-
     config.setAttribute("class", JCALibrary.CHANNEL_ACCESS_JAVA);
 
     WAIT_TIMEOUT = config.getAttributeAsInteger("pool_timeout", 1000);
-    MAX_SIZE = config.getAttributeAsInteger("pool_max", 1);
+    MAX_SIZE = config.getAttributeAsInteger("pool_max", ContextRole.values().length);
+    int healthCheckSeconds = config.getAttributeAsInteger("pool_health_check_seconds", 30);
 
     for (int i = 0; i < MAX_SIZE; i++) {
-      addContext();
+      available.add(createContext());
+    }
+
+    permits = new Semaphore(MAX_SIZE, true);
+
+    ScheduledThreadPoolExecutor scheduler =
+        new ScheduledThreadPoolExecutor(
+            1,
+            runnable -> {
+              Thread thread = new Thread(runnable, "ContextPoolHealthCheck");
+              thread.setDaemon(true);
+              return thread;
+            });
+    healthChecker = scheduler;
+
+    if (healthCheckSeconds > 0) {
+      healthChecker.scheduleWithFixedDelay(
+          this::checkHealth, healthCheckSeconds, healthCheckSeconds, TimeUnit.SECONDS);
     }
   }
 
@@ -53,68 +91,112 @@ final class ContextPool {
    * @param context the context.
    * @return true if the context is viable.
    */
-  private synchronized boolean isViable(CAJContext context) {
+  private static boolean isViable(CAJContext context) {
     return (context != null && context.isInitialized() && !context.isDestroyed());
   }
 
   /**
-   * Add a new context to the pool.
+   * Create and initialize a new context.
    *
-   * @throws CAException if unable to add the context.
+   * @return the context.
+   * @throws CAException if unable to create the context.
    */
-  private synchronized void addContext() throws CAException {
+  private CAJContext createContext() throws CAException {
     CAJContext context = (CAJContext) JCALibrary.getInstance().createContext(config);
 
     context.initialize();
 
-    available.add(context);
+    return context;
   }
 
   /**
-   * Replace a non-viable context with a new one.
+   * Replace a non-viable context with a new one. The non-viable context is destroyed.
    *
+   * @param context the non-viable context, which may be null.
    * @return a new context.
    * @throws CAException if unable to replace the context.
    */
-  private synchronized CAJContext replaceContext() throws CAException {
+  private CAJContext replaceContext(CAJContext context) throws CAException {
     logger.log(
         Level.WARNING,
         "Non-viable context encountered: context is null, uninitialized, or destroyed");
 
-    addContext();
+    destroyQuietly(context);
 
-    CAJContext context = available.remove(available.size() - 1);
+    CAJContext replacement = createContext();
 
-    if (!isViable(context)) {
+    if (!isViable(replacement)) {
+      destroyQuietly(replacement);
       throw new CAException("Unable to construct a viable context");
     }
 
-    return context;
+    metrics.recordContextReplaced();
+
+    return replacement;
+  }
+
+  private static void destroyQuietly(CAJContext context) {
+    if (context != null && !context.isDestroyed()) {
+      try {
+        context.destroy();
+      } catch (CAException | RuntimeException e) {
+        logger.log(Level.FINEST, "Unable to destroy non-viable context", e);
+      }
+    }
   }
 
   /**
-   * Clean up the context pool and release EPICS resources.
+   * Replace available contexts which are no longer viable. Each context is checked out while it is
+   * checked so the health check never races a checkout of the same context.
+   */
+  private void checkHealth() {
+    int count = permits.availablePermits();
+
+    for (int i = 0; i < count && !destroyed && permits.tryAcquire(); i++) {
+      CAJContext context = available.pollFirst();
+
+      if (context == null) { // Destroyed meanwhile
+        permits.release();
+        break;
+      }
+
+      try {
+        if (!isViable(context)) {
+          context = replaceContext(context);
+        }
+      } catch (CAException | RuntimeException e) {
+        logger.log(Level.WARNING, "Unable to replace non-viable context", e);
+      } finally {
+        available.addLast(context);
+        permits.release();
+      }
+    }
+
+    for (CAJContext context : used) {
+      if (!isViable(context)) {
+        logger.log(Level.WARNING, "Checked out context is non-viable; replaced when returned");
+      }
+    }
+  }
+
+  /**
+   * Clean up the context pool and release EPICS resources. Available contexts are destroyed now;
+   * checked out contexts are destroyed when returned.
    *
    * <p>This method should be called when you are done with the pool.
    *
    * @throws CAException if unable to clean up the context pool.
    */
-  public synchronized void destroy() throws CAException {
+  public void destroy() throws CAException {
     logger.log(Level.FINEST, "Destroying EPICS ContextPool");
     boolean exception = false;
 
-    for (CAJContext context : available) {
-      try {
-        context.destroy();
-      } catch (CAException e) {
-        exception = true;
-      }
-    }
+    destroyed = true;
+    healthChecker.shutdownNow();
 
-    available.clear();
-    available = null;
+    CAJContext context;
 
-    for (CAJContext context : used) {
+    while ((context = available.pollFirst()) != null) {
       try {
         context.destroy();
       } catch (CAException e) {
@@ -122,9 +204,6 @@ final class ContextPool {
       }
     }
 
-    used.clear();
-    used = null;
-
     if (exception) {
       throw new CAException("Unable to destroy context pool: Unable to destroy all contexts");
     }
@@ -136,29 +215,49 @@ final class ContextPool {
    * @return an EPICS channel access context.
    * @throws CAException if unable to obtain a context.
    */
-  public synchronized CAJContext getContext() throws CAException {
+  public CAJContext getContext() throws CAException {
     logger.log(Level.FINEST, "ContextPool.getContext");
 
-    if (available.isEmpty()) {
-      logger.log(Level.FINEST, "Waiting for context");
-      try {
-        this.wait(WAIT_TIMEOUT);
-      } catch (InterruptedException ex) {
-        throw new CAException("Unable to get a context from context pool: thread interrupted");
-      }
+    if (destroyed) {
+      throw new CAException("Unable to get a context from context pool: pool destroyed");
+    }
+
+    long start = System.nanoTime();
+    boolean acquired;
+
+    try {
+      acquired = permits.tryAcquire(WAIT_TIMEOUT, TimeUnit.MILLISECONDS);
+    } catch (InterruptedException ex) {
+      Thread.currentThread().interrupt();
+      throw new CAException("Unable to get a context from context pool: thread interrupted");
+    } finally {
+      metrics.recordPoolWait(System.nanoTime() - start);
     }
 
-    if (available.isEmpty()) {
+    if (!acquired) {
+      metrics.recordPoolTimeout();
       throw new CAException("Unable to get a context from context pool: timeout reached");
     }
 
-    CAJContext context = available.remove(0);
+    CAJContext context = available.pollFirst();
+
+    if (context == null) { // Destroyed while waiting
+      permits.release();
+      throw new CAException("Unable to get a context from context pool: pool destroyed");
+    }
 
     if (!isViable(context)) {
-      context = replaceContext();
+      try {
+        context = replaceContext(context);
+      } catch (CAException e) {
+        available.addLast(context); // Leave the slot for the health check to retry
+        permits.release();
+        throw e;
+      }
     }
 
     used.add(context);
+    metrics.contextCheckedOut();
 
     return context;
   }
@@ -169,23 +268,30 @@ final class ContextPool {
    * @param context the context.
    * @throws CAException if unable to return the context.
    */
-  public synchronized void returnContext(CAJContext context) throws CAException {
+  public void returnContext(CAJContext context) throws CAException {
     logger.log(Level.FINEST, "ContextPool.returnContext");
-    boolean success;
-
-    success = used.remove(context);
 
-    if (!success) {
+    if (!used.remove(context)) {
       throw new CAException(
           "Unable to return a context from context pool: context does not exist in used set");
     }
 
-    if (!isViable(context)) {
-      context = replaceContext();
+    metrics.contextReturned();
+
+    if (destroyed) {
+      context.destroy();
+      return;
     }
 
-    available.add(context);
+    if (!isViable(context)) {
+      try {
+        context = replaceContext(context);
+      } catch (CAException e) {
+        logger.log(Level.WARNING, "Unable to replace returned context", e);
+      }
+    }
 
-    this.notify();
+    available.addLast(context);
+    permits.release();
   }
 }
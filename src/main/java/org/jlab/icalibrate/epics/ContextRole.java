@@ -0,0 +1,18 @@
+package org.jlab.icalibrate.epics;
+
+/**
+ * The subsystem a ChannelManager serves. Each ChannelManager checks out its own Channel Access
+ * context from the context pool for its lifetime, so giving each subsystem its own ChannelManager
+ * means a slow export or a burst of display monitors never queues behind, or in front of, the
+ * calibration ramp on a shared context.
+ *
+ * @author ryans
+ */
+public enum ContextRole {
+  /** Calibration runs and the new dataset wizard lookups. */
+  ACQUISITION,
+  /** Display monitors, such as the existing setpoints of the setpoint table. */
+  MONITORING,
+  /** Writing setpoints to EPICS. */
+  EXPORT
+}
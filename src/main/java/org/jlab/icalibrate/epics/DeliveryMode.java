@@ -0,0 +1,21 @@
+package org.jlab.icalibrate.epics;
+
+/**
+ * How monitor notifications are delivered to a PvListener. Notifications are queued per listener
+ * and delivered on a dispatch thread, never on the Channel Access callback thread, so a slow
+ * listener only delays itself.
+ *
+ * @author ryans
+ */
+public enum DeliveryMode {
+  /**
+   * Latest value wins: if a listener falls behind, pending updates of a PV are coalesced such that
+   * only the newest is delivered. Suits displays.
+   */
+  LATEST,
+  /**
+   * Every update is delivered in order, up to the capacity of the listener queue; updates arriving
+   * while the queue is full are dropped and counted. Suits sampling and recording.
+   */
+  LOSSLESS
+}
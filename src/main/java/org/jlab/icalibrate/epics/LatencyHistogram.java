@@ -0,0 +1,98 @@
+package org.jlab.icalibrate.epics;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A lock-free latency histogram with power of two microsecond buckets. Recording is cheap enough to
+ * be done on every CA request and from CA callback threads.
+ *
+ * <p>Bucket zero holds latencies under one microsecond and bucket i holds latencies from 2^(i-1) up
+ * to 2^i microseconds. The last bucket also holds anything longer (over half an hour).
+ *
+ * @author ryans
+ */
+public final class LatencyHistogram {
+
+  private static final int BUCKETS = 32;
+
+  private final AtomicLongArray buckets = new AtomicLongArray(BUCKETS);
+  private final LongAdder totalNanos = new LongAdder();
+  private final AtomicLong maxNanos = new AtomicLong();
+
+  /**
+   * Record a latency.
+   *
+   * @param nanos The latency in nanoseconds
+   */
+  public void record(long nanos) {
+    if (nanos < 0) {
+      nanos = 0;
+    }
+
+    long micros = nanos / 1000;
+    int index = Math.min(BUCKETS - 1, 64 - Long.numberOfLeadingZeros(micros));
+
+    buckets.incrementAndGet(index);
+    totalNanos.add(nanos);
+    maxNanos.accumulateAndGet(nanos, Math::max);
+  }
+
+  /**
+   * Return a summary of the recorded latencies. Recording may continue concurrently, in which case
+   * the summary may be off by the latencies recorded meanwhile.
+   *
+   * @return The snapshot
+   */
+  public LatencySnapshot snapshot() {
+    long[] counts = new long[BUCKETS];
+    long n = 0;
+
+    for (int i = 0; i < BUCKETS; i++) {
+      counts[i] = buckets.get(i);
+      n = n + counts[i];
+    }
+
+    double max = maxNanos.get() / 1e6;
+    double mean = n == 0 ? 0 : totalNanos.sum() / 1e6 / n;
+
+    return new LatencySnapshot(
+        n,
+        mean,
+        percentile(counts, n, 0.50, max),
+        percentile(counts, n, 0.90, max),
+        percentile(counts, n, 0.99, max),
+        max);
+  }
+
+  private static double percentile(long[] counts, long n, double fraction, double max) {
+    if (n == 0) {
+      return 0;
+    }
+
+    long rank = (long) Math.ceil(fraction * n);
+    long cumulative = 0;
+
+    for (int i = 0; i < counts.length; i++) {
+      cumulative = cumulative + counts[i];
+
+      if (cumulative >= rank) {
+        double upperMillis = (1L << i) / 1000.0;
+        return Math.min(upperMillis, max);
+      }
+    }
+
+    return max;
+  }
+
+  /** Discard all recorded latencies. */
+  public void reset() {
+    for (int i = 0; i < BUCKETS; i++) {
+      buckets.set(i, 0);
+    }
+
+    totalNanos.reset();
+    maxNanos.set(0);
+  }
+}
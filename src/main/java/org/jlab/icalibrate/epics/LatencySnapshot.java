@@ -0,0 +1,113 @@
+package org.jlab.icalibrate.epics;
+
+import java.beans.ConstructorProperties;
+
+/**
+ * An immutable summary of a LatencyHistogram. Percentiles are the upper bound of the histogram
+ * bucket the percentile falls in, so they overstate the true value by at most a factor of two.
+ *
+ * @author ryans
+ */
+public final class LatencySnapshot {
+
+  private final long count;
+  private final double meanMillis;
+  private final double p50Millis;
+  private final double p90Millis;
+  private final double p99Millis;
+  private final double maxMillis;
+
+  /**
+   * Create a new LatencySnapshot.
+   *
+   * @param count The number of recorded latencies
+   * @param meanMillis The mean latency in milliseconds
+   * @param p50Millis The median latency in milliseconds
+   * @param p90Millis The 90th percentile latency in milliseconds
+   * @param p99Millis The 99th percentile latency in milliseconds
+   * @param maxMillis The max latency in milliseconds
+   */
+  @ConstructorProperties({
+    "count",
+    "meanMillis",
+    "p50Millis",
+    "p90Millis",
+    "p99Millis",
+    "maxMillis"
+  })
+  public LatencySnapshot(
+      long count,
+      double meanMillis,
+      double p50Millis,
+      double p90Millis,
+      double p99Millis,
+      double maxMillis) {
+    this.count = count;
+    this.meanMillis = meanMillis;
+    this.p50Millis = p50Millis;
+    this.p90Millis = p90Millis;
+    this.p99Millis = p99Millis;
+    this.maxMillis = maxMillis;
+  }
+
+  /**
+   * Return the number of recorded latencies.
+   *
+   * @return The count
+   */
+  public long getCount() {
+    return count;
+  }
+
+  /**
+   * Return the mean latency.
+   *
+   * @return The mean in milliseconds
+   */
+  public double getMeanMillis() {
+    return meanMillis;
+  }
+
+  /**
+   * Return the median latency.
+   *
+   * @return The median in milliseconds
+   */
+  public double getP50Millis() {
+    return p50Millis;
+  }
+
+  /**
+   * Return the 90th percentile latency.
+   *
+   * @return The 90th percentile in milliseconds
+   */
+  public double getP90Millis() {
+    return p90Millis;
+  }
+
+  /**
+   * Return the 99th percentile latency.
+   *
+   * @return The 99th percentile in milliseconds
+   */
+  public double getP99Millis() {
+    return p99Millis;
+  }
+
+  /**
+   * Return the max latency.
+   *
+   * @return The max in milliseconds
+   */
+  public double getMaxMillis() {
+    return maxMillis;
+  }
+
+  @Override
+  public String toString() {
+    return String.format(
+        "n=%d mean=%.2f p50=%.2f p90=%.2f p99=%.2f max=%.2f ms",
+        count, meanMillis, p50Millis, p90Millis, p99Millis, maxMillis);
+  }
+}
@@ -0,0 +1,258 @@
+package org.jlab.icalibrate.epics;
+
+import gov.aps.jca.dbr.DBR;
+import gov.aps.jca.dbr.DBRType;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Delivers the monitor notifications of one PvListener through a queue drained on an executor, so
+ * that Channel Access callback threads only ever enqueue and never wait on a listener. At most one
+ * executor thread drains a given dispatcher at a time, so a listener receives notifications in
+ * order and is never called concurrently.
+ *
+ * <p>In LOSSLESS mode every update is queued, up to the queue capacity. In LATEST mode only the
+ * newest pending value of each PV is kept, which bounds the queue by the number of PVs. Info and
+ * connection notifications share the queue so they stay in order with the updates, but are never
+ * coalesced and never count against the capacity, so they are never dropped; there are only a few
+ * per channel.
+ *
+ * @author ryans
+ */
+final class ListenerDispatcher {
+
+  private static final Logger LOGGER = Logger.getLogger(ListenerDispatcher.class.getName());
+
+  /** The max number of notifications delivered per turn before yielding the executor thread. */
+  private static final int MAX_BATCH = 256;
+
+  private final PvListener listener;
+  private final DeliveryMode mode;
+  private final Executor executor;
+  private final ChannelAccessMetrics metrics = ChannelAccessMetrics.getInstance();
+
+  private final int capacity;
+  private final Queue<Notification> queue = new ConcurrentLinkedQueue<>();
+  private final AtomicInteger queuedUpdates = new AtomicInteger(0); // LOSSLESS only
+  private final Map<String, Notification> latestMap = new ConcurrentHashMap<>();
+  private final AtomicBoolean scheduled = new AtomicBoolean(false);
+  private final AtomicBoolean overflowLogged = new AtomicBoolean(false);
+
+  private volatile boolean closed = false;
+
+  /**
+   * Create a new ListenerDispatcher.
+   *
+   * @param listener The listener
+   * @param executor The executor which runs deliveries
+   * @param capacity The max number of queued updates in LOSSLESS mode
+   */
+  ListenerDispatcher(PvListener listener, Executor executor, int capacity) {
+    this.listener = listener;
+    this.executor = executor;
+    this.capacity = capacity;
+
+    DeliveryMode m = listener.getDeliveryMode();
+    this.mode = m == null ? DeliveryMode.LOSSLESS : m;
+  }
+
+  /**
+   * Return the listener.
+   *
+   * @return The listener
+   */
+  PvListener getListener() {
+    return listener;
+  }
+
+  /**
+   * Queue an info notification.
+   *
+   * @param pv The PV
+   * @param couldConnect true if the channel connected
+   * @param type The EPICS datatype
+   * @param count The EPICS item count
+   * @param enumLabels The enum labels, or null
+   */
+  void info(String pv, boolean couldConnect, DBRType type, Integer count, String[] enumLabels) {
+    Notification notification = new Notification(pv, Kind.INFO);
+    notification.couldConnect = couldConnect;
+    notification.type = type;
+    notification.count = count;
+    notification.enumLabels = enumLabels;
+
+    offer(notification);
+  }
+
+  /**
+   * Queue a connection state notification.
+   *
+   * @param pv The PV
+   * @param state The connection state
+   * @param sinceMillis The time of the change in milliseconds since the epoch
+   */
+  void connection(String pv, PvConnectionState state, long sinceMillis) {
+    Notification notification = new Notification(pv, Kind.CONNECTION);
+    notification.state = state;
+    notification.sinceMillis = sinceMillis;
+
+    offer(notification);
+  }
+
+  /**
+   * Queue an update notification.
+   *
+   * @param pv The PV
+   * @param dbr The value
+   */
+  void update(String pv, DBR dbr) {
+    Notification notification = new Notification(pv, Kind.UPDATE);
+    notification.dbr = dbr;
+
+    if (mode == DeliveryMode.LATEST) {
+      // Only the first pending update of a PV takes a place in the queue; later ones replace it
+      if (latestMap.put(pv, notification) != null) {
+        metrics.recordDispatchCoalesced();
+        return;
+      }
+    } else if (queuedUpdates.incrementAndGet() > capacity) {
+      queuedUpdates.decrementAndGet();
+      drop(notification);
+      return;
+    }
+
+    offer(notification);
+  }
+
+  /** Stop delivering; pending notifications are discarded. */
+  void close() {
+    closed = true;
+    queue.clear();
+    latestMap.clear();
+  }
+
+  private void offer(Notification notification) {
+    if (closed) {
+      return;
+    }
+
+    queue.offer(notification);
+
+    schedule();
+  }
+
+  private void drop(Notification notification) {
+    metrics.recordDispatchDrop(notification.pv);
+
+    if (overflowLogged.compareAndSet(false, true)) {
+      LOGGER.log(
+          Level.WARNING,
+          "Listener queue full, dropping updates: {0} (logged once per listener)",
+          listener);
+    }
+  }
+
+  private void schedule() {
+    if (scheduled.compareAndSet(false, true)) {
+      try {
+        executor.execute(this::drain);
+      } catch (RejectedExecutionException e) {
+        scheduled.set(false); // Shutting down
+      }
+    }
+  }
+
+  private void drain() {
+    try {
+      for (int i = 0; i < MAX_BATCH && !closed; i++) {
+        Notification notification = queue.poll();
+
+        if (notification == null) {
+          break;
+        }
+
+        if (notification.kind == Kind.UPDATE && mode == DeliveryMode.LOSSLESS) {
+          queuedUpdates.decrementAndGet();
+        }
+
+        try {
+          deliver(notification);
+        } catch (RuntimeException e) {
+          LOGGER.log(Level.WARNING, "PvListener failed on notification of: " + notification.pv, e);
+        }
+      }
+    } finally {
+      scheduled.set(false);
+    }
+
+    // An offer may have found the drain still scheduled just before it finished
+    if (!queue.isEmpty() && !closed) {
+      schedule();
+    }
+  }
+
+  private void deliver(Notification notification) {
+    if (notification.kind == Kind.INFO) {
+      metrics.recordDispatchLag(System.nanoTime() - notification.enqueueNanos);
+
+      listener.notifyPvInfo(
+          notification.pv,
+          notification.couldConnect,
+          notification.type,
+          notification.count,
+          notification.enumLabels);
+    } else if (notification.kind == Kind.CONNECTION) {
+      metrics.recordDispatchLag(System.nanoTime() - notification.enqueueNanos);
+
+      listener.notifyPvConnection(notification.pv, notification.state, notification.sinceMillis);
+    } else {
+      if (mode == DeliveryMode.LATEST) {
+        notification = latestMap.remove(notification.pv);
+
+        if (notification == null) { // Closed meanwhile
+          return;
+        }
+      }
+
+      // Lag of the delivered value; a coalesced value is younger than its queue slot
+      metrics.recordDispatchLag(System.nanoTime() - notification.enqueueNanos);
+
+      listener.notifyPvUpdate(notification.pv, notification.dbr);
+    }
+  }
+
+  /** The kind of a notification. */
+  private enum Kind {
+    INFO,
+    UPDATE,
+    CONNECTION
+  }
+
+  /** A queued notification; only the fields of its kind are set. */
+  private static final class Notification {
+
+    private final String pv;
+    private final Kind kind;
+    private final long enqueueNanos = System.nanoTime();
+    private boolean couldConnect;
+    private DBRType type;
+    private Integer count;
+    private String[] enumLabels;
+    private DBR dbr;
+    private PvConnectionState state;
+    private long sinceMillis;
+
+    private Notification(String pv, Kind kind) {
+      this.pv = pv;
+      this.kind = kind;
+    }
+  }
+}
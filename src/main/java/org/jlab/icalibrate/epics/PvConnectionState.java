@@ -0,0 +1,18 @@
+package org.jlab.icalibrate.epics;
+
+/**
+ * The connection state of the channel of a monitored PV.
+ *
+ * @author ryans
+ */
+public enum PvConnectionState {
+  /** The channel has not connected since the monitor was created. */
+  NEVER_CONNECTED,
+  /** The channel is connected and monitor updates are current. */
+  CONNECTED,
+  /**
+   * The channel was connected but has since disconnected, for example due to an IOC reboot. The
+   * latest value is frozen and stale until the channel reconnects.
+   */
+  DISCONNECTED
+}
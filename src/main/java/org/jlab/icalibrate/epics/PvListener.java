@@ -29,4 +29,28 @@ public interface PvListener {
    * @param dbr The EPICS DataBaseRecord
    */
   void notifyPvUpdate(String pv, DBR dbr);
+
+  /**
+   * Notification of a change in the connection state of a PV: a disconnect, a reconnect, or a
+   * channel which never connected within the connection timeout. A listener which joins a monitor
+   * which has already connected or timed out is notified of the current state. The last value
+   * received before a disconnect is stale until CONNECTED is notified again. The default
+   * implementation ignores the notification.
+   *
+   * @param pv The PV
+   * @param state The new connection state
+   * @param sinceMillis The time of the change in milliseconds since the epoch
+   */
+  default void notifyPvConnection(String pv, PvConnectionState state, long sinceMillis) {
+    // Most listeners only care about values
+  }
+
+  /**
+   * Return how notifications are delivered to this listener. The default is lossless delivery.
+   *
+   * @return The delivery mode
+   */
+  default DeliveryMode getDeliveryMode() {
+    return DeliveryMode.LOSSLESS;
+  }
 }
@@ -0,0 +1,28 @@
+package org.jlab.icalibrate.exception;
+
+/**
+ * An exception that arises during data gathering when a sampled PV disconnects, leaving its
+ * values frozen.
+ *
+ * @author ryans
+ */
+public class StaleDataException extends AppException {
+  /**
+   * Create an exception with only a message.
+   *
+   * @param message The message.
+   */
+  public StaleDataException(String message) {
+    super(message);
+  }
+
+  /**
+   * Create an exception with a message and a cause.
+   *
+   * @param message The message
+   * @param cause The cause
+   */
+  public StaleDataException(String message, Throwable cause) {
+    super(message, cause);
+  }
+}
@@ -0,0 +1,188 @@
+package org.jlab.icalibrate.file.io;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import javax.json.Json;
+import javax.json.JsonArray;
+import javax.json.JsonException;
+import javax.json.JsonNumber;
+import javax.json.JsonObject;
+import javax.json.JsonReader;
+import org.jlab.icalibrate.exception.MissingDataException;
+import org.jlab.icalibrate.model.CalibrationCheckpoint;
+import org.jlab.icalibrate.model.CreateNewDatasetParameters;
+import org.jlab.icalibrate.model.DoseRateMeasurement;
+import org.jlab.icalibrate.model.Hall;
+import org.jlab.icalibrate.model.IonChamber;
+import org.jlab.icalibrate.model.Laser;
+
+/**
+ * Responsible for reading calibration run journal files written by CalibrationJournalWriter.
+ *
+ * <p>A run which crashed may have left a partially written final record; such a record is ignored
+ * and the step is simply measured again on resume.
+ *
+ * @author ryans
+ */
+public class CalibrationJournalReader {
+
+  private static final Logger LOGGER = Logger.getLogger(CalibrationJournalReader.class.getName());
+
+  /** Create a new CalibrationJournalReader. */
+  public CalibrationJournalReader() {}
+
+  /**
+   * Reads the specified journal and returns the checkpoint of the run.
+   *
+   * @param file The journal file
+   * @return The checkpoint
+   * @throws IOException If an IO problem occurs while reading or parsing
+   * @throws MissingDataException If expected data is not found
+   */
+  public CalibrationCheckpoint read(File file) throws IOException, MissingDataException {
+    List<String> lineList = new ArrayList<>();
+
+    for (String line : Files.readAllLines(file.toPath(), StandardCharsets.UTF_8)) {
+      if (!line.trim().isEmpty()) {
+        lineList.add(line);
+      }
+    }
+
+    List<JsonObject> recordList = new ArrayList<>();
+
+    for (int i = 0; i < lineList.size(); i++) {
+      try (JsonReader reader = Json.createReader(new StringReader(lineList.get(i)))) {
+        recordList.add(reader.readObject());
+      } catch (JsonException e) {
+        if (i == lineList.size() - 1) {
+          LOGGER.log(Level.WARNING, "Ignoring incomplete last record of journal " + file, e);
+        } else {
+          throw new IOException("Journal record " + (i + 1) + " is malformed", e);
+        }
+      }
+    }
+
+    if (recordList.isEmpty() || !"start".equals(recordList.get(0).getString("type", null))) {
+      throw new MissingDataException("Journal is missing start record");
+    }
+
+    JsonObject start = recordList.get(0);
+
+    if (start.getInt("version", 0) != CalibrationJournalWriter.VERSION) {
+      throw new IOException("Unsupported journal version: " + start.getInt("version", 0));
+    }
+
+    Hall hall = Hall.valueOf(start.getString("hall"));
+
+    List<IonChamber> icList = new ArrayList<>();
+    JsonArray icArray = start.getJsonArray("ionChambers");
+
+    for (int i = 0; i < icArray.size(); i++) {
+      JsonObject icObject = icArray.getJsonObject(i);
+
+      String epicsName = icObject.getString("epicsName");
+      String friendlyName = icObject.getString("friendlyName", null);
+      String cedName = icObject.getString("cedName", null);
+
+      icList.add(IonChamber.newInstance(hall, epicsName, friendlyName, cedName));
+    }
+
+    CreateNewDatasetParameters params = new CreateNewDatasetParameters(null);
+    params.setHall(hall);
+    params.setLaser(Laser.valueOf(start.getString("laser")));
+    params.setTarget(start.getString("target", null));
+    params.setPass(start.getString("pass", null));
+    params.setNote(start.getString("note", null));
+    params.setMinAttenuator(start.getInt("minAttenuator"));
+    params.setMaxAttenuator(start.getInt("maxAttenuator"));
+    params.setNumberOfSteps(start.getInt("numberOfSteps"));
+    params.setSettleSeconds(start.getInt("settleSeconds"));
+    params.setSamplesPerStep(start.getInt("samplesPerStep"));
+    params.setIonChamberList(icList);
+
+    double originalAttenuator = getDouble(start, "originalAttenuator");
+    Date startedDate = new Date(start.getJsonNumber("time").longValue());
+
+    Map<Integer, JsonObject> stepMap = new TreeMap<>();
+    boolean complete = false;
+
+    for (int i = 1; i < recordList.size(); i++) {
+      JsonObject record = recordList.get(i);
+      String type = record.getString("type", null);
+
+      if ("step".equals(type)) {
+        stepMap.put(record.getInt("step"), record);
+      } else if ("end".equals(type)) {
+        complete = true;
+      }
+    }
+
+    List<List<DoseRateMeasurement>> measurementMatrix = new ArrayList<>();
+
+    for (int i = 0; i < icList.size(); i++) {
+      measurementMatrix.add(new ArrayList<>());
+    }
+
+    // Only a contiguous run of steps from the first is usable as the dataset is ordered by step
+    int nextStep = 0;
+
+    while (stepMap.containsKey(nextStep)) {
+      JsonObject record = stepMap.get(nextStep);
+      double stepCurrent = getDouble(record, "current"); // Journals predating per chamber current
+
+      Map<String, JsonObject> chamberMap = new TreeMap<>();
+      JsonArray chamberArray = record.getJsonArray("chambers");
+
+      for (int i = 0; i < chamberArray.size(); i++) {
+        JsonObject chamber = chamberArray.getJsonObject(i);
+        chamberMap.put(chamber.getString("epicsName"), chamber);
+      }
+
+      for (int i = 0; i < icList.size(); i++) {
+        JsonObject chamber = chamberMap.get(icList.get(i).getEpicsName());
+
+        if (chamber == null) {
+          throw new MissingDataException(
+              "Journal step " + nextStep + " is missing " + icList.get(i).getEpicsName());
+        }
+
+        measurementMatrix
+            .get(i)
+            .add(
+                new DoseRateMeasurement(
+                    chamber.containsKey("current") ? getDouble(chamber, "current") : stepCurrent,
+                    getDouble(chamber, "doseRate"),
+                    chamber.getInt("n", 1),
+                    getDouble(chamber, "stdDev")));
+      }
+
+      nextStep++;
+    }
+
+    return new CalibrationCheckpoint(
+        file,
+        startedDate,
+        params,
+        originalAttenuator,
+        measurementMatrix,
+        nextStep,
+        complete);
+  }
+
+  /** Values which were NaN are omitted by the writer so are read back as NaN. */
+  private static double getDouble(JsonObject object, String name) {
+    JsonNumber number = object.getJsonNumber(name);
+
+    return number == null ? Double.NaN : number.doubleValue();
+  }
+}
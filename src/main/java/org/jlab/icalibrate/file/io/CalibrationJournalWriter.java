@@ -0,0 +1,271 @@
+package org.jlab.icalibrate.file.io;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import javax.json.Json;
+import javax.json.JsonArrayBuilder;
+import javax.json.JsonObjectBuilder;
+import org.jlab.icalibrate.ICalibrateApp;
+import org.jlab.icalibrate.model.CreateNewDatasetParameters;
+import org.jlab.icalibrate.model.DoseRateMeasurement;
+import org.jlab.icalibrate.model.Hall;
+import org.jlab.icalibrate.model.IonChamber;
+
+/**
+ * Responsible for writing calibration run journal files. A journal is an append-only file of JSON
+ * records, one per line: a start record with the process parameters, a step record for each
+ * completed attenuator step, and an end record once all steps are complete. Each record is forced
+ * to disk before the next is written so that a run survives a JVM crash or lost X session.
+ *
+ * <p>Records are written on a private background thread so that disk latency never delays the
+ * calibration worker. See CalibrationJournalReader.
+ *
+ * @author ryans
+ */
+public class CalibrationJournalWriter implements Closeable {
+
+  private static final Logger LOGGER = Logger.getLogger(CalibrationJournalWriter.class.getName());
+
+  /** The journal file extension. */
+  public static final String FILE_EXTENSION = "journal";
+
+  /** The journal format version. */
+  public static final int VERSION = 1;
+
+  private final File file;
+  private final FileChannel channel;
+  private final ExecutorService executor =
+      Executors.newSingleThreadExecutor(
+          r -> {
+            Thread t = new Thread(r, "CalibrationJournalWriter");
+            t.setDaemon(true);
+            return t;
+          });
+
+  /**
+   * Create a new CalibrationJournalWriter which appends to the given file, creating it if
+   * necessary.
+   *
+   * @param file The journal file
+   * @throws IOException If unable to open the file
+   */
+  public CalibrationJournalWriter(File file) throws IOException {
+    this.file = file;
+
+    File dir = file.getAbsoluteFile().getParentFile();
+
+    if (dir != null) {
+      Files.createDirectories(dir.toPath());
+    }
+
+    channel =
+        FileChannel.open(
+            file.toPath(),
+            StandardOpenOption.CREATE,
+            StandardOpenOption.WRITE,
+            StandardOpenOption.APPEND);
+  }
+
+  /**
+   * Return the directory journals are written to, which is configured with the JOURNAL_DIR
+   * property and defaults to .icalibrate/journal in the user home directory.
+   *
+   * @return The journal directory
+   */
+  public static File getJournalDir() {
+    String dir = ICalibrateApp.APP_PROPERTIES.getProperty("JOURNAL_DIR");
+
+    if (dir == null || dir.trim().isEmpty()) {
+      return new File(System.getProperty("user.home"), ".icalibrate" + File.separator + "journal");
+    }
+
+    return new File(dir.trim());
+  }
+
+  /**
+   * Create a new unique journal file name for a run in the given hall.
+   *
+   * @param hall The hall
+   * @return The journal file (not yet created)
+   */
+  public static File newJournalFile(Hall hall) {
+    SimpleDateFormat formatter = new SimpleDateFormat("yyyy-MM-dd'_'HHmmss");
+
+    String name =
+        "calibration_" + hall.name() + "_" + formatter.format(new Date()) + "." + FILE_EXTENSION;
+
+    return new File(getJournalDir(), name);
+  }
+
+  /**
+   * Return the journal file.
+   *
+   * @return The file
+   */
+  public File getFile() {
+    return file;
+  }
+
+  /**
+   * Queue the start record.
+   *
+   * @param params The process parameters
+   * @param originalAttenuator The attenuator value before the run started
+   * @param startedDate The date the run started
+   */
+  public void writeStart(
+      CreateNewDatasetParameters params, double originalAttenuator, Date startedDate) {
+    JsonArrayBuilder icArray = Json.createArrayBuilder();
+
+    for (IonChamber ic : params.getIonChamberList()) {
+      JsonObjectBuilder icObject = Json.createObjectBuilder();
+      icObject.add("epicsName", ic.getEpicsName());
+      addString(icObject, "friendlyName", ic.getFriendlyName());
+      addString(icObject, "cedName", ic.getCedName());
+      icArray.add(icObject);
+    }
+
+    JsonObjectBuilder record = Json.createObjectBuilder();
+    record.add("type", "start");
+    record.add("version", VERSION);
+    record.add("time", startedDate.getTime());
+    record.add("hall", params.getHall().name());
+    record.add("laser", params.getLaser().name());
+    addString(record, "target", params.getTarget());
+    addString(record, "pass", params.getPass());
+    addString(record, "note", params.getNote());
+    record.add("minAttenuator", params.getMinAttenuator());
+    record.add("maxAttenuator", params.getMaxAttenuator());
+    record.add("numberOfSteps", params.getNumberOfSteps());
+    record.add("settleSeconds", params.getSettleSeconds());
+    record.add("samplesPerStep", params.getSamplesPerStep());
+    record.add("originalAttenuator", originalAttenuator);
+    record.add("ionChambers", icArray);
+
+    append(record.build().toString());
+  }
+
+  /**
+   * Queue a step record.
+   *
+   * @param step The step index
+   * @param attenuator The attenuator value of the step
+   * @param settleMillis The number of milliseconds waited for the current to settle
+   * @param windowStartMillis The start of the sampling window
+   * @param windowEndMillis The end of the sampling window
+   * @param icList The ion chambers
+   * @param measurementList The measurement of each ion chamber in the same order as icList
+   */
+  public void writeStep(
+      int step,
+      int attenuator,
+      long settleMillis,
+      long windowStartMillis,
+      long windowEndMillis,
+      List<IonChamber> icList,
+      List<DoseRateMeasurement> measurementList) {
+    JsonArrayBuilder chamberArray = Json.createArrayBuilder();
+
+    for (int i = 0; i < icList.size(); i++) {
+      DoseRateMeasurement measurement = measurementList.get(i);
+
+      JsonObjectBuilder chamber = Json.createObjectBuilder();
+      chamber.add("epicsName", icList.get(i).getEpicsName());
+      addDouble(chamber, "current", measurement.getCurrent());
+      addDouble(chamber, "doseRate", measurement.getDoseRateRadsPerHour());
+      chamber.add("n", measurement.getSampleCount());
+      addDouble(chamber, "stdDev", measurement.getDoseRateStandardDeviation());
+      chamberArray.add(chamber);
+    }
+
+    JsonObjectBuilder record = Json.createObjectBuilder();
+    record.add("type", "step");
+    record.add("step", step);
+    record.add("attenuator", attenuator);
+    record.add("settleMillis", settleMillis);
+    record.add("windowStart", windowStartMillis);
+    record.add("windowEnd", windowEndMillis);
+    record.add("chambers", chamberArray);
+
+    append(record.build().toString());
+  }
+
+  /** Queue the end record which marks the run as complete. */
+  public void writeEnd() {
+    JsonObjectBuilder record = Json.createObjectBuilder();
+    record.add("type", "end");
+    record.add("time", System.currentTimeMillis());
+
+    append(record.build().toString());
+  }
+
+  /** JSON has no representation of NaN or infinity so such values are simply omitted. */
+  private static void addDouble(JsonObjectBuilder builder, String name, double value) {
+    if (!Double.isNaN(value) && !Double.isInfinite(value)) {
+      builder.add(name, value);
+    }
+  }
+
+  private static void addString(JsonObjectBuilder builder, String name, String value) {
+    if (value != null) {
+      builder.add(name, value);
+    }
+  }
+
+  private void append(String line) {
+    ByteBuffer buffer = ByteBuffer.wrap((line + "\n").getBytes(StandardCharsets.UTF_8));
+
+    executor.execute(
+        () -> {
+          try {
+            while (buffer.hasRemaining()) {
+              channel.write(buffer);
+            }
+
+            channel.force(false);
+          } catch (IOException e) {
+            LOGGER.log(Level.SEVERE, "Unable to write calibration journal " + file.getPath(), e);
+          }
+        });
+  }
+
+  /**
+   * Write any queued records and close the journal. The file is closed by the background thread
+   * after the last record so queued records are not lost even if the caller is interrupted.
+   */
+  @Override
+  public void close() {
+    executor.execute(
+        () -> {
+          try {
+            channel.close();
+          } catch (IOException e) {
+            LOGGER.log(Level.WARNING, "Unable to close calibration journal " + file.getPath(), e);
+          }
+        });
+
+    executor.shutdown();
+
+    try {
+      if (!executor.awaitTermination(10, TimeUnit.SECONDS)) {
+        LOGGER.log(Level.WARNING, "Timeout waiting for calibration journal writes");
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt(); // Let caller notice interrupt
+    }
+  }
+}
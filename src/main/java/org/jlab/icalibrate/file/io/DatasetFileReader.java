@@ -11,6 +11,7 @@ import java.util.List;
 import java.util.Scanner;
 import java.util.logging.Logger;
 import org.jlab.icalibrate.exception.MissingDataException;
+import org.jlab.icalibrate.jfr.DatasetFileEvent;
 import org.jlab.icalibrate.model.DoseRateMeasurement;
 import org.jlab.icalibrate.model.Hall;
 import org.jlab.icalibrate.model.HallCalibrationDataset;
@@ -41,7 +42,20 @@ public class DatasetFileReader {
    */
   public HallCalibrationDataset read(File file)
       throws FileNotFoundException, IOException, ParseException, MissingDataException {
+    DatasetFileEvent event = DatasetFileEvent.begin("Read", file.getPath());
+    boolean success = false;
+
+    try {
+      HallCalibrationDataset dataset = parse(file);
+      success = true;
+      return dataset;
+    } finally {
+      event.finish(success);
+    }
+  }
 
+  private HallCalibrationDataset parse(File file)
+      throws IOException, ParseException, MissingDataException {
     Header header;
     List<IonChamberDataset> datasetList = new ArrayList<>();
 
@@ -228,7 +242,16 @@ public class DatasetFileReader {
       } else {
         current = Double.parseDouble(tokens[0]);
         doseRateRadsPerHour = Double.parseDouble(tokens[1]);
-        measurementList.add(new DoseRateMeasurement(current, doseRateRadsPerHour));
+
+        if (tokens.length >= 4) { // Optional sample count and standard deviation
+          int sampleCount = Integer.parseInt(tokens[2]);
+          double standardDeviation = Double.parseDouble(tokens[3]);
+          measurementList.add(
+              new DoseRateMeasurement(
+                  current, doseRateRadsPerHour, sampleCount, standardDeviation));
+        } else {
+          measurementList.add(new DoseRateMeasurement(current, doseRateRadsPerHour));
+        }
       }
     } while (scanner.hasNextLine());
 
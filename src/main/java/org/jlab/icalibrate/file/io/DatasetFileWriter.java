@@ -10,6 +10,7 @@ import java.text.SimpleDateFormat;
 import java.util.*;
 import java.util.logging.Level;
 import java.util.logging.Logger;
+import org.jlab.icalibrate.jfr.DatasetFileEvent;
 import org.jlab.icalibrate.model.DoseRateMeasurement;
 import org.jlab.icalibrate.model.Hall;
 import org.jlab.icalibrate.model.HallCalibrationDataset;
@@ -37,6 +38,19 @@ public class DatasetFileWriter {
    */
   public void write(File file, HallCalibrationDataset dataset)
       throws FileNotFoundException, UnsupportedEncodingException {
+    DatasetFileEvent event = DatasetFileEvent.begin("Write", file.getPath());
+    boolean success = false;
+
+    try {
+      writeFile(file, dataset);
+      success = true;
+    } finally {
+      event.finish(success);
+    }
+  }
+
+  private void writeFile(File file, HallCalibrationDataset dataset)
+      throws FileNotFoundException, UnsupportedEncodingException {
     try (PrintWriter writer = new PrintWriter(file, "UTF-8")) {
       writeHeader(
           writer,
@@ -65,6 +79,46 @@ public class DatasetFileWriter {
     }
   }
 
+  /**
+   * Create the default file name of a new dataset from its hall, calibrated date, target, and
+   * pass.
+   *
+   * @param dataset The dataset
+   * @return The file name
+   */
+  public static String createFilename(HallCalibrationDataset dataset) {
+    SimpleDateFormat formatter = new SimpleDateFormat("yyyy-MM-dd'_'HHmm");
+
+    String target = dataset.getTarget();
+
+    if (target == null) {
+      target = "Unknown";
+    }
+
+    target =
+        target.replaceAll(
+            "[^a-zA-Z0-9\\.\\-]",
+            "_"); // Replace anything other than alpha numeric characters plus period and underscore
+    // (whitespace, slashes, etc) with underscore
+
+    String pass = dataset.getPass();
+
+    if (pass == null) {
+      pass = "Unknown";
+    }
+
+    pass = pass.replaceAll("\\s+", "_"); // Replace whitespace with underscore
+
+    return dataset.getHall().name()
+        + "-"
+        + formatter.format(dataset.getCalibratedDate())
+        + "_"
+        + target
+        + "_Pass-"
+        + pass
+        + ".hcd";
+  }
+
   private void writeHeader(
       PrintWriter writer,
       Hall hall,
@@ -89,6 +143,7 @@ public class DatasetFileWriter {
   private void writeBodyIndependentICs(PrintWriter writer, List<IonChamberDataset> sampleList) {
     DecimalFormat currentFormatter = new DecimalFormat("0.00");
     DecimalFormat doseRateFormatter = new DecimalFormat("0");
+    DecimalFormat stdDevFormatter = new DecimalFormat("0.0");
 
     if (sampleList != null) {
       for (IonChamberDataset sample : sampleList) {
@@ -103,7 +158,18 @@ public class DatasetFileWriter {
 
             writer.print(currentFormatter.format(measurement.getCurrent()));
             writer.print(" ");
-            writer.println(doseRateFormatter.format(measurement.getDoseRateRadsPerHour()));
+            writer.print(doseRateFormatter.format(measurement.getDoseRateRadsPerHour()));
+
+            // Optional columns; readers which predate them only consume the first two
+            if (measurement.getSampleCount() > 1
+                && !Double.isNaN(measurement.getDoseRateStandardDeviation())) {
+              writer.print(" ");
+              writer.print(measurement.getSampleCount());
+              writer.print(" ");
+              writer.print(stdDevFormatter.format(measurement.getDoseRateStandardDeviation()));
+            }
+
+            writer.println();
           }
         }
       }
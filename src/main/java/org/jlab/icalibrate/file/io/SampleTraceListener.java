@@ -0,0 +1,20 @@
+package org.jlab.icalibrate.file.io;
+
+/**
+ * Receives the records of a sample trace as they are replayed by SampleTraceReader.
+ *
+ * @author ryans
+ */
+@FunctionalInterface
+public interface SampleTraceListener {
+
+  /**
+   * Handle a recorded sample.
+   *
+   * @param pv The PV
+   * @param receivedMillis The time the sample was received
+   * @param sourceMillis The IOC timestamp of the sample
+   * @param value The value
+   */
+  void notifySample(String pv, long receivedMillis, long sourceMillis, double value);
+}
@@ -0,0 +1,139 @@
+package org.jlab.icalibrate.file.io;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Responsible for reading sample trace files written by SampleTraceWriter.
+ *
+ * <p>Records are replayed oldest first. Records whose checksum doesn't match, such as one torn by a
+ * crash while it was being overwritten, are skipped.
+ *
+ * @author ryans
+ */
+public class SampleTraceReader {
+
+  private final List<String> pvList;
+  private final int capacity;
+  private final long count;
+  private final int dataOffset;
+  private final MappedByteBuffer buffer;
+
+  /**
+   * Create a new SampleTraceReader of the given file.
+   *
+   * @param file The trace file
+   * @throws IOException If unable to read the file or it is not a trace
+   */
+  public SampleTraceReader(File file) throws IOException {
+    try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+      if (channel.size() < SampleTraceWriter.NAMES_OFFSET) {
+        throw new IOException("Not a sample trace: " + file);
+      }
+
+      buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+    }
+
+    if (buffer.getInt(0) != SampleTraceWriter.MAGIC) {
+      throw new IOException("Not a sample trace: " + file);
+    }
+
+    if (buffer.getInt(4) != SampleTraceWriter.VERSION) {
+      throw new IOException("Unsupported sample trace version: " + buffer.getInt(4));
+    }
+
+    capacity = buffer.getInt(SampleTraceWriter.CAPACITY_OFFSET);
+    count = buffer.getLong(SampleTraceWriter.COUNT_OFFSET);
+    dataOffset = buffer.getInt(SampleTraceWriter.DATA_OFFSET_OFFSET);
+
+    if (buffer.capacity() != (long) dataOffset + (long) capacity * SampleTraceWriter.RECORD_BYTES) {
+      throw new IOException("Sample trace is truncated: " + file);
+    }
+
+    int pvCount = buffer.getInt(SampleTraceWriter.PV_COUNT_OFFSET);
+    List<String> pvs = new ArrayList<>();
+    int position = SampleTraceWriter.NAMES_OFFSET;
+
+    for (int i = 0; i < pvCount; i++) {
+      byte[] name = new byte[Short.toUnsignedInt(buffer.getShort(position))];
+      position = position + 2;
+
+      for (int j = 0; j < name.length; j++) {
+        name[j] = buffer.get(position++);
+      }
+
+      pvs.add(new String(name, StandardCharsets.UTF_8));
+    }
+
+    pvList = Collections.unmodifiableList(pvs);
+  }
+
+  /**
+   * Return the traced PVs.
+   *
+   * @return The PVs
+   */
+  public List<String> getPvs() {
+    return pvList;
+  }
+
+  /**
+   * Return the number of records written, including any overwritten.
+   *
+   * @return The count
+   */
+  public long getCount() {
+    return count;
+  }
+
+  /**
+   * Return whether records have been overwritten, in which case only the latest part of the run is
+   * retained.
+   *
+   * @return true if wrapped
+   */
+  public boolean isWrapped() {
+    return count > capacity;
+  }
+
+  /**
+   * Replay the retained records, oldest first, to the given listener.
+   *
+   * @param listener The listener
+   * @return The number of records replayed
+   */
+  public int replay(SampleTraceListener listener) {
+    long first = isWrapped() ? count - capacity : 0;
+    int replayed = 0;
+
+    for (long i = first; i < count; i++) {
+      int position = dataOffset + (int) (i % capacity) * SampleTraceWriter.RECORD_BYTES;
+      int index = buffer.getInt(position);
+      long receivedMillis = buffer.getLong(position + 4);
+      long sourceMillis = buffer.getLong(position + 12);
+      long valueBits = buffer.getLong(position + 20);
+      int checksum = buffer.getInt(position + 28);
+
+      if (index < 0
+          || index >= pvList.size()
+          || checksum
+              != SampleTraceWriter.checksum(i, index, receivedMillis, sourceMillis, valueBits)) {
+        continue; // Torn
+      }
+
+      listener.notifySample(
+          pvList.get(index), receivedMillis, sourceMillis, Double.longBitsToDouble(valueBits));
+
+      replayed++;
+    }
+
+    return replayed;
+  }
+}
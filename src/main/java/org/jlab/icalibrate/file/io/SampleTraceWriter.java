@@ -0,0 +1,407 @@
+package org.jlab.icalibrate.file.io;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import org.jlab.icalibrate.ICalibrateApp;
+
+/**
+ * Responsible for writing sample trace files. A trace records every raw monitor update seen during
+ * a calibration run (PV, time received, IOC timestamp, value) so that a run can be analyzed after
+ * the fact, whereas a dataset file keeps only the average of each step. See SampleTraceReader.
+ *
+ * <p>The file is a fixed size ring: a header naming the traced PVs, followed by a fixed number of
+ * fixed size records. Once full the oldest record is overwritten. The file is memory-mapped, so
+ * recording a sample is a handful of stores into the mapping with no allocation and no system call,
+ * and records reach the disk even if the JVM crashes since the operating system owns the pages.
+ * The total number of records written is stored in the header after each record. Stores to the
+ * mapping may reach the disk in any order though, so a record being written when the JVM crashed
+ * may be torn, and may even be counted. Each record therefore ends with a checksum of its fields
+ * and its sequence number, and the reader skips any record whose checksum doesn't match.
+ *
+ * <p>The header layout (big-endian) is: int magic, int version, int capacity, int PV count, long
+ * records written, int data offset, then per PV an unsigned short byte length and the UTF-8 name.
+ * Each record is: int PV index, long time received millis, long IOC timestamp millis, double
+ * value, int checksum.
+ *
+ * @author ryans
+ */
+public class SampleTraceWriter implements Closeable {
+
+  private static final Logger LOGGER = Logger.getLogger(SampleTraceWriter.class.getName());
+
+  /** The trace file extension. */
+  public static final String FILE_EXTENSION = "trace";
+
+  /** The trace format version. */
+  public static final int VERSION = 2;
+
+  /** The default number of records retained; see getCapacity. */
+  public static final int DEFAULT_CAPACITY = 262144;
+
+  /** The default number of trace files kept; see getRetainCount. */
+  public static final int DEFAULT_RETAIN_COUNT = 10;
+
+  static final int MAGIC = 0x49435452; // ICTR
+  static final int RECORD_BYTES = 4 + 8 + 8 + 8 + 4;
+  static final int CAPACITY_OFFSET = 8;
+  static final int PV_COUNT_OFFSET = 12;
+  static final int COUNT_OFFSET = 16;
+  static final int DATA_OFFSET_OFFSET = 24;
+  static final int NAMES_OFFSET = 28;
+
+  private final File file;
+  private final FileChannel channel;
+  private final MappedByteBuffer buffer;
+  private final Map<String, Integer> indexMap = new HashMap<>();
+  private final int capacity;
+  private final int dataOffset;
+  private long count; // Guarded by this
+  private boolean closed = false; // Guarded by this
+
+  /**
+   * Create a new SampleTraceWriter which records the given PVs to the given file. If the file is a
+   * trace of the same PVs and capacity, such as the trace of an interrupted run being resumed,
+   * recording continues after its last record; otherwise the file is replaced.
+   *
+   * @param file The trace file
+   * @param pvs The PVs to trace
+   * @param capacity The number of records retained
+   * @throws IOException If unable to open or map the file
+   */
+  public SampleTraceWriter(File file, List<String> pvs, int capacity) throws IOException {
+    if (capacity < 1) {
+      throw new IllegalArgumentException("capacity must be positive");
+    }
+
+    this.file = file;
+    this.capacity = capacity;
+
+    List<byte[]> nameList = new ArrayList<>();
+    int namesBytes = 0;
+
+    for (String pv : pvs) {
+      if (!indexMap.containsKey(pv)) {
+        byte[] name = pv.getBytes(StandardCharsets.UTF_8);
+
+        if (name.length > 0xFFFF) {
+          throw new IllegalArgumentException("PV name too long: " + pv);
+        }
+
+        indexMap.put(pv, nameList.size());
+        nameList.add(name);
+        namesBytes = namesBytes + 2 + name.length;
+      }
+    }
+
+    dataOffset = NAMES_OFFSET + namesBytes;
+
+    long size = (long) dataOffset + (long) capacity * RECORD_BYTES;
+
+    if (size > Integer.MAX_VALUE) {
+      throw new IllegalArgumentException("capacity too large to map: " + capacity);
+    }
+
+    File dir = file.getAbsoluteFile().getParentFile();
+
+    if (dir != null) {
+      Files.createDirectories(dir.toPath());
+    }
+
+    channel =
+        FileChannel.open(
+            file.toPath(),
+            StandardOpenOption.CREATE,
+            StandardOpenOption.READ,
+            StandardOpenOption.WRITE);
+
+    try {
+      boolean resume = channel.size() == size;
+
+      if (!resume) {
+        channel.truncate(0);
+      }
+
+      buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+
+      if (resume && sameHeader(nameList)) {
+        count = buffer.getLong(COUNT_OFFSET);
+      } else {
+        writeHeader(nameList);
+        count = 0;
+      }
+    } catch (IOException | RuntimeException e) {
+      channel.close();
+      throw e;
+    }
+  }
+
+  /**
+   * Return the number of records retained, which is configured with the TRACE_RECORDS property.
+   * Zero means tracing is disabled.
+   *
+   * @return The capacity
+   */
+  public static int getCapacity() {
+    return getCount("TRACE_RECORDS", DEFAULT_CAPACITY);
+  }
+
+  /**
+   * Return the number of trace files kept in the journal directory, which is configured with the
+   * TRACE_FILES property. Zero means every trace is kept.
+   *
+   * @return The number of trace files kept
+   */
+  public static int getRetainCount() {
+    return getCount("TRACE_FILES", DEFAULT_RETAIN_COUNT);
+  }
+
+  private static int getCount(String name, int defaultValue) {
+    String value = ICalibrateApp.APP_PROPERTIES.getProperty(name);
+
+    if (value == null || value.trim().isEmpty()) {
+      return defaultValue;
+    }
+
+    try {
+      return Math.max(0, Integer.parseInt(value.trim()));
+    } catch (NumberFormatException e) {
+      LOGGER.log(Level.WARNING, "{0} is not an integer: {1}", new Object[] {name, value});
+      return defaultValue;
+    }
+  }
+
+  /**
+   * Delete the oldest trace files in the directory of the given trace file so that at most the
+   * given number remain, counting the given file, which is never deleted. Traces are several
+   * megabytes each whereas journals are small, so traces are not kept indefinitely.
+   *
+   * @param file The trace file about to be written
+   * @param retainCount The number of trace files to keep, or zero to keep every trace
+   */
+  public static void deleteOldTraces(File file, int retainCount) {
+    File dir = file.getAbsoluteFile().getParentFile();
+    File[] traces =
+        dir == null ? null : dir.listFiles((d, name) -> name.endsWith("." + FILE_EXTENSION));
+
+    if (retainCount == 0 || traces == null) {
+      return;
+    }
+
+    List<File> oldList = new ArrayList<>();
+
+    for (File trace : traces) {
+      if (!trace.getName().equals(file.getName())) {
+        oldList.add(trace);
+      }
+    }
+
+    oldList.sort(Comparator.comparingLong(File::lastModified).reversed()); // Newest first
+
+    for (File trace : oldList.subList(Math.min(oldList.size(), retainCount - 1), oldList.size())) {
+      if (!trace.delete()) {
+        LOGGER.log(Level.WARNING, "Unable to delete old sample trace {0}", trace.getPath());
+      }
+    }
+  }
+
+  /**
+   * Return the trace file which accompanies the given journal file: same name, trace extension.
+   *
+   * @param journalFile The journal file
+   * @return The trace file (not necessarily created)
+   */
+  public static File traceFileFor(File journalFile) {
+    String name = journalFile.getName();
+    String suffix = "." + CalibrationJournalWriter.FILE_EXTENSION;
+
+    if (name.endsWith(suffix)) {
+      name = name.substring(0, name.length() - suffix.length());
+    }
+
+    return new File(journalFile.getAbsoluteFile().getParentFile(), name + "." + FILE_EXTENSION);
+  }
+
+  /**
+   * Return the trace file.
+   *
+   * @return The file
+   */
+  public File getFile() {
+    return file;
+  }
+
+  /**
+   * Return the traced PVs in index order.
+   *
+   * @return The PVs
+   */
+  public List<String> getPvs() {
+    String[] pvs = new String[indexMap.size()];
+
+    for (Map.Entry<String, Integer> entry : indexMap.entrySet()) {
+      pvs[entry.getValue()] = entry.getKey();
+    }
+
+    return Collections.unmodifiableList(Arrays.asList(pvs));
+  }
+
+  /**
+   * Record a sample of the given PV. Samples of PVs which are not traced, and samples recorded
+   * after close, are ignored. This method does not allocate and may be called from any thread.
+   *
+   * @param pv The PV
+   * @param receivedMillis The time the sample was received
+   * @param sourceMillis The IOC timestamp of the sample
+   * @param value The value
+   */
+  public void record(String pv, long receivedMillis, long sourceMillis, double value) {
+    Integer index = indexMap.get(pv);
+
+    if (index == null) {
+      return;
+    }
+
+    synchronized (this) {
+      if (closed) {
+        return;
+      }
+
+      int position = dataOffset + (int) (count % capacity) * RECORD_BYTES;
+      long valueBits = Double.doubleToRawLongBits(value);
+
+      buffer.putInt(position, index);
+      buffer.putLong(position + 4, receivedMillis);
+      buffer.putLong(position + 12, sourceMillis);
+      buffer.putLong(position + 20, valueBits);
+      buffer.putInt(
+          position + 28, checksum(count, index, receivedMillis, sourceMillis, valueBits));
+
+      count++;
+
+      buffer.putLong(COUNT_OFFSET, count);
+    }
+  }
+
+  /**
+   * Return the checksum of a record. The sequence number is included so that a slot still holding
+   * a record from the previous lap of the ring doesn't pass for the record expected there.
+   *
+   * @param sequence The number of records written before this one
+   * @param index The PV index
+   * @param receivedMillis The time received
+   * @param sourceMillis The IOC timestamp
+   * @param valueBits The raw bits of the value
+   * @return The checksum
+   */
+  static int checksum(
+      long sequence, int index, long receivedMillis, long sourceMillis, long valueBits) {
+    long hash = sequence;
+
+    hash = mix(hash ^ index);
+    hash = mix(hash ^ receivedMillis);
+    hash = mix(hash ^ sourceMillis);
+    hash = mix(hash ^ valueBits);
+
+    return (int) (hash ^ (hash >>> 32));
+  }
+
+  /** The finalizer of the SplitMix64 generator, which spreads every input bit over the output. */
+  private static long mix(long z) {
+    z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+    z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+
+    return z ^ (z >>> 31);
+  }
+
+  /**
+   * Return the number of records written since the trace was created, including any overwritten.
+   *
+   * @return The count
+   */
+  public synchronized long getCount() {
+    return count;
+  }
+
+  /**
+   * Flush the mapping to disk and close the file. The mapping itself is released once garbage
+   * collected, as Java provides no way to unmap explicitly.
+   */
+  @Override
+  public synchronized void close() {
+    if (closed) {
+      return;
+    }
+
+    closed = true;
+
+    try {
+      buffer.force();
+      channel.close();
+    } catch (IOException | RuntimeException e) {
+      LOGGER.log(Level.WARNING, "Unable to close sample trace " + file.getPath(), e);
+    }
+  }
+
+  private boolean sameHeader(List<byte[]> nameList) {
+    if (buffer.getInt(0) != MAGIC
+        || buffer.getInt(4) != VERSION
+        || buffer.getInt(CAPACITY_OFFSET) != capacity
+        || buffer.getInt(PV_COUNT_OFFSET) != nameList.size()
+        || buffer.getInt(DATA_OFFSET_OFFSET) != dataOffset) {
+      return false;
+    }
+
+    int position = NAMES_OFFSET;
+
+    for (byte[] name : nameList) {
+      if (Short.toUnsignedInt(buffer.getShort(position)) != name.length) {
+        return false;
+      }
+
+      position = position + 2;
+
+      for (byte b : name) {
+        if (buffer.get(position++) != b) {
+          return false;
+        }
+      }
+    }
+
+    return true;
+  }
+
+  private void writeHeader(List<byte[]> nameList) {
+    buffer.putInt(0, MAGIC);
+    buffer.putInt(4, VERSION);
+    buffer.putInt(CAPACITY_OFFSET, capacity);
+    buffer.putInt(PV_COUNT_OFFSET, nameList.size());
+    buffer.putLong(COUNT_OFFSET, 0);
+    buffer.putInt(DATA_OFFSET_OFFSET, dataOffset);
+
+    int position = NAMES_OFFSET;
+
+    for (byte[] name : nameList) {
+      buffer.putShort(position, (short) name.length);
+      position = position + 2;
+
+      for (byte b : name) {
+        buffer.put(position++, b);
+      }
+    }
+  }
+}
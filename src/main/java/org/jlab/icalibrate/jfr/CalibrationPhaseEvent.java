@@ -0,0 +1,52 @@
+package org.jlab.icalibrate.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * A calibration phase: the time a run spends in one state (adjusting the attenuator, settling,
+ * taking one sample, or waiting on an FSD trip) of one step.
+ *
+ * @author ryans
+ */
+@Name("org.jlab.icalibrate.CalibrationPhase")
+@Label("Calibration Phase")
+@Description("Time spent in one state of one calibration step")
+@Category({"iCalibrate", "Calibration"})
+@StackTrace(false)
+public class CalibrationPhaseEvent extends Event {
+
+  @Label("State")
+  String state;
+
+  @Label("Step")
+  int step;
+
+  @Label("Sample")
+  @Description("The sample number when sampling, else -1")
+  int sample;
+
+  /**
+   * Begin timing a phase. The step context of the current thread is updated to match.
+   *
+   * @param state The state name
+   * @param step The step
+   * @param sample The sample, or CalibrationStepContext.NONE
+   * @return The event, which must be committed when the phase ends
+   */
+  public static CalibrationPhaseEvent begin(String state, int step, int sample) {
+    CalibrationStepContext.set(step, sample);
+
+    CalibrationPhaseEvent event = new CalibrationPhaseEvent();
+    event.state = state;
+    event.step = step;
+    event.sample = sample;
+    event.begin();
+
+    return event;
+  }
+}
@@ -0,0 +1,56 @@
+package org.jlab.icalibrate.jfr;
+
+/**
+ * Tracks the calibration step and sample the current thread is working on so that EPICS operation
+ * events can be attributed to them. The calibration engine sets the context as it progresses and
+ * clears it when the run ends.
+ *
+ * @author ryans
+ */
+public final class CalibrationStepContext {
+
+  /** The step or sample value when not within a calibration run. */
+  public static final int NONE = -1;
+
+  private static final ThreadLocal<int[]> CONTEXT =
+      ThreadLocal.withInitial(() -> new int[] {NONE, NONE});
+
+  private CalibrationStepContext() {
+    // Can't instantiate publicly
+  }
+
+  /**
+   * Set the step and sample of the current thread.
+   *
+   * @param step The step
+   * @param sample The sample, or NONE if not sampling
+   */
+  public static void set(int step, int sample) {
+    int[] context = CONTEXT.get();
+    context[0] = step;
+    context[1] = sample;
+  }
+
+  /** Clear the step and sample of the current thread. */
+  public static void clear() {
+    CONTEXT.remove();
+  }
+
+  /**
+   * Return the step of the current thread.
+   *
+   * @return The step, or NONE
+   */
+  public static int getStep() {
+    return CONTEXT.get()[0];
+  }
+
+  /**
+   * Return the sample of the current thread.
+   *
+   * @return The sample, or NONE
+   */
+  public static int getSample() {
+    return CONTEXT.get()[1];
+  }
+}
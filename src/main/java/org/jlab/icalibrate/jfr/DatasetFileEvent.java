@@ -0,0 +1,54 @@
+package org.jlab.icalibrate.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * A read or write of a hall calibration dataset (HCD) file.
+ *
+ * @author ryans
+ */
+@Name("org.jlab.icalibrate.DatasetFile")
+@Label("HCD File")
+@Description("A read or write of a hall calibration dataset file")
+@Category({"iCalibrate", "File"})
+public class DatasetFileEvent extends Event {
+
+  @Label("Operation")
+  String operation;
+
+  @Label("Path")
+  String path;
+
+  @Label("Success")
+  boolean success;
+
+  /**
+   * Begin timing a file operation.
+   *
+   * @param operation The operation, Read or Write
+   * @param path The file path
+   * @return The event, which must be finished when the operation completes
+   */
+  public static DatasetFileEvent begin(String operation, String path) {
+    DatasetFileEvent event = new DatasetFileEvent();
+    event.operation = operation;
+    event.path = path;
+    event.begin();
+
+    return event;
+  }
+
+  /**
+   * End timing the operation and commit the event.
+   *
+   * @param success true if the operation succeeded
+   */
+  public void finish(boolean success) {
+    this.success = success;
+    commit();
+  }
+}
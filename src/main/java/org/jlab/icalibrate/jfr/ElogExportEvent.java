@@ -0,0 +1,59 @@
+package org.jlab.icalibrate.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * An export of the current dataset to the electronic logbook, including rendering the chart
+ * attachments and submitting the entry.
+ *
+ * @author ryans
+ */
+@Name("org.jlab.icalibrate.ElogExport")
+@Label("Elog Export")
+@Description("An export of the dataset to the electronic logbook")
+@Category({"iCalibrate", "File"})
+public class ElogExportEvent extends Event {
+
+  @Label("Logbooks")
+  String logbooks;
+
+  @Label("Attachments")
+  int attachments;
+
+  @Label("Log Number")
+  long logNumber;
+
+  @Label("Success")
+  boolean success;
+
+  /**
+   * Begin timing an export.
+   *
+   * @param logbooks The logbook names
+   * @return The event, which must be finished when the export completes
+   */
+  public static ElogExportEvent begin(String logbooks) {
+    ElogExportEvent event = new ElogExportEvent();
+    event.logbooks = logbooks;
+    event.begin();
+
+    return event;
+  }
+
+  /**
+   * End timing the export and commit the event.
+   *
+   * @param attachments The number of attachments
+   * @param logNumber The log number, or null if not submitted
+   */
+  public void finish(int attachments, Long logNumber) {
+    this.attachments = attachments;
+    this.logNumber = logNumber == null ? 0 : logNumber;
+    this.success = logNumber != null;
+    commit();
+  }
+}
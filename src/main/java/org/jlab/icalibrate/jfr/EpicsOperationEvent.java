@@ -0,0 +1,71 @@
+package org.jlab.icalibrate.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * An EPICS CA-GET or CA-PUT, from request to completion, including any channel connect.
+ * Asynchronous requests are committed on the CA callback thread which completes them; the step
+ * and sample are those of the thread which issued the request.
+ *
+ * @author ryans
+ */
+@Name("org.jlab.icalibrate.EpicsOperation")
+@Label("EPICS Operation")
+@Description("A Channel Access get or put")
+@Category({"iCalibrate", "EPICS"})
+@StackTrace(false)
+public class EpicsOperationEvent extends Event {
+
+  @Label("Operation")
+  String operation;
+
+  @Label("PV")
+  String pv;
+
+  @Label("Success")
+  boolean success;
+
+  @Label("Step")
+  @Description("The calibration step, or -1 if not within a calibration run")
+  int step;
+
+  @Label("Sample")
+  @Description("The calibration sample, or -1 if not sampling")
+  int sample;
+
+  /**
+   * Begin timing an operation.
+   *
+   * @param operation The operation, Get or Put
+   * @param pv The PV name
+   * @return The event, which must be finished when the operation completes
+   */
+  public static EpicsOperationEvent begin(String operation, String pv) {
+    EpicsOperationEvent event = new EpicsOperationEvent();
+
+    if (event.isEnabled()) {
+      event.operation = operation;
+      event.pv = pv;
+      event.step = CalibrationStepContext.getStep();
+      event.sample = CalibrationStepContext.getSample();
+      event.begin();
+    }
+
+    return event;
+  }
+
+  /**
+   * End timing the operation and commit the event.
+   *
+   * @param success true if the operation succeeded
+   */
+  public void finish(boolean success) {
+    this.success = success;
+    commit();
+  }
+}
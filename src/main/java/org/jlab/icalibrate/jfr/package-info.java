@@ -0,0 +1,7 @@
+/**
+ * Provides JDK Flight Recorder events for calibration phases, EPICS operations, and file and elog
+ * IO. The events are cheap when no recording is running so they are always emitted; record them in
+ * production with, for example, -XX:StartFlightRecording:settings=profile,filename=icalibrate.jfr
+ * and inspect the org.jlab.icalibrate events with JDK Mission Control.
+ */
+package org.jlab.icalibrate.jfr;
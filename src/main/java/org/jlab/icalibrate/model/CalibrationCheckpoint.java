@@ -0,0 +1,186 @@
+package org.jlab.icalibrate.model;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import org.jlab.icalibrate.epics.ChannelAccess;
+
+/**
+ * Models the state of a calibration run as recovered from its journal: the original process
+ * parameters plus the measurements of every step completed so far. A checkpoint is used to resume
+ * an interrupted run from the next attenuator step.
+ *
+ * @author ryans
+ */
+public final class CalibrationCheckpoint {
+
+  private final File journalFile;
+  private final Date startedDate;
+  private final Hall hall;
+  private final Laser laser;
+  private final String target;
+  private final String pass;
+  private final String note;
+  private final int minAttenuator;
+  private final int maxAttenuator;
+  private final int numberOfSteps;
+  private final int settleSeconds;
+  private final int samplesPerStep;
+  private final double originalAttenuator;
+  private final List<IonChamber> icList;
+  private final List<List<DoseRateMeasurement>> measurementMatrix;
+  private final int nextStep;
+  private final boolean complete;
+
+  /**
+   * Create a new CalibrationCheckpoint.
+   *
+   * @param journalFile The journal file the checkpoint was read from
+   * @param startedDate The date the run started
+   * @param params The process parameters of the run (channel manager is not used)
+   * @param originalAttenuator The attenuator value before the run started
+   * @param measurementMatrix The measurements of completed steps; one list per ion chamber in the
+   *     same order as the parameter ion chamber list
+   * @param nextStep The index of the first step not yet completed
+   * @param complete true if the run completed all steps, false otherwise
+   */
+  public CalibrationCheckpoint(
+      File journalFile,
+      Date startedDate,
+      CreateNewDatasetParameters params,
+      double originalAttenuator,
+      List<List<DoseRateMeasurement>> measurementMatrix,
+      int nextStep,
+      boolean complete) {
+    this.journalFile = journalFile;
+    this.startedDate = startedDate;
+    this.hall = params.getHall();
+    this.laser = params.getLaser();
+    this.target = params.getTarget();
+    this.pass = params.getPass();
+    this.note = params.getNote();
+    this.minAttenuator = params.getMinAttenuator();
+    this.maxAttenuator = params.getMaxAttenuator();
+    this.numberOfSteps = params.getNumberOfSteps();
+    this.settleSeconds = params.getSettleSeconds();
+    this.samplesPerStep = params.getSamplesPerStep();
+    this.originalAttenuator = originalAttenuator;
+    this.icList = Collections.unmodifiableList(new ArrayList<>(params.getIonChamberList()));
+    this.measurementMatrix = measurementMatrix;
+    this.nextStep = nextStep;
+    this.complete = complete;
+  }
+
+  /**
+   * Create new process parameters equivalent to those of the interrupted run.
+   *
+   * @param channelManager The EPICS channel access
+   * @return The parameters
+   */
+  public CreateNewDatasetParameters toParameters(ChannelAccess channelManager) {
+    CreateNewDatasetParameters params = new CreateNewDatasetParameters(channelManager);
+
+    params.setHall(hall);
+    params.setLaser(laser);
+    params.setTarget(target);
+    params.setPass(pass);
+    params.setNote(note);
+    params.setMinAttenuator(minAttenuator);
+    params.setMaxAttenuator(maxAttenuator);
+    params.setNumberOfSteps(numberOfSteps);
+    params.setSettleSeconds(settleSeconds);
+    params.setSamplesPerStep(samplesPerStep);
+    params.setIonChamberList(new ArrayList<>(icList));
+
+    return params;
+  }
+
+  /**
+   * Return a mutable copy of the measurement matrix; one list per ion chamber.
+   *
+   * @return The measurements of the completed steps
+   */
+  public List<List<DoseRateMeasurement>> copyMeasurementMatrix() {
+    List<List<DoseRateMeasurement>> copy = new ArrayList<>();
+
+    for (List<DoseRateMeasurement> measurementList : measurementMatrix) {
+      copy.add(new ArrayList<>(measurementList));
+    }
+
+    return copy;
+  }
+
+  /**
+   * Return the journal file.
+   *
+   * @return The journal file
+   */
+  public File getJournalFile() {
+    return journalFile;
+  }
+
+  /**
+   * Return the date the run started.
+   *
+   * @return The started date
+   */
+  public Date getStartedDate() {
+    return startedDate;
+  }
+
+  /**
+   * Return the hall.
+   *
+   * @return The hall
+   */
+  public Hall getHall() {
+    return hall;
+  }
+
+  /**
+   * Return the number of attenuator steps (the run measures one more point than this).
+   *
+   * @return The number of steps
+   */
+  public int getNumberOfSteps() {
+    return numberOfSteps;
+  }
+
+  /**
+   * Return the attenuator value before the run started.
+   *
+   * @return The original attenuator
+   */
+  public double getOriginalAttenuator() {
+    return originalAttenuator;
+  }
+
+  /**
+   * Return the ion chambers.
+   *
+   * @return The ion chambers
+   */
+  public List<IonChamber> getIonChamberList() {
+    return icList;
+  }
+
+  /**
+   * Return the index of the first step not yet completed.
+   *
+   * @return The next step
+   */
+  public int getNextStep() {
+    return nextStep;
+  }
+
+  /**
+   * Return whether the run completed all steps.
+   *
+   * @return true if complete, false otherwise
+   */
+  public boolean isComplete() {
+    return complete;
+  }
+}
@@ -1,7 +1,7 @@
 package org.jlab.icalibrate.model;
 
 import java.util.List;
-import org.jlab.icalibrate.epics.ChannelManager;
+import org.jlab.icalibrate.epics.ChannelAccess;
 import org.jlab.icalibrate.exception.ValidationException;
 
 /**
@@ -11,7 +11,7 @@ import org.jlab.icalibrate.exception.ValidationException;
  */
 public class CreateNewDatasetParameters {
 
-  private final ChannelManager channelManager;
+  private final ChannelAccess channelManager;
 
   private Hall hall;
   private Laser laser;
@@ -28,9 +28,9 @@ public class CreateNewDatasetParameters {
   /**
    * Create a new NewDatasetParameters.
    *
-   * @param channelManager The EPICS CA ChannelManager
+   * @param channelManager The EPICS channel access
    */
-  public CreateNewDatasetParameters(ChannelManager channelManager) {
+  public CreateNewDatasetParameters(ChannelAccess channelManager) {
     this.channelManager = channelManager;
   }
 
@@ -244,6 +244,17 @@ public class CreateNewDatasetParameters {
     return (int) Math.round(((double) computeAttenuatorRange()) / numberOfSteps);
   }
 
+  /**
+   * Compute the attenuator value of the given step. Step zero is at the min attenuator and each
+   * subsequent step is one step size larger, never exceeding the max attenuator.
+   *
+   * @param step The step index
+   * @return The attenuator value
+   */
+  public int computeAttenuatorForStep(int step) {
+    return Math.min(minAttenuator + step * computeStepSize(), maxAttenuator);
+  }
+
   /**
    * Validates the option parameters and throws a ValidationException if an issue is found.
    *
@@ -276,11 +287,11 @@ public class CreateNewDatasetParameters {
   }
 
   /**
-   * Return the channel manager.
+   * Return the channel access.
    *
-   * @return The channel manager
+   * @return The channel access
    */
-  public ChannelManager getChannelManager() {
+  public ChannelAccess getChannelManager() {
     return channelManager;
   }
 
@@ -12,16 +12,37 @@ public final class DoseRateMeasurement implements Comparable<DoseRateMeasurement
 
   private final double current;
   private final double doseRateRadsPerHour;
+  private final int sampleCount;
+  private final double doseRateStandardDeviation;
 
   /**
-   * Creates a new DoseRateMeasurement.
+   * Creates a new DoseRateMeasurement of a single sample (or of unknown spread).
    *
    * @param current The current (caller must keep up with units)
    * @param doseRateRadsPerHour The dose rate in rads per hour
    */
   public DoseRateMeasurement(double current, double doseRateRadsPerHour) {
+    this(current, doseRateRadsPerHour, 1, Double.NaN);
+  }
+
+  /**
+   * Creates a new DoseRateMeasurement which is the average of multiple samples.
+   *
+   * @param current The current (caller must keep up with units)
+   * @param doseRateRadsPerHour The average dose rate in rads per hour
+   * @param sampleCount The number of samples averaged
+   * @param doseRateStandardDeviation The sample standard deviation of the dose rate, or NaN if
+   *     unknown
+   */
+  public DoseRateMeasurement(
+      double current,
+      double doseRateRadsPerHour,
+      int sampleCount,
+      double doseRateStandardDeviation) {
     this.current = current;
     this.doseRateRadsPerHour = doseRateRadsPerHour;
+    this.sampleCount = sampleCount;
+    this.doseRateStandardDeviation = doseRateStandardDeviation;
   }
 
   /**
@@ -42,6 +63,38 @@ public final class DoseRateMeasurement implements Comparable<DoseRateMeasurement
     return doseRateRadsPerHour;
   }
 
+  /**
+   * Return the number of samples averaged to obtain the dose rate.
+   *
+   * @return The sample count
+   */
+  public int getSampleCount() {
+    return sampleCount;
+  }
+
+  /**
+   * Return the sample standard deviation of the dose rate in rads per hour, or NaN if unknown.
+   *
+   * @return The standard deviation
+   */
+  public double getDoseRateStandardDeviation() {
+    return doseRateStandardDeviation;
+  }
+
+  /**
+   * Return the standard error of the mean dose rate in rads per hour, or NaN if unknown. This is
+   * the uncertainty to use when weighting a fit.
+   *
+   * @return The standard error
+   */
+  public double getDoseRateStandardError() {
+    if (sampleCount < 2) {
+      return Double.NaN;
+    }
+
+    return doseRateStandardDeviation / Math.sqrt(sampleCount);
+  }
+
   @Override
   public int compareTo(DoseRateMeasurement o) {
     Double c = current;
@@ -0,0 +1,577 @@
+package org.jlab.icalibrate.sim;
+
+import gov.aps.jca.CAException;
+import gov.aps.jca.TimeoutException;
+import gov.aps.jca.dbr.DBR;
+import gov.aps.jca.dbr.DBRType;
+import gov.aps.jca.dbr.DBR_Double;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import org.jlab.icalibrate.ICalibrateApp;
+import org.jlab.icalibrate.epics.ChannelAccess;
+import org.jlab.icalibrate.epics.PvConnectionState;
+import org.jlab.icalibrate.epics.PvListener;
+import org.jlab.icalibrate.model.DoseRateMeasurement;
+import org.jlab.icalibrate.model.Hall;
+import org.jlab.icalibrate.model.HallCalibrationDataset;
+import org.jlab.icalibrate.model.IonChamberDataset;
+import org.jlab.icalibrate.model.Laser;
+
+/**
+ * An in-JVM stand-in for EPICS Channel Access driven by a VirtualClock. It models the parts of the
+ * accelerator a calibration run interacts with:
+ *
+ * <ul>
+ *   <li>The hall current follows the laser attenuator through a linear transfer function with a
+ *       first order lag, so the current needs time to settle after every attenuator change
+ *   <li>The dose rate of each ion chamber is a function of current, interpolated from the
+ *       measurements of an existing calibration dataset
+ *   <li>Current and dose rate readings carry Gaussian noise relative to their value
+ *   <li>FSD trips can be scheduled on the master FSD voltage PV
+ *   <li>Outages can be scheduled on any PV, as if its IOC rebooted: monitors are told the PV
+ *       disconnected, reads time out, and no updates are posted until it reconnects
+ * </ul>
+ *
+ * <p>Monitored PVs are updated every UPDATE_PERIOD_MILLIS of virtual time. Monitor notifications
+ * are delivered on whichever thread advances the clock, normally the calibration run thread via
+ * sleep, so a run is deterministic for a given seed. Other PVs simply hold the last value put.
+ * Requests for an undefined PV fail with a TimeoutException as they would against an IOC which
+ * doesn't host it.
+ *
+ * @author ryans
+ */
+public class SimulatedChannelAccess implements ChannelAccess {
+
+  /** How often monitored PVs post updates, in virtual milliseconds. */
+  public static final long UPDATE_PERIOD_MILLIS = 100;
+
+  /** The default standard deviation of readings divided by their value. */
+  public static final double DEFAULT_RELATIVE_NOISE = 0.005;
+
+  /** The default time constant of the current response to an attenuator change. */
+  public static final long DEFAULT_SETTLE_TAU_MILLIS = 500;
+
+  private final VirtualClock clock;
+  private final Random random;
+
+  // All state below guarded by this
+  private final Map<String, Double> valueMap = new HashMap<>();
+  private final Map<String, DoseCurve> chamberMap = new LinkedHashMap<>();
+  private final Map<PvListener, Set<String>> listenerMap = new LinkedHashMap<>();
+  private final Set<String> downSet = new HashSet<>();
+
+  private String attenuatorPv;
+  private String currentPv;
+  private double currentPerCount;
+  private long settleTauMillis = DEFAULT_SETTLE_TAU_MILLIS;
+  private double current = 0; // Noise free
+  private double relativeNoise = DEFAULT_RELATIVE_NOISE;
+  private String fsdPv;
+  private boolean closed = false;
+
+  /**
+   * Create a new SimulatedChannelAccess. Monitor updates start immediately.
+   *
+   * @param clock The virtual clock
+   * @param seed The seed of the noise generator
+   */
+  public SimulatedChannelAccess(VirtualClock clock, long seed) {
+    this.clock = clock;
+    this.random = new Random(seed);
+
+    clock.scheduleAtFixedRate(UPDATE_PERIOD_MILLIS, UPDATE_PERIOD_MILLIS, this::tick);
+  }
+
+  /**
+   * Create a simulator of the given hall and laser which reproduces the given dataset. PV names
+   * are taken from the application properties the same way the calibration engine does. The
+   * attenuator to current transfer function is scaled such that the max attenuator produces the
+   * max current of the dataset.
+   *
+   * @param clock The virtual clock
+   * @param seed The seed of the noise generator
+   * @param dataset The dataset whose ion chambers and dose rates to reproduce
+   * @param laser The laser
+   * @param maxAttenuator The attenuator value at the max current of the dataset
+   * @return The simulator
+   */
+  public static SimulatedChannelAccess fromDataset(
+      VirtualClock clock,
+      long seed,
+      HallCalibrationDataset dataset,
+      Laser laser,
+      int maxAttenuator) {
+    SimulatedChannelAccess sim = new SimulatedChannelAccess(clock, seed);
+
+    double maxCurrent = 0;
+
+    for (IonChamberDataset icDataset : dataset.getMeasuredDoseRateDataset()) {
+      sim.addChamber(icDataset.getIonChamber().getDoseRateReadPvName(), icDataset);
+
+      for (DoseRateMeasurement measurement : icDataset.getMeasurementList()) {
+        maxCurrent = Math.max(maxCurrent, measurement.getCurrent());
+      }
+    }
+
+    sim.setBeam(
+        getProperty("LASER" + laser.name() + "_ATTENUATOR_PV"),
+        getProperty(currentProperty(dataset.getHall())),
+        maxCurrent / maxAttenuator,
+        DEFAULT_SETTLE_TAU_MILLIS);
+    sim.definePv(getProperty("LASER" + laser.name() + "_MODE_PV"), 0);
+    sim.setFsdPv(getProperty("MASTER_FSD_VOLTAGE_PV"));
+
+    return sim;
+  }
+
+  private static String currentProperty(Hall hall) {
+    if (hall == Hall.C) {
+      return "HALLC_CURRENT_READ_PV";
+    } else if (hall == Hall.D) {
+      return "HALLD_CURRENT_READ_PV";
+    }
+
+    return "HALLA_CURRENT_READ_PV";
+  }
+
+  private static String getProperty(String name) {
+    String value = ICalibrateApp.APP_PROPERTIES.getProperty(name);
+
+    if (value == null) {
+      throw new IllegalArgumentException("Missing property: " + name);
+    }
+
+    return value.trim(); // Config file might have spaces!
+  }
+
+  /**
+   * Define a PV which holds whatever value is put. Monitors of the PV are notified.
+   *
+   * @param pv The PV name
+   * @param value The initial value
+   */
+  public void definePv(String pv, double value) {
+    synchronized (this) {
+      valueMap.put(pv, value);
+    }
+
+    post(pv, value);
+  }
+
+  /**
+   * Define the beam: the hall current read PV follows the attenuator PV as current = attenuator
+   * times currentPerCount, approaching a new value exponentially with the given time constant.
+   *
+   * @param attenuatorPv The attenuator PV name
+   * @param currentPv The hall current read PV name
+   * @param currentPerCount The current per attenuator count
+   * @param settleTauMillis The time constant of the current response
+   */
+  public synchronized void setBeam(
+      String attenuatorPv, String currentPv, double currentPerCount, long settleTauMillis) {
+    this.attenuatorPv = attenuatorPv;
+    this.currentPv = currentPv;
+    this.currentPerCount = currentPerCount;
+    this.settleTauMillis = settleTauMillis;
+
+    valueMap.putIfAbsent(attenuatorPv, 0.0);
+
+    current = targetCurrent();
+  }
+
+  /**
+   * Define an ion chamber whose dose rate read PV reproduces the dose rate versus current of the
+   * given dataset. Dose rate is linearly interpolated between measurements and extrapolated from
+   * the end segments, never going below zero.
+   *
+   * @param doseRatePv The dose rate read PV name
+   * @param dataset The ion chamber dataset
+   */
+  public synchronized void addChamber(String doseRatePv, IonChamberDataset dataset) {
+    chamberMap.put(doseRatePv, new DoseCurve(dataset.getMeasurementList()));
+  }
+
+  /**
+   * Set the standard deviation of readings divided by their value; zero disables noise.
+   *
+   * @param relativeNoise The relative noise
+   */
+  public synchronized void setRelativeNoise(double relativeNoise) {
+    this.relativeNoise = relativeNoise;
+  }
+
+  /**
+   * Define the master FSD voltage PV, which reads zero unless tripped.
+   *
+   * @param fsdPv The PV name
+   */
+  public void setFsdPv(String fsdPv) {
+    synchronized (this) {
+      this.fsdPv = fsdPv;
+    }
+
+    definePv(fsdPv, 0);
+  }
+
+  /**
+   * Schedule an FSD trip: the master FSD voltage goes non-zero after the delay and returns to zero
+   * once the trip duration has elapsed.
+   *
+   * @param delayMillis The virtual milliseconds from now until the trip
+   * @param durationMillis The virtual milliseconds the trip lasts
+   */
+  public void scheduleFsdTrip(long delayMillis, long durationMillis) {
+    String pv;
+
+    synchronized (this) {
+      pv = fsdPv;
+    }
+
+    if (pv == null) {
+      throw new IllegalStateException("No FSD PV defined");
+    }
+
+    clock.schedule(delayMillis, () -> definePv(pv, 1));
+    clock.schedule(delayMillis + durationMillis, () -> definePv(pv, 0));
+  }
+
+  /**
+   * Schedule an outage of a PV: after the delay monitors of the PV are notified it disconnected
+   * and it neither posts updates nor answers requests until the outage duration has elapsed, at
+   * which point monitors are notified it reconnected followed by a fresh reading.
+   *
+   * @param pv The PV name
+   * @param delayMillis The virtual milliseconds from now until the outage
+   * @param durationMillis The virtual milliseconds the outage lasts
+   */
+  public void scheduleOutage(String pv, long delayMillis, long durationMillis) {
+    clock.schedule(delayMillis, () -> setDown(pv, true));
+    clock.schedule(delayMillis + durationMillis, () -> setDown(pv, false));
+  }
+
+  private void setDown(String pv, boolean down) {
+    Double value = null;
+
+    synchronized (this) {
+      if (down ? !downSet.add(pv) : !downSet.remove(pv)) {
+        return;
+      }
+
+      if (!down && isDefined(pv)) {
+        value = sample(pv);
+      }
+    }
+
+    PvConnectionState state = down ? PvConnectionState.DISCONNECTED : PvConnectionState.CONNECTED;
+
+    for (PvListener listener : listenersOf(pv)) {
+      listener.notifyPvConnection(pv, state, clock.currentTimeMillis());
+    }
+
+    if (value != null) {
+      post(pv, value);
+    }
+  }
+
+  /**
+   * Return the noise free hall current.
+   *
+   * @return The current
+   */
+  public synchronized double getTrueCurrent() {
+    return current;
+  }
+
+  @Override
+  public DBR get(String pv) throws CAException, TimeoutException {
+    return new DBR_Double(new double[] {read(pv)});
+  }
+
+  @Override
+  public CompletableFuture<DBR> getAsync(String pv) {
+    CompletableFuture<DBR> future = new CompletableFuture<>();
+
+    try {
+      future.complete(get(pv));
+    } catch (CAException | TimeoutException e) {
+      future.completeExceptionally(e);
+    }
+
+    return future;
+  }
+
+  @Override
+  public CompletableFuture<DBR> getAsync(String pv, long timeoutMillis) {
+    return getAsync(pv);
+  }
+
+  @Override
+  public CompletableFuture<Void> putAsync(String pv, Number value) {
+    CompletableFuture<Void> future = new CompletableFuture<>();
+
+    try {
+      put(pv, value);
+      future.complete(null);
+    } catch (CAException | TimeoutException e) {
+      future.completeExceptionally(e);
+    }
+
+    return future;
+  }
+
+  @Override
+  public CompletableFuture<Void> putAsync(String pv, Number value, long timeoutMillis) {
+    return putAsync(pv, value);
+  }
+
+  @Override
+  public void put(String pv, String value) throws CAException, TimeoutException {
+    double number;
+
+    try {
+      number = Double.parseDouble(value.trim());
+    } catch (NumberFormatException e) {
+      throw new CAException("Simulated PV " + pv + " is numeric; unable to put: " + value, e);
+    }
+
+    put(pv, number);
+  }
+
+  @Override
+  public void put(String pv, Number value) throws CAException, TimeoutException {
+    synchronized (this) {
+      checkOpen();
+
+      if (!valueMap.containsKey(pv)) {
+        throw new TimeoutException("Simulated PV not defined: " + pv);
+      }
+
+      valueMap.put(pv, value.doubleValue());
+    }
+
+    post(pv, value.doubleValue());
+  }
+
+  @Override
+  public void addPv(PvListener listener, String pv) {
+    addPvs(listener, Collections.singleton(pv));
+  }
+
+  @Override
+  public void addPvs(PvListener listener, Set<String> addPvSet) {
+    Map<String, Double> initialMap = new LinkedHashMap<>();
+
+    synchronized (this) {
+      Set<String> pvSet = listenerMap.computeIfAbsent(listener, k -> new LinkedHashSet<>());
+
+      for (String pv : addPvSet) {
+        if (pvSet.add(pv)) {
+          initialMap.put(pv, isDefined(pv) ? sample(pv) : null);
+        }
+      }
+    }
+
+    for (Map.Entry<String, Double> entry : initialMap.entrySet()) {
+      String pv = entry.getKey();
+      Double value = entry.getValue();
+
+      if (value == null) {
+        listener.notifyPvInfo(pv, false, null, null, null);
+      } else {
+        listener.notifyPvInfo(pv, true, DBRType.DOUBLE, 1, null);
+        listener.notifyPvUpdate(pv, new DBR_Double(new double[] {value}));
+      }
+    }
+  }
+
+  @Override
+  public synchronized void clearPvs(PvListener listener, Set<String> clearPvSet) {
+    Set<String> pvSet = listenerMap.get(listener);
+
+    if (pvSet != null) {
+      pvSet.removeAll(clearPvSet);
+    }
+  }
+
+  @Override
+  public synchronized void addListener(PvListener listener) {
+    listenerMap.computeIfAbsent(listener, k -> new LinkedHashSet<>());
+  }
+
+  @Override
+  public synchronized void removeListener(PvListener listener) {
+    listenerMap.remove(listener);
+  }
+
+  /** Stop posting updates and release listeners. */
+  @Override
+  public synchronized void close() {
+    closed = true;
+    listenerMap.clear();
+  }
+
+  private double read(String pv) throws CAException, TimeoutException {
+    synchronized (this) {
+      checkOpen();
+
+      if (!isDefined(pv)) {
+        throw new TimeoutException("Simulated PV not defined: " + pv);
+      }
+
+      if (downSet.contains(pv)) {
+        throw new TimeoutException("Simulated PV disconnected: " + pv);
+      }
+
+      return sample(pv);
+    }
+  }
+
+  private void checkOpen() throws CAException {
+    if (closed) {
+      throw new CAException("Simulated channel access is closed");
+    }
+  }
+
+  private boolean isDefined(String pv) {
+    return valueMap.containsKey(pv) || chamberMap.containsKey(pv) || pv.equals(currentPv);
+  }
+
+  /** Return a reading of the given defined PV, including noise if it is a modeled reading. */
+  private double sample(String pv) {
+    if (pv.equals(currentPv)) {
+      return noisy(current);
+    }
+
+    DoseCurve curve = chamberMap.get(pv);
+
+    if (curve != null) {
+      return noisy(curve.doseRate(current));
+    }
+
+    return valueMap.get(pv);
+  }
+
+  private double noisy(double value) {
+    return value * (1 + relativeNoise * random.nextGaussian());
+  }
+
+  private double targetCurrent() {
+    Double attenuator = valueMap.get(attenuatorPv);
+
+    return attenuator == null ? 0 : Math.max(0, attenuator * currentPerCount);
+  }
+
+  /** Advance the beam model one update period and post readings to monitors. */
+  private void tick() {
+    Map<String, Double> readingMap = new LinkedHashMap<>();
+
+    synchronized (this) {
+      if (closed) {
+        return;
+      }
+
+      if (currentPv != null) {
+        double alpha = 1 - Math.exp(-(double) UPDATE_PERIOD_MILLIS / settleTauMillis);
+        current = current + (targetCurrent() - current) * alpha;
+
+        readingMap.put(currentPv, sample(currentPv));
+      }
+
+      for (String pv : chamberMap.keySet()) {
+        readingMap.put(pv, sample(pv));
+      }
+    }
+
+    for (Map.Entry<String, Double> entry : readingMap.entrySet()) {
+      post(entry.getKey(), entry.getValue());
+    }
+  }
+
+  /** Notify the monitors of the given PV, outside of the lock, unless the PV is down. */
+  private void post(String pv, double value) {
+    synchronized (this) {
+      if (downSet.contains(pv)) {
+        return;
+      }
+    }
+
+    for (PvListener listener : listenersOf(pv)) {
+      listener.notifyPvUpdate(pv, new DBR_Double(new double[] {value}));
+    }
+  }
+
+  private synchronized List<PvListener> listenersOf(String pv) {
+    List<PvListener> listenerList = new ArrayList<>();
+
+    for (Map.Entry<PvListener, Set<String>> entry : listenerMap.entrySet()) {
+      if (entry.getValue().contains(pv)) {
+        listenerList.add(entry.getKey());
+      }
+    }
+
+    return listenerList;
+  }
+
+  /** Dose rate as a piecewise linear function of current. */
+  private static final class DoseCurve {
+
+    private final double[] currents;
+    private final double[] doseRates;
+
+    private DoseCurve(List<DoseRateMeasurement> measurementList) {
+      List<DoseRateMeasurement> sorted = new ArrayList<>(measurementList);
+      sorted.removeIf(
+          m -> Double.isNaN(m.getCurrent()) || Double.isNaN(m.getDoseRateRadsPerHour()));
+      Collections.sort(sorted);
+
+      // Merge duplicate currents so every segment has a positive width
+      Map<Double, double[]> mergeMap = new LinkedHashMap<>();
+
+      for (DoseRateMeasurement m : sorted) {
+        double[] sumCount = mergeMap.computeIfAbsent(m.getCurrent(), k -> new double[2]);
+        sumCount[0] = sumCount[0] + m.getDoseRateRadsPerHour();
+        sumCount[1] = sumCount[1] + 1;
+      }
+
+      currents = new double[mergeMap.size()];
+      doseRates = new double[mergeMap.size()];
+
+      int i = 0;
+
+      for (Map.Entry<Double, double[]> entry : mergeMap.entrySet()) {
+        currents[i] = entry.getKey();
+        doseRates[i] = entry.getValue()[0] / entry.getValue()[1];
+        i++;
+      }
+    }
+
+    private double doseRate(double current) {
+      if (currents.length == 0) {
+        return 0;
+      }
+
+      if (currents.length == 1) {
+        return currents[0] == 0 ? doseRates[0] : Math.max(0, doseRates[0] * current / currents[0]);
+      }
+
+      int i = 1;
+
+      while (i < currents.length - 1 && current > currents[i]) {
+        i++;
+      }
+
+      double slope = (doseRates[i] - doseRates[i - 1]) / (currents[i] - currents[i - 1]);
+
+      return Math.max(0, doseRates[i - 1] + slope * (current - currents[i - 1]));
+    }
+  }
+}
@@ -0,0 +1,148 @@
+package org.jlab.icalibrate.sim;
+
+import java.util.PriorityQueue;
+import org.jlab.icalibrate.calibration.CalibrationClock;
+
+/**
+ * A clock which only moves when told to. Sleeping advances virtual time immediately and runs any
+ * scheduled tasks which come due on the sleeping thread, in time order, so a simulated run is fully
+ * deterministic and takes only as long as its computation.
+ *
+ * <p>Tasks due at the same instant run in the order they were scheduled.
+ *
+ * @author ryans
+ */
+public final class VirtualClock implements CalibrationClock {
+
+  private final PriorityQueue<Task> queue = new PriorityQueue<>();
+
+  private long now; // Guarded by this
+  private long sequence = 0; // Guarded by this
+
+  /**
+   * Create a new VirtualClock.
+   *
+   * @param startMillis The initial time in milliseconds since the epoch
+   */
+  public VirtualClock(long startMillis) {
+    this.now = startMillis;
+  }
+
+  @Override
+  public synchronized long currentTimeMillis() {
+    return now;
+  }
+
+  /**
+   * Advance virtual time by the given number of milliseconds, running tasks as they come due.
+   *
+   * @param millis The number of milliseconds to sleep
+   * @throws InterruptedException If the calling thread is interrupted
+   */
+  @Override
+  public void sleep(long millis) throws InterruptedException {
+    if (Thread.interrupted()) {
+      throw new InterruptedException();
+    }
+
+    advance(millis);
+
+    if (Thread.interrupted()) {
+      throw new InterruptedException();
+    }
+  }
+
+  /**
+   * Advance virtual time by the given number of milliseconds, running tasks as they come due. Tasks
+   * run on the calling thread without the clock lock held so they may schedule further tasks.
+   *
+   * @param millis The number of milliseconds to advance
+   */
+  public void advance(long millis) {
+    if (millis < 0) {
+      throw new IllegalArgumentException("Can't go back in time: " + millis);
+    }
+
+    long target;
+
+    synchronized (this) {
+      target = now + millis;
+    }
+
+    while (true) {
+      Task task;
+
+      synchronized (this) {
+        task = queue.peek();
+
+        if (task == null || task.dueMillis > target) {
+          now = Math.max(now, target);
+          return;
+        }
+
+        queue.poll();
+        now = Math.max(now, task.dueMillis);
+
+        if (task.periodMillis > 0) {
+          long next = task.dueMillis + task.periodMillis;
+          queue.add(new Task(next, task.periodMillis, sequence++, task.runnable));
+        }
+      }
+
+      task.runnable.run();
+    }
+  }
+
+  /**
+   * Run the given task once after the given delay.
+   *
+   * @param delayMillis The delay in milliseconds
+   * @param runnable The task
+   */
+  public synchronized void schedule(long delayMillis, Runnable runnable) {
+    queue.add(new Task(now + delayMillis, 0, sequence++, runnable));
+  }
+
+  /**
+   * Run the given task repeatedly, first after the initial delay and then once per period.
+   *
+   * @param initialDelayMillis The initial delay in milliseconds
+   * @param periodMillis The period in milliseconds
+   * @param runnable The task
+   */
+  public synchronized void scheduleAtFixedRate(
+      long initialDelayMillis, long periodMillis, Runnable runnable) {
+    if (periodMillis <= 0) {
+      throw new IllegalArgumentException("Period must be positive: " + periodMillis);
+    }
+
+    queue.add(new Task(now + initialDelayMillis, periodMillis, sequence++, runnable));
+  }
+
+  /** A scheduled task, ordered by due time then by scheduling order. */
+  private static final class Task implements Comparable<Task> {
+
+    private final long dueMillis;
+    private final long periodMillis;
+    private final long sequence;
+    private final Runnable runnable;
+
+    private Task(long dueMillis, long periodMillis, long sequence, Runnable runnable) {
+      this.dueMillis = dueMillis;
+      this.periodMillis = periodMillis;
+      this.sequence = sequence;
+      this.runnable = runnable;
+    }
+
+    @Override
+    public int compareTo(Task other) {
+      int result = Long.compare(dueMillis, other.dueMillis);
+
+      if (result == 0) {
+        result = Long.compare(sequence, other.sequence);
+      }
+
+      return result;
+    }
+  }
+}
@@ -0,0 +1,5 @@
+/**
+ * Provides an in-JVM simulation of the EPICS Channel Access layer driven by a virtual clock so
+ * calibration runs can be exercised without an IOC and much faster than real time.
+ */
+package org.jlab.icalibrate.sim;
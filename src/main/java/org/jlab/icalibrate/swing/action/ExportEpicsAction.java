@@ -14,8 +14,10 @@ import javax.swing.AbstractAction;
 import javax.swing.JOptionPane;
 import org.jlab.icalibrate.ICalibrateApp;
 import org.jlab.icalibrate.IOUtil;
+import org.jlab.icalibrate.calibration.SetpointWriter;
 import org.jlab.icalibrate.epics.ChannelManager;
 import org.jlab.icalibrate.exception.AppException;
+import org.jlab.icalibrate.jfr.ElogExportEvent;
 import org.jlab.icalibrate.model.DoseRateTripSetpoint;
 import org.jlab.icalibrate.model.HallCalibrationDataset;
 import org.jlab.icalibrate.swing.generated.ICalibrateFrame;
@@ -64,26 +66,16 @@ public final class ExportEpicsAction extends AbstractAction {
         @Override
         protected Long doWithMinimumExecution() throws Exception {
 
-          ChannelManager manager = frame.getChannelManager();
+          ChannelManager manager = frame.getExportChannelManager();
           List<DoseRateTripSetpoint> setpointList = frame.getModifySetpointDialog().getSetpoints();
 
           boolean writeAllowed =
               "true".equals(ICalibrateApp.APP_PROPERTIES.getProperty("WRITE_ALLOWED"));
 
           if (writeAllowed) {
-            for (DoseRateTripSetpoint setpoint : setpointList) {
-              String pv = setpoint.getIonChamber().getDoseRateSetpointWritePvName();
-              double value = setpoint.getDoseRateRadsPerHour();
-
-              try {
-                manager.put(pv, value);
-              } catch (CAException e) {
-                throw new AppException(
-                    "Unable to perform EPICS CA Put of PV: " + pv + " - " + e.getMessage(), e);
-              } catch (TimeoutException e) {
-                throw new AppException("Timeout waiting for EPICS CA Put of PV: " + pv, e);
-              }
-            }
+            // All or nothing: any failure restores the previous setpoints of every ion chamber
+            SetpointWriter.fromProperties(manager, ICalibrateApp.APP_PROPERTIES)
+                .write(setpointList);
           }
 
           Long lognumber = null;
@@ -219,7 +211,13 @@ public final class ExportEpicsAction extends AbstractAction {
 
     entry.setBody(body, Body.ContentType.HTML);
 
-    lognumber = entry.submitNow();
+    ElogExportEvent event = ElogExportEvent.begin(books);
+
+    try {
+      lognumber = entry.submitNow();
+    } finally {
+      event.finish(0, lognumber);
+    }
 
     return lognumber;
   }
@@ -5,6 +5,8 @@ import java.beans.PropertyChangeEvent;
 import java.beans.PropertyChangeListener;
 import java.util.logging.Logger;
 import javax.swing.AbstractAction;
+import org.jlab.icalibrate.calibration.CalibrationProgressEvent;
+import org.jlab.icalibrate.model.CalibrationCheckpoint;
 import org.jlab.icalibrate.model.CreateNewDatasetParameters;
 import org.jlab.icalibrate.swing.generated.ICalibrateFrame;
 import org.jlab.icalibrate.swing.generated.dialog.CreateDatasetProgressDialog;
@@ -50,12 +52,22 @@ public final class NewDatasetAction extends AbstractAction {
 
   @Override
   public void actionPerformed(ActionEvent e) {
+    start(null);
+  }
+
+  /**
+   * Start the calibration run and show the progress dialog.
+   *
+   * @param checkpoint The checkpoint of an interrupted run to resume, or null to start a new run
+   */
+  public void start(CalibrationCheckpoint checkpoint) {
 
     frame.closeHallCalibrationDataset();
 
     progressDialog.updateProgressPercent(0);
 
-    CreateNewDatasetWorker worker = new CreateNewDatasetWorker(params, progressDialog, frame);
+    CreateNewDatasetWorker worker =
+        new CreateNewDatasetWorker(params, progressDialog, frame, checkpoint);
 
     worker.addPropertyChangeListener(
         new PropertyChangeListener() {
@@ -64,8 +76,7 @@ public final class NewDatasetAction extends AbstractAction {
             if ("progress".equals(evt.getPropertyName())) {
               progressDialog.updateProgressPercent((Integer) evt.getNewValue());
             } else if ("incremental".equals(evt.getPropertyName())) {
-              progressDialog.updateProgressText(
-                  (CreateNewDatasetWorker.IncrementalResultChunk) evt.getNewValue());
+              progressDialog.updateProgressText((CalibrationProgressEvent) evt.getNewValue());
             }
           }
         });
@@ -16,6 +16,7 @@ import org.jfree.chart.ChartUtils;
 import org.jfree.chart.JFreeChart;
 import org.jlab.icalibrate.ICalibrateApp;
 import org.jlab.icalibrate.IOUtil;
+import org.jlab.icalibrate.jfr.ElogExportEvent;
 import org.jlab.icalibrate.model.ChartDataset;
 import org.jlab.icalibrate.model.DoseRateMeasurement;
 import org.jlab.icalibrate.model.HallCalibrationDataset;
@@ -57,6 +58,7 @@ public final class ExportElogActionListener implements ActionListener {
         Long lognumber = null;
 
         String books = ICalibrateApp.APP_PROPERTIES.getProperty("LOGBOOK_CSV");
+        ElogExportEvent event = ElogExportEvent.begin(books);
 
         HallCalibrationDataset ds = frame.getDataset();
 
@@ -178,6 +180,8 @@ public final class ExportElogActionListener implements ActionListener {
 
           lognumber = entry.submitNow();
         } finally {
+          event.finish(tmpList.size(), lognumber);
+
           for (File tmp : tmpList) {
             if (tmp != null) {
               tmp.delete();
@@ -0,0 +1,167 @@
+package org.jlab.icalibrate.swing.action.listener;
+
+import java.awt.event.ActionEvent;
+import java.awt.event.ActionListener;
+import java.io.File;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import javax.swing.JFileChooser;
+import javax.swing.JOptionPane;
+import javax.swing.filechooser.FileNameExtensionFilter;
+import org.jlab.icalibrate.exception.MissingDataException;
+import org.jlab.icalibrate.file.io.CalibrationJournalReader;
+import org.jlab.icalibrate.file.io.CalibrationJournalWriter;
+import org.jlab.icalibrate.model.CalibrationCheckpoint;
+import org.jlab.icalibrate.model.CreateNewDatasetParameters;
+import org.jlab.icalibrate.model.DoseRateMeasurement;
+import org.jlab.icalibrate.model.HallCalibrationDataset;
+import org.jlab.icalibrate.model.IonChamberDataset;
+import org.jlab.icalibrate.swing.action.NewDatasetAction;
+import org.jlab.icalibrate.swing.generated.ICalibrateFrame;
+import org.jlab.icalibrate.swing.generated.dialog.CreateDatasetProgressDialog;
+import org.jlab.icalibrate.swing.worker.MinimumExecutionSwingWorker;
+
+/**
+ * Handle a resume interrupted calibration request. The user chooses a calibration journal, the
+ * partial dataset is rebuilt from it, and the run continues from the next attenuator step. A
+ * journal of a run which completed simply has its dataset loaded.
+ *
+ * @author ryans
+ */
+public final class ResumeCalibrationActionListener implements ActionListener {
+
+  private static final Logger LOGGER =
+      Logger.getLogger(ResumeCalibrationActionListener.class.getName());
+
+  private final ICalibrateFrame frame;
+  private final CreateDatasetProgressDialog progressDialog;
+
+  /**
+   * Create a new ResumeCalibrationActionListener.
+   *
+   * @param frame The ICalibrateFrame
+   * @param progressDialog The progress dialog
+   */
+  public ResumeCalibrationActionListener(
+      ICalibrateFrame frame, CreateDatasetProgressDialog progressDialog) {
+    this.frame = frame;
+    this.progressDialog = progressDialog;
+  }
+
+  @Override
+  public void actionPerformed(ActionEvent e) {
+    JFileChooser journalFileChooser = new JFileChooser();
+
+    journalFileChooser.setDialogTitle("Choose Calibration Journal File");
+    journalFileChooser.setFileFilter(
+        new FileNameExtensionFilter(
+            "Calibration Journal (*." + CalibrationJournalWriter.FILE_EXTENSION + ")",
+            CalibrationJournalWriter.FILE_EXTENSION));
+
+    File dir = CalibrationJournalWriter.getJournalDir();
+
+    if (dir.isDirectory()) {
+      journalFileChooser.setCurrentDirectory(dir);
+    }
+
+    int returnVal = journalFileChooser.showOpenDialog(frame);
+    if (returnVal == JFileChooser.APPROVE_OPTION) {
+
+      File file = journalFileChooser.getSelectedFile();
+
+      frame.queueShowModalWait();
+      new MinimumExecutionSwingWorker<CalibrationCheckpoint, Void>() {
+
+        @Override
+        protected CalibrationCheckpoint doWithMinimumExecution() throws Exception {
+          CalibrationJournalReader reader = new CalibrationJournalReader();
+
+          return reader.read(file);
+        }
+
+        @Override
+        protected void done() {
+          CalibrationCheckpoint checkpoint = null;
+
+          try {
+            checkpoint = get(); // See if there were any exceptions
+          } catch (InterruptedException | ExecutionException ex) {
+            String title = "Unable to open journal";
+            String message = "Unexpected error";
+            LOGGER.log(Level.SEVERE, title, ex);
+
+            Throwable cause = ex.getCause();
+            if (cause != null && cause instanceof MissingDataException) {
+              message = "Journal is incomplete or does not match configuration: " + ex.getMessage();
+            }
+
+            JOptionPane.showMessageDialog(frame, message, title, JOptionPane.ERROR_MESSAGE);
+          } finally {
+            frame.hideModalWait();
+          }
+
+          if (checkpoint != null) {
+            if (checkpoint.isComplete()) {
+              loadCompleted(checkpoint);
+            } else {
+              confirmResume(checkpoint);
+            }
+          }
+        }
+      }.execute();
+    }
+  }
+
+  private void confirmResume(CalibrationCheckpoint checkpoint) {
+    SimpleDateFormat formatter = new SimpleDateFormat("yyyy-MM-dd HH:mm");
+
+    String message =
+        "Hall "
+            + checkpoint.getHall().name()
+            + " calibration started "
+            + formatter.format(checkpoint.getStartedDate())
+            + " completed "
+            + checkpoint.getNextStep()
+            + " of "
+            + (checkpoint.getNumberOfSteps() + 1)
+            + " steps.\nResume from the next step?";
+
+    int answer =
+        JOptionPane.showConfirmDialog(
+            frame, message, "Resume Calibration", JOptionPane.OK_CANCEL_OPTION);
+
+    if (answer == JOptionPane.OK_OPTION) {
+      CreateNewDatasetParameters params = checkpoint.toParameters(frame.getChannelManager());
+
+      new NewDatasetAction(frame, progressDialog, params).start(checkpoint);
+    }
+  }
+
+  private void loadCompleted(CalibrationCheckpoint checkpoint) {
+    CreateNewDatasetParameters params = checkpoint.toParameters(frame.getChannelManager());
+    List<List<DoseRateMeasurement>> measurementMatrix = checkpoint.copyMeasurementMatrix();
+    List<IonChamberDataset> datasetList = new ArrayList<>();
+
+    for (int i = 0; i < params.getIonChamberList().size(); i++) {
+      datasetList.add(
+          new IonChamberDataset(params.getIonChamberList().get(i), measurementMatrix.get(i)));
+    }
+
+    frame.closeHallCalibrationDataset();
+    frame.setDataset(
+        new HallCalibrationDataset(
+            params.getHall(),
+            params.getTarget(),
+            params.getPass(),
+            params.getNote(),
+            checkpoint.getStartedDate(),
+            System.getProperty("user.name"),
+            datasetList),
+        checkpoint.getJournalFile().getName().replaceFirst("\\.[^.]*$", ".hcd"),
+        false);
+  }
+}
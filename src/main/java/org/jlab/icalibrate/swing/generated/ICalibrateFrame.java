@@ -4,7 +4,6 @@ import gov.aps.jca.dbr.DBR;
 import gov.aps.jca.dbr.DBRType;
 import java.awt.BorderLayout;
 import java.awt.Dimension;
-import java.awt.EventQueue;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
 import java.awt.event.ItemEvent;
@@ -20,6 +19,7 @@ import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.function.Consumer;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import javax.swing.JOptionPane;
@@ -33,7 +33,9 @@ import javax.swing.event.TableModelListener;
 import javax.swing.table.TableColumnModel;
 import javax.swing.table.TableModel;
 import org.jlab.icalibrate.ICalibrateApp;
+import org.jlab.icalibrate.calibration.PvPreconnector;
 import org.jlab.icalibrate.epics.ChannelManager;
+import org.jlab.icalibrate.epics.DeliveryMode;
 import org.jlab.icalibrate.epics.PvListener;
 import org.jlab.icalibrate.model.ChartDataset;
 import org.jlab.icalibrate.model.Hall;
@@ -50,6 +52,7 @@ import org.jlab.icalibrate.swing.action.OpenModifyDataDialogAction;
 import org.jlab.icalibrate.swing.action.listener.ExportElogActionListener;
 import org.jlab.icalibrate.swing.action.listener.OpenHCDActionListener;
 import org.jlab.icalibrate.swing.action.listener.PromptUnsavedThenContinueActionListener;
+import org.jlab.icalibrate.swing.action.listener.ResumeCalibrationActionListener;
 import org.jlab.icalibrate.swing.action.listener.SaveHCDThenContinueActionListener;
 import org.jlab.icalibrate.swing.generated.dialog.HelpDialog;
 import org.jlab.icalibrate.swing.generated.dialog.CreateDatasetProgressDialog;
@@ -59,6 +62,7 @@ import org.jlab.icalibrate.swing.table.model.DoseRateTableModel;
 import org.jlab.icalibrate.swing.table.model.SetpointTableModel;
 import org.jlab.icalibrate.swing.table.model.SetpointTableModel.SetpointRow;
 import org.jlab.icalibrate.swing.table.renderer.UnselectableDoseRateCellRenderer;
+import org.jlab.icalibrate.swing.util.CoalescingUpdateBridge;
 import org.jlab.icalibrate.swing.util.DoseRateChartPanel;
 import org.jlab.icalibrate.swing.table.renderer.MeasuredCurrentCellRenderer;
 import org.jlab.icalibrate.swing.table.renderer.UnselectableCellRenderer;
@@ -85,6 +89,7 @@ public class ICalibrateFrame extends ModalWaitFrame implements PvListener {
     private final HelpDialog helpDialog = new HelpDialog(this);
     private final ModifySampleDataDialog modifyDoseRateDialog = new ModifySampleDataDialog(this);
     private Wizard<CreateNewDatasetParameters> newDatasetWizard;
+    private PvPreconnector pvPreconnector;
     private final ChooseAndModifySetpointDialog modifySetpointDialog
             = new ChooseAndModifySetpointDialog(this);
     private final CreateDatasetProgressDialog progressDialog = new CreateDatasetProgressDialog(this);
@@ -97,21 +102,30 @@ public class ICalibrateFrame extends ModalWaitFrame implements PvListener {
     private boolean persisted = false;
     private String filename;
     private final ChannelManager channelManager;
+    private final ChannelManager monitorChannelManager;
+    private final ChannelManager exportChannelManager;
     private final Map<String, Integer> pvToRowIndexMap = new HashMap<>();
+    private CoalescingUpdateBridge<String, DBR> setpointUpdateBridge;
     private final HashMap<Hall, String[]> negativeTargetsMap = new HashMap<>();
 
     /**
      * Create a new ICalibrateFrame.
      *
-     * @param channelManager The EPICS channel manager
+     * @param channelManager The EPICS channel manager of calibration runs and wizard lookups
+     * @param monitorChannelManager The EPICS channel manager of the setpoint table monitors
+     * @param exportChannelManager The EPICS channel manager of setpoint exports
      */
-    public ICalibrateFrame(ChannelManager channelManager) {
+    public ICalibrateFrame(ChannelManager channelManager, ChannelManager monitorChannelManager,
+            ChannelManager exportChannelManager) {
         this.channelManager = channelManager;
+        this.monitorChannelManager = monitorChannelManager;
+        this.exportChannelManager = exportChannelManager;
         initComponents();
         initActions();
         initTableFormat();
         initMyComponents();
         initWizard();
+        initSetpointUpdateBridge();
         
         boolean writeAllowed = "true".equals(ICalibrateApp.APP_PROPERTIES.getProperty(
                     "WRITE_ALLOWED"));
@@ -121,6 +135,53 @@ public class ICalibrateFrame extends ModalWaitFrame implements PvListener {
         }
     }
 
+    /**
+     * Monitor updates of the existing setpoints are coalesced per PV and applied to the setpoint
+     * table in one batch per frame instead of one EDT task per update.
+     */
+    private void initSetpointUpdateBridge() {
+        int framesPerSecond = 10;
+        String fps = ICalibrateApp.APP_PROPERTIES.getProperty("SETPOINT_TABLE_REFRESH_HZ");
+
+        if (fps != null && !fps.trim().isEmpty()) {
+            try {
+                framesPerSecond = Math.max(1, Integer.parseInt(fps.trim()));
+            } catch (NumberFormatException e) {
+                LOGGER.log(Level.WARNING, "Invalid SETPOINT_TABLE_REFRESH_HZ: {0}", fps);
+            }
+        }
+
+        setpointUpdateBridge = new CoalescingUpdateBridge<>(framesPerSecond,
+                new Consumer<Map<String, DBR>>() {
+            @Override
+            public void accept(Map<String, DBR> batch) {
+                Map<Integer, Double> existingMap = new HashMap<>();
+
+                for (Map.Entry<String, DBR> entry : batch.entrySet()) {
+                    Integer rowIndex = pvToRowIndexMap.get(entry.getKey());
+
+                    if (rowIndex == null) { // Dataset closed or replaced meanwhile
+                        continue;
+                    }
+
+                    DBR dbr = entry.getValue();
+                    Double value = null;
+
+                    if (dbr.isDOUBLE()) {
+                        value = ((gov.aps.jca.dbr.DOUBLE) dbr).getDoubleValue()[0];
+                    } else {
+                        LOGGER.log(Level.WARNING, "Value is not a double");
+                    }
+
+                    existingMap.put(rowIndex, value);
+                }
+
+                setpointTableModel.setExistingValues(existingMap);
+            }
+        });
+        setpointUpdateBridge.start();
+    }
+
     private void initActions() {       
         openMenuItem.addActionListener(new PromptUnsavedThenContinueActionListener(this,
                 new ActionListener() {
@@ -131,6 +192,9 @@ public class ICalibrateFrame extends ModalWaitFrame implements PvListener {
             }
         }));
 
+        resumeMenuItem.addActionListener(new PromptUnsavedThenContinueActionListener(this,
+                new ResumeCalibrationActionListener(this, progressDialog)));
+
         exitMenuItem.addActionListener(new PromptUnsavedThenContinueActionListener(this,
                 new ActionListener() {
             @Override
@@ -242,20 +306,21 @@ public class ICalibrateFrame extends ModalWaitFrame implements PvListener {
         List<WizardPage> pageList = new ArrayList<>();
 
         CreateNewDatasetParameters params = new CreateNewDatasetParameters(channelManager);
+        pvPreconnector = new PvPreconnector(channelManager);
 
         newDatasetWizard = new Wizard<>(this, params, new NewDatasetAction(this, progressDialog,
                 params));
 
-        HallAndOptionsPage hallPage = new HallAndOptionsPage(newDatasetWizard);
+        HallAndOptionsPage hallPage = new HallAndOptionsPage(newDatasetWizard, pvPreconnector);
         pageList.add(hallPage);
 
         LaserTargetBeamPage laserPage = new LaserTargetBeamPage(newDatasetWizard);
         pageList.add(laserPage);
 
-        IonChamberPage icPage = new IonChamberPage(newDatasetWizard);
+        IonChamberPage icPage = new IonChamberPage(newDatasetWizard, pvPreconnector);
         pageList.add(icPage);
         
-        ReviewPage reviewPage = new ReviewPage(newDatasetWizard);
+        ReviewPage reviewPage = new ReviewPage(newDatasetWizard, pvPreconnector);
         pageList.add(reviewPage);
 
         newDatasetWizard.setPageList(pageList);
@@ -346,6 +411,8 @@ public class ICalibrateFrame extends ModalWaitFrame implements PvListener {
 
         doClose(); // Stop monitoring
 
+        setpointUpdateBridge.stop(); // Stop refresh timer, which would otherwise keep firing
+
         ICalibrateFrame.this.dispose();
         //System.gc();
         synchronized (ICalibrateFrame.this) {
@@ -468,6 +535,7 @@ public class ICalibrateFrame extends ModalWaitFrame implements PvListener {
         fileMenu = new javax.swing.JMenu();
         newDatasetMenuItem = new javax.swing.JMenuItem();
         openMenuItem = new javax.swing.JMenuItem();
+        resumeMenuItem = new javax.swing.JMenuItem();
         jSeparator4 = new javax.swing.JPopupMenu.Separator();
         saveMenuItem = new javax.swing.JMenuItem();
         closeMenuItem = new javax.swing.JMenuItem();
@@ -808,6 +876,9 @@ public class ICalibrateFrame extends ModalWaitFrame implements PvListener {
 
         openMenuItem.setText("Open...");
         fileMenu.add(openMenuItem);
+
+        resumeMenuItem.setText("Resume Interrupted Calibration...");
+        fileMenu.add(resumeMenuItem);
         fileMenu.add(jSeparator4);
 
         saveMenuItem.setText("Save...");
@@ -944,8 +1015,8 @@ public class ICalibrateFrame extends ModalWaitFrame implements PvListener {
                 rows.add(row);
             }
 
-            if (channelManager != null) {
-                channelManager.addPvs(this, pvSet);
+            if (monitorChannelManager != null) {
+                monitorChannelManager.addPvs(this, pvSet);
             }
         }
 
@@ -1114,9 +1185,10 @@ public class ICalibrateFrame extends ModalWaitFrame implements PvListener {
         dataset = null;
         chartDatasetList = null;
         setTitle("iCalibrate");
-        if (!pvToRowIndexMap.isEmpty() && channelManager != null) {
-            channelManager.clearPvs(this, pvToRowIndexMap.keySet());
+        if (!pvToRowIndexMap.isEmpty() && monitorChannelManager != null) {
+            monitorChannelManager.clearPvs(this, pvToRowIndexMap.keySet());
             pvToRowIndexMap.clear();
+            setpointUpdateBridge.clear();
         }
     }
 
@@ -1179,6 +1251,7 @@ public class ICalibrateFrame extends ModalWaitFrame implements PvListener {
     private javax.swing.JLabel passLabel;
     private javax.swing.JLabel r2Description;
     private javax.swing.JLabel r2Label;
+    private javax.swing.JMenuItem resumeMenuItem;
     private javax.swing.JPanel samplePanel;
     private javax.swing.JMenuItem saveMenuItem;
     private javax.swing.JPanel setpointPanel;
@@ -1207,30 +1280,23 @@ public class ICalibrateFrame extends ModalWaitFrame implements PvListener {
 
     @Override
     public void notifyPvUpdate(String pv, DBR dbr) {
-        EventQueue.invokeLater(new Runnable() {
-            @Override
-            public void run() {
-                //LOGGER.log(Level.FINEST, "PV update: {0}", pv);
+        //LOGGER.log(Level.FINEST, "PV update: {0}", pv);
 
-                Double value = null;
-
-                if (dbr != null && dbr.isDOUBLE()) {
-                    value = ((gov.aps.jca.dbr.DOUBLE) dbr).getDoubleValue()[0];
-                } else {
-                    LOGGER.log(Level.WARNING, "Value is null or not a double");
-                }
+        if (dbr == null) {
+            LOGGER.log(Level.WARNING, "Value is null");
+            return;
+        }
 
-                Integer rowIndex = pvToRowIndexMap.get(pv);
+        setpointUpdateBridge.post(pv, dbr);
+    }
 
-                if (rowIndex > -1 && rowIndex < setpointTableModel.getRowCount()) {
-                    setpointTableModel.setValueAt(value, rowIndex, 1);
-                }
-            }
-        });
+    @Override
+    public DeliveryMode getDeliveryMode() {
+        return DeliveryMode.LATEST; // Only the current setpoint is displayed
     }
 
     /**
-     * Return the EPICS channel manager.
+     * Return the EPICS channel manager of calibration runs and wizard lookups.
      *
      * @return The channel manager
      */
@@ -1238,6 +1304,24 @@ public class ICalibrateFrame extends ModalWaitFrame implements PvListener {
         return channelManager;
     }
 
+    /**
+     * Return the EPICS channel manager of setpoint exports.
+     *
+     * @return The channel manager
+     */
+    public ChannelManager getExportChannelManager() {
+        return exportChannelManager;
+    }
+
+    /**
+     * Return the preconnector of the new dataset wizard.
+     *
+     * @return The preconnector
+     */
+    public PvPreconnector getPvPreconnector() {
+        return pvPreconnector;
+    }
+
     /**
      * Return the current Hall Calibration Dataset filename.
      *
@@ -2,9 +2,10 @@ package org.jlab.icalibrate.swing.generated.dialog;
 
 import java.awt.Frame;
 import javax.swing.JOptionPane;
+import org.jlab.icalibrate.calibration.CalibrationProgressEvent;
+import org.jlab.icalibrate.calibration.CalibrationState;
 import org.jlab.icalibrate.model.CreateNewDatasetParameters;
 import org.jlab.icalibrate.swing.worker.CreateNewDatasetWorker;
-import org.jlab.icalibrate.swing.worker.CreateNewDatasetWorker.WorkerState;
 
 /**
  * A JDialog that shows the progress of the create new dataset process.
@@ -169,19 +170,19 @@ public class CreateDatasetProgressDialog extends javax.swing.JDialog {
     /**
      * Update the progress message.
      * 
-     * @param chunk The incremental progress information
+     * @param event The progress event
      */
-    public void updateProgressText(CreateNewDatasetWorker.IncrementalResultChunk chunk) {        
-        progressTextLabel.setText(chunk.state.label + "... ");
-        stepLabel.setText(chunk.step + " of " + maxStep);
+    public void updateProgressText(CalibrationProgressEvent event) {        
+        progressTextLabel.setText(event.getState().label + "... ");
+        stepLabel.setText(event.getStep() + " of " + maxStep);
         
-        if (chunk.sample != null) {
-            sampleLabel.setText(chunk.sample + " of " + maxSample);
+        if (event.getSample() != null) {
+            sampleLabel.setText(event.getSample() + " of " + maxSample);
         } else {
             sampleLabel.setText("");
         }
         
-        if(chunk.state == WorkerState.WAITING_ON_FSD) {
+        if(event.getState() == CalibrationState.WAITING_ON_FSD) {
             int result = JOptionPane.showConfirmDialog(this, "Click OK to resume and restart most recent step, or cancel to abort.", "FSD Fault Detected", JOptionPane.OK_CANCEL_OPTION);
             
             if(result == JOptionPane.OK_OPTION) {
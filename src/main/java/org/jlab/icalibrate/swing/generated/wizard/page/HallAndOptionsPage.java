@@ -1,5 +1,6 @@
 package org.jlab.icalibrate.swing.generated.wizard.page;
 
+import org.jlab.icalibrate.calibration.PvPreconnector;
 import org.jlab.icalibrate.exception.ValidationException;
 import org.jlab.icalibrate.model.Hall;
 import org.jlab.icalibrate.model.CreateNewDatasetParameters;
@@ -13,13 +14,18 @@ import org.jlab.icalibrate.swing.generated.wizard.WizardPage;
  */
 public class HallAndOptionsPage extends WizardPage<CreateNewDatasetParameters> {
 
+    private final PvPreconnector preconnector;
+
     /**
      * Create a new HallAndOptionsPage
      * 
      * @param wizard The wizard
+     * @param preconnector Connects the calibration PVs in the background
      */
-    public HallAndOptionsPage(Wizard<CreateNewDatasetParameters> wizard) {
+    public HallAndOptionsPage(Wizard<CreateNewDatasetParameters> wizard,
+            PvPreconnector preconnector) {
         super(wizard, "Hall & Options");
+        this.preconnector = preconnector;
         initComponents();
     }
 
@@ -228,10 +234,14 @@ public class HallAndOptionsPage extends WizardPage<CreateNewDatasetParameters> {
         params.setSamplesPerStep(samplesPerStep);
         
         params.checkOptionValidity();
+
+        // Start connecting now so the run doesn't wait on connects; status shows on review page
+        preconnector.preconnectHall(hall);
     }    
     
     @Override
     public void reset() {
+        preconnector.clear();
         hallARadioButton.setSelected(true);
         minAttenuatorInput.setValue(0);
         maxAttenuatorInput.setValue(100);
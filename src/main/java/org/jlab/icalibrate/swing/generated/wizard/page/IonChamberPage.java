@@ -5,6 +5,7 @@ import java.util.Collections;
 import java.util.LinkedHashSet;
 import java.util.List;
 import javax.swing.table.TableColumnModel;
+import org.jlab.icalibrate.calibration.PvPreconnector;
 import org.jlab.icalibrate.exception.ValidationException;
 import org.jlab.icalibrate.model.CreateNewDatasetParameters;
 import org.jlab.icalibrate.model.IonChamber;
@@ -23,14 +24,18 @@ import org.jlab.icalibrate.swing.generated.wizard.WizardPage;
 public class IonChamberPage extends WizardPage<CreateNewDatasetParameters> {
 
     private final IonChamberTableModel tableModel = new IonChamberTableModel();
+    private final PvPreconnector preconnector;
 
     /**
      * Create a new IonChamberPage.
      *
      * @param wizard The wizard
+     * @param preconnector Connects the calibration PVs in the background
      */
-    public IonChamberPage(Wizard<CreateNewDatasetParameters> wizard) {
+    public IonChamberPage(Wizard<CreateNewDatasetParameters> wizard,
+            PvPreconnector preconnector) {
         super(wizard, "Ion Chambers");
+        this.preconnector = preconnector;
         initComponents();
         initTable();
     }
@@ -187,5 +192,9 @@ public class IonChamberPage extends WizardPage<CreateNewDatasetParameters> {
         }
 
         tableModel.setRows(rowSet);
+
+        if (icList != null && !icList.isEmpty()) {
+            preconnector.preconnectIonChambers(icList);
+        }
     }
 }
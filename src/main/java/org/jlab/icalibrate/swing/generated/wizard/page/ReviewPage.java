@@ -1,5 +1,11 @@
 package org.jlab.icalibrate.swing.generated.wizard.page;
 
+import java.awt.EventQueue;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import org.jlab.icalibrate.IOUtil;
+import org.jlab.icalibrate.calibration.PvPreconnector;
 import org.jlab.icalibrate.model.CreateNewDatasetParameters;
 import org.jlab.icalibrate.model.IonChamber;
 import org.jlab.icalibrate.swing.generated.wizard.Wizard;
@@ -12,14 +18,68 @@ import org.jlab.icalibrate.swing.generated.wizard.WizardPage;
  */
 public class ReviewPage extends WizardPage<CreateNewDatasetParameters> {
 
+    private final PvPreconnector preconnector;
+
     /**
      * Create a new ReviewPage
      *
      * @param wizard The wizard
+     * @param preconnector Connects the calibration PVs in the background
      */
-    public ReviewPage(Wizard<CreateNewDatasetParameters> wizard) {
+    public ReviewPage(Wizard<CreateNewDatasetParameters> wizard, PvPreconnector preconnector) {
         super(wizard, "Review");
+        this.preconnector = preconnector;
         initComponents();
+
+        preconnector.addChangeListener(new Runnable() {
+            @Override
+            public void run() {
+                EventQueue.invokeLater(new Runnable() {
+                    @Override
+                    public void run() {
+                        updatePvStatus();
+                    }
+                });
+            }
+        });
+    }
+
+    /**
+     * Show how many of the preconnected PVs are connected and name any which are unreachable so
+     * the operator knows before starting the run.
+     */
+    private void updatePvStatus() {
+        Map<String, PvPreconnector.Status> statusMap = preconnector.getStatusMap();
+
+        int connected = 0;
+        int connecting = 0;
+        List<String> unreachable = new ArrayList<>();
+
+        for (Map.Entry<String, PvPreconnector.Status> entry : statusMap.entrySet()) {
+            switch (entry.getValue()) {
+                case CONNECTED:
+                    connected++;
+                    break;
+                case CONNECTING:
+                    connecting++;
+                    break;
+                default:
+                    unreachable.add(IOUtil.escapeXml(entry.getKey()));
+            }
+        }
+
+        String html = "<html>" + connected + " of " + statusMap.size() + " connected";
+
+        if (connecting > 0) {
+            html = html + ", " + connecting + " connecting";
+        }
+
+        if (!unreachable.isEmpty()) {
+            html = html + "<br/><font color=\"red\">Unreachable: " + String.join(", ", unreachable)
+                    + "</font>";
+        }
+
+        pvStatusLabel.setText(html + "</html>");
     }
 
     /**
@@ -59,6 +119,8 @@ public class ReviewPage extends WizardPage<CreateNewDatasetParameters> {
         stepSizeLabel = new javax.swing.JLabel();
         jLabel21 = new javax.swing.JLabel();
         durationSecondsLabel = new javax.swing.JLabel();
+        jLabel22 = new javax.swing.JLabel();
+        pvStatusLabel = new javax.swing.JLabel();
 
         hallPanel.setBorder(javax.swing.BorderFactory.createEtchedBorder());
 
@@ -188,6 +250,11 @@ public class ReviewPage extends WizardPage<CreateNewDatasetParameters> {
 
         durationSecondsLabel.setText("50");
 
+        jLabel22.setFont(new java.awt.Font("Tahoma", 1, 11)); // NOI18N
+        jLabel22.setText("EPICS PVs:");
+
+        pvStatusLabel.setText("0 of 0 connected");
+
         javax.swing.GroupLayout jPanel1Layout = new javax.swing.GroupLayout(jPanel1);
         jPanel1.setLayout(jPanel1Layout);
         jPanel1Layout.setHorizontalGroup(
@@ -201,7 +268,8 @@ public class ReviewPage extends WizardPage<CreateNewDatasetParameters> {
                     .addComponent(jLabel12)
                     .addComponent(jLabel13)
                     .addComponent(jLabel21)
-                    .addComponent(jLabel19))
+                    .addComponent(jLabel19)
+                    .addComponent(jLabel22))
                 .addPreferredGap(javax.swing.LayoutStyle.ComponentPlacement.RELATED)
                 .addGroup(jPanel1Layout.createParallelGroup(javax.swing.GroupLayout.Alignment.LEADING)
                     .addComponent(minAttenuatorLabel)
@@ -210,7 +278,8 @@ public class ReviewPage extends WizardPage<CreateNewDatasetParameters> {
                     .addComponent(settleSecondsLabel)
                     .addComponent(samplesPerStepLabel)
                     .addComponent(stepSizeLabel)
-                    .addComponent(durationSecondsLabel))
+                    .addComponent(durationSecondsLabel)
+                    .addComponent(pvStatusLabel))
                 .addContainerGap(43, Short.MAX_VALUE))
         );
         jPanel1Layout.setVerticalGroup(
@@ -244,7 +313,11 @@ public class ReviewPage extends WizardPage<CreateNewDatasetParameters> {
                 .addGroup(jPanel1Layout.createParallelGroup(javax.swing.GroupLayout.Alignment.BASELINE)
                     .addComponent(jLabel21)
                     .addComponent(durationSecondsLabel))
-                .addContainerGap(118, Short.MAX_VALUE))
+                .addGap(18, 18, 18)
+                .addGroup(jPanel1Layout.createParallelGroup(javax.swing.GroupLayout.Alignment.BASELINE)
+                    .addComponent(jLabel22)
+                    .addComponent(pvStatusLabel))
+                .addContainerGap(82, Short.MAX_VALUE))
         );
 
         javax.swing.GroupLayout layout = new javax.swing.GroupLayout(this);
@@ -281,6 +354,7 @@ public class ReviewPage extends WizardPage<CreateNewDatasetParameters> {
     private javax.swing.JLabel jLabel19;
     private javax.swing.JLabel jLabel2;
     private javax.swing.JLabel jLabel21;
+    private javax.swing.JLabel jLabel22;
     private javax.swing.JLabel jLabel3;
     private javax.swing.JLabel jLabel4;
     private javax.swing.JLabel jLabel5;
@@ -293,6 +367,7 @@ public class ReviewPage extends WizardPage<CreateNewDatasetParameters> {
     private javax.swing.JLabel noteLabel;
     private javax.swing.JLabel numberOfStepsLabel;
     private javax.swing.JLabel passLabel;
+    private javax.swing.JLabel pvStatusLabel;
     private javax.swing.JLabel samplesPerStepLabel;
     private javax.swing.JLabel settleSecondsLabel;
     private javax.swing.JLabel stepSizeLabel;
@@ -327,6 +402,8 @@ public class ReviewPage extends WizardPage<CreateNewDatasetParameters> {
         icListStr = icListStr + "</html>";
         
         ionChamberListLabel.setText(icListStr);
+
+        updatePvStatus();
     }
 
     @Override
@@ -4,6 +4,7 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import javax.swing.table.AbstractTableModel;
 import org.jlab.icalibrate.model.IonChamber;
 
@@ -178,6 +179,33 @@ public class SetpointTableModel extends AbstractTableModel {
     }
   }
 
+  /**
+   * Set the existing setpoint of many rows at once, firing a single rows updated event spanning the
+   * changed rows instead of one event per cell. Row indices outside of the table are ignored.
+   *
+   * @param existingMap The row index to existing setpoint map
+   */
+  public void setExistingValues(Map<Integer, Double> existingMap) {
+    int first = Integer.MAX_VALUE;
+    int last = -1;
+
+    for (Map.Entry<Integer, Double> entry : existingMap.entrySet()) {
+      int rowIndex = entry.getKey();
+
+      if (rowIndex < 0 || rowIndex >= rows.size()) {
+        continue;
+      }
+
+      rows.get(rowIndex).setExisting(entry.getValue());
+      first = Math.min(first, rowIndex);
+      last = Math.max(last, rowIndex);
+    }
+
+    if (last >= 0) {
+      fireTableRowsUpdated(first, last);
+    }
+  }
+
   /** Set all rows to logarithmic. */
   public void setLogAll() {
     for (int i = 0; i < rows.size(); i++) {
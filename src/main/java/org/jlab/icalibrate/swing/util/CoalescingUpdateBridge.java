@@ -0,0 +1,87 @@
+package org.jlab.icalibrate.swing.util;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+import javax.swing.Timer;
+
+/**
+ * Moves values from background threads onto the Event Dispatch Thread at a bounded rate. Each key
+ * has a latest value slot: posting a value replaces any value of the same key not yet flushed. A
+ * Swing timer flushes all dirty keys in one batch on the EDT at the configured frame rate, so a
+ * burst of updates costs one EDT task per frame instead of one per update.
+ *
+ * @param <K> The key type
+ * @param <V> The value type
+ * @author ryans
+ */
+public final class CoalescingUpdateBridge<K, V> {
+
+  private final Map<K, V> pendingMap = new ConcurrentHashMap<>();
+  private final Consumer<Map<K, V>> flusher;
+  private final Timer timer;
+
+  /**
+   * Create a new CoalescingUpdateBridge. Call start to begin flushing.
+   *
+   * @param framesPerSecond The max number of flushes per second
+   * @param flusher Receives the batch of latest values on the EDT
+   */
+  public CoalescingUpdateBridge(int framesPerSecond, Consumer<Map<K, V>> flusher) {
+    if (framesPerSecond < 1) {
+      throw new IllegalArgumentException("framesPerSecond must be at least 1");
+    }
+
+    this.flusher = flusher;
+
+    timer = new Timer(1000 / framesPerSecond, e -> flush());
+    timer.setCoalesce(true);
+  }
+
+  /**
+   * Post the latest value of a key. May be called from any thread.
+   *
+   * @param key The key
+   * @param value The value
+   */
+  public void post(K key, V value) {
+    pendingMap.put(key, value);
+  }
+
+  /** Discard values not yet flushed, for example when the keys no longer apply. */
+  public void clear() {
+    pendingMap.clear();
+  }
+
+  /** Start flushing. */
+  public void start() {
+    timer.start();
+  }
+
+  /** Stop flushing. */
+  public void stop() {
+    timer.stop();
+  }
+
+  /** Flush the dirty keys. Called on the EDT. */
+  private void flush() {
+    if (pendingMap.isEmpty()) {
+      return;
+    }
+
+    Map<K, V> batch = new LinkedHashMap<>();
+
+    for (K key : pendingMap.keySet()) {
+      V value = pendingMap.remove(key); // A value posted after this lands in the next frame
+
+      if (value != null) {
+        batch.put(key, value);
+      }
+    }
+
+    if (!batch.isEmpty()) {
+      flusher.accept(batch);
+    }
+  }
+}
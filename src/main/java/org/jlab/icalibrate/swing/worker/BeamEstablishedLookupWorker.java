@@ -10,6 +10,7 @@ import java.util.logging.Level;
 import java.util.logging.Logger;
 import javax.swing.JOptionPane;
 import org.jlab.icalibrate.ICalibrateApp;
+import org.jlab.icalibrate.epics.ChannelAccess;
 import org.jlab.icalibrate.epics.ChannelManager;
 import org.jlab.icalibrate.exception.AppException;
 import org.jlab.icalibrate.model.CreateNewDatasetParameters;
@@ -82,19 +83,14 @@ public class BeamEstablishedLookupWorker extends MinimumExecutionSwingWorker<Str
       currentPv = currentPv.trim(); // Config file might have spaces!
     }
 
-    ChannelManager manager = params.getChannelManager();
+    ChannelAccess manager = params.getChannelManager();
 
     DBR currentValue;
 
     try {
-      currentValue = manager.get(currentPv);
-    } catch (IllegalStateException e) {
-      throw new AppException(
-          "Channel Access disconnected during EPICS CA Get of PV: "
-              + currentPv
-              + " - "
-              + e.getMessage(),
-          e);
+      currentValue =
+          ChannelManager.await(
+              manager.getCached(currentPv, ChannelManager.CACHED_READ_MAX_AGE_MILLIS));
     } catch (CAException e) {
       throw new AppException(
           "Unable to perform EPICS CA Get of PV: " + currentPv + " - " + e.getMessage(), e);
@@ -3,13 +3,15 @@ package org.jlab.icalibrate.swing.worker;
 import gov.aps.jca.CAException;
 import gov.aps.jca.TimeoutException;
 import gov.aps.jca.dbr.DBR;
+import java.util.Arrays;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutionException;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import javax.swing.JOptionPane;
 import org.jlab.icalibrate.ICalibrateApp;
-import org.jlab.icalibrate.epics.ChannelManager;
+import org.jlab.icalibrate.epics.BatchGetResult;
+import org.jlab.icalibrate.epics.ChannelAccess;
 import org.jlab.icalibrate.exception.AppException;
 import org.jlab.icalibrate.model.CreateNewDatasetParameters;
 import org.jlab.icalibrate.model.Hall;
@@ -107,55 +109,15 @@ public class LaserLookupWorker extends MinimumExecutionSwingWorker<Laser, Void>
       laserDPv = laserDPv.trim(); // Config file might have spaces!
     }
 
-    ChannelManager manager = params.getChannelManager();
+    ChannelAccess manager = params.getChannelManager();
 
-    DBR laserA;
-    DBR laserB;
-    DBR laserC;
-    DBR laserD;
+    // One round trip for all four lasers
+    BatchGetResult result = manager.getAll(Arrays.asList(laserAPv, laserBPv, laserCPv, laserDPv));
 
-    try {
-      laserA = manager.get(laserAPv);
-    } catch (IllegalStateException e) {
-      throw new AppException(
-          "Channel Access disconnected during EPICS CA Get of PV: "
-              + laserAPv
-              + " - "
-              + e.getMessage(),
-          e);
-    } catch (CAException e) {
-      throw new AppException(
-          "Unable to perform EPICS CA Get of PV: " + laserAPv + " - " + e.getMessage(), e);
-    } catch (TimeoutException e) {
-      throw new AppException("Timeout waiting for EPICS CA Get of PV: " + laserAPv, e);
-    }
-
-    try {
-      laserB = manager.get(laserBPv);
-    } catch (CAException e) {
-      throw new AppException(
-          "Unable to perform EPICS CA Get of PV: " + laserAPv + " - " + e.getMessage(), e);
-    } catch (TimeoutException e) {
-      throw new AppException("Timeout waiting for EPICS CA Get of PV: " + laserAPv, e);
-    }
-
-    try {
-      laserC = manager.get(laserCPv);
-    } catch (CAException e) {
-      throw new AppException(
-          "Unable to perform EPICS CA Get of PV: " + laserAPv + " - " + e.getMessage(), e);
-    } catch (TimeoutException e) {
-      throw new AppException("Timeout waiting for EPICS CA Get of PV: " + laserAPv, e);
-    }
-
-    try {
-      laserD = manager.get(laserDPv);
-    } catch (CAException e) {
-      throw new AppException(
-          "Unable to perform EPICS CA Get of PV: " + laserAPv + " - " + e.getMessage(), e);
-    } catch (TimeoutException e) {
-      throw new AppException("Timeout waiting for EPICS CA Get of PV: " + laserAPv, e);
-    }
+    DBR laserA = lookup(result, laserAPv);
+    DBR laserB = lookup(result, laserBPv);
+    DBR laserC = lookup(result, laserCPv);
+    DBR laserD = lookup(result, laserDPv);
 
     int aVal = ((gov.aps.jca.dbr.DBR_Enum) laserA).getEnumValue()[0];
     int bVal = ((gov.aps.jca.dbr.DBR_Enum) laserB).getEnumValue()[0];
@@ -190,6 +152,17 @@ public class LaserLookupWorker extends MinimumExecutionSwingWorker<Laser, Void>
     return laser;
   }
 
+  private DBR lookup(BatchGetResult result, String pv) throws AppException {
+    try {
+      return result.get(pv);
+    } catch (CAException e) {
+      throw new AppException(
+          "Unable to perform EPICS CA Get of PV: " + pv + " - " + e.getMessage(), e);
+    } catch (TimeoutException e) {
+      throw new AppException("Timeout waiting for EPICS CA Get of PV: " + pv, e);
+    }
+  }
+
   @Override
   protected void done() {
     try {
@@ -9,6 +9,7 @@ import java.util.logging.Level;
 import java.util.logging.Logger;
 import javax.swing.JOptionPane;
 import org.jlab.icalibrate.ICalibrateApp;
+import org.jlab.icalibrate.epics.ChannelAccess;
 import org.jlab.icalibrate.epics.ChannelManager;
 import org.jlab.icalibrate.exception.AppException;
 import org.jlab.icalibrate.model.CreateNewDatasetParameters;
@@ -78,19 +79,14 @@ public class PassLookupWorker extends MinimumExecutionSwingWorker<String, Void>
       passPv = passPv.trim(); // Config file might have spaces!
     }
 
-    ChannelManager manager = params.getChannelManager();
+    ChannelAccess manager = params.getChannelManager();
 
     DBR passValue;
 
     try {
-      passValue = manager.get(passPv);
-    } catch (IllegalStateException e) {
-      throw new AppException(
-          "Channel Access disconnected during EPICS CA Get of PV: "
-              + passPv
-              + " - "
-              + e.getMessage(),
-          e);
+      passValue =
+          ChannelManager.await(
+              manager.getCached(passPv, ChannelManager.CACHED_READ_MAX_AGE_MILLIS));
     } catch (CAException e) {
       throw new AppException(
           "Unable to perform EPICS CA Get of PV: " + passPv + " - " + e.getMessage(), e);
@@ -9,6 +9,7 @@ import java.util.logging.Level;
 import java.util.logging.Logger;
 import javax.swing.JOptionPane;
 import org.jlab.icalibrate.ICalibrateApp;
+import org.jlab.icalibrate.epics.ChannelAccess;
 import org.jlab.icalibrate.epics.ChannelManager;
 import org.jlab.icalibrate.exception.AppException;
 import org.jlab.icalibrate.model.CreateNewDatasetParameters;
@@ -78,19 +79,14 @@ public class TargetLookupWorker extends MinimumExecutionSwingWorker<String, Void
       targetPv = targetPv.trim(); // Config file might have spaces!
     }
 
-    ChannelManager manager = params.getChannelManager();
+    ChannelAccess manager = params.getChannelManager();
 
     DBR targetRecord;
 
     try {
-      targetRecord = manager.get(targetPv);
-    } catch (IllegalStateException e) {
-      throw new AppException(
-          "Channel Access disconnected during EPICS CA Get of PV: "
-              + targetPv
-              + " - "
-              + e.getMessage(),
-          e);
+      targetRecord =
+          ChannelManager.await(
+              manager.getCached(targetPv, ChannelManager.CACHED_READ_MAX_AGE_MILLIS));
     } catch (CAException e) {
       throw new AppException(
           "Unable to perform EPICS CA Get of PV: " + targetPv + " - " + e.getMessage(), e);
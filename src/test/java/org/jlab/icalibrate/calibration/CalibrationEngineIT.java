@@ -0,0 +1,84 @@
+package org.jlab.icalibrate.calibration;
+
+import static org.junit.Assert.*;
+
+import java.io.InputStream;
+import org.jlab.icalibrate.ICalibrateApp;
+import org.jlab.icalibrate.epics.ChannelManager;
+import org.jlab.icalibrate.epics.EmbeddedCaServer;
+import org.jlab.icalibrate.model.CreateNewDatasetParameters;
+import org.jlab.icalibrate.model.DoseRateMeasurement;
+import org.jlab.icalibrate.model.Hall;
+import org.jlab.icalibrate.model.HallCalibrationDataset;
+import org.jlab.icalibrate.model.IonChamber;
+import org.jlab.icalibrate.model.IonChamberDataset;
+import org.jlab.icalibrate.model.Laser;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/** Runs a short calibration over CA against the embedded server. */
+public class CalibrationEngineIT {
+
+  private static final int MAX_ATTENUATOR = 1000;
+  private static final int NUMBER_OF_STEPS = 2;
+
+  @Rule public TemporaryFolder folder = new TemporaryFolder();
+
+  private EmbeddedCaServer server;
+  private ChannelManager manager;
+
+  @Before
+  public void setUp() throws Exception {
+    try (InputStream in =
+        ICalibrateApp.class.getClassLoader().getResourceAsStream("icalibrate.properties")) {
+      ICalibrateApp.APP_PROPERTIES.load(in);
+    }
+
+    ICalibrateApp.APP_PROPERTIES.setProperty("WRITE_ALLOWED", "true");
+    ICalibrateApp.APP_PROPERTIES.setProperty("JOURNAL_DIR", folder.getRoot().getPath());
+
+    server = new EmbeddedCaServer();
+    server.start();
+    server.setValue("MMSHLALASERA", 1);
+    server.setValue("psub_aa_ipos", 500);
+
+    manager = new ChannelManager();
+    manager.whenReady().get(); // So registrations apply immediately
+  }
+
+  @After
+  public void tearDown() throws Exception {
+    manager.close();
+    server.close();
+  }
+
+  @Test
+  public void testCalibration() throws Exception {
+    CreateNewDatasetParameters params = new CreateNewDatasetParameters(manager);
+    params.setHall(Hall.A);
+    params.setLaser(Laser.A);
+    params.setMinAttenuator(0);
+    params.setMaxAttenuator(MAX_ATTENUATOR);
+    params.setNumberOfSteps(NUMBER_OF_STEPS);
+    params.setSettleSeconds(3);
+    params.setSamplesPerStep(1);
+    params.setIonChamberList(IonChamber.createIcsFromConfig(Hall.A));
+
+    HallCalibrationDataset result = new CalibrationEngine(manager, params).run();
+
+    for (IonChamberDataset icDataset : result.getMeasuredDoseRateDataset()) {
+      assertEquals(NUMBER_OF_STEPS + 1, icDataset.getMeasurementList().size());
+
+      DoseRateMeasurement last = icDataset.getMeasurementList().get(NUMBER_OF_STEPS);
+
+      assertEquals(MAX_ATTENUATOR * 0.1, last.getCurrent(), 1);
+      assertEquals(last.getCurrent() * 10, last.getDoseRateRadsPerHour(), 10);
+    }
+
+    // Attenuator restored
+    assertEquals(500, server.getValue("psub_aa_ipos"), 0);
+  }
+}
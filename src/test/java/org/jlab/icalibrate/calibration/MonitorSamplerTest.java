@@ -0,0 +1,83 @@
+package org.jlab.icalibrate.calibration;
+
+import static org.junit.Assert.*;
+
+import gov.aps.jca.dbr.DBR;
+import gov.aps.jca.dbr.DBR_Double;
+import gov.aps.jca.dbr.DBR_TIME_Double;
+import gov.aps.jca.dbr.TimeStamp;
+import java.util.Arrays;
+import org.jlab.icalibrate.sim.SimulatedChannelAccess;
+import org.jlab.icalibrate.sim.VirtualClock;
+import org.junit.Before;
+import org.junit.Test;
+
+/** Exercises pairing of dose rate and current samples by IOC timestamp. */
+public class MonitorSamplerTest {
+
+  private static final long EPICS_EPOCH_MILLIS = 631152000000L;
+
+  private VirtualClock clock;
+  private MonitorSampler sampler;
+
+  @Before
+  public void setUp() {
+    clock = new VirtualClock(EPICS_EPOCH_MILLIS + 100000);
+    sampler =
+        new MonitorSampler(
+            new SimulatedChannelAccess(clock, 1),
+            Arrays.asList("CURRENT", "DOSE"),
+            MonitorSampler.DEFAULT_CAPACITY,
+            clock);
+  }
+
+  @Test
+  public void testPairsByIocTimestampNotArrival() {
+    long t = clock.currentTimeMillis();
+
+    // All three updates arrive together, long after the IOCs recorded them
+    clock.advance(5000);
+
+    sampler.notifyPvUpdate("CURRENT", timed(0, t));
+    sampler.notifyPvUpdate("CURRENT", timed(10, t + 1000));
+    sampler.notifyPvUpdate("DOSE", timed(42, t + 250));
+
+    RunningStatistics dose = new RunningStatistics();
+    RunningStatistics current = new RunningStatistics();
+    long now = clock.currentTimeMillis();
+
+    assertEquals(1, sampler.accumulatePaired("DOSE", "CURRENT", t, now, dose, current));
+    assertEquals(42, dose.getMean(), 0);
+    assertEquals(2.5, current.getMean(), 1e-9);
+  }
+
+  @Test
+  public void testUntimedUpdatesPairByArrival() {
+    long t = clock.currentTimeMillis();
+
+    sampler.notifyPvUpdate("CURRENT", new DBR_Double(new double[] {4}));
+    clock.advance(1000);
+    sampler.notifyPvUpdate("CURRENT", new DBR_Double(new double[] {8}));
+    sampler.notifyPvUpdate("DOSE", new DBR_Double(new double[] {1}));
+    clock.advance(1000);
+    sampler.notifyPvUpdate("DOSE", new DBR_Double(new double[] {2}));
+
+    RunningStatistics dose = new RunningStatistics();
+    RunningStatistics current = new RunningStatistics();
+
+    assertEquals(
+        2,
+        sampler.accumulatePaired("DOSE", "CURRENT", t, clock.currentTimeMillis(), dose, current));
+    assertEquals(1.5, dose.getMean(), 1e-9);
+    assertEquals(8, current.getMean(), 1e-9); // Newest current held after its last update
+  }
+
+  private static DBR timed(double value, long iocMillis) {
+    DBR_TIME_Double dbr = new DBR_TIME_Double(new double[] {value});
+    long millis = iocMillis - EPICS_EPOCH_MILLIS;
+
+    dbr.setTimeStamp(new TimeStamp(millis / 1000, (millis % 1000) * 1000000));
+
+    return dbr;
+  }
+}
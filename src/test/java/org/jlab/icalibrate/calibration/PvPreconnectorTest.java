@@ -0,0 +1,118 @@
+package org.jlab.icalibrate.calibration;
+
+import static org.junit.Assert.*;
+
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import org.jlab.icalibrate.ICalibrateApp;
+import org.jlab.icalibrate.epics.PvListener;
+import org.jlab.icalibrate.model.Hall;
+import org.jlab.icalibrate.model.IonChamber;
+import org.jlab.icalibrate.sim.SimulatedChannelAccess;
+import org.jlab.icalibrate.sim.VirtualClock;
+import org.junit.Before;
+import org.junit.Test;
+
+/** Exercises PvPreconnector against the simulator, in which undefined PVs are unreachable. */
+public class PvPreconnectorTest {
+
+  private VirtualClock clock;
+  private SimulatedChannelAccess sim;
+  private final Set<String> clearedSet = new HashSet<>();
+
+  @Before
+  public void setUp() throws Exception {
+    try (InputStream in =
+        ICalibrateApp.class.getClassLoader().getResourceAsStream("icalibrate.properties")) {
+      ICalibrateApp.APP_PROPERTIES.load(in);
+    }
+
+    clock = new VirtualClock(0);
+    sim =
+        new SimulatedChannelAccess(clock, 1) {
+          @Override
+          public synchronized void clearPvs(PvListener listener, Set<String> clearPvSet) {
+            clearedSet.addAll(clearPvSet);
+            super.clearPvs(listener, clearPvSet);
+          }
+        };
+    sim.definePv(ICalibrateApp.APP_PROPERTIES.getProperty("HALLA_CURRENT_READ_PV").trim(), 0);
+    sim.definePv(ICalibrateApp.APP_PROPERTIES.getProperty("HALLC_CURRENT_READ_PV").trim(), 0);
+    sim.definePv(ICalibrateApp.APP_PROPERTIES.getProperty("MASTER_FSD_VOLTAGE_PV").trim(), 0);
+
+    for (String laser : new String[] {"A", "B", "C", "D"}) {
+      sim.definePv(ICalibrateApp.APP_PROPERTIES.getProperty("LASER" + laser + "_ATTENUATOR_PV"), 0);
+      sim.definePv(ICalibrateApp.APP_PROPERTIES.getProperty("LASER" + laser + "_MODE_PV"), 0);
+    }
+
+    sim.definePv("IC1Pk", 0);
+  }
+
+  @Test
+  public void testStatusAndClear() {
+    PvPreconnector preconnector = new PvPreconnector(sim);
+    int[] changes = new int[1];
+    preconnector.addChangeListener(() -> changes[0]++);
+
+    preconnector.preconnectHall(Hall.A);
+    preconnector.preconnectIonChambers(
+        Arrays.asList(chamber("IC1Pk"), chamber("IC2Pk"))); // IC2 isn't served
+
+    Map<String, PvPreconnector.Status> statusMap = preconnector.getStatusMap();
+
+    assertEquals(PvPreconnector.Status.CONNECTED, statusMap.get("IC1Pk"));
+    assertEquals(PvPreconnector.Status.UNREACHABLE, statusMap.get("IC2Pk"));
+    assertEquals(
+        PvPreconnector.Status.CONNECTED,
+        statusMap.get(ICalibrateApp.APP_PROPERTIES.getProperty("LASERA_ATTENUATOR_PV").trim()));
+    assertEquals(12, statusMap.size());
+    assertTrue(changes[0] > 0);
+
+    preconnector.clear();
+
+    assertTrue(preconnector.getStatusMap().isEmpty());
+  }
+
+  @Test
+  public void testNewHallReleasesPreviousHall() {
+    String hallA = ICalibrateApp.APP_PROPERTIES.getProperty("HALLA_CURRENT_READ_PV").trim();
+    String hallC = ICalibrateApp.APP_PROPERTIES.getProperty("HALLC_CURRENT_READ_PV").trim();
+    PvPreconnector preconnector = new PvPreconnector(sim);
+
+    preconnector.preconnectHall(Hall.A);
+    preconnector.preconnectIonChambers(Arrays.asList(chamber("IC1Pk")));
+    preconnector.preconnectHall(Hall.C);
+
+    Map<String, PvPreconnector.Status> statusMap = preconnector.getStatusMap();
+
+    assertFalse(statusMap.containsKey(hallA));
+    assertFalse(statusMap.containsKey("IC1Pk")); // Hall A's ion chamber
+    assertEquals(PvPreconnector.Status.CONNECTED, statusMap.get(hallC));
+    assertTrue(clearedSet.contains(hallA));
+    assertTrue(clearedSet.contains("IC1Pk"));
+    assertEquals(10, statusMap.size());
+  }
+
+  @Test
+  public void testDisconnectShowsUnreachable() {
+    PvPreconnector preconnector = new PvPreconnector(sim);
+
+    preconnector.preconnectIonChambers(Arrays.asList(chamber("IC1Pk")));
+    sim.scheduleOutage("IC1Pk", 1000, 1000);
+
+    clock.advance(1000);
+
+    assertEquals(PvPreconnector.Status.UNREACHABLE, preconnector.getStatusMap().get("IC1Pk"));
+
+    clock.advance(1000);
+
+    assertEquals(PvPreconnector.Status.CONNECTED, preconnector.getStatusMap().get("IC1Pk"));
+  }
+
+  private static IonChamber chamber(String doseRatePv) {
+    return new IonChamber(doseRatePv, null, null, doseRatePv, null, null, null);
+  }
+}
@@ -0,0 +1,127 @@
+package org.jlab.icalibrate.calibration;
+
+import static org.junit.Assert.*;
+
+import gov.aps.jca.CAException;
+import gov.aps.jca.TimeoutException;
+import java.util.Arrays;
+import org.jlab.icalibrate.exception.AppException;
+import org.jlab.icalibrate.model.DoseRateTripSetpoint;
+import org.jlab.icalibrate.model.IonChamber;
+import org.jlab.icalibrate.sim.SimulatedChannelAccess;
+import org.jlab.icalibrate.sim.VirtualClock;
+import org.junit.Before;
+import org.junit.Test;
+
+/** Exercises SetpointWriter against the simulator, whose defined PVs hold whatever is put. */
+public class SetpointWriterTest {
+
+  private SimulatedChannelAccess sim;
+
+  @Before
+  public void setUp() {
+    sim =
+        new SimulatedChannelAccess(new VirtualClock(0), 1) {
+          @Override
+          public void put(String pv, Number value) throws CAException, TimeoutException {
+            super.put(pv, value);
+
+            if (pv.equals("IC4:MAX")) {
+              definePv("IC4:MAx", Math.round(value.doubleValue())); // An integer register
+            }
+          }
+        };
+    sim.definePv("IC1:SET", 100);
+    sim.definePv("IC2:SET", 200);
+    sim.definePv("IC3:SET.VAL", 300);
+    sim.definePv("IC3:SET.RBV", 300); // A readback which doesn't follow the setpoint
+    sim.definePv("IC4:MAX", 400);
+    sim.definePv("IC4:MAx", 400);
+  }
+
+  @Test
+  public void testWriteVerifies() throws Exception {
+    new SetpointWriter(sim, 1000)
+        .write(
+            Arrays.asList(
+                setpoint("IC1:SET", "IC1:SET", 150), setpoint("IC2:SET", "IC2:SET", 250)));
+
+    assertEquals(150, value("IC1:SET"), 0);
+    assertEquals(250, value("IC2:SET"), 0);
+  }
+
+  @Test
+  public void testQuantizedReadbackVerifies() throws Exception {
+    new SetpointWriter(sim, 1000).write(Arrays.asList(setpoint("IC4:MAx", "IC4:MAX", 432.7)));
+
+    assertEquals(432.7, value("IC4:MAX"), 0);
+    assertEquals(433, value("IC4:MAx"), 0);
+  }
+
+  @Test
+  public void testUnverifiedWriteIgnoresReadback() throws Exception {
+    new SetpointWriter(sim, 0).write(Arrays.asList(setpoint("IC3:SET.RBV", "IC3:SET.VAL", 350)));
+
+    assertEquals(350, value("IC3:SET.VAL"), 0);
+  }
+
+  @Test
+  public void testUnverifiedReadbackRollsBackAll() throws Exception {
+    try {
+      new SetpointWriter(sim, 200)
+          .write(
+              Arrays.asList(
+                  setpoint("IC1:SET", "IC1:SET", 150),
+                  setpoint("IC3:SET.RBV", "IC3:SET.VAL", 350)));
+      fail("Expected AppException");
+    } catch (AppException e) {
+      assertTrue(e.getMessage(), e.getMessage().contains("IC3:SET.RBV"));
+      assertTrue(e.getMessage(), e.getMessage().contains("previous setpoints restored"));
+    }
+
+    assertEquals(100, value("IC1:SET"), 0);
+    assertEquals(300, value("IC3:SET.VAL"), 0);
+  }
+
+  @Test
+  public void testFailedPutRollsBackAll() throws Exception {
+    try {
+      new SetpointWriter(sim, 1000)
+          .write(
+              Arrays.asList(
+                  setpoint("IC1:SET", "IC1:SET", 150), setpoint("IC2:SET", "IC2:MISSING", 250)));
+      fail("Expected AppException");
+    } catch (AppException e) {
+      assertTrue(e.getMessage(), e.getMessage().contains("IC2:MISSING"));
+    }
+
+    assertEquals(100, value("IC1:SET"), 0);
+    assertEquals(200, value("IC2:SET"), 0);
+  }
+
+  @Test
+  public void testUnreadableSnapshotWritesNothing() throws Exception {
+    try {
+      new SetpointWriter(sim, 1000)
+          .write(
+              Arrays.asList(
+                  setpoint("IC1:SET", "IC1:SET", 150), setpoint("IC2:MISSING", "IC2:SET", 250)));
+      fail("Expected AppException");
+    } catch (AppException e) {
+      assertTrue(e.getMessage(), e.getMessage().contains("IC2:MISSING"));
+    }
+
+    assertEquals(100, value("IC1:SET"), 0);
+    assertEquals(200, value("IC2:SET"), 0);
+  }
+
+  private double value(String pv) throws Exception {
+    return ((gov.aps.jca.dbr.DOUBLE) sim.get(pv)).getDoubleValue()[0];
+  }
+
+  private static DoseRateTripSetpoint setpoint(String readPv, String writePv, double value) {
+    IonChamber ic = new IonChamber(readPv, null, null, null, readPv, writePv, null);
+
+    return new DoseRateTripSetpoint(ic, value);
+  }
+}
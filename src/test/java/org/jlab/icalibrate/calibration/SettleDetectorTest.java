@@ -0,0 +1,55 @@
+package org.jlab.icalibrate.calibration;
+
+import static org.junit.Assert.*;
+
+import java.util.Random;
+import org.junit.Test;
+
+/** Exercises settle detection on windows with no update, a ramp, and a noisy plateau. */
+public class SettleDetectorTest {
+
+  private static final long STEP_START = 10000;
+
+  private final SettleDetector detector = new SettleDetector(2, 0.01, 0.005, 1);
+
+  @Test
+  public void testNoUpdateSinceStepIsNotSettled() {
+    SampleRingBuffer buffer = new SampleRingBuffer(64);
+
+    buffer.add(STEP_START - 500, 50); // Held value from before the attenuator change
+
+    assertFalse(detector.isSettled(buffer, STEP_START, STEP_START + 5000));
+
+    buffer.add(STEP_START + 4000, 50);
+
+    assertTrue(detector.isSettled(buffer, STEP_START, STEP_START + 5000));
+  }
+
+  @Test
+  public void testRampIsNotSettled() {
+    SampleRingBuffer buffer = new SampleRingBuffer(64);
+
+    for (long t = STEP_START; t <= STEP_START + 5000; t = t + 100) {
+      buffer.add(t, 50 + (t - STEP_START) / 1000.0); // 1 per second, 2% of the mean
+    }
+
+    assertFalse(detector.isSettled(buffer, STEP_START, STEP_START + 5000));
+  }
+
+  @Test
+  public void testNoisyPlateau() {
+    Random random = new Random(1);
+    SampleRingBuffer quiet = new SampleRingBuffer(64);
+    SampleRingBuffer noisy = new SampleRingBuffer(64);
+
+    for (long t = STEP_START; t <= STEP_START + 5000; t = t + 100) {
+      double noise = random.nextGaussian();
+
+      quiet.add(t, 50 * (1 + 0.001 * noise));
+      noisy.add(t, 50 * (1 + 0.05 * noise));
+    }
+
+    assertTrue(detector.isSettled(quiet, STEP_START, STEP_START + 5000));
+    assertFalse(detector.isSettled(noisy, STEP_START, STEP_START + 5000));
+  }
+}
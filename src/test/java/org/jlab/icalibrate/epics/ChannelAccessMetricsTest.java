@@ -0,0 +1,55 @@
+package org.jlab.icalibrate.epics;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.lang.management.ManagementFactory;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import javax.management.openmbean.CompositeData;
+import org.junit.Test;
+
+/** Tests of the Channel Access latency histogram and metrics MBean. */
+public class ChannelAccessMetricsTest {
+
+  @Test
+  public void testPercentilesWithinBucket() {
+    LatencyHistogram histogram = new LatencyHistogram();
+
+    for (int i = 1; i <= 100; i++) {
+      histogram.record(i * 1000000L); // 1 to 100 ms
+    }
+
+    LatencySnapshot snapshot = histogram.snapshot();
+
+    assertEquals(100, snapshot.getCount());
+    assertEquals(50.5, snapshot.getMeanMillis(), 0.001);
+    assertEquals(100, snapshot.getMaxMillis(), 0.001);
+    // Bucket upper bounds overstate by at most a factor of two
+    assertTrue(snapshot.getP50Millis() >= 50 && snapshot.getP50Millis() <= 100);
+    assertTrue(snapshot.getP99Millis() >= 99 && snapshot.getP99Millis() <= 100);
+
+    histogram.reset();
+
+    assertEquals(0, histogram.snapshot().getCount());
+  }
+
+  @Test
+  public void testMBean() throws Exception {
+    ChannelAccessMetrics metrics = ChannelAccessMetrics.getInstance();
+    metrics.reset();
+    metrics.recordGet(2000000L);
+    metrics.recordTimeout("PV1");
+    metrics.recordTimeout("PV1");
+
+    ChannelAccessMetrics.registerMBean();
+
+    MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+    ObjectName name = new ObjectName(ChannelAccessMetrics.OBJECT_NAME);
+    CompositeData latency = (CompositeData) server.getAttribute(name, "GetLatency");
+
+    assertEquals(1L, latency.get("count"));
+    assertEquals(2L, (long) metrics.getTimeoutCounts().get("PV1"));
+    assertTrue(metrics.getSummary().contains("timeouts=2"));
+  }
+}
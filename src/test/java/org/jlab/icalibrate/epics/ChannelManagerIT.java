@@ -0,0 +1,164 @@
+package org.jlab.icalibrate.epics;
+
+import static org.junit.Assert.*;
+
+import gov.aps.jca.TimeoutException;
+import gov.aps.jca.dbr.DBR;
+import gov.aps.jca.dbr.DBRType;
+import gov.aps.jca.dbr.DBR_Enum;
+import gov.aps.jca.dbr.DBR_String;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+/** Exercises ChannelManager and ChannelMonitor over CA against the embedded server. */
+public class ChannelManagerIT {
+
+  private static EmbeddedCaServer server;
+  private static ChannelManager manager;
+
+  @BeforeClass
+  public static void setUpClass() throws Exception {
+    server = new EmbeddedCaServer();
+    server.start();
+    manager = new ChannelManager();
+    manager.whenReady().get(); // So registrations apply immediately
+  }
+
+  @AfterClass
+  public static void tearDownClass() throws Exception {
+    manager.close();
+    server.close();
+  }
+
+  @Test
+  public void testPutThenGet() throws Exception {
+    manager.put("psub_aa_ipos", 1234);
+
+    DBR dbr = manager.get("psub_aa_ipos");
+
+    assertEquals(1234, ((gov.aps.jca.dbr.DOUBLE) dbr).getDoubleValue()[0], 0);
+    assertEquals(1234, server.getValue("psub_aa_ipos"), 0);
+  }
+
+  @Test
+  public void testGetAllLasers() throws Exception {
+    server.setValue("MMSHLALASERC", 1);
+
+    BatchGetResult result =
+        manager.getAll(
+            Arrays.asList("MMSHLALASERA", "MMSHLALASERB", "MMSHLALASERC", "MMSHLALASERD"));
+
+    assertEquals(0, ((DBR_Enum) result.get("MMSHLALASERA")).getEnumValue()[0]);
+    assertEquals(1, ((DBR_Enum) result.get("MMSHLALASERC")).getEnumValue()[0]);
+
+    server.setValue("MMSHLALASERC", 0);
+  }
+
+  @Test
+  public void testMonitorReceivesUpdates() throws Exception {
+    CountDownLatch updates = new CountDownLatch(5);
+    PvListener listener =
+        new PvListener() {
+          @Override
+          public void notifyPvInfo(
+              String pv, boolean couldConnect, DBRType type, Integer count, String[] enumLabels) {
+            assertTrue(couldConnect);
+          }
+
+          @Override
+          public void notifyPvUpdate(String pv, DBR dbr) {
+            updates.countDown();
+          }
+        };
+
+    manager.addPv(listener, "IIC1H00Pk");
+
+    try {
+      assertTrue(updates.await(5, TimeUnit.SECONDS));
+    } finally {
+      manager.removeListener(listener);
+    }
+  }
+
+  @Test
+  public void testKeepWarmServesCachedReads() throws Exception {
+    Set<String> pvSet = Collections.singleton("HALL_A_TARGET");
+
+    server.setValue("HALL_A_TARGET", "Carbon");
+    manager.keepWarm(pvSet);
+
+    try {
+      long deadline = System.currentTimeMillis() + 5000;
+
+      while (!manager.getCached("HALL_A_TARGET", 0).isDone()) { // Wait for first monitor update
+        assertTrue(System.currentTimeMillis() < deadline);
+        Thread.sleep(50);
+      }
+
+      server.setLatencyMillis(1000); // A network read would now be slow
+
+      CompletableFuture<DBR> future = manager.getCached("HALL_A_TARGET", 0);
+
+      assertTrue(future.isDone());
+      assertEquals("Carbon", ((DBR_String) future.get()).getStringValue()[0]);
+    } finally {
+      server.setLatencyMillis(0);
+      manager.coolDown(pvSet);
+    }
+
+    assertFalse(manager.getPvToCountMap().containsKey("HALL_A_TARGET"));
+  }
+
+  @Test
+  public void testInjectedLatencyTimesOut() throws Exception {
+    manager.get(EmbeddedCaServer.FSD_PV); // Connect first so only the read is delayed
+
+    server.setLatencyMillis(1000);
+
+    try {
+      ChannelManager.await(manager.getAsync(EmbeddedCaServer.FSD_PV, 200));
+      fail("Expected timeout");
+    } catch (TimeoutException e) {
+      // Expected
+    } finally {
+      server.setLatencyMillis(0);
+    }
+  }
+
+  @Test
+  public void testRequestsBeforeReadyAreDeferred() throws Exception {
+    try (ChannelManager warming = new ChannelManager(ContextRole.EXPORT)) {
+      CountDownLatch updated = new CountDownLatch(1);
+      PvListener listener =
+          new PvListener() {
+            @Override
+            public void notifyPvInfo(
+                String pv, boolean couldConnect, DBRType type, Integer count, String[] labels) {
+              // Nothing to do
+            }
+
+            @Override
+            public void notifyPvUpdate(String pv, DBR dbr) {
+              updated.countDown();
+            }
+          };
+
+      // Issued right away, likely before the context is obtained
+      CompletableFuture<DBR> future = warming.getAsync(EmbeddedCaServer.FSD_PV);
+      warming.addPv(listener, EmbeddedCaServer.FSD_PV);
+
+      assertNotNull(ChannelManager.await(future));
+      assertTrue(updated.await(5, TimeUnit.SECONDS));
+      assertTrue(warming.whenReady().isDone());
+
+      warming.removeListener(listener);
+    }
+  }
+}
@@ -0,0 +1,213 @@
+package org.jlab.icalibrate.epics;
+
+import static org.junit.Assert.*;
+
+import gov.aps.jca.dbr.DBR;
+import gov.aps.jca.dbr.DBRType;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+/**
+ * Hammers the ChannelManager monitor registry from many threads at once, with listeners joining and
+ * leaving shared PVs, and verifies the registry ends up consistent: every remaining subscription
+ * has exactly one open monitor with the right listener count, and no monitor leaks.
+ */
+public class ChannelManagerRegistryIT {
+
+  private static final int PV_COUNT = 20;
+  private static final int THREADS = 16;
+  private static final int LISTENERS_PER_THREAD = 4;
+  private static final int ITERATIONS = 2000;
+
+  private static EmbeddedCaServer server;
+  private static ChannelManager manager;
+  private static final List<String> pvList = new ArrayList<>();
+
+  @BeforeClass
+  public static void setUpClass() throws Exception {
+    server = new EmbeddedCaServer();
+
+    for (int i = 0; i < PV_COUNT; i++) {
+      String pv = String.format("REGISTRY:PV%02d", i);
+      server.addDoublePv(pv, 0);
+      pvList.add(pv);
+    }
+
+    server.start();
+    manager = new ChannelManager();
+    manager.whenReady().get(); // So registrations apply immediately
+  }
+
+  @AfterClass
+  public static void tearDownClass() throws Exception {
+    manager.close();
+    server.close();
+  }
+
+  @Test
+  public void testConcurrentSubscribeUnsubscribe() throws Exception {
+    int baselineChannels = ChannelAccessMetrics.getInstance().getLiveChannelCount();
+    ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+    List<Future<List<CountingListener>>> futureList = new ArrayList<>();
+
+    for (int t = 0; t < THREADS; t++) {
+      long seed = t;
+      futureList.add(pool.submit(() -> hammer(seed)));
+    }
+
+    List<CountingListener> survivors = new ArrayList<>();
+
+    for (Future<List<CountingListener>> future : futureList) {
+      survivors.addAll(future.get(120, TimeUnit.SECONDS));
+    }
+
+    pool.shutdown();
+
+    // Each surviving listener kept a known set of PVs; the registry must agree exactly
+    Map<String, Integer> expectedCounts = new HashMap<>();
+
+    for (CountingListener listener : survivors) {
+      for (String pv : listener.pvSet) {
+        expectedCounts.merge(pv, 1, Integer::sum);
+      }
+
+      assertEquals(listener.pvSet, manager.getListenerToPvsMap().get(listener));
+    }
+
+    assertEquals(expectedCounts, manager.getPvToCountMap());
+
+    // Surviving monitors still deliver updates
+    for (String pv : expectedCounts.keySet()) {
+      server.setValue(pv, 42);
+    }
+
+    for (CountingListener listener : survivors) {
+      assertTrue(
+          "Listener missed updates: " + listener.pvSet,
+          listener.updated.await(30, TimeUnit.SECONDS));
+    }
+
+    for (CountingListener listener : survivors) {
+      manager.removeListener(listener);
+    }
+
+    assertTrue(manager.getPvToCountMap().isEmpty());
+    assertTrue(manager.getListenerToPvsMap().isEmpty());
+    assertEquals(baselineChannels, ChannelAccessMetrics.getInstance().getLiveChannelCount());
+  }
+
+  @Test
+  public void testClearPvsOfUnknownListenerRegistersNothing() {
+    CountingListener listener = new CountingListener();
+
+    manager.clearPvs(listener, new HashSet<>(pvList));
+
+    assertFalse(manager.getListenerToPvsMap().containsKey(listener));
+  }
+
+  @Test
+  public void testCloseDestroysMonitors() throws Exception {
+    int baselineChannels = ChannelAccessMetrics.getInstance().getLiveChannelCount();
+    ChannelManager other = new ChannelManager();
+    other.whenReady().get();
+
+    CountingListener listener = new CountingListener();
+    other.addPvs(listener, new HashSet<>(pvList));
+
+    assertEquals(PV_COUNT, other.getPvToCountMap().size());
+
+    other.close();
+
+    assertTrue(other.getPvToCountMap().isEmpty());
+    assertTrue(other.getListenerToPvsMap().isEmpty());
+    assertEquals(baselineChannels, ChannelAccessMetrics.getInstance().getLiveChannelCount());
+  }
+
+  /**
+   * Randomly subscribe and unsubscribe a few listeners, then leave each subscribed to a final
+   * random set of PVs.
+   */
+  private List<CountingListener> hammer(long seed) {
+    Random random = new Random(seed);
+    List<CountingListener> listenerList = new ArrayList<>();
+
+    for (int i = 0; i < LISTENERS_PER_THREAD; i++) {
+      listenerList.add(new CountingListener());
+    }
+
+    for (int i = 0; i < ITERATIONS; i++) {
+      CountingListener listener = listenerList.get(random.nextInt(LISTENERS_PER_THREAD));
+      Set<String> pvSet = randomPvs(random);
+
+      switch (random.nextInt(3)) {
+        case 0:
+          manager.addPvs(listener, pvSet);
+          break;
+        case 1:
+          manager.clearPvs(listener, pvSet);
+          break;
+        default:
+          manager.removeListener(listener);
+      }
+    }
+
+    for (CountingListener listener : listenerList) {
+      manager.removeListener(listener);
+      listener.subscribe(randomPvs(random));
+    }
+
+    return listenerList;
+  }
+
+  private static Set<String> randomPvs(Random random) {
+    Set<String> pvSet = new HashSet<>();
+    int count = 1 + random.nextInt(5);
+
+    for (int i = 0; i < count; i++) {
+      pvSet.add(pvList.get(random.nextInt(PV_COUNT)));
+    }
+
+    return pvSet;
+  }
+
+  /** A listener which counts down once each of its final PVs has been updated to 42. */
+  private static final class CountingListener implements PvListener {
+
+    private final Set<String> pvSet = ConcurrentHashMap.newKeySet();
+    private final Set<String> updatedSet = ConcurrentHashMap.newKeySet();
+    private volatile CountDownLatch updated = new CountDownLatch(0);
+
+    private void subscribe(Set<String> finalPvSet) {
+      pvSet.addAll(finalPvSet);
+      updated = new CountDownLatch(finalPvSet.size());
+      manager.addPvs(this, finalPvSet);
+    }
+
+    @Override
+    public void notifyPvInfo(
+        String pv, boolean couldConnect, DBRType type, Integer count, String[] enumLabels) {}
+
+    @Override
+    public void notifyPvUpdate(String pv, DBR dbr) {
+      double value = ((gov.aps.jca.dbr.DOUBLE) dbr).getDoubleValue()[0];
+
+      if (value == 42 && pvSet.contains(pv) && updatedSet.add(pv)) {
+        updated.countDown();
+      }
+    }
+  }
+}
@@ -0,0 +1,73 @@
+package org.jlab.icalibrate.epics;
+
+import static org.junit.Assert.*;
+
+import com.cosylab.epics.caj.CAJContext;
+import gov.aps.jca.CAException;
+import gov.aps.jca.configuration.DefaultConfiguration;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/** Exercises ContextPool checkout, timeout, and replacement with real CAJ contexts. */
+public class ContextPoolIT {
+
+  private final ChannelAccessMetrics metrics = ChannelAccessMetrics.getInstance();
+  private ContextPool pool;
+
+  @Before
+  public void setUp() throws Exception {
+    DefaultConfiguration config = new DefaultConfiguration("ContextPoolIT");
+    config.setAttribute("addr_list", "127.0.0.1");
+    config.setAttribute("auto_addr_list", "false");
+    config.setAttribute("pool_max", "1");
+    config.setAttribute("pool_timeout", "200");
+    config.setAttribute("pool_health_check_seconds", "0");
+
+    pool = new ContextPool(config);
+  }
+
+  @After
+  public void tearDown() throws Exception {
+    pool.destroy();
+  }
+
+  @Test
+  public void testExhaustedPoolTimesOut() throws Exception {
+    long timeouts = metrics.getContextPoolTimeoutCount();
+    CAJContext context = pool.getContext();
+
+    try {
+      pool.getContext();
+      fail("Expected CAException");
+    } catch (CAException e) {
+      assertTrue(e.getMessage(), e.getMessage().contains("timeout"));
+    }
+
+    assertEquals(timeouts + 1, metrics.getContextPoolTimeoutCount());
+
+    pool.returnContext(context);
+
+    assertSame(context, pool.getContext());
+
+    pool.returnContext(context);
+  }
+
+  @Test
+  public void testNonViableContextReplacedOnReturn() throws Exception {
+    long replacements = metrics.getContextReplacementCount();
+    CAJContext context = pool.getContext();
+
+    context.destroy();
+    pool.returnContext(context);
+
+    CAJContext replacement = pool.getContext();
+
+    assertNotSame(context, replacement);
+    assertTrue(replacement.isInitialized());
+    assertFalse(replacement.isDestroyed());
+    assertEquals(replacements + 1, metrics.getContextReplacementCount());
+
+    pool.returnContext(replacement);
+  }
+}
@@ -0,0 +1,367 @@
+package org.jlab.icalibrate.epics;
+
+import com.cosylab.epics.caj.cas.util.DefaultServerImpl;
+import com.cosylab.epics.caj.cas.util.MemoryProcessVariable;
+import gov.aps.jca.CAException;
+import gov.aps.jca.CAStatus;
+import gov.aps.jca.JCALibrary;
+import gov.aps.jca.cas.ProcessVariableReadCallback;
+import gov.aps.jca.cas.ProcessVariableWriteCallback;
+import gov.aps.jca.cas.ServerContext;
+import gov.aps.jca.configuration.DefaultConfiguration;
+import gov.aps.jca.dbr.DBR;
+import gov.aps.jca.dbr.DBRType;
+import gov.aps.jca.dbr.DBR_Double;
+import gov.aps.jca.dbr.DBR_String;
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * An in-process Channel Access server for integration and load tests. It serves the same record
+ * set as the container/softioc image (laser enables, hall pass, target, laser mode, attenuators,
+ * hall currents, master FSD voltage, and the Pk / MAx / MAX records of each ion chamber) so the
+ * application can be exercised over real CA wire traffic without any outside services.
+ *
+ * <p>While running, the hall current of each hall follows the attenuator of the laser enabled for
+ * the hall (current = attenuator * currentPerCount) and each ion chamber dose rate follows its hall
+ * current (dose rate = current * doseRatePerCurrent). These PVs are updated at a configurable
+ * period. A configurable latency can be injected into every client read and write.
+ *
+ * <p>The server listens on the default CA port so the test epics.properties (addr_list=127.0.0.1)
+ * finds it; the docker softioc must not be running at the same time.
+ *
+ * @author ryans
+ */
+public class EmbeddedCaServer implements Closeable {
+
+  private static final Logger LOGGER = Logger.getLogger(EmbeddedCaServer.class.getName());
+
+  /** The default ion chambers, matching container/softioc/db/st.cmd. */
+  public static final List<String> DEFAULT_ION_CHAMBERS =
+      Collections.unmodifiableList(
+          Arrays.asList("IIC1H00", "IIC1H05", "IIC1H04A", "IIC1P03", "IICD107", "IICD107A"));
+
+  private static final String[] HALLS = {"A", "C", "D"};
+  private static final String[] LASERS = {"A", "B", "C", "D"};
+  private static final String[] CURRENT_PVS = {"IBC1H04CRCUR2", "IBC3H00CRCUR4", "IBCAD00CRCUR6"};
+  private static final String[] LASER_LABELS = {"disabled", "enabled"};
+  private static final String[] MODE_LABELS = {"BEAM_SYNC", "TUNE", "CW"};
+
+  /** The master FSD voltage PV. */
+  public static final String FSD_PV = "ISD0I011G";
+
+  private final DefaultServerImpl server = new DefaultServerImpl();
+  private final Map<String, LatentProcessVariable> pvMap = new LinkedHashMap<>();
+  private final Map<String, String> chamberHallMap = new LinkedHashMap<>();
+
+  private volatile long latencyMillis = 0;
+  private long updatePeriodMillis = 100;
+  private double currentPerCount = 0.1;
+  private double doseRatePerCurrent = 10;
+
+  private ServerContext context;
+  private ScheduledExecutorService updater;
+  private Thread serverThread;
+
+  /** Create a new EmbeddedCaServer serving the default ion chambers of Hall A. */
+  public EmbeddedCaServer() {
+    this("A", DEFAULT_ION_CHAMBERS);
+  }
+
+  /**
+   * Create a new EmbeddedCaServer serving the given ion chambers.
+   *
+   * @param hall The hall (A, C, or D) whose current drives the ion chambers
+   * @param ionChambers The ion chamber EPICS names
+   */
+  public EmbeddedCaServer(String hall, List<String> ionChambers) {
+    for (String h : HALLS) {
+      for (String laser : LASERS) {
+        addEnumPv("MMSHL" + h + "LASER" + laser, LASER_LABELS);
+      }
+
+      addEnumPv("MMSHL" + h + "PASS", new String[] {"1", "2", "3", "4", "5"});
+      addPv("HALL_" + h + "_TARGET", DBRType.STRING, new String[] {"Unknown"}, null);
+    }
+
+    for (String laser : LASERS) {
+      addEnumPv("IGL1I00HALL" + laser + "MODE", MODE_LABELS);
+      addDoublePv("psub_a" + laser.toLowerCase() + "_ipos", 0);
+    }
+
+    for (String pv : CURRENT_PVS) {
+      addDoublePv(pv, 0);
+    }
+
+    addDoublePv(FSD_PV, 0);
+
+    for (String ic : ionChambers) {
+      addDoublePv(ic + "Pk", 0);
+      addDoublePv(ic + "MAx", 0);
+      addDoublePv(ic + "MAX", 0);
+      chamberHallMap.put(ic + "Pk", hall);
+    }
+  }
+
+  /**
+   * Set how often the modeled current and dose rate PVs are updated. Must be called before start.
+   *
+   * @param updatePeriodMillis The update period in milliseconds
+   */
+  public void setUpdatePeriodMillis(long updatePeriodMillis) {
+    this.updatePeriodMillis = updatePeriodMillis;
+  }
+
+  /**
+   * Set the hall current per attenuator count.
+   *
+   * @param currentPerCount The current per count
+   */
+  public void setCurrentPerCount(double currentPerCount) {
+    this.currentPerCount = currentPerCount;
+  }
+
+  /**
+   * Set the ion chamber dose rate per unit of hall current.
+   *
+   * @param doseRatePerCurrent The dose rate per current
+   */
+  public void setDoseRatePerCurrent(double doseRatePerCurrent) {
+    this.doseRatePerCurrent = doseRatePerCurrent;
+  }
+
+  /**
+   * Set the delay injected into every client read and write. May be changed while running.
+   *
+   * @param latencyMillis The latency in milliseconds
+   */
+  public void setLatencyMillis(long latencyMillis) {
+    this.latencyMillis = latencyMillis;
+  }
+
+  /**
+   * Serve an additional double PV, for example to load test with many PVs. Must be called before
+   * start.
+   *
+   * @param name The PV name
+   * @param value The initial value
+   */
+  public void addDoublePv(String name, double value) {
+    addPv(name, DBRType.DOUBLE, new double[] {value}, null);
+  }
+
+  private void addEnumPv(String name, String[] labels) {
+    addPv(name, DBRType.ENUM, new short[] {0}, labels);
+  }
+
+  private void addPv(String name, DBRType type, Object value, String[] labels) {
+    LatentProcessVariable pv = new LatentProcessVariable(name, type, value, labels);
+
+    pvMap.put(name, pv);
+    server.registerProcessVaribale(pv);
+  }
+
+  /**
+   * Return the names of all served PVs.
+   *
+   * @return The PV names
+   */
+  public List<String> getPvNames() {
+    return new ArrayList<>(pvMap.keySet());
+  }
+
+  /**
+   * Start serving. The CA server runs on a daemon thread.
+   *
+   * @throws CAException If unable to create the server context
+   */
+  public void start() throws CAException {
+    DefaultConfiguration config = new DefaultConfiguration("EmbeddedCaServer");
+    config.setAttribute("class", JCALibrary.CHANNEL_ACCESS_SERVER_JAVA);
+    config.setAttribute("beacon_addr_list", "127.0.0.1");
+    config.setAttribute("auto_beacon_addr_list", "false");
+
+    context = JCALibrary.getInstance().createServerContext(config, server);
+
+    serverThread =
+        new Thread(
+            () -> {
+              try {
+                context.run(0);
+              } catch (CAException e) {
+                LOGGER.log(Level.SEVERE, "Embedded CA server failed", e);
+              }
+            },
+            "EmbeddedCaServer");
+    serverThread.setDaemon(true);
+    serverThread.start();
+
+    updater = Executors.newSingleThreadScheduledExecutor();
+    updater.scheduleAtFixedRate(
+        this::update, updatePeriodMillis, updatePeriodMillis, TimeUnit.MILLISECONDS);
+  }
+
+  /**
+   * Set the value of a served PV from the server side, posting a monitor update to clients.
+   *
+   * @param name The PV name
+   * @param value The value
+   * @throws CAException If unable to write the value
+   */
+  public void setValue(String name, double value) throws CAException {
+    getPv(name).serverWrite(new DBR_Double(new double[] {value}));
+  }
+
+  /**
+   * Set the value of a served string PV from the server side.
+   *
+   * @param name The PV name
+   * @param value The value
+   * @throws CAException If unable to write the value
+   */
+  public void setValue(String name, String value) throws CAException {
+    getPv(name).serverWrite(new DBR_String(new String[] {value}));
+  }
+
+  /**
+   * Return the value of a served numeric PV.
+   *
+   * @param name The PV name
+   * @return The value
+   */
+  public double getValue(String name) {
+    Object value = getPv(name).getValue();
+
+    if (value instanceof double[]) {
+      return ((double[]) value)[0];
+    } else if (value instanceof short[]) {
+      return ((short[]) value)[0];
+    }
+
+    throw new IllegalArgumentException("PV is not numeric: " + name);
+  }
+
+  private LatentProcessVariable getPv(String name) {
+    LatentProcessVariable pv = pvMap.get(name);
+
+    if (pv == null) {
+      throw new IllegalArgumentException("PV not served: " + name);
+    }
+
+    return pv;
+  }
+
+  /** Update the modeled hall currents and ion chamber dose rates. */
+  private void update() {
+    try {
+      Map<String, Double> currentMap = new LinkedHashMap<>();
+
+      for (int i = 0; i < HALLS.length; i++) {
+        double current = 0;
+
+        for (String laser : LASERS) {
+          if (getValue("MMSHL" + HALLS[i] + "LASER" + laser) == 1) {
+            current = current + getValue("psub_a" + laser.toLowerCase() + "_ipos");
+          }
+        }
+
+        current = Math.max(0, current * currentPerCount);
+        currentMap.put(HALLS[i], current);
+        setValue(CURRENT_PVS[i], current);
+      }
+
+      for (Map.Entry<String, String> entry : chamberHallMap.entrySet()) {
+        setValue(entry.getKey(), currentMap.get(entry.getValue()) * doseRatePerCurrent);
+      }
+    } catch (CAException | RuntimeException e) {
+      LOGGER.log(Level.WARNING, "Unable to update modeled PVs", e);
+    }
+  }
+
+  /** Stop serving. */
+  @Override
+  public void close() {
+    if (updater != null) {
+      updater.shutdownNow();
+    }
+
+    if (context != null) {
+      try {
+        context.destroy();
+      } catch (CAException e) {
+        LOGGER.log(Level.WARNING, "Unable to destroy embedded CA server", e);
+      }
+    }
+
+    if (serverThread != null) {
+      try {
+        serverThread.join(5000);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+    }
+  }
+
+  /**
+   * A memory PV which delays client requests by the configured latency and converts written values
+   * to its own type (a client may put a double to an enum record, for example).
+   */
+  private class LatentProcessVariable extends MemoryProcessVariable {
+
+    private final String[] labels;
+
+    private LatentProcessVariable(String name, DBRType type, Object value, String[] labels) {
+      super(name, null, type, value);
+      this.labels = labels;
+    }
+
+    /**
+     * Return the enum labels, or null if not an enum.
+     *
+     * @return The labels
+     */
+    public String[] getEnumLabels() {
+      return labels;
+    }
+
+    @Override
+    public CAStatus read(DBR value, ProcessVariableReadCallback callback) throws CAException {
+      delay();
+      return super.read(value, callback);
+    }
+
+    @Override
+    public CAStatus write(DBR value, ProcessVariableWriteCallback callback) throws CAException {
+      delay();
+      return serverWrite(value);
+    }
+
+    private CAStatus serverWrite(DBR value) throws CAException {
+      DBR converted = value.getType() == getType() ? value : value.convert(getType());
+
+      return super.write(converted, null);
+    }
+
+    private void delay() {
+      long millis = latencyMillis;
+
+      if (millis > 0) {
+        try {
+          Thread.sleep(millis);
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+        }
+      }
+    }
+  }
+}
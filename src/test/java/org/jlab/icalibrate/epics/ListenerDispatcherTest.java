@@ -0,0 +1,179 @@
+package org.jlab.icalibrate.epics;
+
+import static org.junit.Assert.*;
+
+import gov.aps.jca.dbr.DBR;
+import gov.aps.jca.dbr.DBRType;
+import gov.aps.jca.dbr.DBR_Double;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import org.junit.After;
+import org.junit.Test;
+
+/** Tests queued delivery of monitor notifications to slow listeners. */
+public class ListenerDispatcherTest {
+
+  private final ExecutorService executor = Executors.newFixedThreadPool(2);
+
+  @After
+  public void tearDown() {
+    executor.shutdownNow();
+  }
+
+  @Test
+  public void testLosslessDeliversEveryUpdateInOrder() throws Exception {
+    RecordingListener listener = new RecordingListener(DeliveryMode.LOSSLESS, 1000);
+    ListenerDispatcher dispatcher = new ListenerDispatcher(listener, executor, 1000);
+
+    dispatcher.info("PV1", true, DBRType.DOUBLE, 1, null);
+
+    for (int i = 0; i < 1000; i++) {
+      dispatcher.update("PV1", value(i));
+    }
+
+    assertTrue(listener.done.await(10, TimeUnit.SECONDS));
+    assertTrue(listener.info);
+
+    for (int i = 0; i < 1000; i++) {
+      assertEquals(i, listener.valueList.get(i), 0);
+    }
+  }
+
+  @Test
+  public void testSlowListenerDoesNotBlockCaller() throws Exception {
+    CountDownLatch release = new CountDownLatch(1);
+    RecordingListener listener = new RecordingListener(DeliveryMode.LATEST, 2);
+    listener.gate = release;
+    ListenerDispatcher dispatcher = new ListenerDispatcher(listener, executor, 10);
+
+    long start = System.nanoTime();
+
+    dispatcher.update("PV1", value(0)); // Listener blocks on this one
+
+    for (int i = 1; i <= 10000; i++) {
+      dispatcher.update("PV1", value(i));
+    }
+
+    long elapsedMillis = (System.nanoTime() - start) / 1000000;
+    assertTrue("Caller blocked " + elapsedMillis + " ms", elapsedMillis < 1000);
+
+    release.countDown();
+
+    // Latest value wins: the backlog collapses into the newest value
+    assertTrue(listener.done.await(10, TimeUnit.SECONDS));
+    assertEquals(10000, listener.valueList.get(listener.valueList.size() - 1), 0);
+    assertTrue(listener.valueList.size() < 10);
+  }
+
+  @Test
+  public void testLosslessOverflowDrops() throws Exception {
+    CountDownLatch release = new CountDownLatch(1);
+    RecordingListener listener = new RecordingListener(DeliveryMode.LOSSLESS, 11);
+    listener.gate = release;
+    ListenerDispatcher dispatcher = new ListenerDispatcher(listener, executor, 10);
+
+    ChannelAccessMetrics.getInstance().reset();
+
+    dispatcher.update("PV1", value(0));
+
+    while (listener.entered.getCount() > 0) { // Wait until the listener holds the first update
+      Thread.sleep(1);
+    }
+
+    for (int i = 1; i <= 20; i++) {
+      dispatcher.update("PV1", value(i));
+    }
+
+    release.countDown();
+
+    assertTrue(listener.done.await(10, TimeUnit.SECONDS));
+    assertEquals(10L, (long) ChannelAccessMetrics.getInstance().getDispatchDropCounts().get("PV1"));
+    assertEquals(10, listener.valueList.get(10), 0);
+  }
+
+  @Test
+  public void testFullQueueKeepsConnectionChanges() throws Exception {
+    CountDownLatch release = new CountDownLatch(1);
+    RecordingListener listener = new RecordingListener(DeliveryMode.LOSSLESS, 11);
+    listener.gate = release;
+    ListenerDispatcher dispatcher = new ListenerDispatcher(listener, executor, 10);
+
+    dispatcher.update("PV1", value(0));
+
+    while (listener.entered.getCount() > 0) { // Wait until the listener holds the first update
+      Thread.sleep(1);
+    }
+
+    for (int i = 1; i <= 20; i++) {
+      dispatcher.update("PV1", value(i));
+    }
+
+    dispatcher.connection("PV1", PvConnectionState.DISCONNECTED, 0);
+
+    release.countDown();
+
+    assertTrue(listener.done.await(10, TimeUnit.SECONDS));
+    assertTrue(listener.disconnected.await(10, TimeUnit.SECONDS));
+    assertEquals(11, listener.valuesBeforeDisconnect); // Delivered in order after the updates
+  }
+
+  private static DBR value(double value) {
+    return new DBR_Double(new double[] {value});
+  }
+
+  private static final class RecordingListener implements PvListener {
+
+    private final DeliveryMode mode;
+    private final List<Double> valueList = new CopyOnWriteArrayList<>();
+    private final CountDownLatch done;
+    private final CountDownLatch entered = new CountDownLatch(1);
+    private final CountDownLatch disconnected = new CountDownLatch(1);
+    private volatile CountDownLatch gate;
+    private volatile boolean info;
+    private volatile int valuesBeforeDisconnect = -1;
+
+    private RecordingListener(DeliveryMode mode, int expected) {
+      this.mode = mode;
+      this.done = new CountDownLatch(expected);
+    }
+
+    @Override
+    public void notifyPvInfo(
+        String pv, boolean couldConnect, DBRType type, Integer count, String[] enumLabels) {
+      info = couldConnect;
+    }
+
+    @Override
+    public void notifyPvConnection(String pv, PvConnectionState state, long sinceMillis) {
+      if (state == PvConnectionState.DISCONNECTED) {
+        valuesBeforeDisconnect = valueList.size();
+        disconnected.countDown();
+      }
+    }
+
+    @Override
+    public void notifyPvUpdate(String pv, DBR dbr) {
+      entered.countDown();
+
+      if (gate != null) {
+        try {
+          gate.await();
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+        }
+      }
+
+      valueList.add(((DBR_Double) dbr).getDoubleValue()[0]);
+      done.countDown();
+    }
+
+    @Override
+    public DeliveryMode getDeliveryMode() {
+      return mode;
+    }
+  }
+}
@@ -0,0 +1,102 @@
+package org.jlab.icalibrate.epics;
+
+import static org.junit.Assert.*;
+
+import gov.aps.jca.dbr.DBR;
+import gov.aps.jca.dbr.DBRType;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+/** Monitors and reads hundreds of PVs at once over CA against the embedded server. */
+public class MonitorLoadIT {
+
+  private static final int PV_COUNT = 500;
+
+  private static EmbeddedCaServer server;
+  private static ChannelManager manager;
+  private static final List<String> pvList = new ArrayList<>();
+
+  @BeforeClass
+  public static void setUpClass() throws Exception {
+    server = new EmbeddedCaServer();
+
+    for (int i = 0; i < PV_COUNT; i++) {
+      String pv = String.format("LOAD:PV%03d", i);
+      server.addDoublePv(pv, 0);
+      pvList.add(pv);
+    }
+
+    server.start();
+    manager = new ChannelManager();
+    manager.whenReady().get(); // So registrations apply immediately
+  }
+
+  @AfterClass
+  public static void tearDownClass() throws Exception {
+    manager.close();
+    server.close();
+  }
+
+  @Test
+  public void testGetAll() throws Exception {
+    BatchGetResult result = manager.getAll(pvList);
+
+    for (String pv : pvList) {
+      assertTrue(pv, result.isSuccess(pv));
+    }
+  }
+
+  @Test
+  public void testMonitorEveryPv() throws Exception {
+    CountDownLatch connected = new CountDownLatch(PV_COUNT);
+    CountDownLatch updated = new CountDownLatch(PV_COUNT);
+    Set<String> updatedSet = ConcurrentHashMap.newKeySet();
+
+    PvListener listener =
+        new PvListener() {
+          @Override
+          public void notifyPvInfo(
+              String pv, boolean couldConnect, DBRType type, Integer count, String[] enumLabels) {
+            if (couldConnect) {
+              connected.countDown();
+            }
+          }
+
+          @Override
+          public void notifyPvUpdate(String pv, DBR dbr) {
+            double value = ((gov.aps.jca.dbr.DOUBLE) dbr).getDoubleValue()[0];
+
+            if (value == 1 && updatedSet.add(pv)) {
+              updated.countDown();
+            }
+          }
+        };
+
+    manager.addPvs(listener, new LinkedHashSet<>(pvList));
+
+    try {
+      assertTrue("Not all PVs connected", connected.await(30, TimeUnit.SECONDS));
+
+      long start = System.currentTimeMillis();
+
+      for (String pv : pvList) {
+        server.setValue(pv, 1);
+      }
+
+      assertTrue("Not all PVs updated", updated.await(30, TimeUnit.SECONDS));
+
+      System.out.println(
+          PV_COUNT + " monitor updates in " + (System.currentTimeMillis() - start) + " ms");
+    } finally {
+      manager.removeListener(listener);
+    }
+  }
+}
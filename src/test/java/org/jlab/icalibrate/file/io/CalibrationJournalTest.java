@@ -0,0 +1,101 @@
+package org.jlab.icalibrate.file.io;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.InputStream;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+import javax.json.Json;
+import javax.json.JsonObject;
+import javax.json.JsonReader;
+import org.jlab.icalibrate.ICalibrateApp;
+import org.jlab.icalibrate.model.CalibrationCheckpoint;
+import org.jlab.icalibrate.model.CreateNewDatasetParameters;
+import org.jlab.icalibrate.model.DoseRateMeasurement;
+import org.jlab.icalibrate.model.Hall;
+import org.jlab.icalibrate.model.IonChamber;
+import org.jlab.icalibrate.model.Laser;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/** Round trips calibration journals through the writer and reader. */
+public class CalibrationJournalTest {
+
+  @Rule public TemporaryFolder folder = new TemporaryFolder();
+
+  @Before
+  public void setUp() throws Exception {
+    try (InputStream in =
+        ICalibrateApp.class.getClassLoader().getResourceAsStream("icalibrate.properties")) {
+      ICalibrateApp.APP_PROPERTIES.load(in);
+    }
+  }
+
+  @Test
+  public void testEachChamberKeepsItsOwnCurrent() throws Exception {
+    File file = writeOneStep();
+
+    CalibrationCheckpoint checkpoint = new CalibrationJournalReader().read(file);
+    List<List<DoseRateMeasurement>> matrix = checkpoint.copyMeasurementMatrix();
+
+    assertEquals(1, checkpoint.getNextStep());
+    assertEquals(10, matrix.get(0).get(0).getCurrent(), 0);
+    assertEquals(12, matrix.get(1).get(0).getCurrent(), 0);
+  }
+
+  @Test
+  public void testStepKeepsSettleTime() throws Exception {
+    File file = writeOneStep();
+
+    List<String> lineList = Files.readAllLines(file.toPath(), StandardCharsets.UTF_8);
+    JsonObject step;
+
+    try (JsonReader reader = Json.createReader(new StringReader(lineList.get(1)))) {
+      step = reader.readObject();
+    }
+
+    assertEquals("step", step.getString("type"));
+    assertEquals(1500, step.getJsonNumber("settleMillis").longValue());
+  }
+
+  private File writeOneStep() throws Exception {
+    List<IonChamber> icList =
+        Arrays.asList(
+            IonChamber.newInstance(Hall.A, "IC1", "One", null),
+            IonChamber.newInstance(Hall.A, "IC2", "Two", null));
+
+    CreateNewDatasetParameters params = new CreateNewDatasetParameters(null);
+    params.setHall(Hall.A);
+    params.setLaser(Laser.A);
+    params.setMinAttenuator(0);
+    params.setMaxAttenuator(1000);
+    params.setNumberOfSteps(1);
+    params.setSettleSeconds(10);
+    params.setSamplesPerStep(10);
+    params.setIonChamberList(icList);
+
+    File file = new File(folder.getRoot(), "run.journal");
+
+    CalibrationJournalWriter writer = new CalibrationJournalWriter(file);
+    writer.writeStart(params, 0, new Date());
+    writer.writeStep(
+        0,
+        0,
+        1500,
+        0,
+        1000,
+        icList,
+        Arrays.asList(
+            new DoseRateMeasurement(10, 1, 5, 0.1), new DoseRateMeasurement(12, 2, 5, 0.2)));
+    writer.close();
+
+    return file;
+  }
+}
@@ -0,0 +1,114 @@
+package org.jlab.icalibrate.file.io;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/** Exercises the sample trace ring file: wrap, resume, and replay. */
+public class SampleTraceWriterTest {
+
+  @Rule public TemporaryFolder folder = new TemporaryFolder();
+
+  @Test
+  public void testWrappedTraceReplaysRetainedOldestFirst() throws Exception {
+    File file = new File(folder.getRoot(), "run.trace");
+
+    try (SampleTraceWriter writer = new SampleTraceWriter(file, Arrays.asList("A", "B"), 4)) {
+      for (int i = 0; i < 10; i++) {
+        writer.record(i % 2 == 0 ? "A" : "B", i, i + 1000, i * 0.5);
+      }
+
+      writer.record("NOT_TRACED", 99, 99, 99);
+    }
+
+    SampleTraceReader reader = new SampleTraceReader(file);
+    List<Double> values = new ArrayList<>();
+
+    assertEquals(Arrays.asList("A", "B"), reader.getPvs());
+    assertEquals(10, reader.getCount());
+    assertTrue(reader.isWrapped());
+
+    int replayed =
+        reader.replay(
+            (pv, receivedMillis, sourceMillis, value) -> {
+              assertEquals(receivedMillis % 2 == 0 ? "A" : "B", pv);
+              assertEquals(receivedMillis + 1000, sourceMillis);
+              values.add(value);
+            });
+
+    assertEquals(4, replayed);
+    assertEquals(Arrays.asList(3.0, 3.5, 4.0, 4.5), values);
+  }
+
+  @Test
+  public void testTornRecordIsSkipped() throws Exception {
+    File file = new File(folder.getRoot(), "run.trace");
+
+    try (SampleTraceWriter writer = new SampleTraceWriter(file, Arrays.asList("A"), 4)) {
+      for (int i = 0; i < 6; i++) {
+        writer.record("A", i, i, i);
+      }
+    }
+
+    // Tear the value of the record in slot 1 (record 5) as if the crash hit mid-write
+    try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+      raf.seek(SampleTraceWriter.DATA_OFFSET_OFFSET);
+      raf.seek(raf.readInt() + SampleTraceWriter.RECORD_BYTES + 20);
+      raf.writeLong(Double.doubleToRawLongBits(99));
+    }
+
+    List<Double> values = new ArrayList<>();
+
+    new SampleTraceReader(file)
+        .replay((pv, receivedMillis, sourceMillis, value) -> values.add(value));
+
+    assertEquals(Arrays.asList(2.0, 3.0, 4.0), values);
+  }
+
+  @Test
+  public void testOldTracesDeleted() throws Exception {
+    File current = folder.newFile("d.trace");
+    File journal = folder.newFile("a.journal");
+
+    for (int i = 0; i < 3; i++) {
+      folder.newFile((char) ('a' + i) + ".trace").setLastModified(1000000L * (i + 1));
+    }
+
+    SampleTraceWriter.deleteOldTraces(current, 3);
+
+    assertFalse(new File(folder.getRoot(), "a.trace").exists());
+    assertTrue(new File(folder.getRoot(), "b.trace").exists());
+    assertTrue(new File(folder.getRoot(), "c.trace").exists());
+    assertTrue(current.exists());
+    assertTrue(journal.exists());
+  }
+
+  @Test
+  public void testReopenedTraceContinues() throws Exception {
+    File file = SampleTraceWriter.traceFileFor(new File(folder.getRoot(), "run.journal"));
+    List<String> pvs = Arrays.asList("A");
+
+    assertEquals("run.trace", file.getName());
+
+    try (SampleTraceWriter writer = new SampleTraceWriter(file, pvs, 8)) {
+      writer.record("A", 1, 1, 1);
+    }
+
+    try (SampleTraceWriter writer = new SampleTraceWriter(file, pvs, 8)) {
+      writer.record("A", 2, 2, 2);
+    }
+
+    assertEquals(2, new SampleTraceReader(file).getCount());
+
+    try (SampleTraceWriter writer = new SampleTraceWriter(file, Arrays.asList("B"), 8)) {
+      assertEquals(0, writer.getCount()); // Different PVs so replaced
+    }
+  }
+}
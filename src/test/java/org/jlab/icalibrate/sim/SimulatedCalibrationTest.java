@@ -0,0 +1,260 @@
+package org.jlab.icalibrate.sim;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import org.jlab.icalibrate.ICalibrateApp;
+import org.jlab.icalibrate.calibration.CalibrationEngine;
+import org.jlab.icalibrate.calibration.CalibrationState;
+import org.jlab.icalibrate.calibration.MonitorSampler;
+import org.jlab.icalibrate.file.io.DatasetFileReader;
+import org.jlab.icalibrate.file.io.SampleTraceReader;
+import org.jlab.icalibrate.file.io.SampleTraceWriter;
+import org.jlab.icalibrate.model.CreateNewDatasetParameters;
+import org.jlab.icalibrate.model.DoseRateMeasurement;
+import org.jlab.icalibrate.model.HallCalibrationDataset;
+import org.jlab.icalibrate.model.IonChamber;
+import org.jlab.icalibrate.model.IonChamberDataset;
+import org.jlab.icalibrate.model.Laser;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/** Runs full calibrations against the simulator in virtual time. */
+public class SimulatedCalibrationTest {
+
+  private static final File SEED_FILE = new File("examples/A-2016-10-11T16-47-Carbon-4.hcd");
+  private static final int MAX_ATTENUATOR = 1000;
+  private static final int NUMBER_OF_STEPS = 10;
+  private static final int SETTLE_SECONDS = 10;
+  private static final int SAMPLES_PER_STEP = 10;
+
+  @Rule public TemporaryFolder folder = new TemporaryFolder();
+
+  private HallCalibrationDataset seed;
+  private String writeAllowed;
+  private String journalDir;
+
+  @Before
+  public void setUp() throws Exception {
+    writeAllowed = ICalibrateApp.APP_PROPERTIES.getProperty("WRITE_ALLOWED");
+    journalDir = ICalibrateApp.APP_PROPERTIES.getProperty("JOURNAL_DIR");
+
+    try (InputStream in =
+        ICalibrateApp.class.getClassLoader().getResourceAsStream("icalibrate.properties")) {
+      ICalibrateApp.APP_PROPERTIES.load(in);
+    }
+
+    ICalibrateApp.APP_PROPERTIES.setProperty("WRITE_ALLOWED", "true");
+
+    seed = new DatasetFileReader().read(SEED_FILE);
+  }
+
+  @After
+  public void tearDown() {
+    restoreProperty("WRITE_ALLOWED", writeAllowed);
+    restoreProperty("JOURNAL_DIR", journalDir);
+  }
+
+  @Test
+  public void testFullRunInVirtualTime() throws Exception {
+    VirtualClock clock = new VirtualClock(0);
+    SimulatedChannelAccess sim =
+        SimulatedChannelAccess.fromDataset(clock, 1, seed, Laser.A, MAX_ATTENUATOR);
+    CalibrationEngine engine = newEngine(sim, clock);
+
+    HallCalibrationDataset result = engine.run();
+
+    assertFalse(engine.isInterrupted());
+
+    for (IonChamberDataset icDataset : result.getMeasuredDoseRateDataset()) {
+      assertEquals(NUMBER_OF_STEPS + 1, icDataset.getMeasurementList().size());
+    }
+
+    List<DoseRateMeasurement> measurementList = lastChamber(result).getMeasurementList();
+    DoseRateMeasurement first = measurementList.get(0);
+    DoseRateMeasurement last = measurementList.get(NUMBER_OF_STEPS);
+    double current = sim.getTrueCurrent();
+
+    assertTrue(first.getDoseRateRadsPerHour() < last.getDoseRateRadsPerHour());
+    assertEquals(current, last.getCurrent(), 0.02 * current);
+
+    // All of the run's waiting was settling and sampling on the virtual clock; how much faster than
+    // real time that runs is measured by SimulatedCalibrationBenchmark
+    long sampleMillis =
+        (NUMBER_OF_STEPS + 1) * SAMPLES_PER_STEP * CalibrationEngine.SAMPLE_FREQUENCY_MILLIS;
+    long settleMillis = 0;
+
+    for (long millis : engine.getSettleMillisList()) {
+      assertTrue(millis <= SETTLE_SECONDS * 1000L);
+      settleMillis = settleMillis + millis;
+    }
+
+    assertEquals(NUMBER_OF_STEPS + 1, engine.getSettleMillisList().size());
+    assertEquals(sampleMillis + settleMillis, clock.currentTimeMillis());
+  }
+
+  @Test
+  public void testSameSeedSameResult() throws Exception {
+    HallCalibrationDataset first = runWithSeed(42);
+    HallCalibrationDataset second = runWithSeed(42);
+
+    List<IonChamberDataset> firstList = first.getMeasuredDoseRateDataset();
+    List<IonChamberDataset> secondList = second.getMeasuredDoseRateDataset();
+
+    assertEquals(firstList.size(), secondList.size());
+
+    for (int i = 0; i < firstList.size(); i++) {
+      List<DoseRateMeasurement> a = firstList.get(i).getMeasurementList();
+      List<DoseRateMeasurement> b = secondList.get(i).getMeasurementList();
+
+      assertEquals(a.size(), b.size());
+
+      for (int j = 0; j < a.size(); j++) {
+        assertEquals(a.get(j).getCurrent(), b.get(j).getCurrent(), 0);
+        assertEquals(a.get(j).getDoseRateRadsPerHour(), b.get(j).getDoseRateRadsPerHour(), 0);
+      }
+    }
+  }
+
+  @Test
+  public void testFsdTripRepeatsStep() throws Exception {
+    VirtualClock clock = new VirtualClock(0);
+    SimulatedChannelAccess sim =
+        SimulatedChannelAccess.fromDataset(clock, 7, seed, Laser.A, MAX_ATTENUATOR);
+    CalibrationEngine engine = newEngine(sim, clock);
+
+    int[] trips = new int[1];
+
+    engine.addListener(
+        event -> {
+          if (event.getState() == CalibrationState.WAITING_ON_FSD) {
+            trips[0]++;
+            clock.advance(10000); // Operator takes a while to notice and clear the trip
+            engine.resume();
+          }
+        });
+
+    sim.scheduleFsdTrip(30000, 5000);
+
+    HallCalibrationDataset result = engine.run();
+
+    assertEquals(1, trips[0]);
+
+    for (IonChamberDataset icDataset : result.getMeasuredDoseRateDataset()) {
+      assertEquals(NUMBER_OF_STEPS + 1, icDataset.getMeasurementList().size());
+    }
+  }
+
+  @Test
+  public void testDisconnectPausesAndRepeatsStep() throws Exception {
+    VirtualClock clock = new VirtualClock(0);
+    SimulatedChannelAccess sim =
+        SimulatedChannelAccess.fromDataset(clock, 7, seed, Laser.A, MAX_ATTENUATOR);
+    CalibrationEngine engine = newEngine(sim, clock);
+
+    int[] waits = new int[1];
+
+    engine.addListener(
+        event -> {
+          if (event.getState() == CalibrationState.WAITING_ON_EPICS) {
+            waits[0]++;
+          }
+        });
+
+    String pv = lastChamber(seed).getIonChamber().getDoseRateReadPvName();
+
+    sim.scheduleOutage(pv, 30000, 5000); // IOC reboot mid run
+
+    HallCalibrationDataset result = engine.run();
+
+    assertEquals(1, waits[0]);
+    assertFalse(engine.isInterrupted());
+
+    for (IonChamberDataset icDataset : result.getMeasuredDoseRateDataset()) {
+      assertEquals(NUMBER_OF_STEPS + 1, icDataset.getMeasurementList().size());
+    }
+  }
+
+  @Test
+  public void testTraceReplaysRawSamples() throws Exception {
+    VirtualClock clock = new VirtualClock(0);
+    SimulatedChannelAccess sim =
+        SimulatedChannelAccess.fromDataset(clock, 3, seed, Laser.A, MAX_ATTENUATOR);
+    CalibrationEngine engine = newEngine(sim, clock);
+
+    HallCalibrationDataset result = engine.run();
+
+    File[] traces =
+        new File(ICalibrateApp.APP_PROPERTIES.getProperty("JOURNAL_DIR"))
+            .listFiles((dir, name) -> name.endsWith("." + SampleTraceWriter.FILE_EXTENSION));
+
+    assertEquals(1, traces.length);
+
+    MonitorSampler replayed = MonitorSampler.fromTrace(new SampleTraceReader(traces[0]));
+    String currentPv = ICalibrateApp.APP_PROPERTIES.getProperty("HALLA_CURRENT_READ_PV").trim();
+    String fsdPv = ICalibrateApp.APP_PROPERTIES.getProperty("MASTER_FSD_VOLTAGE_PV").trim();
+    IonChamberDataset icDataset = lastChamber(result);
+    String dosePv = icDataset.getIonChamber().getDoseRateReadPvName();
+
+    // Every update at 10 Hz for the whole run, not just the step averages
+    assertTrue(replayed.getBuffer(currentPv).size() >= clock.currentTimeMillis() / 100);
+    assertTrue(replayed.getBuffer(dosePv).size() >= clock.currentTimeMillis() / 100);
+    assertEquals(1, replayed.getBuffer(fsdPv).size()); // Never tripped
+  }
+
+  private HallCalibrationDataset runWithSeed(long seedValue) throws Exception {
+    VirtualClock clock = new VirtualClock(0);
+    SimulatedChannelAccess sim =
+        SimulatedChannelAccess.fromDataset(clock, seedValue, seed, Laser.A, MAX_ATTENUATOR);
+
+    return newEngine(sim, clock).run();
+  }
+
+  private CalibrationEngine newEngine(SimulatedChannelAccess sim, VirtualClock clock)
+      throws IOException {
+    ICalibrateApp.APP_PROPERTIES.setProperty("JOURNAL_DIR", folder.newFolder().getPath());
+
+    CreateNewDatasetParameters params = new CreateNewDatasetParameters(sim);
+    params.setHall(seed.getHall());
+    params.setLaser(Laser.A);
+    params.setMinAttenuator(0);
+    params.setMaxAttenuator(MAX_ATTENUATOR);
+    params.setNumberOfSteps(NUMBER_OF_STEPS);
+    params.setSettleSeconds(SETTLE_SECONDS);
+    params.setSamplesPerStep(SAMPLES_PER_STEP);
+    params.setIonChamberList(chambers());
+
+    return new CalibrationEngine(sim, params, null, clock);
+  }
+
+  private List<IonChamber> chambers() {
+    List<IonChamber> icList = new ArrayList<>();
+
+    for (IonChamberDataset icDataset : seed.getMeasuredDoseRateDataset()) {
+      icList.add(icDataset.getIonChamber());
+    }
+
+    return icList;
+  }
+
+  private IonChamberDataset lastChamber(HallCalibrationDataset dataset) {
+    List<IonChamberDataset> datasetList = dataset.getMeasuredDoseRateDataset();
+
+    return datasetList.get(datasetList.size() - 1);
+  }
+
+  private static void restoreProperty(String name, String value) {
+    if (value == null) {
+      ICalibrateApp.APP_PROPERTIES.remove(name);
+    } else {
+      ICalibrateApp.APP_PROPERTIES.setProperty(name, value);
+    }
+  }
+}